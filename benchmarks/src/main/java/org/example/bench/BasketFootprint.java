@@ -0,0 +1,75 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Heap footprint of a basket's scans: retained heap per scan after a full GC, for the ArrayList of ScannedItem
+ * objects Checkout used to keep and for Checkout's packed scan buffer (minus the footprint of an empty
+ * Checkout). Each run holds {@code baskets} baskets of
+ * the given size so the numbers are well above GC noise. Not a JMH benchmark; run it directly, for example
+ * {@code java -Xmx4g -cp benchmarks/target/benchmarks.jar org.example.bench.BasketFootprint 1000 50000}.
+ */
+public class BasketFootprint {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[] { 100, 1_000, 50_000 } : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(10_000, 0.3, rnd);
+
+        long emptyCheckout = emptyCheckoutBytes();
+        System.out.printf("empty Checkout: %d bytes, not counted below%n", emptyCheckout);
+        System.out.printf("%-12s %12s %14s %12s%n", "scans", "basket size", "heap MB", "bytes/scan");
+        for (int size : sizes) {
+            int baskets = Math.max(1, 2_000_000 / size);
+            measure("object list", size, baskets, products, 0);
+            measure("packed", size, baskets, products, emptyCheckout);
+        }
+    }
+
+    private static long emptyCheckoutBytes() {
+        int count = 100_000;
+        long before = usedAfterGc();
+        Checkout[] kept = new Checkout[count];
+        for (int i = 0; i < count; i++) kept[i] = new Checkout();
+        long used = usedAfterGc() - before - (16 + 4L * count); // minus the array holding them
+        if (kept[count - 1] == null) throw new AssertionError();
+        return used / count;
+    }
+
+    private static void measure(String label, int size, int baskets, List<Product> products, long perBasketOverhead) {
+        // scans are generated per basket and only the basket keeps them, as at a real lane
+        long before = usedAfterGc();
+        List<Object> kept = new ArrayList<>(baskets);
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        for (int b = 0; b < baskets; b++) {
+            List<ScannedItem> items = BenchData.basket(products, size, rnd);
+            if (label.equals("packed")) {
+                Checkout checkout = new Checkout();
+                for (ScannedItem item : items) checkout.scan(item);
+                kept.add(checkout);
+            } else {
+                kept.add(new ArrayList<>(items));
+            }
+        }
+        long used = usedAfterGc() - before - perBasketOverhead * baskets;
+        long scans = (long) size * baskets;
+        System.out.printf("%-12s %12d %14.1f %12.1f%n", label, size, used / 1e6, (double) used / scans);
+        if (kept.size() != baskets) throw new AssertionError();
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
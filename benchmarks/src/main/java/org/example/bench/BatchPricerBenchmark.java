@@ -0,0 +1,95 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+import org.example.service.BasketBatch;
+import org.example.service.BatchPricer;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reprices a batch of historical baskets: one {@link Checkout} per basket (scan every item, then
+ * calculateTotals) against {@link BatchPricer} over the same rows in columnar form, on one thread and on the
+ * common pool. The batch is built once; building it is part of loading the data, not of pricing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchPricerBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"10000", "100000"})
+    int baskets;
+
+    @Param({"20"})
+    int basketSize;
+
+    private List<Promotion> promotions;
+    private List<List<ScannedItem>> scans;
+    private BasketBatch batch;
+    private BatchPricer pricer;
+    private ForkJoinPool singleThread;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(CATALOG_SIZE, 0.2, rnd);
+        promotions = BenchData.promotions(products, 0.2, rnd);
+        ProductCatalog catalog = new ProductCatalog();
+        products.forEach(catalog::addProduct);
+
+        scans = new ArrayList<>(baskets);
+        BasketBatch.Builder builder = BasketBatch.builder();
+        for (int b = 0; b < baskets; b++) {
+            List<ScannedItem> basket = BenchData.basket(products, basketSize, rnd);
+            scans.add(basket);
+            String basketId = "B" + b;
+            for (ScannedItem item : basket) {
+                if (item.isPiece()) builder.addPieces(basketId, item.getProduct().getId(), item.getQuantity());
+                else builder.addWeight(basketId, item.getProduct().getId(), item.getWeight());
+            }
+        }
+        batch = builder.build();
+        pricer = new BatchPricer(catalog, promotions);
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public BigDecimal checkoutPerBasket() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (List<ScannedItem> basket : scans) {
+            Checkout checkout = new Checkout(promotions);
+            for (ScannedItem item : basket) checkout.scan(item);
+            sum = sum.add(checkout.calculateTotals().getTotal());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BatchPricer.Result batchSingleThread() {
+        return pricer.price(batch, singleThread);
+    }
+
+    @Benchmark
+    public BatchPricer.Result batchParallel() {
+        return pricer.price(batch);
+    }
+}
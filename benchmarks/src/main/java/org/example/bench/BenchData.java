@@ -0,0 +1,89 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic data shared by the benchmarks: products, promotions, baskets and catalog CSV files.
+ */
+final class BenchData {
+
+    static final long SEED = 20240601L;
+
+    private BenchData() { }
+
+    /**
+     * @param weightRatio    share of products sold by weight (0..1)
+     */
+    static List<Product> products(int count, double weightRatio, SplittableRandom rnd) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UnitType unit = rnd.nextDouble() < weightRatio ? UnitType.WEIGHT : UnitType.PIECE;
+            BigDecimal price = BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2);
+            products.add(new Product(id(i), "Product " + i, unit, price));
+        }
+        return products;
+    }
+
+    /**
+     * @param promoCoverage share of piece products carrying a buy-X-get-Y promotion (0..1)
+     */
+    static List<Promotion> promotions(List<Product> products, double promoCoverage, SplittableRandom rnd) {
+        List<Promotion> promos = new ArrayList<>();
+        for (Product p : products) {
+            if (p.getUnitType() == UnitType.PIECE && rnd.nextDouble() < promoCoverage) {
+                promos.add(new Promotion(p.getId(), 1 + rnd.nextInt(3), 1));
+            }
+        }
+        return promos;
+    }
+
+    static List<ScannedItem> basket(List<Product> products, int scans, SplittableRandom rnd) {
+        List<ScannedItem> items = new ArrayList<>(scans);
+        for (int i = 0; i < scans; i++) {
+            Product p = products.get(rnd.nextInt(products.size()));
+            items.add(p.getUnitType() == UnitType.PIECE
+                    ? ScannedItem.ofPieces(p, 1 + rnd.nextInt(4))
+                    : ScannedItem.ofWeight(p, BigDecimal.valueOf(50 + rnd.nextInt(3_000), 3)));
+        }
+        return items;
+    }
+
+    /** Write a catalog CSV in the ProductCatalog format (id,name,unitType,price). */
+    static Path writeCatalogCsv(int rows, double weightRatio) throws IOException {
+        Path file = Files.createTempFile("bench-catalog-" + rows + "-", ".csv");
+        file.toFile().deleteOnExit();
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("# id,name,unit,price\n");
+            for (int i = 0; i < rows; i++) {
+                String unit = rnd.nextDouble() < weightRatio ? "WEIGHT" : "PIECE";
+                w.write(id(i));
+                w.write(",Product ");
+                w.write(Integer.toString(i));
+                w.write(',');
+                w.write(unit);
+                w.write(',');
+                w.write(BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2).toPlainString());
+                w.write('\n');
+            }
+        }
+        return file;
+    }
+
+    static String id(int i) {
+        return "SKU" + i;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Heap footprint of the catalog storage modes: retained heap after a full GC, per SKU.
+ * Not a JMH benchmark; run it directly, for example
+ * {@code java -Xmx8g -cp benchmarks/target/benchmarks.jar org.example.bench.CatalogFootprint 1000000 5000000}.
+ */
+public class CatalogFootprint {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[] { 1_000_000 } : new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+
+        System.out.printf("%-12s %12s %14s %12s%n", "catalog", "SKUs", "heap MB", "bytes/SKU");
+        for (int size : sizes) {
+            measure("default", size, ProductCatalog::new);
+            measure("concurrent", size, ProductCatalog::concurrent);
+            measure("versioned", size, ProductCatalog::versioned);
+            measure("columnar", size, ProductCatalog::columnar);
+        }
+    }
+
+    private static void measure(String label, int size, Supplier<ProductCatalog> factory) {
+        long before = usedAfterGc();
+        ProductCatalog catalog = factory.get();
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        for (int i = 0; i < size; i++) {
+            UnitType unit = rnd.nextDouble() < 0.3 ? UnitType.WEIGHT : UnitType.PIECE;
+            // fresh strings per product, as a CSV load would produce
+            catalog.addProduct(new Product(new String(BenchData.id(i)), "Product " + i, unit,
+                    BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2)));
+        }
+        long used = usedAfterGc() - before;
+        System.out.printf("%-12s %12d %14.1f %12.1f%n", label, catalog.size(), used / 1e6, (double) used / size);
+        if (catalog.getProduct(BenchData.id(size / 2)).isEmpty()) throw new AssertionError();
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
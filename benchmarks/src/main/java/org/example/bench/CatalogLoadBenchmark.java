@@ -0,0 +1,60 @@
+package org.example.bench;
+
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a generated catalog CSV into an empty ProductCatalog, versus opening the same catalog from a binary
+ * snapshot (with and without checksum verification) and serving the first lookup. Large sizes need a roomy
+ * heap, see benchmarks/README.md.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class CatalogLoadBenchmark {
+
+    @Param({"1000", "100000", "1000000", "5000000"})
+    int catalogRows;
+
+    private Path csv;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchData.writeCatalogCsv(catalogRows, 0.3);
+        snapshot = Files.createTempFile("catalog", ".gcat");
+        loadFromCsv().exportBinary(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public ProductCatalog loadFromCsv() throws IOException {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.loadFromCsv(csv);
+        return catalog;
+    }
+
+    @Benchmark
+    public Optional<?> openBinaryAndLookup() throws IOException {
+        return ProductCatalog.openBinary(snapshot).getProduct(BenchData.id(catalogRows / 2));
+    }
+
+    @Benchmark
+    public Optional<?> openBinaryUnverifiedAndLookup() throws IOException {
+        return ProductCatalog.openBinary(snapshot, false).getProduct(BenchData.id(catalogRows / 2));
+    }
+}
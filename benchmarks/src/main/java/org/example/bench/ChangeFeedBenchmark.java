@@ -0,0 +1,86 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.service.CatalogChangeFeed;
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until a price change is visible to lanes: appending one upsert to a delta file tailed by a
+ * {@link CatalogChangeFeed} and spinning on {@code getProduct} until the new price shows, versus reloading the
+ * whole catalog CSV into a fresh catalog. {@code burst} changes are appended at once to show batching.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ChangeFeedBenchmark {
+
+    @Param({"100000", "1000000"})
+    int catalogRows;
+
+    @Param({"1", "1000"})
+    int burst;
+
+    private Path csv;
+    private Path delta;
+    private ProductCatalog catalog;
+    private CatalogChangeFeed feed;
+    private FileChannel out;
+    private long price = 100;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchData.writeCatalogCsv(catalogRows, 0.3);
+        delta = Files.createTempFile("bench-catalog-", CatalogChangeFeed.DELTA_SUFFIX);
+        catalog = ProductCatalog.concurrent();
+        catalog.loadFromCsv(csv);
+        feed = CatalogChangeFeed.start(catalog, delta);
+        out = FileChannel.open(delta, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        feed.close();
+        out.close();
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(delta);
+    }
+
+    @Benchmark
+    public Product feedChangeVisible() throws IOException {
+        price++;
+        StringBuilder sb = new StringBuilder();
+        String last = null;
+        for (int i = 0; i < burst; i++) {
+            last = BenchData.id((int) ((price * 7919 + i) % catalogRows));
+            sb.append("U,").append(last).append(",Product,PIECE,").append(price).append('\n');
+        }
+        out.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        BigDecimal expected = BigDecimal.valueOf(price);
+        while (true) {
+            Product p = catalog.getProduct(last).orElseThrow();
+            if (p.getPricePerUnit().equals(expected)) return p;
+            Thread.onSpinWait();
+        }
+    }
+
+    @Benchmark
+    public ProductCatalog fullReload() throws IOException {
+        ProductCatalog fresh = ProductCatalog.concurrent();
+        fresh.loadFromCsv(csv);
+        return fresh;
+    }
+}
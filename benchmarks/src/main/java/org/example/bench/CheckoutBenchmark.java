@@ -0,0 +1,85 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.FixedPointPricing;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans a basket into a fresh Checkout and prices it, across basket sizes and product mixes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int basketSize;
+
+    /** Share of distinct products sold by weight. */
+    @Param({"0.0", "0.3"})
+    double weightRatio;
+
+    /** Share of piece products with a promotion. */
+    @Param({"0.0", "0.5"})
+    double promoCoverage;
+
+    /** Recompute on every calculateTotals() or keep running aggregates. */
+    @Param({"false", "true"})
+    boolean incremental;
+
+    private List<Promotion> promotions;
+    private List<ScannedItem> basket;
+    private Checkout priced;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(Math.max(10, basketSize / 4), weightRatio, rnd);
+        promotions = BenchData.promotions(products, promoCoverage, rnd);
+        basket = BenchData.basket(products, basketSize, rnd);
+        priced = new Checkout(promotions, incremental);
+        for (ScannedItem item : basket) priced.scan(item);
+    }
+
+    @Benchmark
+    public Checkout.Result scanAndCalculateTotals() {
+        Checkout checkout = new Checkout(promotions, incremental);
+        for (ScannedItem item : basket) checkout.scan(item);
+        return checkout.calculateTotals();
+    }
+
+    /** Lane display pattern: totals are refreshed after every scan. */
+    @Benchmark
+    public Checkout.Result calculateTotalsAfterEveryScan() {
+        Checkout checkout = new Checkout(promotions, incremental);
+        Checkout.Result r = null;
+        for (ScannedItem item : basket) {
+            checkout.scan(item);
+            r = checkout.calculateTotals();
+        }
+        return r;
+    }
+
+    /** Customer display polling a basket that has not changed: only total and savings are read. */
+    @Benchmark
+    public BigDecimal displayRefresh() {
+        Checkout.Result r = priced.calculateTotals();
+        return r.getTotal().add(r.getSavings());
+    }
+
+    @Benchmark
+    public Checkout.Result fixedPointPrice() {
+        return new FixedPointPricing(promotions).price(basket);
+    }
+}
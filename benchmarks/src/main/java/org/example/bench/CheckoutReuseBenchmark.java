@@ -0,0 +1,90 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.CheckoutPool;
+import org.example.service.PromotionIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lane ringing up customer after customer: a new Checkout per transaction built from the promotion list, one
+ * Checkout {@link Checkout#reset() reset} between customers on a shared {@link PromotionIndex}, and a
+ * {@link CheckoutPool}. Each operation scans one basket (taken in turn from pre-built ones, so the items
+ * themselves are not counted) and prices it. Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the
+ * allocation per transaction, {@code gc.count} and {@code gc.time} the collections it causes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@State(Scope.Benchmark)
+public class CheckoutReuseBenchmark {
+
+    private static final int BASKETS = 256;
+
+    /** Promotions in the store's list. */
+    @Param({"1000", "50000"})
+    int promotions;
+
+    @Param({"10", "50"})
+    int basketSize;
+
+    private List<Promotion> promotionList;
+    private PromotionIndex index;
+    private List<List<ScannedItem>> baskets;
+    private Checkout lane;
+    private CheckoutPool pool;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        // about 60% of the products carry a promotion; the list is cut to the requested size
+        List<Product> products = BenchData.products(promotions * 2, 0.0, rnd);
+        promotionList = BenchData.promotions(products, 0.6, rnd).subList(0, promotions);
+        index = PromotionIndex.of(promotionList);
+        // most baskets draw from the popular end of the catalog, with a few weighed items
+        List<Product> popular = new ArrayList<>(products.subList(0, 2_000));
+        popular.addAll(BenchData.products(200, 1.0, rnd));
+        baskets = new ArrayList<>(BASKETS);
+        for (int i = 0; i < BASKETS; i++) baskets.add(BenchData.basket(popular, basketSize, rnd));
+        lane = Checkout.sharing(index, false);
+        pool = new CheckoutPool(() -> Checkout.sharing(index, false), 4);
+    }
+
+    @Benchmark
+    public BigDecimal perTransaction() {
+        Checkout checkout = new Checkout(promotionList);
+        return ringUp(checkout);
+    }
+
+    @Benchmark
+    public BigDecimal reset() {
+        lane.reset();
+        return ringUp(lane);
+    }
+
+    @Benchmark
+    public BigDecimal pooled() {
+        Checkout checkout = pool.acquire();
+        try {
+            return ringUp(checkout);
+        } finally {
+            pool.release(checkout);
+        }
+    }
+
+    private BigDecimal ringUp(Checkout checkout) {
+        for (ScannedItem item : baskets.get(next++ & (BASKETS - 1))) checkout.scan(item);
+        return checkout.calculateTotals().getTotal();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups on a shared concurrent catalog. Run with {@code -t 1,2,4,8} to see scaling across reader threads;
+ * the {@code mixed} group adds one writer continuously updating prices while three threads read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentCatalogBenchmark {
+
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    @Param({"concurrent", "versioned", "default"})
+    String catalogType;
+
+    private ProductCatalog catalog;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = switch (catalogType) {
+            case "concurrent" -> ProductCatalog.concurrent();
+            case "versioned" -> ProductCatalog.versioned();
+            default -> new ProductCatalog();
+        };
+        products = BenchData.products(catalogSize, 0.3, new SplittableRandom(BenchData.SEED));
+        products.forEach(catalog::addProduct);
+    }
+
+    @Benchmark
+    public Product lookup() {
+        return catalog.getProduct(BenchData.id(ThreadLocalRandom.current().nextInt(catalogSize))).orElse(null);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Product mixedRead() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Product mixedWrite() {
+        // the default catalog is not thread-safe, only concurrent/versioned are meaningful here
+        Product p = products.get(ThreadLocalRandom.current().nextInt(catalogSize));
+        return catalog.updateProduct(new Product(p.getId(), p.getName(), p.getUnitType(),
+                p.getPricePerUnit().add(BigDecimal.ONE)));
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.CheckoutJournal;
+import org.example.service.JournaledCheckout;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of journaling a scan: a plain {@link Checkout#scan} against the same scan through a
+ * {@link JournaledCheckout} under each fsync policy. Every {@code BASKET} scans the basket is completed (which
+ * waits for the disk under ON_FINALIZE and EVERY_RECORD) and a new one begun, so that cost is spread over the
+ * scans. Run with {@code -t} > 1 to see group commit across lanes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    private static final int BASKET = 40;
+
+    @Param({"NONE", "PERIODIC", "ON_FINALIZE", "EVERY_RECORD"})
+    String fsync;
+
+    private Path dir;
+    private CheckoutJournal journal;
+    private List<ScannedItem> items;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(1_000, 0.2, rnd);
+        items = BenchData.basket(products, 1_000, rnd);
+        dir = Files.createTempDirectory("journal-bench");
+        journal = CheckoutJournal.open(dir, CheckoutJournal.Options.defaults()
+                .withFsync(CheckoutJournal.FsyncPolicy.valueOf(fsync)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lane {
+        Checkout plain;
+        JournaledCheckout journaled;
+        int scans;
+        int next;
+
+        ScannedItem nextItem(List<ScannedItem> items) {
+            ScannedItem item = items.get(next);
+            next = (next + 1) % items.size();
+            return item;
+        }
+    }
+
+    @Benchmark
+    public void plainScan(Lane lane) {
+        if (lane.plain == null || lane.scans++ == BASKET) {
+            lane.plain = new Checkout();
+            lane.scans = 1;
+        }
+        lane.plain.scan(lane.nextItem(items));
+    }
+
+    @Benchmark
+    public void journaledScan(Lane lane) {
+        if (lane.journaled == null || lane.scans++ == BASKET) {
+            if (lane.journaled != null) lane.journaled.complete();
+            lane.journaled = journal.begin(new Checkout());
+            lane.scans = 1;
+        }
+        lane.journaled.scan(lane.nextItem(items));
+    }
+}
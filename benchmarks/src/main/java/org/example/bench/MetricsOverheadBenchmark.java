@@ -0,0 +1,68 @@
+package org.example.bench;
+
+import org.example.metrics.StoreMetrics;
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.example.service.ReceiptPrinter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link StoreMetrics} on the hot paths: a lane that looks up, scans, prices and prints a basket, with
+ * metrics recording and with them switched off. No JFR recording is running, so the JFR events cost nothing
+ * beyond their (scalar-replaced) allocation. Run with {@code -t} > 1 to see contention on the shared counters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    @Param({"true", "false"})
+    boolean enabled;
+
+    @Param({"10", "100"})
+    int basketSize;
+
+    private ProductCatalog catalog;
+    private List<Promotion> promotions;
+    private String[] ids;
+    private ScannedItem[] items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(1_000, 0.2, rnd);
+        catalog = ProductCatalog.concurrent();
+        products.forEach(catalog::addProduct);
+        promotions = BenchData.promotions(products, 0.3, rnd);
+        items = BenchData.basket(products, basketSize, rnd).toArray(new ScannedItem[0]);
+        ids = new String[items.length];
+        for (int i = 0; i < items.length; i++) ids[i] = items[i].getProduct().getId();
+        StoreMetrics.global().setEnabled(enabled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StoreMetrics.global().setEnabled(true);
+    }
+
+    @Benchmark
+    public String lane(Blackhole bh) {
+        Checkout checkout = new Checkout(promotions);
+        for (int i = 0; i < items.length; i++) {
+            bh.consume(catalog.getProduct(ids[i]));
+            checkout.scan(items[i]);
+        }
+        return ReceiptPrinter.print(checkout.calculateTotals());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices baskets where every product carries several buy-X-get-Y deals with close charged shares and group sizes
+ * up to {@code maxGroup}, so the cheapest combination is rarely the best single deal. The search table grows with
+ * maxGroup squared, not with the quantity. {@code budgetMicros=0} measures the greedy fallback alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OverlappingPromotionsBenchmark {
+
+    private static final int PRODUCTS = 20;
+
+    @Param({"1", "4", "8"})
+    int promotionsPerProduct;
+
+    @Param({"6", "60"})
+    int maxGroup;
+
+    @Param({"10", "1000", "100000"})
+    int quantity;
+
+    @Param({"2000", "0"})
+    int budgetMicros;
+
+    private Checkout checkout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Promotion> promotions = new ArrayList<>();
+        List<ScannedItem> items = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = new Product(BenchData.id(i), "Product " + i, UnitType.PIECE,
+                    BigDecimal.valueOf(50 + rnd.nextInt(2_000), 2));
+            for (int k = 0; k < promotionsPerProduct; k++) {
+                int size = Math.max(2, maxGroup - rnd.nextInt(Math.max(1, maxGroup / 3)));
+                int buy = Math.max(1, size / 2 + rnd.nextInt(Math.max(1, size / 4)));
+                promotions.add(new Promotion(p.getId(), Math.min(buy, size - 1), size - Math.min(buy, size - 1)));
+            }
+            items.add(ScannedItem.ofPieces(p, quantity));
+        }
+        checkout = new Checkout(promotions);
+        checkout.setPromotionTimeBudget(Duration.ofNanos(budgetMicros * 1_000L));
+        for (ScannedItem item : items) checkout.scan(item);
+    }
+
+    @Benchmark
+    public Checkout.Result calculateTotals() {
+        return checkout.calculateTotals();
+    }
+}
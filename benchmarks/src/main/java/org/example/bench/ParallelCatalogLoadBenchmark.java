@@ -0,0 +1,58 @@
+package org.example.bench;
+
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the parallel memory-mapped CSV import across pool sizes; {@code sequentialLoad} is the
+ * single-threaded streaming loader on the same file for reference.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ParallelCatalogLoadBenchmark {
+
+    @Param({"1000000", "5000000"})
+    int catalogRows;
+
+    @Param({"1", "2", "4", "8", "16"})
+    int threads;
+
+    private Path csv;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchData.writeCatalogCsv(catalogRows, 0.3);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(csv);
+    }
+
+    @Benchmark
+    public ProductCatalog parallelLoad() throws IOException {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.loadFromCsvParallel(csv, pool);
+        return catalog;
+    }
+
+    @Benchmark
+    public ProductCatalog sequentialLoad() throws IOException {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.loadFromCsv(csv);
+        return catalog;
+    }
+}
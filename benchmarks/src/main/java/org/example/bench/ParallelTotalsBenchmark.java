@@ -0,0 +1,68 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code calculateTotals()} on bulk orders: the sequential full recompute against parallel aggregation and
+ * pricing on pools of increasing size. {@code sequential} ignores the threads parameter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelTotalsBenchmark {
+
+    @Param({"50000", "200000"})
+    int basketSize;
+
+    @Param({"2", "4", "8"})
+    int threads;
+
+    private ForkJoinPool pool;
+    private Checkout sequential;
+    private Checkout parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(20_000, 0.3, rnd);
+        List<ScannedItem> items = BenchData.basket(products, basketSize, rnd);
+        List<Promotion> promotions = BenchData.promotions(products, 0.3, rnd);
+        pool = new ForkJoinPool(threads);
+        sequential = new Checkout(promotions);
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        parallel = new Checkout(promotions);
+        parallel.setParallelThreshold(1);
+        parallel.setAggregationPool(pool);
+        for (ScannedItem item : items) {
+            sequential.scan(item);
+            parallel.scan(item);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Checkout.Result sequential() {
+        return sequential.calculateTotals();
+    }
+
+    @Benchmark
+    public Checkout.Result parallel() {
+        return parallel.calculateTotals();
+    }
+}
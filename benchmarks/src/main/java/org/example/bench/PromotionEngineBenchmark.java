@@ -0,0 +1,80 @@
+package org.example.bench;
+
+import org.example.model.*;
+import org.example.scan.ScannedItem;
+import org.example.service.AppliedPromotion;
+import org.example.service.Checkout;
+import org.example.service.PromotionEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates a rule-based promotion calendar against a priced basket. The calendar mixes multi-buys on single
+ * products, mix-and-match bundles and weight discounts on groups of 50 products, and basket thresholds. The
+ * catalog grows with the calendar (2 products per rule), so a product is targeted by the same number of rules
+ * on average; evaluation time should then depend on the basket size only, not on {@code rules}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PromotionEngineBenchmark {
+
+    private static final int GROUP_SIZE = 50;
+
+    @Param({"1000", "50000", "500000"})
+    int rules;
+
+    @Param({"10", "100", "1000"})
+    int basketSize;
+
+    private PromotionEngine engine;
+    private Checkout.Result result;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        int productCount = rules * 2;
+        List<Product> products = BenchData.products(productCount, 0.3, rnd);
+        PromotionEngine.Builder builder = PromotionEngine.builder();
+        int groups = productCount / GROUP_SIZE;
+        for (int g = 0; g < groups; g++) {
+            List<String> members = new ArrayList<>(GROUP_SIZE);
+            for (int i = 0; i < GROUP_SIZE; i++) members.add(products.get(rnd.nextInt(productCount)).getId());
+            builder.group("G" + g, members);
+        }
+        for (int r = 0; r < rules; r++) {
+            String id = "R" + r;
+            int kind = rnd.nextInt(100);
+            if (kind < 50) {
+                Product p = products.get(rnd.nextInt(productCount));
+                builder.add(BundlePriceRule.forProduct(id, p.getId(), 2 + rnd.nextInt(3),
+                        p.getPricePerUnit().multiply(BigDecimal.valueOf(2))));
+            } else if (kind < 80) {
+                builder.add(BundlePriceRule.forGroup(id, "G" + rnd.nextInt(groups), 3, BigDecimal.valueOf(500 + rnd.nextInt(5_000), 2)));
+            } else if (kind < 99) {
+                builder.add(WeightDiscountRule.forGroup(id, "G" + rnd.nextInt(groups), BigDecimal.valueOf(rnd.nextInt(2_000), 3),
+                        BigDecimal.valueOf(5 + rnd.nextInt(30))));
+            } else {
+                builder.add(BasketThresholdRule.amountOff(id, BigDecimal.valueOf(rnd.nextInt(500)), BigDecimal.valueOf(1 + rnd.nextInt(20))));
+            }
+        }
+        engine = builder.build();
+
+        Checkout checkout = new Checkout();
+        for (ScannedItem item : BenchData.basket(products, basketSize, rnd)) checkout.scan(item);
+        result = checkout.calculateTotals();
+    }
+
+    @Benchmark
+    public List<AppliedPromotion> evaluate() {
+        return engine.evaluate(result);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.ReceiptPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the receipt for an already priced basket: to a new String, appended into a reused StringBuilder, and
+ * encoded into a reused direct ByteBuffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptPrinterBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int basketSize;
+
+    @Param({"0.3"})
+    double weightRatio;
+
+    @Param({"0.5"})
+    double promoCoverage;
+
+    private Checkout.Result result;
+    private StringBuilder builder;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(Math.max(10, basketSize / 4), weightRatio, rnd);
+        Checkout checkout = new Checkout(BenchData.promotions(products, promoCoverage, rnd));
+        for (ScannedItem item : BenchData.basket(products, basketSize, rnd)) checkout.scan(item);
+        result = checkout.calculateTotals();
+        String receipt = ReceiptPrinter.print(result);
+        builder = new StringBuilder(receipt.length());
+        buffer = ByteBuffer.allocateDirect(receipt.length() * 4);
+    }
+
+    @Benchmark
+    public String print() {
+        return ReceiptPrinter.print(result);
+    }
+
+    @Benchmark
+    public int printToStringBuilder() {
+        builder.setLength(0);
+        ReceiptPrinter.print(result, builder);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int printToByteBuffer() {
+        buffer.clear();
+        ReceiptPrinter.print(result, buffer);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.service.CatalogPrimary;
+import org.example.service.CatalogReplica;
+import org.example.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog replication over loopback TCP to {@code replicas} replicas in this JVM (each with its own catalog,
+ * connection and thread). {@code lag}: publish one batch of price changes and wait until every replica has
+ * applied it. {@code fanOut}: publish 100 batches back to back, then wait for every replica, so throughput per
+ * batch with the replicas batching up writes as they fall behind. For replicas in separate processes see
+ * {@code org.example.sim.ReplicaNode}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReplicationBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int FAN_OUT_BATCHES = 100;
+    private static final Duration WAIT = Duration.ofSeconds(60);
+
+    @Param({"1", "10", "100", "200"})
+    int replicas;
+
+    /** Products changed per batch. */
+    @Param({"10", "1000"})
+    int batchSize;
+
+    private CatalogPrimary primary;
+    private final List<CatalogReplica> followers = new ArrayList<>();
+    private List<Product> products;
+    private SplittableRandom rnd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        rnd = new SplittableRandom(BenchData.SEED);
+        products = BenchData.products(CATALOG_SIZE, 0.3, rnd);
+        primary = CatalogPrimary.start(ProductCatalog.concurrent(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        long offset = primary.publish(products, List.of());
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort());
+        for (int i = 0; i < replicas; i++) followers.add(CatalogReplica.start(ProductCatalog.concurrent(), address));
+        awaitAll(offset);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (CatalogReplica r : followers) r.close();
+        primary.close();
+    }
+
+    @Benchmark
+    public long lag() throws InterruptedException {
+        long offset = primary.publish(changes(), List.of());
+        awaitAll(offset);
+        return offset;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT_BATCHES)
+    public long fanOut() throws InterruptedException {
+        long offset = 0;
+        for (int i = 0; i < FAN_OUT_BATCHES; i++) offset = primary.publish(changes(), List.of());
+        awaitAll(offset);
+        return offset;
+    }
+
+    private List<Product> changes() {
+        List<Product> changed = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Product p = products.get(rnd.nextInt(products.size()));
+            changed.add(new Product(p.getId(), p.getName(), p.getUnitType(), BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2)));
+        }
+        return changed;
+    }
+
+    private void awaitAll(long offset) throws InterruptedException {
+        for (CatalogReplica r : followers) {
+            if (!r.awaitOffset(offset, WAIT)) throw new IllegalStateException("Replica did not catch up to " + offset);
+        }
+    }
+}
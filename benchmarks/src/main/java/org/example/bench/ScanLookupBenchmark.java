@@ -0,0 +1,100 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.service.ProductCatalog;
+import org.example.service.ScanLookupCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a scanned barcode into a Product: the id lookup lanes used so far ({@code getProduct(String)}, with the
+ * ids prepared up front so formatting the code is not counted), the catalog's long-keyed code index, and a per-lane
+ * {@link ScanLookupCache} in front of it. Scans follow a long-tailed Zipf-like popularity or stay
+ * within a hot set that fits the cache, and 1% are unknown codes. Use {@code -prof gc} to see the allocation per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanLookupBenchmark {
+
+    private static final long FIRST_CODE = 4_000_000_000_000L;
+    private static final int SCANS = 1 << 16;
+
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    @Param({"concurrent", "default", "columnar"})
+    String catalogType;
+
+    // zipf: long-tailed popularity over the whole catalog; hot: a lane's day of 2,000 distinct products
+    @Param({"zipf", "hot"})
+    String popularity;
+
+    private ProductCatalog catalog;
+    private long[] codes;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = switch (catalogType) {
+            case "concurrent" -> ProductCatalog.concurrent();
+            case "columnar" -> ProductCatalog.columnar();
+            default -> new ProductCatalog();
+        };
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        List<Product> products = BenchData.products(catalogSize, 0.3, rnd);
+        for (int i = 0; i < products.size(); i++) {
+            catalog.addProduct(products.get(i));
+            catalog.assignCode(FIRST_CODE + i, products.get(i).getId());
+        }
+        codes = new long[SCANS];
+        ids = new String[SCANS];
+        for (int i = 0; i < SCANS; i++) {
+            // continuous approximation of Zipf with exponent 1, as in the store simulator: the top 4k products
+            // of 100k get about 70% of the scans
+            int rank = popularity.equals("hot")
+                    ? rnd.nextInt(2_000)
+                    : (int) Math.exp(rnd.nextDouble() * Math.log(catalogSize + 1)) - 1;
+            codes[i] = rnd.nextInt(100) == 0 ? FIRST_CODE + catalogSize + rank : FIRST_CODE + rank;
+            ids[i] = BenchData.id((int) (codes[i] - FIRST_CODE));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lane {
+        ScanLookupCache cache;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ScanLookupBenchmark bench) {
+            cache = new ScanLookupCache(bench.catalog);
+        }
+
+        int nextScan() {
+            int i = next;
+            next = (i + 1) & (SCANS - 1);
+            return i;
+        }
+    }
+
+    @Benchmark
+    public Product byId(Lane lane) {
+        return catalog.getProduct(ids[lane.nextScan()]).orElse(null);
+    }
+
+    @Benchmark
+    public Product byCode(Lane lane) {
+        return catalog.getProductByCode(codes[lane.nextScan()]);
+    }
+
+    @Benchmark
+    public Product laneCache(Lane lane) {
+        return lane.cache.lookup(codes[lane.nextScan()]);
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.bench;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+import org.example.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name search at a lane: top 10 of {@link ProductSearchIndex#search} versus {@code listAll()} and a scan of
+ * every name, over a catalog of generated grocery names ("Organic Gala Apple 1kg"). {@code query} ranges from a
+ * common word to a two-word query and a short prefix. {@code reindex} is the cost the index adds to a write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String[] BRANDS = { "Organic", "Fresh", "Value", "Farm", "Select", "Golden", "Green", "Daily" };
+    private static final String[] VARIETIES = { "Gala", "Fuji", "Granny Smith", "Basmati", "Jasmine", "Russet",
+            "Cherry", "Roma", "Navel", "Seedless", "Baby", "Red", "Sweet", "Wild", "Brown", "Long Grain" };
+    private static final String[] ITEMS = { "Apple", "Rice", "Potato", "Tomato", "Orange", "Grapes", "Spinach",
+            "Onion", "Banana", "Carrot", "Pepper", "Lettuce", "Mango", "Pear", "Lemon", "Avocado", "Zucchini" };
+    private static final String[] SIZES = { "500g", "1kg", "2kg", "5kg", "6-pack", "bunch", "each", "bag" };
+
+    @Param({"100000", "1000000"})
+    int catalogSize;
+
+    @Param({"apple", "granny apple", "zu"})
+    String query;
+
+    private ProductCatalog catalog;
+    private ProductSearchIndex index;
+    private String[] queryWords;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom rnd = new SplittableRandom(BenchData.SEED);
+        catalog = ProductCatalog.concurrent();
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) products.add(product(i, rnd));
+        catalog.applyChanges(products, List.of());
+        index = catalog.searchIndex();
+        queryWords = query.split(" ");
+    }
+
+    @Benchmark
+    public List<Product> index() {
+        return index.search(query, 10);
+    }
+
+    @Benchmark
+    public List<Product> scan() {
+        List<Product> found = new ArrayList<>(10);
+        for (Product p : catalog.listAll()) {
+            String name = p.getName().toLowerCase(Locale.ROOT);
+            boolean all = true;
+            for (String w : queryWords) {
+                if (!(name.startsWith(w) || name.contains(" " + w))) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all && found.size() < 10) found.add(p);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public Product reindex() {
+        SplittableRandom rnd = new SplittableRandom(next);
+        Product p = product(next++ % catalogSize, rnd);
+        catalog.addProduct(p);
+        return p;
+    }
+
+    private static Product product(int i, SplittableRandom rnd) {
+        String name = BRANDS[rnd.nextInt(BRANDS.length)] + ' ' + VARIETIES[rnd.nextInt(VARIETIES.length)] + ' '
+                + ITEMS[rnd.nextInt(ITEMS.length)] + ' ' + SIZES[rnd.nextInt(SIZES.length)];
+        UnitType unit = rnd.nextInt(3) == 0 ? UnitType.WEIGHT : UnitType.PIECE;
+        return new Product(BenchData.id(i), name, unit, BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2));
+    }
+}
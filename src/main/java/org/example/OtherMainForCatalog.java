@@ -4,6 +4,7 @@ import org.example.model.Product;
 import org.example.model.Promotion;
 import org.example.model.UnitType;
 import org.example.scan.ScannedItem;
+import org.example.service.CatalogLoadReport;
 import org.example.service.Checkout;
 import org.example.service.ProductCatalog;
 import org.example.service.ReceiptPrinter;
@@ -36,8 +37,8 @@ public class OtherMainForCatalog {
         // MILK,Milk 1L,PIECE,1.25
         Path csv = Path.of("sample-products.csv");
         if (csv.toFile().exists()) {
-            catalog.loadFromCsv(csv);
-            System.out.println("Loaded products from " + csv);
+            CatalogLoadReport report = catalog.loadFromCsv(csv);
+            System.out.println("Loaded products from " + csv + ": " + report);
         }
 
         // show current catalog
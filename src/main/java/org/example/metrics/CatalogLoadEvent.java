@@ -0,0 +1,28 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** One catalog CSV import. */
+@Name("org.example.CatalogLoad")
+@Label("Catalog CSV Load")
+@Category("Grocery Store")
+public final class CatalogLoadEvent extends jdk.jfr.Event {
+    @Label("File")
+    public String file;
+
+    @Label("Parallel")
+    public boolean parallel;
+
+    @Label("Rows Read")
+    public long rowsRead;
+
+    @Label("Products Loaded")
+    public long productsLoaded;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,21 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One {@code ProductCatalog.getProduct} call. Off by default because of the volume, like {@link ScanEvent}. */
+@Name("org.example.CatalogLookup")
+@Label("Catalog Lookup")
+@Category("Grocery Store")
+@Enabled(false)
+@StackTrace(false)
+public final class CatalogLookupEvent extends jdk.jfr.Event {
+    @Label("Product")
+    public String productId;
+
+    @Label("Hit")
+    public boolean hit;
+}
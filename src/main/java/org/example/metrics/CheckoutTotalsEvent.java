@@ -0,0 +1,27 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One {@code Checkout.calculateTotals()} call. */
+@Name("org.example.CheckoutTotals")
+@Label("Checkout Totals")
+@Category("Grocery Store")
+@Description("Pricing of a basket")
+@StackTrace(false)
+public final class CheckoutTotalsEvent extends jdk.jfr.Event {
+    @Label("Scans")
+    public int scans;
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Promotion Lines Applied")
+    public int promotionLinesApplied;
+
+    @Label("Total")
+    public String total;
+}
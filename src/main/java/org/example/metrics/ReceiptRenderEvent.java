@@ -0,0 +1,16 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One receipt rendered by {@code ReceiptPrinter}. */
+@Name("org.example.ReceiptRender")
+@Label("Receipt Render")
+@Category("Grocery Store")
+@StackTrace(false)
+public final class ReceiptRenderEvent extends jdk.jfr.Event {
+    @Label("Lines")
+    public int lines;
+}
@@ -0,0 +1,24 @@
+package org.example.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One item scanned into a checkout. Off by default because of the volume; enable it in a JFR settings file
+ * ({@code org.example.Scan#enabled=true}) to profile a lane.
+ */
+@Name("org.example.Scan")
+@Label("Scan")
+@Category("Grocery Store")
+@Enabled(false)
+@StackTrace(false)
+public final class ScanEvent extends jdk.jfr.Event {
+    @Label("Product")
+    public String productId;
+
+    @Label("Weighed")
+    public boolean weighed;
+}
@@ -0,0 +1,238 @@
+package org.example.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and histograms for the checkout, catalog, scan cache and receipt hot paths. Recording is lock-free
+ * ({@link LongAdder}s and {@link ConcurrentHistogram}s) and costs one volatile read when
+ * {@link #setEnabled(boolean) disabled}. Read it through JMX ({@link #registerMBean()}), {@link #dump()} or the
+ * getters; the same paths also emit JFR events (category "Grocery Store").
+ * <p>
+ * Timed operations use {@link #startTimer()} and hand the result back to the matching {@code ...Done} method,
+ * which ignores it if metrics were disabled when the timer started.
+ */
+public final class StoreMetrics implements StoreMetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.example:type=StoreMetrics";
+
+    private static final StoreMetrics GLOBAL = new StoreMetrics();
+
+    // startTimer() result while disabled; System.nanoTime() may be any other value
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private volatile boolean enabled = true;
+    private volatile long since = System.nanoTime();
+
+    private final LongAdder scans = new LongAdder();
+    private final ConcurrentHistogram totalsNanos = new ConcurrentHistogram();
+    private final ConcurrentHistogram basketSizes = new ConcurrentHistogram();
+    private final LongAdder promotionLines = new LongAdder();
+    private final LongAdder promotionLinesApplied = new LongAdder();
+    private final LongAdder engineDiscounts = new LongAdder();
+    private final LongAdder catalogHits = new LongAdder();
+    private final LongAdder catalogMisses = new LongAdder();
+    private final LongAdder scanCacheHits = new LongAdder();
+    private final LongAdder scanCacheMisses = new LongAdder();
+    private final LongAdder csvLoads = new LongAdder();
+    private final LongAdder csvRows = new LongAdder();
+    private final LongAdder csvBytes = new LongAdder();
+    private final LongAdder csvNanos = new LongAdder();
+    private final ConcurrentHistogram receiptNanos = new ConcurrentHistogram();
+
+    private StoreMetrics() { }
+
+    /** The metrics everything in this process records into. */
+    public static StoreMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Register {@link #global()} with the platform MBean server under {@value #OBJECT_NAME}.
+     * Does nothing if it is already registered.
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) server.registerMBean(GLOBAL, name);
+        } catch (InstanceAlreadyExistsException ex) {
+            // registered concurrently
+        } catch (JMException ex) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, ex);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() { return enabled; }
+
+    @Override
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    // ---- recording
+
+    public long startTimer() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    public void scanned() {
+        if (enabled) scans.increment();
+    }
+
+    /**
+     * A basket was priced.
+     * @param basketSize     scans in the basket
+     * @param promotionLines piece lines with at least one promotion configured
+     * @param appliedLines   those of them where a promotion made units free
+     * @param engineDiscounts discounts from rule-based promotions
+     */
+    public void totalsDone(long started, int basketSize, int promotionLines, int appliedLines, int engineDiscounts) {
+        if (started == NOT_TIMED) return;
+        totalsNanos.record(System.nanoTime() - started);
+        basketSizes.record(basketSize);
+        if (promotionLines > 0) {
+            this.promotionLines.add(promotionLines);
+            promotionLinesApplied.add(appliedLines);
+        }
+        if (engineDiscounts > 0) this.engineDiscounts.add(engineDiscounts);
+    }
+
+    public void catalogLookup(boolean hit) {
+        if (enabled) (hit ? catalogHits : catalogMisses).increment();
+    }
+
+    /** A lane's scan lookup cache answered (hit) or had to ask the catalog (miss). */
+    public void scanCacheLookup(boolean hit) {
+        if (enabled) (hit ? scanCacheHits : scanCacheMisses).increment();
+    }
+
+    /** A CSV import finished; the catalog times it anyway for its load report. */
+    public void csvLoaded(long rows, long bytes, long elapsedNanos) {
+        if (!enabled) return;
+        csvNanos.add(elapsedNanos);
+        csvLoads.increment();
+        csvRows.add(rows);
+        csvBytes.add(bytes);
+    }
+
+    public void receiptDone(long started) {
+        if (started != NOT_TIMED) receiptNanos.record(System.nanoTime() - started);
+    }
+
+    // ---- reading
+
+    public ConcurrentHistogram getTotalsLatency() { return totalsNanos; }
+    public ConcurrentHistogram getBasketSizes() { return basketSizes; }
+    public ConcurrentHistogram getReceiptLatency() { return receiptNanos; }
+
+    @Override public long getScans() { return scans.sum(); }
+    @Override public double getScansPerSecond() { return perSecond(scans.sum(), System.nanoTime() - since); }
+
+    @Override public long getBasketsPriced() { return totalsNanos.getCount(); }
+    @Override public double getTotalsMeanMicros() { return totalsNanos.getMean() / 1e3; }
+    @Override public double getTotalsP50Micros() { return totalsNanos.percentile(50) / 1e3; }
+    @Override public double getTotalsP99Micros() { return totalsNanos.percentile(99) / 1e3; }
+    @Override public double getTotalsMaxMicros() { return totalsNanos.getMax() / 1e3; }
+
+    @Override public double getBasketSizeMean() { return basketSizes.getMean(); }
+    @Override public long getBasketSizeP50() { return basketSizes.percentile(50); }
+    @Override public long getBasketSizeP99() { return basketSizes.percentile(99); }
+    @Override public long getBasketSizeMax() { return basketSizes.getMax(); }
+
+    @Override public long getPromotionLines() { return promotionLines.sum(); }
+    @Override public long getPromotionLinesApplied() { return promotionLinesApplied.sum(); }
+    @Override public double getPromotionHitRate() { return ratio(promotionLinesApplied.sum(), promotionLines.sum()); }
+    @Override public long getEngineDiscountsApplied() { return engineDiscounts.sum(); }
+
+    @Override public long getCatalogHits() { return catalogHits.sum(); }
+    @Override public long getCatalogMisses() { return catalogMisses.sum(); }
+
+    @Override
+    public double getCatalogHitRate() {
+        long hits = catalogHits.sum();
+        return ratio(hits, hits + catalogMisses.sum());
+    }
+
+    @Override public long getScanCacheHits() { return scanCacheHits.sum(); }
+    @Override public long getScanCacheMisses() { return scanCacheMisses.sum(); }
+
+    @Override
+    public double getScanCacheHitRate() {
+        long hits = scanCacheHits.sum();
+        return ratio(hits, hits + scanCacheMisses.sum());
+    }
+
+    @Override public long getCsvLoads() { return csvLoads.sum(); }
+    @Override public long getCsvRowsRead() { return csvRows.sum(); }
+    @Override public long getCsvBytesRead() { return csvBytes.sum(); }
+    @Override public double getCsvRowsPerSecond() { return perSecond(csvRows.sum(), csvNanos.sum()); }
+    @Override public double getCsvMegabytesPerSecond() { return perSecond(csvBytes.sum(), csvNanos.sum()) / (1 << 20); }
+
+    @Override public long getReceiptsRendered() { return receiptNanos.getCount(); }
+    @Override public double getReceiptP50Micros() { return receiptNanos.percentile(50) / 1e3; }
+    @Override public double getReceiptP99Micros() { return receiptNanos.percentile(99) / 1e3; }
+
+    @Override
+    public void reset() {
+        scans.reset();
+        totalsNanos.reset();
+        basketSizes.reset();
+        promotionLines.reset();
+        promotionLinesApplied.reset();
+        engineDiscounts.reset();
+        catalogHits.reset();
+        catalogMisses.reset();
+        scanCacheHits.reset();
+        scanCacheMisses.reset();
+        csvLoads.reset();
+        csvRows.reset();
+        csvBytes.reset();
+        csvNanos.reset();
+        receiptNanos.reset();
+        since = System.nanoTime();
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "store metrics (%s, over %.1fs)%n",
+                enabled ? "enabled" : "disabled", (System.nanoTime() - since) / 1e9));
+        sb.append(String.format(Locale.ROOT, "%-20s %12d %12.1f/s%n", "scans", getScans(), getScansPerSecond()));
+        sb.append(String.format(Locale.ROOT, "%-20s %12s %10s %10s %10s %10s%n", "histogram", "count", "mean", "p50", "p99", "max"));
+        histogram(sb, "totals(us)", totalsNanos, 1e3);
+        histogram(sb, "basket size", basketSizes, 1);
+        histogram(sb, "receipt(us)", receiptNanos, 1e3);
+        sb.append(String.format(Locale.ROOT, "%-20s %12d of %d lines (%.1f%%), %d engine discounts%n", "promotions hit",
+                getPromotionLinesApplied(), getPromotionLines(), getPromotionHitRate() * 100, getEngineDiscountsApplied()));
+        sb.append(String.format(Locale.ROOT, "%-20s %12d hits, %d misses (%.1f%%)%n", "catalog lookups",
+                getCatalogHits(), getCatalogMisses(), getCatalogHitRate() * 100));
+        sb.append(String.format(Locale.ROOT, "%-20s %12d hits, %d misses (%.1f%%)%n", "scan cache",
+                getScanCacheHits(), getScanCacheMisses(), getScanCacheHitRate() * 100));
+        sb.append(String.format(Locale.ROOT, "%-20s %12d rows, %d bytes in %d loads (%.0f rows/s, %.1f MB/s)%n", "csv loads",
+                getCsvRowsRead(), getCsvBytesRead(), getCsvLoads(), getCsvRowsPerSecond(), getCsvMegabytesPerSecond()));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+    private static void histogram(StringBuilder sb, String name, ConcurrentHistogram h, double unit) {
+        sb.append(String.format(Locale.ROOT, "%-20s %12d %10.1f %10.1f %10.1f %10.1f%n", name, h.getCount(),
+                h.getMean() / unit, h.percentile(50) / unit, h.percentile(99) / unit, h.getMax() / unit));
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * 1e9 / nanos;
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+}
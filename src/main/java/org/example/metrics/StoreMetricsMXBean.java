@@ -0,0 +1,53 @@
+package org.example.metrics;
+
+/**
+ * JMX view of {@link StoreMetrics}, registered as {@value StoreMetrics#OBJECT_NAME}. Latencies are in
+ * microseconds; rates are per second since the metrics were created or last reset.
+ */
+public interface StoreMetricsMXBean {
+
+    boolean isEnabled();
+    void setEnabled(boolean enabled);
+
+    long getScans();
+    double getScansPerSecond();
+
+    long getBasketsPriced();
+    double getTotalsMeanMicros();
+    double getTotalsP50Micros();
+    double getTotalsP99Micros();
+    double getTotalsMaxMicros();
+
+    double getBasketSizeMean();
+    long getBasketSizeP50();
+    long getBasketSizeP99();
+    long getBasketSizeMax();
+
+    long getPromotionLines();
+    long getPromotionLinesApplied();
+    double getPromotionHitRate();
+    long getEngineDiscountsApplied();
+
+    long getCatalogHits();
+    long getCatalogMisses();
+    double getCatalogHitRate();
+
+    long getScanCacheHits();
+    long getScanCacheMisses();
+    double getScanCacheHitRate();
+
+    long getCsvLoads();
+    long getCsvRowsRead();
+    long getCsvBytesRead();
+    double getCsvRowsPerSecond();
+    double getCsvMegabytesPerSecond();
+
+    long getReceiptsRendered();
+    double getReceiptP50Micros();
+    double getReceiptP99Micros();
+
+    /** Plain-text snapshot of everything above. */
+    String dump();
+
+    void reset();
+}
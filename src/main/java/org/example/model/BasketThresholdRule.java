@@ -0,0 +1,47 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Basket-level discount once the basket (after item promotions) reaches {@code minSpend}: either a fixed
+ * amount or a percentage off. Only the single best qualifying basket rule is applied.
+ */
+public class BasketThresholdRule extends PromotionRule {
+    private final BigDecimal minSpend;
+    private final BigDecimal amountOff; // null for percent rules
+    private final BigDecimal percentOff; // null for amount rules
+
+    private BasketThresholdRule(String id, BigDecimal minSpend, BigDecimal amountOff, BigDecimal percentOff) {
+        super(id, null, null);
+        this.minSpend = Objects.requireNonNull(minSpend);
+        if (minSpend.signum() < 0) throw new IllegalArgumentException("minSpend must be >= 0");
+        this.amountOff = amountOff;
+        this.percentOff = percentOff;
+    }
+
+    public static BasketThresholdRule amountOff(String id, BigDecimal minSpend, BigDecimal amount) {
+        if (amount.signum() <= 0) throw new IllegalArgumentException("amount must be > 0");
+        return new BasketThresholdRule(id, minSpend, amount, null);
+    }
+
+    public static BasketThresholdRule percentOff(String id, BigDecimal minSpend, BigDecimal percent) {
+        if (percent.signum() <= 0 || percent.compareTo(BigDecimal.valueOf(100)) > 0)
+            throw new IllegalArgumentException("percent must be within (0, 100]");
+        return new BasketThresholdRule(id, minSpend, null, percent);
+    }
+
+    public BigDecimal getMinSpend() { return minSpend; }
+
+    /** Fixed discount, or null for a percent rule. */
+    public BigDecimal getAmountOff() { return amountOff; }
+
+    /** Percentage discount, or null for an amount rule. */
+    public BigDecimal getPercentOff() { return percentOff; }
+
+    @Override
+    public String getDescription() {
+        String off = amountOff != null ? amountOff.toPlainString() : percentOff.stripTrailingZeros().toPlainString() + "%";
+        return off + " off from " + minSpend.toPlainString();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * "Any {@code quantity} pieces for {@code price}": a multi-buy on one product, or mix-and-match across a group.
+ * Applies as many times as the basket allows, always bundling the most expensive eligible pieces first.
+ */
+public class BundlePriceRule extends PromotionRule {
+    private final int quantity;
+    private final BigDecimal price;
+
+    private BundlePriceRule(String id, String productId, String groupId, int quantity, BigDecimal price) {
+        super(id, productId, groupId);
+        if (quantity < 2) throw new IllegalArgumentException("A bundle needs at least 2 pieces");
+        if (price.signum() < 0) throw new IllegalArgumentException("Bundle price must be >= 0");
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    /** Multi-buy, e.g. 3 of the same product for 5.00. */
+    public static BundlePriceRule forProduct(String id, String productId, int quantity, BigDecimal price) {
+        return new BundlePriceRule(id, Objects.requireNonNull(productId), null, quantity, Objects.requireNonNull(price));
+    }
+
+    /** Mix-and-match, e.g. any 3 products of a group for 10.00. */
+    public static BundlePriceRule forGroup(String id, String groupId, int quantity, BigDecimal price) {
+        return new BundlePriceRule(id, null, Objects.requireNonNull(groupId), quantity, Objects.requireNonNull(price));
+    }
+
+    public int getQuantity() { return quantity; }
+    public BigDecimal getPrice() { return price; }
+
+    @Override
+    public String getDescription() {
+        return quantity + " " + target() + " for " + price.toPlainString();
+    }
+}
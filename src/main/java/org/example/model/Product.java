@@ -8,16 +8,37 @@ public class Product {
     private final String name;
     private final UnitType unitType;
     private final BigDecimal pricePerUnit; // price per piece or per kilogram
+    private final long priceCents; // pricePerUnit in minor currency units, NOT_EXACT if it has sub-cent digits
+
+    private static final long NOT_EXACT = Long.MIN_VALUE;
 
     public Product(String id, String name, UnitType unitType, BigDecimal pricePerUnit) {
         this.id = Objects.requireNonNull(id);
         this.name = Objects.requireNonNull(name);
         this.unitType = Objects.requireNonNull(unitType);
         this.pricePerUnit = Objects.requireNonNull(pricePerUnit);
+        this.priceCents = toCents(pricePerUnit);
     }
 
     public String getId() { return id; }
     public String getName() { return name; }
     public UnitType getUnitType() { return unitType; }
     public BigDecimal getPricePerUnit() { return pricePerUnit; }
+
+    /**
+     * Price in minor currency units (cents) for fixed-point pricing.
+     * @throws ArithmeticException if the price has sub-cent digits or does not fit in a long
+     */
+    public long getPriceCents() {
+        if (priceCents == NOT_EXACT) throw new ArithmeticException("Price not representable in cents: " + pricePerUnit);
+        return priceCents;
+    }
+
+    private static long toCents(BigDecimal price) {
+        try {
+            return price.movePointRight(2).longValueExact();
+        } catch (ArithmeticException ex) {
+            return NOT_EXACT;
+        }
+    }
 }
@@ -0,0 +1,36 @@
+package org.example.model;
+
+import java.util.Objects;
+
+/**
+ * A rule of the promotion calendar, evaluated by {@link org.example.service.PromotionEngine}.
+ * Item rules target either a single product id or a product group (see
+ * {@link org.example.service.PromotionEngine.Builder#group}); basket rules target neither.
+ */
+public abstract class PromotionRule {
+    private final String id;
+    private final String productId;
+    private final String groupId;
+
+    protected PromotionRule(String id, String productId, String groupId) {
+        this.id = Objects.requireNonNull(id);
+        if (productId != null && groupId != null) throw new IllegalArgumentException("Target a product or a group, not both");
+        this.productId = productId;
+        this.groupId = groupId;
+    }
+
+    public String getId() { return id; }
+
+    /** Targeted product id, or null. */
+    public String getProductId() { return productId; }
+
+    /** Targeted group id, or null. */
+    public String getGroupId() { return groupId; }
+
+    /** Short human-readable form for receipts, e.g. "3 for 5.00". */
+    public abstract String getDescription();
+
+    String target() {
+        return productId != null ? productId : groupId;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Percent off a {@link UnitType#WEIGHT} line once its total weight reaches {@code minWeight}.
+ */
+public class WeightDiscountRule extends PromotionRule {
+    private final BigDecimal minWeight;
+    private final BigDecimal percentOff;
+
+    private WeightDiscountRule(String id, String productId, String groupId, BigDecimal minWeight, BigDecimal percentOff) {
+        super(id, productId, groupId);
+        if (minWeight.signum() < 0) throw new IllegalArgumentException("minWeight must be >= 0");
+        if (percentOff.signum() <= 0 || percentOff.compareTo(BigDecimal.valueOf(100)) > 0)
+            throw new IllegalArgumentException("percentOff must be within (0, 100]");
+        this.minWeight = minWeight;
+        this.percentOff = percentOff;
+    }
+
+    public static WeightDiscountRule forProduct(String id, String productId, BigDecimal minWeight, BigDecimal percentOff) {
+        return new WeightDiscountRule(id, Objects.requireNonNull(productId), null,
+                Objects.requireNonNull(minWeight), Objects.requireNonNull(percentOff));
+    }
+
+    public static WeightDiscountRule forGroup(String id, String groupId, BigDecimal minWeight, BigDecimal percentOff) {
+        return new WeightDiscountRule(id, null, Objects.requireNonNull(groupId),
+                Objects.requireNonNull(minWeight), Objects.requireNonNull(percentOff));
+    }
+
+    public BigDecimal getMinWeight() { return minWeight; }
+    public BigDecimal getPercentOff() { return percentOff; }
+
+    @Override
+    public String getDescription() {
+        return percentOff.stripTrailingZeros().toPlainString() + "% off " + target() + " from " + minWeight.toPlainString();
+    }
+}
@@ -7,16 +7,19 @@ import java.util.Objects;
 
 /**
  * A single scanned item. For pieces, set quantity>=1 and weight=null. For weight-based items, set weight>0 and quantity=0.
+ * Two items are equal when they scan the same Product instance with the same quantity or weight (including its scale).
  */
 public class ScannedItem {
     private final Product product;
     private final int quantity; // number of pieces (0 for weight-based)
     private final BigDecimal weight; // in same units as product price (e.g., kilograms). null for piece items.
+    private final long weightMilligrams; // weight in millionths of the price unit, -1 if not exact (or piece item)
 
     private ScannedItem(Product product, int quantity, BigDecimal weight) {
         this.product = Objects.requireNonNull(product);
         this.quantity = quantity;
         this.weight = weight;
+        this.weightMilligrams = weight == null ? -1 : toMilligrams(weight);
     }
 
     public static ScannedItem ofPieces(Product product, int quantity) {
@@ -39,4 +42,33 @@ public class ScannedItem {
     public BigDecimal getWeight() { return weight; }
     public boolean isPiece() { return product.getUnitType() == org.example.model.UnitType.PIECE; }
     public boolean isWeight() { return product.getUnitType() == org.example.model.UnitType.WEIGHT; }
+
+    /**
+     * Weight in millionths of the pricing unit (milligrams when priced per kilogram), for fixed-point pricing.
+     * @throws ArithmeticException for piece items or weights with more than six decimals
+     */
+    public long getWeightMilligrams() {
+        if (weightMilligrams < 0) throw new ArithmeticException("Weight not representable in milligrams: " + weight);
+        return weightMilligrams;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScannedItem other)) return false;
+        return product == other.product && quantity == other.quantity && Objects.equals(weight, other.weight);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * System.identityHashCode(product) + quantity) + Objects.hashCode(weight);
+    }
+
+    private static long toMilligrams(BigDecimal weight) {
+        try {
+            return weight.movePointRight(6).longValueExact();
+        } catch (ArithmeticException ex) {
+            return -1;
+        }
+    }
 }
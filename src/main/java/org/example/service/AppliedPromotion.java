@@ -0,0 +1,34 @@
+package org.example.service;
+
+import org.example.model.PromotionRule;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One promotion rule applied to a basket by the {@link PromotionEngine}.
+ */
+public class AppliedPromotion {
+    private final PromotionRule rule;
+    private final int times;
+    private final List<String> productIds;
+    private final BigDecimal discount;
+
+    public AppliedPromotion(PromotionRule rule, int times, List<String> productIds, BigDecimal discount) {
+        this.rule = rule;
+        this.times = times;
+        this.productIds = List.copyOf(productIds);
+        this.discount = discount;
+    }
+
+    public PromotionRule getRule() { return rule; }
+
+    /** Number of bundles formed (1 for weight and basket rules). */
+    public int getTimes() { return times; }
+
+    /** Products whose pieces or weight the rule used; empty for basket rules. */
+    public List<String> getProductIds() { return productIds; }
+
+    /** Amount taken off, always positive. */
+    public BigDecimal getDiscount() { return discount; }
+}
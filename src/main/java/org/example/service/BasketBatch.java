@@ -0,0 +1,144 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Many baskets in columnar form, for {@link BatchPricer}: one row per scan with the basket, the product and the
+ * quantity (pieces, or weight in millionths of the pricing unit). Basket and product ids are dictionary-encoded
+ * and the rows are sorted by basket, then product, so a basket's lines are contiguous runs of equal product codes.
+ * Immutable once built.
+ */
+public final class BasketBatch {
+    private final String[] basketIds;   // basket index -> external id, in order of first appearance
+    private final int[] basketStart;    // rows of basket b are [basketStart[b], basketStart[b + 1])
+    private final String[] productIds;  // product code -> id
+    private final int[] productCodes;   // per row
+    private final long[] amounts;       // per row: pieces, or weight in milligrams
+    private final boolean[] weighed;    // per row: amount is a weight
+
+    private BasketBatch(String[] basketIds, int[] basketStart, String[] productIds, int[] productCodes, long[] amounts, boolean[] weighed) {
+        this.basketIds = basketIds;
+        this.basketStart = basketStart;
+        this.productIds = productIds;
+        this.productCodes = productCodes;
+        this.amounts = amounts;
+        this.weighed = weighed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int basketCount() { return basketIds.length; }
+    public int rowCount() { return productCodes.length; }
+    public String basketId(int basket) { return basketIds[basket]; }
+
+    int basketStart(int basket) { return basketStart[basket]; }
+    int basketEnd(int basket) { return basketStart[basket + 1]; }
+    String[] productIds() { return productIds; }
+    int productCode(int row) { return productCodes[row]; }
+    long amount(int row) { return amounts[row]; }
+    boolean weighed(int row) { return weighed[row]; }
+
+    /**
+     * Collects rows in any order; rows of one basket need not be adjacent. Not thread-safe.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> basketIndex = new HashMap<>();
+        private final Map<String, Integer> productIndex = new HashMap<>();
+        private String[] basketIds = new String[16];
+        private String[] productIds = new String[16];
+        private int[] rowBaskets = new int[64];
+        private int[] rowProducts = new int[64];
+        private long[] rowAmounts = new long[64];
+        private boolean[] rowWeighed = new boolean[64];
+        private int rows;
+
+        private Builder() { }
+
+        public Builder addPieces(String basketId, String productId, int quantity) {
+            if (quantity <= 0) throw new IllegalArgumentException("quantity must be > 0");
+            return add(basketId, productId, quantity, false);
+        }
+
+        /** @param weight in the product's pricing unit, at most six decimals */
+        public Builder addWeight(String basketId, String productId, BigDecimal weight) {
+            if (weight == null || weight.signum() <= 0) throw new IllegalArgumentException("weight must be > 0");
+            long milligrams;
+            try {
+                milligrams = weight.movePointRight(6).longValueExact();
+            } catch (ArithmeticException ex) {
+                throw new IllegalArgumentException("Weight not representable in milligrams: " + weight);
+            }
+            return add(basketId, productId, milligrams, true);
+        }
+
+        /** @param milligrams weight in millionths of the product's pricing unit */
+        public Builder addWeightMilligrams(String basketId, String productId, long milligrams) {
+            if (milligrams <= 0) throw new IllegalArgumentException("weight must be > 0");
+            return add(basketId, productId, milligrams, true);
+        }
+
+        private Builder add(String basketId, String productId, long amount, boolean weight) {
+            Integer basket = basketIndex.get(basketId);
+            if (basket == null) {
+                basket = basketIndex.size();
+                if (basket == basketIds.length) basketIds = Arrays.copyOf(basketIds, basket * 2);
+                basketIds[basket] = basketId;
+                basketIndex.put(basketId, basket);
+            }
+            Integer product = productIndex.get(productId);
+            if (product == null) {
+                product = productIndex.size();
+                if (product == productIds.length) productIds = Arrays.copyOf(productIds, product * 2);
+                productIds[product] = productId;
+                productIndex.put(productId, product);
+            }
+            if (rows == rowBaskets.length) {
+                int capacity = rows * 2;
+                rowBaskets = Arrays.copyOf(rowBaskets, capacity);
+                rowProducts = Arrays.copyOf(rowProducts, capacity);
+                rowAmounts = Arrays.copyOf(rowAmounts, capacity);
+                rowWeighed = Arrays.copyOf(rowWeighed, capacity);
+            }
+            rowBaskets[rows] = basket;
+            rowProducts[rows] = product;
+            rowAmounts[rows] = amount;
+            rowWeighed[rows] = weight;
+            rows++;
+            return this;
+        }
+
+        public BasketBatch build() {
+            int baskets = basketIndex.size();
+
+            // counting sort by basket
+            int[] start = new int[baskets + 1];
+            for (int r = 0; r < rows; r++) start[rowBaskets[r] + 1]++;
+            for (int b = 0; b < baskets; b++) start[b + 1] += start[b];
+            int[] next = Arrays.copyOf(start, baskets);
+            int[] byBasket = new int[rows];
+            for (int r = 0; r < rows; r++) byBasket[next[rowBaskets[r]]++] = r;
+
+            // then by product within each basket; the row index keeps the sort key unique
+            long[] keys = new long[rows];
+            for (int i = 0; i < rows; i++) keys[i] = (long) rowProducts[byBasket[i]] << 32 | byBasket[i];
+            for (int b = 0; b < baskets; b++) Arrays.sort(keys, start[b], start[b + 1]);
+
+            int[] codes = new int[rows];
+            long[] amounts = new long[rows];
+            boolean[] weighed = new boolean[rows];
+            for (int i = 0; i < rows; i++) {
+                int r = (int) keys[i];
+                codes[i] = rowProducts[r];
+                amounts[i] = rowAmounts[r];
+                weighed[i] = rowWeighed[r];
+            }
+            return new BasketBatch(Arrays.copyOf(basketIds, baskets), start,
+                    Arrays.copyOf(productIds, productIndex.size()), codes, amounts, weighed);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Prices a whole {@link BasketBatch} against the current catalog in one pass, without a Checkout, ScannedItem or
+ * BigDecimal per basket. Each distinct product in the batch is looked up once; baskets are then priced on
+ * primitive columns with the fixed-point arithmetic of {@link FixedPointPricing}, in parallel chunks.
+ * <p>
+ * Totals and savings are exactly what {@link Checkout#calculateTotals()} gives for the same scans and
+ * promotions (rule-based {@link PromotionEngine} discounts are not applied). A basket that cannot be priced
+ * (unknown product, piece/weight mismatch, sub-cent price, overflow) is reported as failed without affecting the
+ * others.
+ */
+public class BatchPricer {
+
+    // baskets per task, below which splitting costs more than it saves
+    private static final int MIN_CHUNK = 256;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ProductCatalog catalog;
+    private final PromotionIndex promotions;
+    private final long promotionBudgetNanos = Checkout.DEFAULT_PROMOTION_TIME_BUDGET.toNanos();
+
+    public BatchPricer(ProductCatalog catalog, Collection<Promotion> promotions) {
+        this(catalog, PromotionIndex.of(promotions));
+    }
+
+    public BatchPricer(ProductCatalog catalog, PromotionIndex promotions) {
+        this.catalog = catalog;
+        this.promotions = Objects.requireNonNull(promotions, "promotions");
+    }
+
+    /** Price on the common fork-join pool. */
+    public Result price(BasketBatch batch) {
+        return price(batch, ForkJoinPool.commonPool());
+    }
+
+    public Result price(BasketBatch batch, ForkJoinPool pool) {
+        Lines lines = resolve(batch);
+        Result result = new Result(batch);
+        int baskets = batch.basketCount();
+        int chunk = Math.max(MIN_CHUNK, baskets / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        if (baskets <= chunk) {
+            priceRange(batch, lines, result, 0, baskets);
+            return result;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < baskets; from += chunk) {
+            int start = from;
+            int end = Math.min(baskets, from + chunk);
+            tasks.add(() -> {
+                priceRange(batch, lines, result, start, end);
+                return null;
+            });
+        }
+        for (Future<Void> f : pool.invokeAll(tasks)) join(f);
+        return result;
+    }
+
+    // per product code: price in cents (-1 when not exact), unit type and promotions; null product = unknown
+    private Lines resolve(BasketBatch batch) {
+        String[] ids = batch.productIds();
+        Lines lines = new Lines(ids.length);
+        for (int code = 0; code < ids.length; code++) {
+            Optional<Product> product = catalog.getProduct(ids[code]);
+            if (product.isEmpty()) continue;
+            Product p = product.get();
+            lines.products[code] = p;
+            lines.weighed[code] = p.getUnitType() == UnitType.WEIGHT;
+            try {
+                lines.priceCents[code] = p.getPriceCents();
+            } catch (ArithmeticException ex) {
+                lines.priceCents[code] = -1;
+            }
+            lines.promotions[code] = promotions.get(p.getId());
+        }
+        return lines;
+    }
+
+    private void priceRange(BasketBatch batch, Lines lines, Result result, int from, int to) {
+        for (int b = from; b < to; b++) {
+            try {
+                priceBasket(batch, lines, result, b);
+            } catch (ArithmeticException ex) {
+                result.failures[b] = ex.getMessage();
+            }
+        }
+    }
+
+    private void priceBasket(BasketBatch batch, Lines lines, Result result, int basket) {
+        long totalCents = 0;
+        long savingsCents = 0;
+        int end = batch.basketEnd(basket);
+        int row = batch.basketStart(basket);
+        while (row < end) {
+            int code = batch.productCode(row);
+            Product p = lines.products[code];
+            if (p == null) {
+                result.failures[basket] = "Unknown product: " + batch.productIds()[code];
+                return;
+            }
+            boolean weighed = lines.weighed[code];
+            long amount = 0;
+            for (; row < end && batch.productCode(row) == code; row++) {
+                if (batch.weighed(row) != weighed) {
+                    result.failures[basket] = "Product " + p.getId() + " is not sold by " + (weighed ? "piece" : "weight");
+                    return;
+                }
+                amount = Math.addExact(amount, batch.amount(row));
+            }
+            long unitCents = lines.priceCents[code];
+            if (unitCents < 0) throw new ArithmeticException("Price not representable in cents: " + p.getPricePerUnit());
+
+            if (weighed) {
+                long grams = FixedPointPricing.roundHalfUp(amount, 1000);
+                totalCents = Math.addExact(totalCents, FixedPointPricing.weightLineCents(unitCents, grams));
+            } else {
+                Promotion[] promos = lines.promotions[code];
+                long charged = promos == null
+                        ? amount
+                        : PromotionSolver.solve(amount, promos, System.nanoTime() + promotionBudgetNanos).chargeableUnits();
+                long lineCents = Math.multiplyExact(unitCents, charged);
+                totalCents = Math.addExact(totalCents, lineCents);
+                savingsCents = Math.addExact(savingsCents, Math.multiplyExact(unitCents, amount) - lineCents);
+            }
+        }
+        result.totalCents[basket] = totalCents;
+        result.savingsCents[basket] = savingsCents;
+    }
+
+    private static void join(Future<Void> f) {
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pricing batch", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static final class Lines {
+        final Product[] products;
+        final boolean[] weighed;
+        final long[] priceCents;
+        final Promotion[][] promotions;
+
+        Lines(int size) {
+            products = new Product[size];
+            weighed = new boolean[size];
+            priceCents = new long[size];
+            promotions = new Promotion[size][];
+        }
+    }
+
+    /**
+     * Totals and savings per basket, indexed like {@link BasketBatch#basketId(int)}.
+     */
+    public static final class Result {
+        private final BasketBatch batch;
+        private final long[] totalCents;
+        private final long[] savingsCents;
+        private final String[] failures;
+
+        Result(BasketBatch batch) {
+            this.batch = batch;
+            this.totalCents = new long[batch.basketCount()];
+            this.savingsCents = new long[batch.basketCount()];
+            this.failures = new String[batch.basketCount()];
+        }
+
+        public int size() { return totalCents.length; }
+        public String getBasketId(int basket) { return batch.basketId(basket); }
+        public boolean isPriced(int basket) { return failures[basket] == null; }
+        /** Why the basket could not be priced, or null. */
+        public String getFailure(int basket) { return failures[basket]; }
+        public long getTotalCents(int basket) { return totalCents[basket]; }
+        public long getSavingsCents(int basket) { return savingsCents[basket]; }
+        public BigDecimal getTotal(int basket) { return BigDecimal.valueOf(totalCents[basket], 2); }
+        public BigDecimal getSavings(int basket) { return BigDecimal.valueOf(savingsCents[basket], 2); }
+
+        public int failureCount() {
+            int n = 0;
+            for (String f : failures) if (f != null) n++;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary catalog snapshot file, designed to be memory-mapped and used without parsing.
+ * All numbers are big-endian.
+ * <pre>
+ * header  (64 bytes)
+ *   int   magic 'GCAT'
+ *   int   format version
+ *   int   record count
+ *   int   index capacity (power of two)
+ *   long  records offset, strings offset, strings length, index offset
+ *   long  CRC32C of everything after the header
+ *   8 bytes reserved
+ * records (32 bytes each, in catalog insertion order)
+ *   int   string offset (id bytes, then name bytes, relative to the strings section)
+ *   int   id length, int name length (UTF-8 bytes)
+ *   int   id hash (see {@link #hash(String)})
+ *   long  unscaled price, or for prices that do not fit: (string offset << 32 | length) of its decimal text
+ *   byte  unit type ordinal, byte price scale (PRICE_AS_TEXT for text prices), 6 bytes padding
+ * strings (UTF-8)
+ * index   (int per slot: record number or -1, linear probing on the id hash)
+ * </pre>
+ */
+final class BinaryCatalogFormat {
+
+    static final int MAGIC = 0x47434154; // "GCAT"
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+    static final byte PRICE_AS_TEXT = Byte.MIN_VALUE;
+
+    // header field offsets
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_COUNT = 8;
+    static final int H_INDEX_CAPACITY = 12;
+    static final int H_RECORDS = 16;
+    static final int H_STRINGS = 24;
+    static final int H_STRINGS_LENGTH = 32;
+    static final int H_INDEX = 40;
+    static final int H_CHECKSUM = 48;
+
+    // record field offsets
+    static final int R_STRING = 0;
+    static final int R_ID_LENGTH = 4;
+    static final int R_NAME_LENGTH = 8;
+    static final int R_HASH = 12;
+    static final int R_PRICE = 16;
+    static final int R_UNIT = 24;
+    static final int R_SCALE = 25;
+
+    private BinaryCatalogFormat() { }
+
+    /**
+     * Write the products to a snapshot file. The file is written next to the target and moved into place,
+     * so readers never see a half-written snapshot.
+     */
+    static void write(List<Product> products, Path file) throws IOException {
+        int count = products.size();
+        int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+        long recordsOffset = HEADER_SIZE;
+        long stringsOffset = recordsOffset + (long) count * RECORD_SIZE;
+
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            CRC32C crc = new CRC32C();
+            long stringsLength;
+            try (OutputStream raw = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16))) {
+                raw.write(new byte[HEADER_SIZE]); // placeholder, outside the checksum
+
+                // records; string offsets follow from the UTF-8 lengths
+                int[] index = new int[capacity];
+                Arrays.fill(index, -1);
+                long stringOffset = 0;
+                for (int i = 0; i < count; i++) {
+                    Product p = products.get(i);
+                    int idLength = utf8Length(p.getId());
+                    int nameLength = utf8Length(p.getName());
+                    int hash = hash(p.getId());
+                    out.writeInt(checkedOffset(stringOffset));
+                    out.writeInt(idLength);
+                    out.writeInt(nameLength);
+                    out.writeInt(hash);
+                    stringOffset += idLength + nameLength;
+                    BigDecimal price = p.getPricePerUnit();
+                    if (fitsRecord(price)) {
+                        out.writeLong(price.unscaledValue().longValue());
+                        out.writeByte(p.getUnitType().ordinal());
+                        out.writeByte(price.scale());
+                    } else {
+                        int textLength = price.toString().length();
+                        out.writeLong((long) checkedOffset(stringOffset) << 32 | textLength);
+                        out.writeByte(p.getUnitType().ordinal());
+                        out.writeByte(PRICE_AS_TEXT);
+                        stringOffset += textLength;
+                    }
+                    out.write(new byte[6]);
+
+                    int slot = hash & (capacity - 1);
+                    while (index[slot] >= 0) slot = (slot + 1) & (capacity - 1);
+                    index[slot] = i;
+                }
+                stringsLength = stringOffset;
+
+                // strings, same order
+                for (Product p : products) {
+                    out.write(p.getId().getBytes(StandardCharsets.UTF_8));
+                    out.write(p.getName().getBytes(StandardCharsets.UTF_8));
+                    if (!fitsRecord(p.getPricePerUnit())) {
+                        out.write(p.getPricePerUnit().toString().getBytes(StandardCharsets.US_ASCII));
+                    }
+                }
+
+                for (int slot : index) out.writeInt(slot);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(H_MAGIC, MAGIC)
+                    .putInt(H_VERSION, FORMAT_VERSION)
+                    .putInt(H_COUNT, count)
+                    .putInt(H_INDEX_CAPACITY, capacity)
+                    .putLong(H_RECORDS, recordsOffset)
+                    .putLong(H_STRINGS, stringsOffset)
+                    .putLong(H_STRINGS_LENGTH, stringsLength)
+                    .putLong(H_INDEX, stringsOffset + stringsLength)
+                    .putLong(H_CHECKSUM, crc.getValue());
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ch.write(header, 0);
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Stable across JVMs: String.hashCode is part of the platform spec. */
+    static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static boolean fitsRecord(BigDecimal price) {
+        return price.scale() > PRICE_AS_TEXT && price.scale() <= Byte.MAX_VALUE
+                && price.unscaledValue().bitLength() < 64;
+    }
+
+    private static int checkedOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) throw new IOException("Catalog strings exceed 2 GB, cannot write snapshot");
+        return (int) offset;
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) bytes++;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) bytes++; // encoded as '?'
+            else bytes += 3;
+        }
+        return bytes;
+    }
+}
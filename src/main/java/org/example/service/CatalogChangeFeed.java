@@ -0,0 +1,426 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Applies catalog changes from an append-only delta file, or a directory of them, as they are written, instead
+ * of reloading the whole catalog CSV. One line per change:
+ * <pre>
+ * U,id,name,unitType,price   upsert, the rest of the line as in the catalog CSV
+ * D,id                       delete
+ * </pre>
+ * Blank lines and lines starting with # are ignored; malformed lines are skipped and counted. For a directory,
+ * files ending in {@code .delta} are read in name order and only the newest is tailed: a producer starts a new
+ * file only once the previous one is complete.
+ * <p>
+ * A reader thread polls the source every {@link Options#pollInterval()} and hands complete lines to an applier
+ * thread through a bounded queue. The applier takes whatever is queued (up to {@link Options#maxBatch()}),
+ * keeps the last change per id and applies the batch with one {@link ProductCatalog#applyChanges} call. A single
+ * change is therefore applied about one poll interval after it is written, while a flood of changes is applied
+ * in large batches. When the queue is full the reader stops reading until the applier catches up, so the file
+ * itself buffers the backlog and memory stays bounded.
+ * <p>
+ * The reader is never interrupted: an interrupt during a read would close the file channel under it. Closing
+ * wakes it from its poll sleep instead, and a reader waiting on a full queue notices within a poll interval.
+ * <p>
+ * The catalog must be safe for concurrent readers: {@link ProductCatalog#concurrent()} or
+ * {@link ProductCatalog#versioned()} (where every batch is published as one version).
+ */
+public final class CatalogChangeFeed implements Closeable {
+
+    public static final String DELTA_SUFFIX = ".delta";
+
+    /**
+     * @param pollInterval  how often the source is checked for new lines
+     * @param maxBatch      most changes applied in one applyChanges call
+     * @param queueCapacity changes read ahead of the applier before the reader waits
+     */
+    public record Options(Duration pollInterval, int maxBatch, int queueCapacity) {
+
+        public Options {
+            if (pollInterval.isNegative() || pollInterval.isZero()) throw new IllegalArgumentException("pollInterval must be > 0");
+            if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+            if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be >= 1");
+        }
+
+        public static Options defaults() {
+            return new Options(Duration.ofMillis(1), 10_000, 100_000);
+        }
+
+        public Options withPollInterval(Duration interval) {
+            return new Options(interval, maxBatch, queueCapacity);
+        }
+
+        public Options withQueueCapacity(int capacity) {
+            return new Options(pollInterval, maxBatch, capacity);
+        }
+    }
+
+    private static final int READ_BUFFER = 64 * 1024;
+
+    // product is null for deletes
+    private record Change(String id, Product product) { }
+
+    private final ProductCatalog catalog;
+    private final Path source;
+    private final Options options;
+    private final BlockingQueue<Change> queue;
+    private final Thread reader;
+    private final Thread applier;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    // guarded by lock
+    private long changesRead;
+    private long changesApplied;
+    private long batchesApplied;
+    private long idlePolls; // polls that found nothing new
+    private final CatalogLoadReport.Tally tally = new CatalogLoadReport.Tally();
+    private long linesSkipped;
+    private IOException failure;
+    private volatile boolean closing;
+
+    // reader thread only
+    private final CatalogCsvParser parser = new CatalogCsvParser();
+    private ByteBuffer buf = ByteBuffer.allocate(READ_BUFFER);
+    private Path current;
+    private FileChannel channel;
+    private long position;
+
+    private CatalogChangeFeed(ProductCatalog catalog, Path source, Options options) {
+        this.catalog = catalog;
+        this.source = source;
+        this.options = options;
+        this.queue = new ArrayBlockingQueue<>(options.queueCapacity());
+        String name = source.getFileName() == null ? "feed" : source.getFileName().toString();
+        this.reader = new Thread(this::runReader, "catalog-feed-reader-" + name);
+        this.applier = new Thread(this::runApplier, "catalog-feed-applier-" + name);
+        reader.setDaemon(true);
+        applier.setDaemon(true);
+    }
+
+    public static CatalogChangeFeed start(ProductCatalog catalog, Path source) throws IOException {
+        return start(catalog, source, Options.defaults());
+    }
+
+    /**
+     * Start tailing a delta file or a directory of {@code .delta} files from the beginning. A file that does not
+     * exist yet is picked up once it is created.
+     * @throws IOException if the source's parent directory does not exist
+     */
+    public static CatalogChangeFeed start(ProductCatalog catalog, Path source, Options options) throws IOException {
+        Objects.requireNonNull(catalog, "catalog");
+        Objects.requireNonNull(options, "options");
+        Path dir = Files.isDirectory(source) ? source : source.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) throw new IOException("No such directory: " + dir);
+        CatalogChangeFeed feed = new CatalogChangeFeed(catalog, source, options);
+        feed.reader.start();
+        feed.applier.start();
+        return feed;
+    }
+
+    /**
+     * Wait until everything in the source at the time of the call has been applied.
+     * @return false on timeout
+     * @throws IOException if the feed failed
+     */
+    public boolean awaitCaughtUp(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        lock.lock();
+        try {
+            // the poll running now may have started before the call; the one after it has not
+            long idleTarget = idlePolls + 2;
+            while (failure == null && (idlePolls < idleTarget || changesApplied < changesRead)) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                progress.awaitNanos(left);
+            }
+            if (failure != null) throw failure;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getChangesRead() {
+        return locked(() -> changesRead);
+    }
+
+    public long getChangesApplied() {
+        return locked(() -> changesApplied);
+    }
+
+    public long getBatchesApplied() {
+        return locked(() -> batchesApplied);
+    }
+
+    /** Lines that were not a valid upsert or delete. */
+    public long getLinesSkipped() {
+        return locked(() -> linesSkipped + tally.skippedMalformed + tally.skippedUnknownUnitType + tally.skippedBadPrice);
+    }
+
+    /** Stop reading; changes already read are still applied. */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(reader);
+        try {
+            reader.join();
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing change feed", e);
+        }
+        lock.lock();
+        try {
+            if (failure != null) throw failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---- reader ---------------------------------------------------------------------------------------------
+
+    private void runReader() {
+        try {
+            while (!closing) {
+                if (!readAvailable()) {
+                    lock.lock();
+                    try {
+                        idlePolls++;
+                        progress.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                    // woken early by close(); spurious wake-ups only poll sooner
+                    LockSupport.parkNanos(this, options.pollInterval().toNanos());
+                }
+            }
+        } catch (InterruptedException e) {
+            // closing, while waiting on a full queue
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } finally {
+            closeChannel();
+        }
+    }
+
+    // read and enqueue complete lines; false when there was nothing new
+    private boolean readAvailable() throws IOException, InterruptedException {
+        if (channel == null && !openNext()) return false;
+        if (channel.size() < position) {
+            // truncated or replaced in place: start over
+            position = 0;
+            buf.clear();
+        }
+        if (readMore()) return true;
+        // at the end of this file: move on once a newer one exists. The producer finished this file before
+        // creating the next, so read once more to catch lines written since the read above.
+        Path next = nextFile();
+        if (next == null || readMore()) return next != null;
+        buf.flip();
+        parseLines(true); // an unterminated last line
+        buf.clear();
+        closeChannel();
+        return openNext();
+    }
+
+    private boolean readMore() throws IOException, InterruptedException {
+        int n = channel.read(buf, position);
+        if (n <= 0) return false;
+        position += n;
+        buf.flip();
+        buf.position(parseLines(false));
+        buf.compact();
+        if (!buf.hasRemaining()) {
+            // a line longer than the buffer
+            ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+        return true;
+    }
+
+    private int parseLines(boolean last) throws InterruptedException {
+        int to = buf.limit();
+        int lineStart = 0;
+        for (int i = 0; i < to; i++) {
+            byte b = buf.get(i);
+            if (b == '\n' || b == '\r') {
+                parseChange(lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < to) {
+            parseChange(lineStart, to);
+            lineStart = to;
+        }
+        return lineStart;
+    }
+
+    private void parseChange(int from, int to) throws InterruptedException {
+        int start = from;
+        while (start < to && buf.get(start) <= ' ') start++;
+        if (start == to || buf.get(start) == '#') return;
+        int comma = start;
+        while (comma < to && buf.get(comma) != ',') comma++;
+        Change change = null;
+        if (comma - start == 1 && comma < to) {
+            byte op = buf.get(start);
+            if (op == 'U' || op == 'u') {
+                Product p;
+                long rows;
+                lock.lock();
+                try {
+                    rows = tally.rowsRead;
+                    p = parser.parseLine(buf, comma + 1, to, tally);
+                } finally {
+                    lock.unlock();
+                }
+                if (p != null) change = new Change(p.getId(), p);
+                else if (tally.rowsRead != rows) return; // counted in the tally
+            } else if (op == 'D' || op == 'd') {
+                String id = parser.decode(buf, comma + 1, to);
+                if (!id.isEmpty() && id.indexOf(',') < 0) change = new Change(id, null);
+            }
+        }
+        if (change == null) {
+            lock.lock();
+            try {
+                linesSkipped++;
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        enqueue(change);
+        lock.lock();
+        try {
+            changesRead++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // blocks while the applier is behind; gives up, as if interrupted, once the feed is closing
+    private void enqueue(Change change) throws InterruptedException {
+        while (!queue.offer(change, options.pollInterval().toNanos(), TimeUnit.NANOSECONDS)) {
+            if (closing) throw new InterruptedException("Change feed closing");
+        }
+    }
+
+    private boolean openNext() throws IOException {
+        Path file = Files.isDirectory(source) ? nextFile() : source;
+        if (file == null || !Files.exists(file)) return false;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        current = file;
+        position = 0;
+        return true;
+    }
+
+    // for a directory: the first delta file after the current one; never anything for a single file
+    private Path nextFile() throws IOException {
+        if (!Files.isDirectory(source)) return null;
+        try (Stream<Path> files = Files.list(source)) {
+            String after = current == null ? "" : current.getFileName().toString();
+            return files.filter(f -> f.getFileName().toString().endsWith(DELTA_SUFFIX))
+                    .filter(f -> f.getFileName().toString().compareTo(after) > 0)
+                    .min(Path::compareTo)
+                    .orElse(null);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // read-only
+        }
+        channel = null;
+    }
+
+    // ---- applier --------------------------------------------------------------------------------------------
+
+    private void runApplier() {
+        List<Change> drained = new ArrayList<>();
+        Map<String, Change> latest = new LinkedHashMap<>();
+        try {
+            while (true) {
+                Change first = queue.poll(options.pollInterval().toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (closing && !reader.isAlive() && queue.isEmpty()) break;
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, options.maxBatch() - 1);
+                // the last change per id wins, so upserts and deletes of one id never meet in a batch
+                for (Change c : drained) latest.put(c.id(), c);
+                List<Product> upserts = new ArrayList<>(latest.size());
+                List<String> deletes = new ArrayList<>();
+                for (Change c : latest.values()) {
+                    if (c.product() != null) upserts.add(c.product());
+                    else deletes.add(c.id());
+                }
+                catalog.applyChanges(upserts, deletes);
+                lock.lock();
+                try {
+                    changesApplied += drained.size();
+                    batchesApplied++;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                drained.clear();
+                latest.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            fail(e);
+            closing = true; // nothing will take from the queue any more
+            LockSupport.unpark(reader);
+        }
+    }
+
+    private void fail(Exception e) {
+        lock.lock();
+        try {
+            if (failure == null) failure = e instanceof IOException io ? io : new IOException(e);
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long locked(java.util.function.LongSupplier read) {
+        lock.lock();
+        try {
+            return read.getAsLong();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Byte-level parser for catalog CSV lines (id,name,unitType,price), working directly on a ByteBuffer
+ * so the file never has to be decoded into per-line Strings. Only id and name become Strings.
+ * <p>
+ * Same rules as the original String based loader: fields are trimmed, blank lines and lines starting
+ * with # are ignored, extra columns are ignored and the unit type is matched case-insensitively.
+ * Instances keep scratch buffers and are not thread-safe; use one per thread.
+ */
+final class CatalogCsvParser {
+
+    private static final int INITIAL_BUFFER = 64 * 1024;
+
+    private static final byte[] PIECE = "PIECE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEIGHT = "WEIGHT".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes = new byte[128];
+    private char[] chars = new char[64];
+
+    /**
+     * Stream a whole file through the parser with a single reusable read buffer
+     * (grown only when one line does not fit).
+     */
+    static CatalogLoadReport.Tally parseFile(Path csvFile, Consumer<Product> sink) throws IOException {
+        CatalogCsvParser parser = new CatalogCsvParser();
+        CatalogLoadReport.Tally tally = new CatalogLoadReport.Tally();
+        ByteBuffer buf = ByteBuffer.allocate(INITIAL_BUFFER);
+        try (FileChannel ch = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            while (true) {
+                boolean eof = ch.read(buf) < 0;
+                buf.flip();
+                int lineStart = parser.parseLines(buf, 0, buf.limit(), eof, tally, sink);
+                if (eof) break;
+                buf.position(lineStart);
+                buf.compact();
+                if (!buf.hasRemaining()) {
+                    // a single line larger than the buffer
+                    ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                }
+            }
+        }
+        return tally;
+    }
+
+    /**
+     * Parse every complete line in [from, to). When {@code last} is set the trailing unterminated line is
+     * parsed too. Lines end at \n, \r or \r\n.
+     * @return start of the first unparsed (incomplete) line
+     */
+    int parseLines(ByteBuffer buf, int from, int to, boolean last, CatalogLoadReport.Tally tally, Consumer<Product> sink) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            byte b = buf.get(i);
+            if (b == '\n' || b == '\r') {
+                Product p = parseLine(buf, lineStart, i, tally);
+                if (p != null) sink.accept(p);
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < to) {
+            Product p = parseLine(buf, lineStart, to, tally);
+            if (p != null) sink.accept(p);
+            lineStart = to;
+        }
+        return lineStart;
+    }
+
+    /**
+     * Parse a single line [from, to) without its terminator.
+     * @return the product, or null when the line is blank, a comment or skipped (counted in tally)
+     */
+    Product parseLine(ByteBuffer buf, int from, int to, CatalogLoadReport.Tally tally) {
+        int start = trimStart(buf, from, to);
+        int end = trimEnd(buf, start, to);
+        if (start == end || buf.get(start) == '#') return null;
+        tally.rowsRead++;
+
+        int c1 = indexOfComma(buf, start, end);
+        int c2 = c1 < 0 ? -1 : indexOfComma(buf, c1 + 1, end);
+        int c3 = c2 < 0 ? -1 : indexOfComma(buf, c2 + 1, end);
+        if (c3 < 0) {
+            tally.skippedMalformed++;
+            return null;
+        }
+        int c4 = indexOfComma(buf, c3 + 1, end);
+        int priceEnd = c4 < 0 ? end : c4;
+
+        UnitType unit = parseUnit(buf, c2 + 1, c3);
+        if (unit == null) {
+            tally.skippedUnknownUnitType++;
+            return null;
+        }
+        BigDecimal price = parsePrice(buf, c3 + 1, priceEnd);
+        if (price == null) {
+            tally.skippedBadPrice++;
+            return null;
+        }
+        String id = decode(buf, start, c1);
+        String name = decode(buf, c1 + 1, c2);
+        tally.productsLoaded++;
+        return new Product(id, name, unit, price);
+    }
+
+    private UnitType parseUnit(ByteBuffer buf, int from, int to) {
+        int start = trimStart(buf, from, to);
+        int end = trimEnd(buf, start, to);
+        if (!isAscii(buf, start, end)) {
+            // rare: let String.toUpperCase handle non-ASCII case mappings exactly as before
+            try {
+                return UnitType.valueOf(decode(buf, start, end).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+        if (equalsIgnoreCaseAscii(buf, start, end, PIECE)) return UnitType.PIECE;
+        if (equalsIgnoreCaseAscii(buf, start, end, WEIGHT)) return UnitType.WEIGHT;
+        return null;
+    }
+
+    private BigDecimal parsePrice(ByteBuffer buf, int from, int to) {
+        int start = trimStart(buf, from, to);
+        int end = trimEnd(buf, start, to);
+        int len = end - start;
+        try {
+            if (!isAscii(buf, start, end)) return new BigDecimal(decode(buf, start, end));
+            if (len == 0) return null;
+            if (chars.length < len) chars = new char[Math.max(len, chars.length * 2)];
+            for (int i = 0; i < len; i++) chars[i] = (char) buf.get(start + i);
+            return new BigDecimal(chars, 0, len);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /** Decode a trimmed UTF-8 field. */
+    String decode(ByteBuffer buf, int from, int to) {
+        int start = trimStart(buf, from, to);
+        int end = trimEnd(buf, start, to);
+        if (buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        int len = end - start;
+        if (bytes.length < len) bytes = new byte[Math.max(len, bytes.length * 2)];
+        buf.get(start, bytes, 0, len);
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // same definition of whitespace as String.trim(); UTF-8 continuation bytes are all >= 0x80
+    private static int trimStart(ByteBuffer buf, int from, int to) {
+        while (from < to && (buf.get(from) & 0xFF) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(ByteBuffer buf, int from, int to) {
+        while (to > from && (buf.get(to - 1) & 0xFF) <= ' ') to--;
+        return to;
+    }
+
+    private static int indexOfComma(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == ',') return i;
+        }
+        return -1;
+    }
+
+    private static boolean isAscii(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCaseAscii(ByteBuffer buf, int from, int to, byte[] upper) {
+        if (to - from != upper.length) return false;
+        for (int i = 0; i < upper.length; i++) {
+            int b = buf.get(from + i);
+            if (b >= 'a' && b <= 'z') b -= 'a' - 'A';
+            if (b != upper[i]) return false;
+        }
+        return true;
+    }
+}
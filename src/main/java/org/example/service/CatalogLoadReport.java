@@ -0,0 +1,63 @@
+package org.example.service;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a catalog CSV import: how many data rows were read, how many became products and
+ * how many were skipped, by reason. Blank lines and # comments are not counted as rows.
+ */
+public class CatalogLoadReport {
+    private final long rowsRead;
+    private final long productsLoaded;
+    private final long skippedMalformed;
+    private final long skippedUnknownUnitType;
+    private final long skippedBadPrice;
+    private final Duration elapsed;
+
+    CatalogLoadReport(Tally tally, Duration elapsed) {
+        this.rowsRead = tally.rowsRead;
+        this.productsLoaded = tally.productsLoaded;
+        this.skippedMalformed = tally.skippedMalformed;
+        this.skippedUnknownUnitType = tally.skippedUnknownUnitType;
+        this.skippedBadPrice = tally.skippedBadPrice;
+        this.elapsed = elapsed;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getProductsLoaded() { return productsLoaded; }
+    /** Rows with fewer than four columns. */
+    public long getSkippedMalformed() { return skippedMalformed; }
+    /** Rows whose unit column is neither PIECE nor WEIGHT. */
+    public long getSkippedUnknownUnitType() { return skippedUnknownUnitType; }
+    /** Rows whose price column is not a decimal number. */
+    public long getSkippedBadPrice() { return skippedBadPrice; }
+    public long getSkippedTotal() { return skippedMalformed + skippedUnknownUnitType + skippedBadPrice; }
+    public Duration getElapsed() { return elapsed; }
+
+    @Override
+    public String toString() {
+        return "CatalogLoadReport{rowsRead=" + rowsRead
+                + ", productsLoaded=" + productsLoaded
+                + ", skippedMalformed=" + skippedMalformed
+                + ", skippedUnknownUnitType=" + skippedUnknownUnitType
+                + ", skippedBadPrice=" + skippedBadPrice
+                + ", elapsedMillis=" + elapsed.toMillis() + "}";
+    }
+
+    /** Mutable counters filled in by the parser. */
+    static final class Tally {
+        long rowsRead;
+        long productsLoaded;
+        long skippedMalformed;
+        long skippedUnknownUnitType;
+        long skippedBadPrice;
+
+        void add(Tally other) {
+            rowsRead += other.rowsRead;
+            productsLoaded += other.productsLoaded;
+            skippedMalformed += other.skippedMalformed;
+            skippedUnknownUnitType += other.skippedUnknownUnitType;
+            skippedBadPrice += other.skippedBadPrice;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Primary side of catalog replication: changes {@link #publish published} here are applied to the local catalog
+ * and streamed to every connected {@link CatalogReplica} over TCP (see {@link ReplicationFormat}).
+ * <p>
+ * Each batch gets the next offset and is encoded once; the bytes are kept in a ring of the last
+ * {@link Options#retainedBatches()} batches and written to every replica by its own (virtual) thread, so a slow
+ * replica only delays itself. A replica that reconnects sends the offset it has applied and receives the batches
+ * after it, or a full snapshot when that offset is no longer retained or came from an earlier primary. Batches
+ * waiting for a replica go out in one write, so a replica that fell behind catches up in large writes.
+ * <p>
+ * A snapshot must match an offset. On a {@link ProductCatalog#versioned()} catalog the current version is taken
+ * with the offset, which is constant time, and listed without holding up {@link #publish}. Other catalogs are
+ * copied while publishing waits, so there every snapshot sent (a new replica, or a restart wave) stalls
+ * replication for as long as a copy of the catalog takes; use a versioned catalog with many replicas.
+ * <p>
+ * All changes must go through {@link #publish}: writing to the catalog directly bypasses replication. Products
+ * whose id or name is too long for the protocol (more than 65535 UTF-8 bytes) are rejected by {@code publish}; any
+ * already in the catalog are left out of snapshots and counted in {@link #getProductsNotReplicated()}.
+ */
+public final class CatalogPrimary implements Closeable {
+
+    /**
+     * @param retainedBatches   batches kept for replicas that reconnect; older replicas get a snapshot
+     * @param heartbeatInterval how often an idle replica is told the current offset
+     */
+    public record Options(int retainedBatches, Duration heartbeatInterval) {
+
+        public Options {
+            if (retainedBatches < 1) throw new IllegalArgumentException("retainedBatches must be >= 1");
+            if (heartbeatInterval.isNegative() || heartbeatInterval.isZero()) throw new IllegalArgumentException("heartbeatInterval must be > 0");
+        }
+
+        public static Options defaults() {
+            return new Options(100_000, Duration.ofSeconds(1));
+        }
+
+        public Options withRetainedBatches(int batches) {
+            return new Options(batches, heartbeatInterval);
+        }
+
+        public Options withHeartbeatInterval(Duration interval) {
+            return new Options(retainedBatches, interval);
+        }
+    }
+
+    // frames written to a replica in one go, at most
+    private static final int MAX_FRAMES_PER_WRITE = 1024;
+
+    private final ProductCatalog catalog;
+    private final boolean versioned;
+    private final Options options;
+    private final long epoch;
+    private final ServerSocket server;
+    private final Thread acceptor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    // guarded by lock
+    private final byte[][] log; // BATCH frames, offset o at o % length
+    private long offset;
+    private boolean closing;
+
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+    private final LongAdder snapshotsSent = new LongAdder();
+    private final LongAdder productsNotReplicated = new LongAdder();
+
+    private CatalogPrimary(ProductCatalog catalog, ServerSocket server, Options options) {
+        this.catalog = catalog;
+        this.versioned = catalog.isVersioned();
+        this.options = options;
+        this.server = server;
+        this.log = new byte[options.retainedBatches()][];
+        long e;
+        do {
+            e = ThreadLocalRandom.current().nextLong();
+        } while (e == 0);
+        this.epoch = e;
+        this.acceptor = new Thread(this::runAcceptor, "catalog-primary-" + server.getLocalPort());
+        this.acceptor.setDaemon(true);
+    }
+
+    public static CatalogPrimary start(ProductCatalog catalog, InetSocketAddress address) throws IOException {
+        return start(catalog, address, Options.defaults());
+    }
+
+    /**
+     * Listen for replicas on the given address (port 0 picks a free port, see {@link #getPort()}).
+     */
+    public static CatalogPrimary start(ProductCatalog catalog, InetSocketAddress address, Options options) throws IOException {
+        Objects.requireNonNull(catalog, "catalog");
+        Objects.requireNonNull(options, "options");
+        ServerSocket server = new ServerSocket();
+        try {
+            server.setReuseAddress(true);
+            server.bind(address, 256);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        CatalogPrimary primary = new CatalogPrimary(catalog, server, options);
+        primary.acceptor.start();
+        return primary;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Apply upserts followed by removals to the catalog (see {@link ProductCatalog#applyChanges}) and queue
+     * them for every replica.
+     * @return the batch's offset
+     * @throws IllegalArgumentException if an id or name is too long to replicate; nothing is applied then
+     */
+    public long publish(Collection<Product> upserts, Collection<String> removedIds) {
+        Objects.requireNonNull(upserts, "upserts");
+        Objects.requireNonNull(removedIds, "removedIds");
+        // encoded outside the lock, and before anything is applied; only the offset is filled in under it
+        byte[] frame = ReplicationFormat.batch(0, upserts, removedIds);
+        lock.lock();
+        try {
+            if (closing) throw new IllegalStateException("Primary is closed");
+            catalog.applyChanges(upserts, removedIds);
+            long next = offset + 1;
+            ByteBuffer.wrap(frame).putLong(ReplicationFormat.BATCH_OFFSET_POSITION, next);
+            log[(int) (next % log.length)] = frame;
+            offset = next;
+            published.signalAll();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Offset of the newest batch, 0 before the first. */
+    public long getOffset() {
+        lock.lock();
+        try {
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /** Full snapshots sent to replicas that were new, too far behind or from an earlier primary. */
+    public long getSnapshotsSent() {
+        return snapshotsSent.sum();
+    }
+
+    /** Products left out of snapshots because their id or name is too long to replicate, summed over snapshots. */
+    public long getProductsNotReplicated() {
+        return productsNotReplicated.sum();
+    }
+
+    /** Stop listening and disconnect every replica. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closing = true;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        server.close();
+        for (Socket s : replicas) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+                // going away anyway
+            }
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing primary", e);
+        }
+    }
+
+    // one product the protocol cannot carry must not break every snapshot, and with it every replica
+    private List<Product> replicable(List<Product> products) {
+        int skipped = 0;
+        for (Product p : products) if (!ReplicationFormat.encodable(p)) skipped++;
+        if (skipped == 0) return products;
+        productsNotReplicated.add(skipped);
+        List<Product> encodable = new ArrayList<>(products.size() - skipped);
+        for (Product p : products) if (ReplicationFormat.encodable(p)) encodable.add(p);
+        return encodable;
+    }
+
+    private void runAcceptor() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                continue; // closed, or a connection that failed before we got it
+            }
+            replicas.add(socket);
+            Thread.ofVirtual().name("catalog-primary-replica-" + socket.getRemoteSocketAddress()).start(() -> serve(socket));
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            if (in.readInt() != ReplicationFormat.MAGIC || in.readInt() != ReplicationFormat.PROTOCOL_VERSION) return;
+            long replicaEpoch = in.readLong();
+            long position = in.readLong();
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 1 << 16);
+            boolean snapshot = replicaEpoch != epoch;
+            List<byte[]> frames = new ArrayList<>();
+            while (true) {
+                List<Product> products = null;
+                CatalogSnapshot version = null;
+                long target;
+                lock.lock();
+                try {
+                    long heartbeatDue = System.nanoTime() + options.heartbeatInterval().toNanos();
+                    while (!closing && !snapshot && position == offset) {
+                        long left = heartbeatDue - System.nanoTime();
+                        if (left <= 0) break;
+                        published.awaitNanos(left);
+                    }
+                    if (closing) return;
+                    target = offset;
+                    if (snapshot || position > offset || position < offset - log.length) {
+                        // consistent with target: every change goes through publish, under this lock
+                        if (versioned) version = catalog.snapshot();
+                        else products = catalog.listAll();
+                    } else {
+                        target = Math.min(offset, position + MAX_FRAMES_PER_WRITE);
+                        for (long o = position + 1; o <= target; o++) frames.add(log[(int) (o % log.length)]);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (version != null) products = version.listAll();
+                if (products != null) {
+                    products = replicable(products);
+                    for (int from = 0; from < products.size(); from += ReplicationFormat.SNAPSHOT_PART_PRODUCTS) {
+                        int to = Math.min(products.size(), from + ReplicationFormat.SNAPSHOT_PART_PRODUCTS);
+                        out.write(ReplicationFormat.snapshotPart(products, from, to));
+                    }
+                    out.write(ReplicationFormat.snapshotEnd(epoch, target));
+                    snapshotsSent.increment();
+                    snapshot = false;
+                } else if (frames.isEmpty()) {
+                    out.write(ReplicationFormat.heartbeat(target));
+                } else {
+                    for (byte[] frame : frames) out.write(frame);
+                    frames.clear();
+                }
+                out.flush();
+                position = target;
+            }
+        } catch (IOException e) {
+            // replica went away, or we are closing; a replica reconnects and resumes from its offset
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replicas.remove(socket);
+        }
+    }
+}
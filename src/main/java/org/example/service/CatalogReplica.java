@@ -0,0 +1,382 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Replica side of catalog replication: keeps a local catalog in step with a {@link CatalogPrimary}. A background
+ * thread connects, sends the offset it has applied, and applies the snapshot and batches that come back, each
+ * batch with one {@link ProductCatalog#applyChanges} call. When the connection drops it reconnects after
+ * {@link Options#reconnectDelay()} and resumes from its offset.
+ * <p>
+ * With a {@link Options#checkpointDir() checkpoint directory} the replica writes its catalog as a binary snapshot
+ * plus the offset it matches every {@link Options#checkpointInterval()} and on close. A restarted replica loads
+ * them and asks the primary only for the batches since, instead of a full snapshot.
+ * <p>
+ * The catalog should start empty, be written by nothing else and be safe for concurrent readers
+ * ({@link ProductCatalog#concurrent()} or {@link ProductCatalog#versioned()}, which publishes every batch as one
+ * version).
+ */
+public final class CatalogReplica implements Closeable {
+
+    static final String CHECKPOINT_CATALOG = "catalog.gcat";
+    static final String CHECKPOINT_STATE = "replica.state";
+
+    /**
+     * @param checkpointDir      where to keep the checkpoint; null for none
+     * @param checkpointInterval how often a changed catalog is checkpointed
+     * @param reconnectDelay     wait before reconnecting after the connection dropped or failed
+     * @param readTimeout        silence after which the primary is considered gone; above its heartbeat interval
+     */
+    public record Options(Path checkpointDir, Duration checkpointInterval, Duration reconnectDelay, Duration readTimeout) {
+
+        public Options {
+            if (checkpointInterval.isNegative()) throw new IllegalArgumentException("checkpointInterval must be >= 0");
+            if (reconnectDelay.isNegative()) throw new IllegalArgumentException("reconnectDelay must be >= 0");
+            if (readTimeout.isNegative() || readTimeout.isZero()) throw new IllegalArgumentException("readTimeout must be > 0");
+        }
+
+        public static Options defaults() {
+            return new Options(null, Duration.ofSeconds(10), Duration.ofMillis(200), Duration.ofSeconds(5));
+        }
+
+        public Options withCheckpointDir(Path dir) {
+            return new Options(dir, checkpointInterval, reconnectDelay, readTimeout);
+        }
+
+        public Options withCheckpointInterval(Duration interval) {
+            return new Options(checkpointDir, interval, reconnectDelay, readTimeout);
+        }
+
+        public Options withReconnectDelay(Duration delay) {
+            return new Options(checkpointDir, checkpointInterval, delay, readTimeout);
+        }
+    }
+
+    private final ProductCatalog catalog;
+    private final InetSocketAddress primary;
+    private final Options options;
+    private final Thread worker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition applied = lock.newCondition();
+    // guarded by lock; written only by the worker
+    private long epoch;
+    private long offset;
+    private long primaryOffset;
+    private long batchesApplied;
+    private long snapshotsLoaded;
+    private boolean connected;
+    private IOException lastFailure;
+
+    // worker thread only
+    private long checkpointedOffset = -1;
+    private long checkpointedEpoch;
+    private long lastCheckpointNanos = System.nanoTime();
+
+    private volatile boolean closing;
+    private volatile Socket socket;
+
+    private CatalogReplica(ProductCatalog catalog, InetSocketAddress primary, Options options) {
+        this.catalog = catalog;
+        this.primary = primary;
+        this.options = options;
+        this.worker = new Thread(this::run, "catalog-replica-" + primary.getHostString() + ":" + primary.getPort());
+        this.worker.setDaemon(true);
+    }
+
+    public static CatalogReplica start(ProductCatalog catalog, InetSocketAddress primary) throws IOException {
+        return start(catalog, primary, Options.defaults());
+    }
+
+    /**
+     * Load the checkpoint, if there is one, and start following the primary. Returns at once; use
+     * {@link #awaitOffset} to wait for the catalog to catch up.
+     * @throws IOException if the checkpoint exists but cannot be read
+     */
+    public static CatalogReplica start(ProductCatalog catalog, InetSocketAddress primary, Options options) throws IOException {
+        Objects.requireNonNull(catalog, "catalog");
+        Objects.requireNonNull(primary, "primary");
+        Objects.requireNonNull(options, "options");
+        CatalogReplica replica = new CatalogReplica(catalog, primary, options);
+        if (options.checkpointDir() != null) replica.loadCheckpoint(options.checkpointDir());
+        replica.worker.start();
+        return replica;
+    }
+
+    /** Offset of the last batch applied; 0 before the first snapshot. */
+    public long getOffset() {
+        lock.lock();
+        try {
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Batches the primary has published that are not applied here yet, as of the last frame received. */
+    public long getLag() {
+        lock.lock();
+        try {
+            return Math.max(0, primaryOffset - offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBatchesApplied() {
+        lock.lock();
+        try {
+            return batchesApplied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSnapshotsLoaded() {
+        lock.lock();
+        try {
+            return snapshotsLoaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isConnected() {
+        lock.lock();
+        try {
+            return connected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Why the last connection ended, if it failed; null otherwise. */
+    public IOException getLastFailure() {
+        lock.lock();
+        try {
+            return lastFailure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the batch at the given offset (from {@link CatalogPrimary#publish}) has been applied.
+     * @return false on timeout
+     */
+    public boolean awaitOffset(long target, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        lock.lock();
+        try {
+            while (offset < target || epoch == 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                applied.awaitNanos(left);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Disconnect and, with a checkpoint directory, write a final checkpoint. */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        Socket s = socket;
+        if (s != null) s.close();
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing replica", e);
+        }
+        if (options.checkpointDir() != null) checkpoint(options.checkpointDir());
+    }
+
+    private void run() {
+        while (!closing) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                if (closing) break;
+                s.connect(primary, (int) options.readTimeout().toMillis());
+                s.setTcpNoDelay(true);
+                s.setSoTimeout((int) options.readTimeout().toMillis());
+                long[] state = state();
+                s.getOutputStream().write(ReplicationFormat.hello(state[0], state[1]));
+                setConnected(true, null);
+                follow(new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16)));
+                setConnected(false, null);
+            } catch (IOException e) {
+                setConnected(false, closing ? null : e);
+            } catch (RuntimeException e) {
+                // a batch the catalog refused; start over from a snapshot rather than stop following
+                setConnected(false, new IOException(e));
+                resetEpoch();
+            }
+            if (closing) break;
+            try {
+                Thread.sleep(options.reconnectDelay().toMillis());
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        socket = null;
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        List<Product> snapshot = null;
+        ByteBuffer frame;
+        while (!closing && (frame = ReplicationFormat.readFrame(in)) != null) {
+            byte type = frame.get();
+            switch (type) {
+                case ReplicationFormat.SNAPSHOT_PART -> {
+                    if (snapshot == null) snapshot = new ArrayList<>();
+                    snapshot.addAll(ReplicationFormat.readProducts(frame));
+                }
+                case ReplicationFormat.SNAPSHOT_END -> {
+                    long newEpoch = frame.getLong();
+                    long newOffset = frame.getLong();
+                    replaceAll(snapshot == null ? List.of() : snapshot);
+                    snapshot = null;
+                    lock.lock();
+                    try {
+                        epoch = newEpoch;
+                        offset = newOffset;
+                        primaryOffset = Math.max(primaryOffset, newOffset);
+                        snapshotsLoaded++;
+                        applied.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                case ReplicationFormat.BATCH -> {
+                    long batchOffset = frame.getLong();
+                    if (batchOffset != getOffset() + 1) throw new IOException("Expected batch " + (getOffset() + 1) + ", got " + batchOffset);
+                    List<Product> upserts = ReplicationFormat.readProducts(frame);
+                    List<String> removed = ReplicationFormat.readStrings(frame);
+                    catalog.applyChanges(upserts, removed);
+                    lock.lock();
+                    try {
+                        offset = batchOffset;
+                        primaryOffset = Math.max(primaryOffset, batchOffset);
+                        batchesApplied++;
+                        applied.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                case ReplicationFormat.HEARTBEAT -> {
+                    long latest = frame.getLong();
+                    lock.lock();
+                    try {
+                        primaryOffset = latest;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                default -> throw new IOException("Unknown replication frame type " + type);
+            }
+            if (options.checkpointDir() != null && snapshot == null
+                    && System.nanoTime() - lastCheckpointNanos >= options.checkpointInterval().toNanos()) {
+                checkpoint(options.checkpointDir());
+            }
+        }
+    }
+
+    // make the catalog exactly the snapshot: upsert everything in it, remove everything else
+    private void replaceAll(List<Product> snapshot) {
+        Set<String> ids = new HashSet<>(snapshot.size() * 4 / 3 + 1);
+        for (Product p : snapshot) ids.add(p.getId());
+        List<String> removed = new ArrayList<>();
+        for (Product p : catalog.listAll()) {
+            if (!ids.contains(p.getId())) removed.add(p.getId());
+        }
+        catalog.applyChanges(snapshot, removed);
+    }
+
+    // ---- checkpoint -----------------------------------------------------------------------------------------
+
+    private void loadCheckpoint(Path dir) throws IOException {
+        Path state = dir.resolve(CHECKPOINT_STATE);
+        Path products = dir.resolve(CHECKPOINT_CATALOG);
+        if (!Files.exists(state) || !Files.exists(products)) return;
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(state));
+        if (in.remaining() != 16) throw new IOException("Corrupt replica state: " + state);
+        long savedEpoch = in.getLong();
+        long savedOffset = in.getLong();
+        catalog.applyChanges(ProductCatalog.openBinary(products).listAll(), List.of());
+        epoch = savedEpoch;
+        offset = savedOffset;
+        primaryOffset = savedOffset;
+        checkpointedEpoch = savedEpoch;
+        checkpointedOffset = savedOffset;
+    }
+
+    /*
+     * The catalog is written before the state, so the saved offset never runs ahead of the saved catalog. After a
+     * crash in between, the offset is older than the catalog and the batches since are applied again, which
+     * ends in the same catalog: batches only set products to values or remove them.
+     */
+    private void checkpoint(Path dir) throws IOException {
+        long[] state = state();
+        lastCheckpointNanos = System.nanoTime();
+        if (state[0] == 0 || (state[0] == checkpointedEpoch && state[1] == checkpointedOffset)) return;
+        Files.createDirectories(dir);
+        BinaryCatalogFormat.write(catalog.listAll(), dir.resolve(CHECKPOINT_CATALOG));
+        Path tmp = Files.createTempFile(dir, CHECKPOINT_STATE, ".tmp");
+        Files.write(tmp, ByteBuffer.allocate(16).putLong(state[0]).putLong(state[1]).array());
+        Files.move(tmp, dir.resolve(CHECKPOINT_STATE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpointedEpoch = state[0];
+        checkpointedOffset = state[1];
+    }
+
+    // {epoch, offset}
+    private long[] state() {
+        lock.lock();
+        try {
+            return new long[] { epoch, offset };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void resetEpoch() {
+        lock.lock();
+        try {
+            epoch = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setConnected(boolean value, IOException failure) {
+        lock.lock();
+        try {
+            connected = value;
+            if (failure != null) lastFailure = failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
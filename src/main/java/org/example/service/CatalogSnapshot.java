@@ -0,0 +1,268 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.*;
+
+/**
+ * Immutable, versioned view of a catalog. Snapshots are persistent hash tries (32-way, keyed by product id):
+ * publishing a new version copies only the path to each changed entry and shares everything else with the
+ * previous version, so a price change in a catalog of millions of products costs a handful of small arrays.
+ * <p>
+ * Obtain snapshots from a catalog created with {@link ProductCatalog#versioned()}. A {@link Checkout} can
+ * {@link Checkout#pin(CatalogSnapshot) pin} one to price a whole basket against a single price list.
+ */
+public final class CatalogSnapshot {
+
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(0, null, 0, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final long version;
+    private final Object root; // null, Entry, Collision or Node
+    private final int size;
+    private final long nextSeq;
+
+    private CatalogSnapshot(long version, Object root, int size, long nextSeq) {
+        this.version = version;
+        this.root = root;
+        this.size = size;
+        this.nextSeq = nextSeq;
+    }
+
+    /** Increases by one with every published change (or batch of changes). */
+    public long getVersion() { return version; }
+
+    public int size() { return size; }
+
+    public Optional<Product> getProduct(String id) {
+        return Optional.ofNullable(get(id));
+    }
+
+    /** @return the product or null */
+    Product get(String id) {
+        int hash = hash(id);
+        Object node = root;
+        int shift = 0;
+        while (node instanceof Node n) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((n.bitmap & bit) == 0) return null;
+            node = n.slots[Integer.bitCount(n.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        if (node instanceof Entry e) {
+            return e.hash == hash && e.id.equals(id) ? e.product : null;
+        }
+        if (node instanceof Collision c && c.hash == hash) {
+            for (Entry e : c.entries) if (e.id.equals(id)) return e.product;
+        }
+        return null;
+    }
+
+    /** All products in insertion order (an update keeps the original position). */
+    public List<Product> listAll() {
+        List<Entry> entries = new ArrayList<>(size);
+        collect(root, entries);
+        entries.sort(Comparator.comparingLong(e -> e.seq));
+        List<Product> products = new ArrayList<>(entries.size());
+        for (Entry e : entries) products.add(e.product);
+        return products;
+    }
+
+    private static void collect(Object node, List<Entry> out) {
+        if (node instanceof Entry e) out.add(e);
+        else if (node instanceof Collision c) Collections.addAll(out, c.entries);
+        else if (node instanceof Node n) for (Object child : n.slots) collect(child, out);
+    }
+
+    /** Start a batch of changes that becomes the next version on {@link Builder#build()}. */
+    Builder edit() {
+        return new Builder(this);
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Accumulates changes on top of a snapshot by path copying. The base snapshot is never modified.
+     * Not thread-safe.
+     */
+    static final class Builder {
+        private final CatalogSnapshot base;
+        private Object root;
+        private int size;
+        private long nextSeq;
+        private boolean changed;
+        private Entry previous; // entry replaced or removed by the last operation
+
+        private Builder(CatalogSnapshot base) {
+            this.base = base;
+            this.root = base.root;
+            this.size = base.size;
+            this.nextSeq = base.nextSeq;
+        }
+
+        /** @return previous product with this id or null */
+        Product put(Product product) {
+            previous = null;
+            Entry entry = new Entry(product.getId(), hash(product.getId()), product, nextSeq);
+            root = insert(root, entry, 0);
+            changed = true;
+            if (previous == null) {
+                size++;
+                nextSeq++;
+                return null;
+            }
+            return previous.product;
+        }
+
+        /** @return removed product or null */
+        Product remove(String id) {
+            previous = null;
+            root = delete(root, id, hash(id), 0);
+            if (previous == null) return null;
+            changed = true;
+            size--;
+            return previous.product;
+        }
+
+        /** @return the next version, or the base snapshot itself if nothing was modified */
+        CatalogSnapshot build() {
+            if (!changed) return base;
+            return new CatalogSnapshot(base.version + 1, root, size, nextSeq);
+        }
+
+        private Object insert(Object node, Entry entry, int shift) {
+            if (node == null) return entry;
+            if (node instanceof Entry e) {
+                if (e.hash == entry.hash && e.id.equals(entry.id)) {
+                    previous = e;
+                    return new Entry(e.id, e.hash, entry.product, e.seq);
+                }
+                if (e.hash == entry.hash) return new Collision(e.hash, new Entry[] { e, entry });
+                return split(e, e.hash, entry, shift);
+            }
+            if (node instanceof Collision c) {
+                if (c.hash != entry.hash) return split(c, c.hash, entry, shift);
+                for (int i = 0; i < c.entries.length; i++) {
+                    Entry e = c.entries[i];
+                    if (e.id.equals(entry.id)) {
+                        previous = e;
+                        Entry[] copy = c.entries.clone();
+                        copy[i] = new Entry(e.id, e.hash, entry.product, e.seq);
+                        return new Collision(c.hash, copy);
+                    }
+                }
+                Entry[] copy = Arrays.copyOf(c.entries, c.entries.length + 1);
+                copy[c.entries.length] = entry;
+                return new Collision(c.hash, copy);
+            }
+            Node n = (Node) node;
+            int bit = 1 << ((entry.hash >>> shift) & MASK);
+            int idx = Integer.bitCount(n.bitmap & (bit - 1));
+            if ((n.bitmap & bit) == 0) {
+                Object[] slots = new Object[n.slots.length + 1];
+                System.arraycopy(n.slots, 0, slots, 0, idx);
+                slots[idx] = entry;
+                System.arraycopy(n.slots, idx, slots, idx + 1, n.slots.length - idx);
+                return new Node(n.bitmap | bit, slots);
+            }
+            Object[] slots = n.slots.clone();
+            slots[idx] = insert(n.slots[idx], entry, shift + BITS);
+            return new Node(n.bitmap, slots);
+        }
+
+        // a leaf (Entry or Collision) with hash leafHash and an entry with a different hash share a slot
+        private static Object split(Object leaf, int leafHash, Entry entry, int shift) {
+            int a = (leafHash >>> shift) & MASK;
+            int b = (entry.hash >>> shift) & MASK;
+            if (a == b) return new Node(1 << a, new Object[] { split(leaf, leafHash, entry, shift + BITS) });
+            return a < b
+                    ? new Node((1 << a) | (1 << b), new Object[] { leaf, entry })
+                    : new Node((1 << a) | (1 << b), new Object[] { entry, leaf });
+        }
+
+        private Object delete(Object node, String id, int hash, int shift) {
+            if (node == null) return null;
+            if (node instanceof Entry e) {
+                if (e.hash == hash && e.id.equals(id)) {
+                    previous = e;
+                    return null;
+                }
+                return e;
+            }
+            if (node instanceof Collision c) {
+                if (c.hash != hash) return c;
+                for (int i = 0; i < c.entries.length; i++) {
+                    if (c.entries[i].id.equals(id)) {
+                        previous = c.entries[i];
+                        if (c.entries.length == 2) return c.entries[1 - i];
+                        Entry[] copy = new Entry[c.entries.length - 1];
+                        System.arraycopy(c.entries, 0, copy, 0, i);
+                        System.arraycopy(c.entries, i + 1, copy, i, copy.length - i);
+                        return new Collision(c.hash, copy);
+                    }
+                }
+                return c;
+            }
+            Node n = (Node) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((n.bitmap & bit) == 0) return n;
+            int idx = Integer.bitCount(n.bitmap & (bit - 1));
+            Object child = n.slots[idx];
+            Object newChild = delete(child, id, hash, shift + BITS);
+            if (newChild == child) return n;
+            if (newChild == null) {
+                if (n.slots.length == 1) return null;
+                Object[] slots = new Object[n.slots.length - 1];
+                System.arraycopy(n.slots, 0, slots, 0, idx);
+                System.arraycopy(n.slots, idx + 1, slots, idx, slots.length - idx);
+                // a lone leaf can move up a level; lookups stop at the first leaf anyway
+                if (slots.length == 1 && !(slots[0] instanceof Node)) return slots[0];
+                return new Node(n.bitmap & ~bit, slots);
+            }
+            if (n.slots.length == 1 && !(newChild instanceof Node)) return newChild;
+            Object[] slots = n.slots.clone();
+            slots[idx] = newChild;
+            return new Node(n.bitmap, slots);
+        }
+    }
+
+    private static final class Entry {
+        final String id;
+        final int hash;
+        final Product product;
+        final long seq; // insertion sequence, kept across updates
+
+        Entry(String id, int hash, Product product, long seq) {
+            this.id = id;
+            this.hash = hash;
+            this.product = product;
+            this.seq = seq;
+        }
+    }
+
+    // entries whose full 32-bit hashes are equal
+    private static final class Collision {
+        final int hash;
+        final Entry[] entries;
+
+        Collision(int hash, Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots; // Entry, Collision or Node, ordered by hash fragment
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+}
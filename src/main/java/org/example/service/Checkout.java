@@ -1,130 +1,802 @@
 package org.example.service;
 
+import org.example.metrics.CheckoutTotalsEvent;
+import org.example.metrics.ScanEvent;
+import org.example.metrics.StoreMetrics;
 import org.example.model.Product;
 import org.example.model.Promotion;
+import org.example.model.UnitType;
 import org.example.scan.ScannedItem;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
- * Checkout service: collect scanned items and compute totals. No persistence.
+ * Checkout service: collect scanned items and compute totals. No persistence of its own; wrap it in a
+ * {@link JournaledCheckout} to survive crashes.
+ * <p>
+ * By default totals are recomputed from the scanned items on every {@link #calculateTotals()} call.
+ * In incremental mode {@link #scan(ScannedItem)} and {@link #removeScan(int)} keep per-product aggregates
+ * and the running total/savings up to date, so {@code calculateTotals()} only snapshots them.
+ * <p>
+ * Scans are kept in packed primitive columns rather than as ScannedItem objects, so baskets of tens of
+ * thousands of lines stay small; {@link #getScans()} recreates items on access. Very large baskets are
+ * aggregated and priced on a fork-join pool above {@link #setParallelThreshold(int) a threshold}.
+ * <p>
+ * Items carry the Product they were scanned with. {@link #pin(CatalogSnapshot)} makes the whole basket price
+ * against one catalog version instead, regardless of when each item was scanned.
+ * <p>
+ * A product may have several buy-X-get-Y promotions; each piece line then uses the combination that is cheapest
+ * for the customer (see {@link PriceLine#getPromotionApplications()}), searched within
+ * {@link #setPromotionTimeBudget(Duration) a time budget} per line.
+ * <p>
+ * Lanes that ring up customer after customer can share one {@link PromotionIndex} between all their checkouts
+ * ({@link #sharing(PromotionIndex, boolean)}) and {@link #reset()} a checkout between customers, or keep them in a
+ * {@link CheckoutPool}, instead of building a Checkout and its promotion lookup per transaction.
+ * <p>
+ * Besides per-product buy-X-get-Y promotions, a shared {@link PromotionEngine} can be attached for bundle,
+ * weight and basket-threshold rules; its discounts are listed in {@link Result#getAppliedPromotions()}.
+ * <p>
+ * Scans and {@code calculateTotals()} calls are counted in {@link StoreMetrics#global()} and emit
+ * {@link ScanEvent} / {@link CheckoutTotalsEvent} for JFR.
  */
 public class Checkout {
 
-    // scanned items list (order preserved)
-    private final List<ScannedItem> scans = new ArrayList<>();
+    private static final StoreMetrics METRICS = StoreMetrics.global();
 
-    // promotions index by productId for quick lookup
-    private final Map<String, Promotion> promotionsByProduct = new HashMap<>();
+    // scanned items, packed (order preserved)
+    private final ScanBuffer scans = new ScanBuffer();
+
+    /** Time the exact promotion search may take per piece line before falling back to the best single deal. */
+    public static final Duration DEFAULT_PROMOTION_TIME_BUDGET = Duration.ofMillis(2);
+
+    // promotions by productId, in registration order; possibly shared with other checkouts, never modified here
+    private final PromotionIndex sharedPromotions;
+    // promotions added with addPromotion, merged with the shared ones of their product; null until the first
+    private Map<String, Promotion[]> addedPromotions;
+
+    private long promotionBudgetNanos = DEFAULT_PROMOTION_TIME_BUDGET.toNanos();
+
+    /** Baskets with at least this many scans are aggregated and priced in parallel (full recompute only). */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+    private static final int MIN_PARALLEL_CHUNK = 4_096;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool aggregationPool = ForkJoinPool.commonPool();
+
+    // running aggregates, only maintained in incremental mode (null otherwise)
+    private final RunningTotals running;
+
+    // catalog version the basket is priced against; null = price of the scanned Product
+    private CatalogSnapshot pinned;
+
+    // rule-based promotions evaluated on top of the priced lines; null = none
+    private PromotionEngine promotionEngine;
+
+    // last calculateTotals() result, until the basket or its pricing changes; null = stale
+    private Result cached;
+
+    // sums of the sequential recompute, reused from one calculation to the next; null until the first
+    private Aggregation scratch;
 
     public Checkout(Collection<Promotion> promotions) {
-        if (promotions != null) {
-            for (Promotion p : promotions) promotionsByProduct.put(p.getProductId(), p);
-        }
+        this(promotions, false);
     }
 
-    public Checkout() { }
+    /**
+     * @param promotions  initial promotions (may be null)
+     * @param incremental keep running aggregates on every scan instead of re-aggregating in calculateTotals()
+     */
+    public Checkout(Collection<Promotion> promotions, boolean incremental) {
+        this(incremental, PromotionIndex.of(promotions));
+    }
+
+    public Checkout() {
+        this(false, PromotionIndex.empty());
+    }
+
+    private Checkout(boolean incremental, PromotionIndex promotions) {
+        this.sharedPromotions = promotions;
+        this.running = incremental ? new RunningTotals() : null;
+    }
+
+    /**
+     * A checkout that looks promotions up in a compiled index shared with other checkouts, rather than building
+     * its own from a promotion list. Meant for lanes that open a checkout per customer, or keep one and
+     * {@link #reset()} it.
+     * @param incremental as for {@link #Checkout(Collection, boolean)}
+     */
+    public static Checkout sharing(PromotionIndex promotions, boolean incremental) {
+        return new Checkout(incremental, Objects.requireNonNull(promotions, "promotions"));
+    }
 
+    public boolean isIncremental() {
+        return running != null;
+    }
+
+    /**
+     * Add a promotion. Earlier promotions for the same product stay; the cheapest combination is used.
+     * Adding the same buy/free deal twice has no effect.
+     */
     public void addPromotion(Promotion p) {
-        promotionsByProduct.put(p.getProductId(), p);
+        if (addedPromotions == null) addedPromotions = new HashMap<>();
+        addedPromotions.put(p.getProductId(), PromotionSolver.with(promotionsFor(p.getProductId()), p));
+        if (running != null) running.reprice(p.getProductId());
+        cached = null;
+    }
+
+    // this checkout's promotions for a product, or null
+    private Promotion[] promotionsFor(String productId) {
+        if (addedPromotions != null) {
+            Promotion[] own = addedPromotions.get(productId);
+            if (own != null) return own;
+        }
+        return sharedPromotions.get(productId);
+    }
+
+    /**
+     * Bound the search for the cheapest promotion combination on one piece line. When it runs out the line
+     * uses the single best promotion instead, which may charge a few pieces more. Products with one promotion
+     * are priced in constant time regardless.
+     */
+    public void setPromotionTimeBudget(Duration budget) {
+        if (budget.isNegative()) throw new IllegalArgumentException("Negative budget: " + budget);
+        this.promotionBudgetNanos = budget.toNanos();
+        cached = null;
+    }
+
+    public Duration getPromotionTimeBudget() {
+        return Duration.ofNanos(promotionBudgetNanos);
+    }
+
+    /**
+     * Aggregate and price baskets of at least this many scans on the {@link #setAggregationPool pool}
+     * (Integer.MAX_VALUE to never do so). The result is identical to the sequential path. Has no effect in
+     * incremental mode, or when the pool has a parallelism of one.
+     */
+    public void setParallelThreshold(int scans) {
+        if (scans < 1) throw new IllegalArgumentException("threshold must be >= 1");
+        this.parallelThreshold = scans;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /** Pool for parallel aggregation; the common fork-join pool by default. */
+    public void setAggregationPool(ForkJoinPool pool) {
+        this.aggregationPool = Objects.requireNonNull(pool, "pool");
     }
 
     public void scan(ScannedItem item) {
+        Objects.requireNonNull(item, "item");
+        ScanEvent event = new ScanEvent();
+        event.begin();
         scans.add(item);
+        if (running != null) running.add(item);
+        cached = null;
+        METRICS.scanned();
+        if (event.shouldCommit()) {
+            event.productId = item.getProduct().getId();
+            event.weighed = !item.isPiece();
+            event.commit();
+        }
+    }
+
+    /**
+     * Remove (void) the scan at the given position.
+     * @return the removed item
+     */
+    public ScannedItem removeScan(int index) {
+        ScannedItem item = scans.remove(index);
+        if (running != null) running.remove(index, item);
+        cached = null;
+        return item;
     }
 
+    /**
+     * Void the most recent scan of this exact item.
+     * @return false when the item was never scanned (or already voided)
+     */
+    public boolean voidScan(ScannedItem item) {
+        int index = scans.lastIndexOf(item);
+        if (index < 0) return false;
+        removeScan(index);
+        return true;
+    }
+
+    /**
+     * Empty the basket for the next customer. Promotions (added ones included), engine, pinned snapshot and other
+     * settings stay. The scan buffer and the scratch space of {@link #calculateTotals()} are kept, so a lane that
+     * resets one checkout per customer, with promotions {@link #sharing shared} with other lanes, stops allocating
+     * them once it has seen its usual basket size. Results returned before are not affected.
+     */
+    public void reset() {
+        scans.clear();
+        if (running != null) running.clear();
+        if (scratch != null) scratch.clear();
+        cached = null;
+    }
+
+    /**
+     * Price every line against the given catalog version (null to go back to scan-time products).
+     * Products missing from the snapshot, or whose unit type changed, keep the price they were scanned with.
+     * In incremental mode this reprices one line per distinct product.
+     */
+    public void pin(CatalogSnapshot snapshot) {
+        this.pinned = snapshot;
+        if (running != null) running.repriceAll();
+        cached = null;
+    }
+
+    public CatalogSnapshot getPinnedSnapshot() {
+        return pinned;
+    }
+
+    /**
+     * Evaluate this engine's rules on every {@link #calculateTotals()} (null to detach). Engines are immutable
+     * and meant to be shared by all lanes.
+     */
+    public void setPromotionEngine(PromotionEngine engine) {
+        this.promotionEngine = engine;
+        cached = null;
+    }
+
+    public PromotionEngine getPromotionEngine() {
+        return promotionEngine;
+    }
+
+    /**
+     * Unmodifiable live view of the scans in scan order. Scans are stored packed, so each {@code get} creates
+     * a ScannedItem equal to the one scanned.
+     */
     public List<ScannedItem> getScans() {
-        return Collections.unmodifiableList(scans);
+        return scans.view();
     }
 
     /**
      * Compute total price (after promotions) and return breakdown per product id.
      * Returns map productId -> PriceInfo
+     * <p>
+     * The result is kept and returned again, without pricing or metrics, until the next scan, void or change to
+     * promotions, pinning or engine. Its lines are built on the first {@link Result#getLines()} call; an attached
+     * {@link PromotionEngine} evaluates the priced columns and does not build them.
      */
     public Result calculateTotals() {
-        // group pieces and weight items by product id
-        Map<String, Integer> pieceCounts = new LinkedHashMap<>();
-        Map<String, BigDecimal> weightSums = new LinkedHashMap<>();
-        Map<String, Product> productLookup = new HashMap<>();
+        Result result = cached;
+        if (result != null) return result;
+        CheckoutTotalsEvent event = new CheckoutTotalsEvent();
+        event.begin();
+        long started = METRICS.startTimer();
+        result = running != null ? running.snapshot() : recompute();
+        if (promotionEngine != null) result = withEngineDiscounts(result);
+        report(started, result, event);
+        cached = result;
+        return result;
+    }
 
-        for (ScannedItem s : scans) {
-            Product p = s.getProduct();
-            productLookup.putIfAbsent(p.getId(), p);
-            if (s.isPiece()) {
-                pieceCounts.put(p.getId(), pieceCounts.getOrDefault(p.getId(), 0) + s.getQuantity());
-            } else {
-                weightSums.put(p.getId(), weightSums.getOrDefault(p.getId(), BigDecimal.ZERO).add(s.getWeight()));
-            }
+    // promotion hit counts for the metrics and the JFR event; skipped when neither is listening
+    private void report(long started, Result result, CheckoutTotalsEvent event) {
+        boolean commit = event.shouldCommit();
+        if (!commit && !METRICS.isEnabled()) return;
+        int promotionLines = result.promotionLineCount();
+        int applied = result.appliedLineCount();
+        METRICS.totalsDone(started, scans.size(), promotionLines, applied, result.getAppliedPromotions().size());
+        if (commit) {
+            event.scans = scans.size();
+            event.lines = result.lineCount();
+            event.promotionLinesApplied = applied;
+            event.total = result.getTotal().toPlainString();
+            event.commit();
+        }
+    }
+
+    private Result withEngineDiscounts(Result result) {
+        List<AppliedPromotion> applied = promotionEngine.evaluate(result);
+        if (applied.isEmpty()) return result;
+        BigDecimal discount = BigDecimal.ZERO;
+        for (AppliedPromotion a : applied) discount = discount.add(a.getDiscount());
+        return result.discounted(result.getTotal().subtract(discount).setScale(2, RoundingMode.HALF_UP),
+                result.getSavings().add(discount).setScale(2, RoundingMode.HALF_UP), applied);
+    }
+
+    private Result recompute() {
+        int n = scans.size();
+        boolean parallel = n >= parallelThreshold && aggregationPool.getParallelism() > 1;
+        Aggregation agg;
+        if (parallel) {
+            agg = aggregateParallel(n);
+        } else {
+            if (scratch == null) scratch = new Aggregation();
+            agg = scratch;
+            agg.clear();
+            aggregate(agg, 0, n);
         }
 
+        // pieces first, then weight-based, each in first-scanned order
+        LineColumns priced = new LineColumns(agg.pieces.size() + agg.weights.size());
+        if (parallel) priceParallel(agg, priced);
+        else priceRange(agg, priced, 0, priced.size());
+        priced.sharedIds = agg.sharesIds();
+
         BigDecimal total = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
         BigDecimal savings = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        for (int i = 0; i < priced.size(); i++) {
+            total = total.add(priced.lineTotals[i]);
+            savings = savings.add(priced.savings(i));
+        }
+        return new Result(priced, total.setScale(2,RoundingMode.HALF_UP), savings.setScale(2,RoundingMode.HALF_UP), List.of());
+    }
+
+    // group pieces and weight items of scans [from, to) by product id
+    private void aggregate(Aggregation agg, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Product p = scans.product(i);
+            if (p.getUnitType() == UnitType.PIECE) {
+                agg.pieces.addPieces(agg.pieces.lineFor(p, i), scans.quantity(i));
+            } else {
+                agg.weights.addWeight(agg.weights.lineFor(p, i), scans, i);
+            }
+        }
+    }
 
-        Map<String, PriceLine> lines = new LinkedHashMap<>();
+    // contiguous ranges aggregated on the pool, merged in scan order so first-seen order is kept
+    private Aggregation aggregateParallel(int n) {
+        int chunk = Math.max(MIN_PARALLEL_CHUNK, n / (aggregationPool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        List<Callable<Aggregation>> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            int start = from;
+            int end = Math.min(n, from + chunk);
+            tasks.add(() -> {
+                Aggregation part = new Aggregation();
+                aggregate(part, start, end);
+                return part;
+            });
+        }
+        Aggregation merged = null;
+        for (Future<Aggregation> f : aggregationPool.invokeAll(tasks)) {
+            Aggregation part = join(f);
+            if (merged == null) merged = part;
+            else merged.merge(part);
+        }
+        return merged;
+    }
 
-        // pieces
-        for (Map.Entry<String, Integer> e : pieceCounts.entrySet()) {
-            String pid = e.getKey();
-            int qty = e.getValue();
-            Product p = productLookup.get(pid);
+    // same arithmetic as pricePieces/priceWeight, into columns instead of PriceLine objects
+    private void priceRange(Aggregation agg, LineColumns priced, int from, int to) {
+        int pieceLines = agg.pieces.size();
+        for (int i = from; i < to; i++) {
+            boolean piece = i < pieceLines;
+            LineTable table = piece ? agg.pieces : agg.weights;
+            int line = piece ? i : i - pieceLines;
+            Product p = resolve(agg.firstProduct(table, line));
             BigDecimal unitPrice = p.getPricePerUnit();
-            Promotion promo = promotionsByProduct.get(pid);
-
-            BigDecimal chargeableUnits;
-            BigDecimal lineTotal;
-            BigDecimal lineWithoutPromo = unitPrice.multiply(BigDecimal.valueOf(qty));
-            if (promo != null) {
-                int buy = promo.getBuy();
-                int free = promo.getFree();
-                int groupSize = buy + free;
-                if (groupSize <= 0) groupSize = 1;
-                int groups = qty / groupSize;
-                int remainder = qty % groupSize;
-                int chargeUnits = groups * buy + Math.min(remainder, buy);
-                chargeableUnits = BigDecimal.valueOf(chargeUnits);
-                lineTotal = unitPrice.multiply(chargeableUnits);
+            priced.products[i] = p;
+            if (piece) {
+                int qty = table.pieces(line);
+                long chargeable = qty;
+                Promotion[] promos = promotionsFor(table.id(line));
+                if (promos != null) {
+                    PromotionSolver.Allocation allocation = PromotionSolver.solve(qty, promos, System.nanoTime() + promotionBudgetNanos);
+                    priced.promotions[i] = promos;
+                    priced.allocations[i] = allocation;
+                    chargeable = allocation.chargeableUnits();
+                }
+                priced.pieces[i] = qty;
+                priced.lineTotals[i] = unitPrice.multiply(BigDecimal.valueOf(chargeable)).setScale(2, RoundingMode.HALF_UP);
             } else {
-                chargeableUnits = BigDecimal.valueOf(qty);
-                lineTotal = unitPrice.multiply(chargeableUnits);
+                BigDecimal totalWeight = table.weight(line).setScale(3, RoundingMode.HALF_UP);
+                priced.weights[i] = totalWeight;
+                priced.lineTotals[i] = unitPrice.multiply(totalWeight).setScale(2, RoundingMode.HALF_UP);
             }
+        }
+    }
 
-            lineTotal = lineTotal.setScale(2, RoundingMode.HALF_UP);
-            lines.put(pid, new PriceLine(p, BigDecimal.valueOf(qty), null, unitPrice, lineTotal, promo));
-            total = total.add(lineTotal);
-            savings = savings.add(lineWithoutPromo.subtract(lineTotal));
+    private void priceParallel(Aggregation agg, LineColumns priced) {
+        int n = priced.size();
+        int chunk = Math.max(MIN_PARALLEL_CHUNK / 4, n / (aggregationPool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        List<Callable<LineColumns>> tasks = new ArrayList<>();
+        for (int from = 0; from < n; from += chunk) {
+            int start = from;
+            int end = Math.min(n, from + chunk);
+            tasks.add(() -> {
+                priceRange(agg, priced, start, end);
+                return priced;
+            });
         }
+        for (Future<LineColumns> f : aggregationPool.invokeAll(tasks)) join(f);
+    }
 
-        // weight-based
-        for (Map.Entry<String, BigDecimal> e : weightSums.entrySet()) {
-            String pid = e.getKey();
-            BigDecimal totalWeight = e.getValue().setScale(3, RoundingMode.HALF_UP);
-            Product p = productLookup.get(pid);
-            BigDecimal unitPrice = p.getPricePerUnit();
-            BigDecimal lineTotal = unitPrice.multiply(totalWeight).setScale(2, RoundingMode.HALF_UP);
-            lines.put(pid, new PriceLine(p, null, totalWeight, unitPrice, lineTotal, null));
-            total = total.add(lineTotal);
+    private static <T> T join(Future<T> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating totals", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IllegalStateException(cause);
         }
+    }
+
+    /** Per-product sums of a range of scans, piece and weight lines apart. */
+    private static final class Aggregation {
+        final LineTable pieces = new LineTable();
+        final LineTable weights = new LineTable();
 
-        return new Result(lines, total.setScale(2,RoundingMode.HALF_UP), savings.setScale(2,RoundingMode.HALF_UP));
+        // add the sums of the scans that follow this range
+        void merge(Aggregation later) {
+            pieces.merge(later.pieces);
+            weights.merge(later.weights);
+        }
+
+        void clear() {
+            pieces.clear();
+            weights.clear();
+        }
+
+        // whether an id has both a piece and a weight line (a product whose unit type changed mid-basket)
+        boolean sharesIds() {
+            LineTable fewer = pieces.size() <= weights.size() ? pieces : weights;
+            LineTable more = fewer == pieces ? weights : pieces;
+            for (int line = 0; line < fewer.size(); line++) if (more.indexOf(fewer.id(line)) >= 0) return true;
+            return false;
+        }
+
+        // the first Product scanned with the line's id prices it, even if that scan is on the other table
+        Product firstProduct(LineTable table, int line) {
+            LineTable other = table == pieces ? weights : pieces;
+            if (other.size() == 0) return table.product(line);
+            int o = other.indexOf(table.id(line));
+            return o >= 0 && other.firstScan(o) < table.firstScan(line) ? other.product(o) : table.product(line);
+        }
+    }
+
+    // the pinned catalog's version of a scanned product, if there is a compatible one
+    private Product resolve(Product scanned) {
+        if (pinned == null) return scanned;
+        Product current = pinned.get(scanned.getId());
+        return current != null && current.getUnitType() == scanned.getUnitType() ? current : scanned;
+    }
+
+    private PriceLine pricePieces(Product p, int qty) {
+        BigDecimal unitPrice = p.getPricePerUnit();
+        Promotion[] promos = promotionsFor(p.getId());
+        if (promos == null) {
+            BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(qty)).setScale(2, RoundingMode.HALF_UP);
+            return new PriceLine(p, BigDecimal.valueOf(qty), null, unitPrice, lineTotal, null);
+        }
+
+        PromotionSolver.Allocation allocation = PromotionSolver.solve(qty, promos, System.nanoTime() + promotionBudgetNanos);
+        BigDecimal lineTotal = unitPrice.multiply(BigDecimal.valueOf(allocation.chargeableUnits())).setScale(2, RoundingMode.HALF_UP);
+        return new PriceLine(p, BigDecimal.valueOf(qty), null, unitPrice, lineTotal,
+                PromotionSolver.primary(promos, allocation), allocation.applications());
+    }
+
+    private static PriceLine priceWeight(Product p, BigDecimal weightSum) {
+        BigDecimal totalWeight = weightSum.setScale(3, RoundingMode.HALF_UP);
+        BigDecimal unitPrice = p.getPricePerUnit();
+        BigDecimal lineTotal = unitPrice.multiply(totalWeight).setScale(2, RoundingMode.HALF_UP);
+        return new PriceLine(p, null, totalWeight, unitPrice, lineTotal, null);
+    }
+
+    // undiscounted piece price minus what is charged; weight lines never carry savings
+    private static BigDecimal savingsOf(PriceLine line) {
+        if (line.getQuantityPieces() == null) return BigDecimal.ZERO;
+        return line.getUnitPrice().multiply(line.getQuantityPieces()).subtract(line.getLineTotal());
+    }
+
+    /**
+     * Priced lines of a full recompute. Totals only need the line totals, so the PriceLine objects (and their
+     * quantity and promotion details) are built from these columns when {@link Result#getLines()} is first called.
+     */
+    private static final class LineColumns {
+        final Product[] products;
+        final int[] pieces;
+        final BigDecimal[] weights; // null for piece lines
+        final BigDecimal[] lineTotals;
+        final Promotion[][] promotions; // null without promotions
+        final PromotionSolver.Allocation[] allocations;
+        // some id has a piece and a weight line; the lines map keeps only the weight line under that id
+        boolean sharedIds;
+
+        LineColumns(int size) {
+            products = new Product[size];
+            pieces = new int[size];
+            weights = new BigDecimal[size];
+            lineTotals = new BigDecimal[size];
+            promotions = new Promotion[size][];
+            allocations = new PromotionSolver.Allocation[size];
+        }
+
+        int size() {
+            return products.length;
+        }
+
+        // savingsOf(line(i)), without building the line; zero when a plain piece line rounded nothing away
+        BigDecimal savings(int i) {
+            if (weights[i] != null) return BigDecimal.ZERO;
+            BigDecimal unitPrice = products[i].getPricePerUnit();
+            if (promotions[i] == null && unitPrice.scale() <= 2) return BigDecimal.ZERO;
+            return unitPrice.multiply(BigDecimal.valueOf(pieces[i])).subtract(lineTotals[i]);
+        }
+
+        int promotionLineCount() {
+            int n = 0;
+            for (Promotion[] p : promotions) if (p != null) n++;
+            return n;
+        }
+
+        int appliedLineCount() {
+            int n = 0;
+            for (PromotionSolver.Allocation a : allocations) if (a != null && !a.applications().isEmpty()) n++;
+            return n;
+        }
+
+        PriceLine line(int i) {
+            Product p = products[i];
+            if (weights[i] != null) return new PriceLine(p, null, weights[i], p.getPricePerUnit(), lineTotals[i], null);
+            BigDecimal qty = BigDecimal.valueOf(pieces[i]);
+            if (promotions[i] == null) return new PriceLine(p, qty, null, p.getPricePerUnit(), lineTotals[i], null);
+            PromotionSolver.Allocation allocation = allocations[i];
+            return new PriceLine(p, qty, null, p.getPricePerUnit(), lineTotals[i],
+                    PromotionSolver.primary(promotions[i], allocation), allocation.applications());
+        }
+
+        // the lines without a buy-X-get-Y promotion, as the engine sees them; only valid without sharedIds
+        List<PromotionEngine.Item> engineItems() {
+            List<PromotionEngine.Item> items = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                if (promotions[i] != null) continue;
+                Product p = products[i];
+                items.add(new PromotionEngine.Item(p.getId(), p.getPricePerUnit(), pieces[i], weights[i], lineTotals[i]));
+            }
+            return items;
+        }
+
+        Map<String, PriceLine> toMap() {
+            Map<String, PriceLine> lines = new LinkedHashMap<>(size() * 4 / 3 + 1);
+            for (int i = 0; i < size(); i++) lines.put(products[i].getId(), line(i));
+            return Collections.unmodifiableMap(lines);
+        }
+    }
+
+    /**
+     * Per-product aggregate for incremental mode. Raw (unrounded) quantities are kept so that
+     * repricing a line after a scan or void gives exactly what a full recompute would.
+     */
+    private static final class LineAggregate {
+        final boolean piece;
+        Product scanned; // Product of the first remaining scan
+        int firstScan; // its index in the basket
+        Product product; // the Product pricing the line, or its version in the pinned snapshot
+        int scanCount;
+        int pieces;
+        BigDecimal weight = BigDecimal.ZERO;
+        PriceLine line;
+        BigDecimal savings = BigDecimal.ZERO;
+
+        LineAggregate(boolean piece, Product scanned, int firstScan) {
+            this.piece = piece;
+            this.scanned = scanned;
+            this.firstScan = firstScan;
+        }
+    }
+
+    /**
+     * Running totals for incremental mode. Each scan/void touches a single product aggregate,
+     * reprices just that line and adjusts total and savings by the difference. A void also moves the first-scan
+     * index of every later line down by one, as the basket does with its scans.
+     */
+    private final class RunningTotals {
+        // pieces and weight lines are kept apart so snapshots list them in the same order as a full recompute
+        private final Map<String, LineAggregate> pieceLines = new LinkedHashMap<>();
+        private final Map<String, LineAggregate> weightLines = new LinkedHashMap<>();
+        private BigDecimal total = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        private BigDecimal savings = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+
+        // s was just appended to the basket
+        void add(ScannedItem s) {
+            Product p = s.getProduct();
+            Map<String, LineAggregate> lines = s.isPiece() ? pieceLines : weightLines;
+            LineAggregate agg = lines.get(p.getId());
+            if (agg == null) {
+                agg = new LineAggregate(s.isPiece(), p, scans.size() - 1);
+                lines.put(p.getId(), agg);
+                agg.product = resolve(pricedBy(agg));
+            }
+            agg.scanCount++;
+            if (s.isPiece()) agg.pieces += s.getQuantity();
+            else agg.weight = agg.weight.add(s.getWeight());
+            update(agg);
+        }
+
+        // s was just removed from the basket at index
+        void remove(int index, ScannedItem s) {
+            String id = s.getProduct().getId();
+            Map<String, LineAggregate> lines = s.isPiece() ? pieceLines : weightLines;
+            LineAggregate agg = lines.get(id);
+            if (agg == null) return;
+            boolean wasFirst = agg.firstScan == index;
+            for (LineAggregate a : pieceLines.values()) if (a.firstScan > index) a.firstScan--;
+            for (LineAggregate a : weightLines.values()) if (a.firstScan > index) a.firstScan--;
+            if (--agg.scanCount == 0) {
+                lines.remove(id);
+                total = total.subtract(agg.line.getLineTotal());
+                savings = savings.subtract(agg.savings);
+            } else {
+                if (s.isPiece()) agg.pieces -= s.getQuantity();
+                else agg.weight = agg.weight.subtract(s.getWeight());
+                if (wasFirst) {
+                    // the next scan of the line now prices it and decides its place, as in a full recompute
+                    int next = index;
+                    while (!isScanOf(next, agg)) next++;
+                    agg.firstScan = next;
+                    agg.scanned = scans.product(next);
+                    agg.product = resolve(pricedBy(agg));
+                    reorder(lines);
+                }
+                update(agg);
+            }
+            if (wasFirst) {
+                // a line of the same id on the other table may have been priced by the voided scan
+                LineAggregate sibling = (s.isPiece() ? weightLines : pieceLines).get(id);
+                if (sibling != null) {
+                    sibling.product = resolve(pricedBy(sibling));
+                    update(sibling);
+                }
+            }
+        }
+
+        private boolean isScanOf(int index, LineAggregate agg) {
+            Product p = scans.product(index);
+            return (p.getUnitType() == UnitType.PIECE) == agg.piece && p.getId().equals(agg.scanned.getId());
+        }
+
+        // the first Product scanned with the line's id prices it, even if that scan is on the other table
+        private Product pricedBy(LineAggregate agg) {
+            LineAggregate other = (agg.piece ? weightLines : pieceLines).get(agg.scanned.getId());
+            return other != null && other.firstScan < agg.firstScan ? other.scanned : agg.scanned;
+        }
+
+        // back to first-scanned order after a line's first scan moved
+        private void reorder(Map<String, LineAggregate> lines) {
+            List<LineAggregate> ordered = new ArrayList<>(lines.values());
+            ordered.sort(Comparator.comparingInt(a -> a.firstScan));
+            lines.clear();
+            for (LineAggregate a : ordered) lines.put(a.scanned.getId(), a);
+        }
+
+        void clear() {
+            pieceLines.clear();
+            weightLines.clear();
+            total = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+            savings = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        }
+
+        void reprice(String productId) {
+            LineAggregate agg = pieceLines.get(productId);
+            if (agg != null) update(agg);
+        }
+
+        void repriceAll() {
+            for (LineAggregate agg : pieceLines.values()) {
+                agg.product = resolve(pricedBy(agg));
+                update(agg);
+            }
+            for (LineAggregate agg : weightLines.values()) {
+                agg.product = resolve(pricedBy(agg));
+                update(agg);
+            }
+        }
+
+        private void update(LineAggregate agg) {
+            PriceLine previous = agg.line;
+            PriceLine line = agg.piece
+                    ? pricePieces(agg.product, agg.pieces)
+                    : priceWeight(agg.product, agg.weight);
+            BigDecimal lineSavings = savingsOf(line);
+            if (previous != null) {
+                total = total.subtract(previous.getLineTotal());
+                savings = savings.subtract(agg.savings);
+            }
+            total = total.add(line.getLineTotal());
+            savings = savings.add(lineSavings);
+            agg.line = line;
+            agg.savings = lineSavings;
+        }
+
+        Result snapshot() {
+            Map<String, PriceLine> lines = new LinkedHashMap<>();
+            for (LineAggregate agg : pieceLines.values()) lines.put(agg.product.getId(), agg.line);
+            for (LineAggregate agg : weightLines.values()) lines.put(agg.product.getId(), agg.line);
+            return new Result(Collections.unmodifiableMap(lines), total.setScale(2, RoundingMode.HALF_UP), savings.setScale(2, RoundingMode.HALF_UP));
+        }
     }
 
     // Result and PriceLine classes used for structured return values
     public static class Result {
-        private final Map<String, PriceLine> lines;
+        // guarded by this; exactly one is non-null
+        private Map<String, PriceLine> lines;
+        private LineColumns columns;
         private final BigDecimal total;
         private final BigDecimal savings;
+        private final List<AppliedPromotion> appliedPromotions;
 
         public Result(Map<String, PriceLine> lines, BigDecimal total, BigDecimal savings) {
-            this.lines = lines;
+            this(lines, total, savings, List.of());
+        }
+
+        public Result(Map<String, PriceLine> lines, BigDecimal total, BigDecimal savings, List<AppliedPromotion> appliedPromotions) {
+            this.lines = Objects.requireNonNull(lines, "lines");
+            this.total = total;
+            this.savings = savings;
+            this.appliedPromotions = List.copyOf(appliedPromotions);
+        }
+
+        private Result(LineColumns columns, BigDecimal total, BigDecimal savings, List<AppliedPromotion> appliedPromotions) {
+            this.columns = columns;
             this.total = total;
             this.savings = savings;
+            this.appliedPromotions = List.copyOf(appliedPromotions);
+        }
+
+        /**
+         * Lines by product id: piece lines, then weight lines, each in first-scanned order. For results of
+         * {@link Checkout#calculateTotals()} the map is unmodifiable and built on the first call.
+         */
+        public synchronized Map<String, PriceLine> getLines() {
+            if (lines == null) {
+                lines = columns.toMap();
+                columns = null;
+            }
+            return lines;
+        }
+
+        // the same lines with engine discounts; columns are never modified, so both results may build from them
+        synchronized Result discounted(BigDecimal total, BigDecimal savings, List<AppliedPromotion> applied) {
+            return columns != null ? new Result(columns, total, savings, applied) : new Result(lines, total, savings, applied);
+        }
+
+        // what the promotion engine evaluates; from the columns while the lines are not built
+        synchronized List<PromotionEngine.Item> engineItems() {
+            if (columns != null && !columns.sharedIds) return columns.engineItems();
+            List<PromotionEngine.Item> items = new ArrayList<>();
+            for (PriceLine l : getLines().values()) if (l.getPromotion() == null) items.add(PromotionEngine.Item.of(l));
+            return items;
+        }
+
+        synchronized int lineCount() {
+            return lines != null ? lines.size() : columns.size();
+        }
+
+        synchronized int promotionLineCount() {
+            if (columns != null) return columns.promotionLineCount();
+            int n = 0;
+            for (PriceLine l : lines.values()) if (l.getPromotion() != null) n++;
+            return n;
+        }
+
+        synchronized int appliedLineCount() {
+            if (columns != null) return columns.appliedLineCount();
+            int n = 0;
+            for (PriceLine l : lines.values()) if (l.getPromotion() != null && !l.getPromotionApplications().isEmpty()) n++;
+            return n;
         }
 
-        public Map<String, PriceLine> getLines() { return lines; }
         public BigDecimal getTotal() { return total; }
         public BigDecimal getSavings() { return savings; }
+        /** Discounts from the {@link PromotionEngine}, already included in total and savings. */
+        public List<AppliedPromotion> getAppliedPromotions() { return appliedPromotions; }
     }
 
     public static class PriceLine {
@@ -134,14 +806,21 @@ public class Checkout {
         private final BigDecimal unitPrice;
         private final BigDecimal lineTotal;
         private final Promotion promotion;
+        private final List<PromotionApplication> promotionApplications;
 
         public PriceLine(Product product, BigDecimal quantityPieces, BigDecimal weight, BigDecimal unitPrice, BigDecimal lineTotal, Promotion promotion) {
+            this(product, quantityPieces, weight, unitPrice, lineTotal, promotion, List.of());
+        }
+
+        public PriceLine(Product product, BigDecimal quantityPieces, BigDecimal weight, BigDecimal unitPrice, BigDecimal lineTotal,
+                         Promotion promotion, List<PromotionApplication> promotionApplications) {
             this.product = product;
             this.quantityPieces = quantityPieces;
             this.weight = weight;
             this.unitPrice = unitPrice;
             this.lineTotal = lineTotal;
             this.promotion = promotion;
+            this.promotionApplications = List.copyOf(promotionApplications);
         }
 
         public Product getProduct() { return product; }
@@ -149,6 +828,12 @@ public class Checkout {
         public BigDecimal getWeight() { return weight; }
         public BigDecimal getUnitPrice() { return unitPrice; }
         public BigDecimal getLineTotal() { return lineTotal; }
+        /**
+         * The product's promotion covering the most pieces on this line, or its first promotion when none
+         * applied; null without promotions.
+         */
         public Promotion getPromotion() { return promotion; }
+        /** Which promotions made which pieces free; empty when no piece was free. */
+        public List<PromotionApplication> getPromotionApplications() { return promotionApplications; }
     }
 }
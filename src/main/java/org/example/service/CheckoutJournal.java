@@ -0,0 +1,594 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.scan.ScannedItem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal for checkouts, shared by all lanes. Every scan, void, finalize and cancel of a
+ * {@link JournaledCheckout} is encoded into an in-memory buffer (a few hundred nanoseconds, no system call) and
+ * a background thread writes the buffer to the current segment file through a FileChannel, so records appended
+ * by many lanes between two writes go out in one write and at most one fsync (group commit).
+ * <p>
+ * When records reach the disk is set by {@link FsyncPolicy}; without fsync a record is written within
+ * {@link Options#flushInterval()} and survives a crash of the process, but not of the machine.
+ * <p>
+ * When a segment grows beyond {@link Options#segmentBytes()} the journal starts a new one with a checkpoint of
+ * the baskets still open and deletes the old one, so recovery time depends on the open baskets, not on how
+ * long the store has been running. See {@link JournalFormat} for the layout.
+ * <p>
+ * After a crash, {@link #open(Path, Options)} reads the newest complete segment, drops a torn or corrupt tail and
+ * {@link #recover(Supplier)} rebuilds the baskets that were neither finalized nor cancelled.
+ */
+public final class CheckoutJournal implements Closeable {
+
+    /** When appended records are forced to disk. */
+    public enum FsyncPolicy {
+        /** Every journaling call returns only once its record is on disk. */
+        EVERY_RECORD,
+        /** {@link JournaledCheckout#complete()} and {@link JournaledCheckout#cancel()} wait for the disk; scans do not. */
+        ON_FINALIZE,
+        /** Forced every {@link Options#fsyncInterval()}; nothing waits. */
+        PERIODIC,
+        /** Never forced; the OS writes the pages back when it likes. */
+        NONE
+    }
+
+    /**
+     * @param flushInterval longest time a record waits in memory before it is written to the file
+     * @param fsyncInterval for {@link FsyncPolicy#PERIODIC}
+     * @param segmentBytes  size after which a new segment (with a checkpoint of the open baskets) is started
+     * @param bufferBytes   size of each of the two in-memory buffers; appends wait when both are full
+     */
+    public record Options(FsyncPolicy fsync, Duration flushInterval, Duration fsyncInterval, long segmentBytes, int bufferBytes) {
+
+        public Options {
+            Objects.requireNonNull(fsync, "fsync");
+            if (flushInterval.isNegative() || flushInterval.isZero()) throw new IllegalArgumentException("flushInterval must be > 0");
+            if (fsyncInterval.isNegative()) throw new IllegalArgumentException("fsyncInterval must be >= 0");
+            if (segmentBytes < JournalFormat.HEADER_SIZE) throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+            if (bufferBytes < 256 * 1024) throw new IllegalArgumentException("bufferBytes must be at least 256 KB");
+        }
+
+        public static Options defaults() {
+            return new Options(FsyncPolicy.ON_FINALIZE, Duration.ofMillis(1), Duration.ofMillis(100), 64L << 20, 1 << 20);
+        }
+
+        public Options withFsync(FsyncPolicy policy) {
+            return new Options(policy, flushInterval, fsyncInterval, segmentBytes, bufferBytes);
+        }
+
+        public Options withSegmentBytes(long bytes) {
+            return new Options(fsync, flushInterval, fsyncInterval, bytes, bufferBytes);
+        }
+    }
+
+    private final Path dir;
+    private final Options options;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writerWake = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Condition space = lock.newCondition();
+
+    // everything below is guarded by lock, except the channel, which only the writer thread touches after open
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer active;
+    private ByteBuffer spare;
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytesAtSwap; // bytes of the current segment already handed to the writer
+    private long pendingSince; // nanoTime of the oldest record in the active buffer, 0 when empty
+    private boolean flushRequested;
+    private boolean rotateRequested;
+    private long appendedSeq;
+    private long durableSeq;
+    private long syncTarget;
+    private long lastFsyncNanos = System.nanoTime();
+    private boolean closing;
+    private IOException failure;
+
+    private final Map<Long, JournaledCheckout> openBaskets = new LinkedHashMap<>();
+    private final Map<String, ProductCode> productCodes = new HashMap<>();
+    private int nextProductCode;
+    private long nextBasketId = 1;
+    private boolean recovered;
+
+    private final Thread writer;
+
+    private record ProductCode(Product product, int code) { }
+
+    private CheckoutJournal(Path dir, Options options) {
+        this.dir = dir;
+        this.options = options;
+        this.active = ByteBuffer.allocateDirect(options.bufferBytes());
+        this.spare = ByteBuffer.allocateDirect(options.bufferBytes());
+        this.writer = new Thread(this::runWriter, "checkout-journal-" + dir.getFileName());
+        this.writer.setDaemon(true);
+    }
+
+    public static CheckoutJournal open(Path dir) throws IOException {
+        return open(dir, Options.defaults());
+    }
+
+    /**
+     * Open (or create) the journal in {@code dir}. Baskets left open by a previous run are kept until
+     * {@link #recover(Supplier)} is called.
+     */
+    public static CheckoutJournal open(Path dir, Options options) throws IOException {
+        Files.createDirectories(dir);
+        CheckoutJournal journal = new CheckoutJournal(dir, options);
+        journal.load();
+        journal.writer.start();
+        return journal;
+    }
+
+    /**
+     * Rebuild the baskets left open by the previous run, each in a fresh Checkout from {@code factory}, and keep
+     * journaling them. Returns them in the order they were opened; only the first call returns anything.
+     */
+    public List<JournaledCheckout> recover(Supplier<Checkout> factory) {
+        List<JournaledCheckout> baskets = new ArrayList<>();
+        lock.lock();
+        try {
+            if (recovered) return baskets;
+            recovered = true;
+            for (JournaledCheckout b : openBaskets.values()) {
+                if (b.checkout() == null) baskets.add(b);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (JournaledCheckout b : baskets) b.attach(factory.get());
+        return baskets;
+    }
+
+    /** Start journaling a new basket scanned into {@code checkout}, which must not have scans yet. */
+    public JournaledCheckout begin(Checkout checkout) {
+        if (!checkout.getScans().isEmpty()) throw new IllegalArgumentException("Checkout already has scans");
+        JournaledCheckout basket;
+        long seq;
+        lock.lock();
+        try {
+            ensureWritable(JournalFormat.SMALL_FRAME);
+            basket = new JournaledCheckout(this, nextBasketId++, checkout);
+            writeSmall(JournalFormat.OPEN, basket.getBasketId(), 0, 0);
+            openBaskets.put(basket.getBasketId(), basket);
+            seq = appended(active.position());
+        } finally {
+            lock.unlock();
+        }
+        awaitIf(options.fsync() == FsyncPolicy.EVERY_RECORD, seq);
+        return basket;
+    }
+
+    /** Baskets begun or recovered and not yet finalized or cancelled. */
+    public int openBasketCount() {
+        lock.lock();
+        try {
+            return openBaskets.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Options getOptions() {
+        return options;
+    }
+
+    /**
+     * Block until everything journaled so far is on disk, whatever the policy.
+     */
+    public void sync() {
+        long seq;
+        lock.lock();
+        try {
+            seq = appendedSeq;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(seq);
+    }
+
+    /** Write and force everything journaled so far, then stop the writer. Open baskets stay recoverable. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closing) return;
+            closing = true;
+            writerWake.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing journal", e);
+        }
+        if (failure != null) throw failure;
+    }
+
+    // ---- appends, called by JournaledCheckout -------------------------------------------------------------------
+
+    void recordScan(JournaledCheckout basket, ScannedItem item) {
+        Product p = item.getProduct();
+        BigDecimal weight = item.isPiece() ? null : item.getWeight();
+        long seq;
+        lock.lock();
+        try {
+            ensureOpen(basket);
+            int size;
+            do {
+                // product codes may be reset by a rotation while waiting for space, so size again after a wait
+                ProductCode known = productCodes.get(p.getId());
+                size = weight == null ? JournalFormat.SMALL_FRAME : JournalFormat.SMALL_FRAME + JournalFormat.decimalSize(weight);
+                if (known == null || !sameProduct(known.product(), p)) size += JournalFormat.productFrameSize(p);
+            } while (!ensureWritable(size));
+            int code = productCode(p, active);
+            if (weight == null) {
+                writeSmall(JournalFormat.SCAN_PIECES, basket.getBasketId(), code, item.getQuantity());
+            } else {
+                int frame = JournalFormat.beginFrame(active, JournalFormat.SCAN_WEIGHT);
+                active.putLong(basket.getBasketId()).putInt(code);
+                JournalFormat.putDecimal(active, weight);
+                JournalFormat.endFrame(active, frame, crc);
+            }
+            basket.journaled().add(item);
+            seq = appended(active.position());
+        } finally {
+            lock.unlock();
+        }
+        awaitIf(options.fsync() == FsyncPolicy.EVERY_RECORD, seq);
+    }
+
+    void recordVoid(JournaledCheckout basket, int index) {
+        long seq;
+        lock.lock();
+        try {
+            ensureWritable(JournalFormat.SMALL_FRAME);
+            ensureOpen(basket);
+            Objects.checkIndex(index, basket.journaled().size());
+            writeSmall(JournalFormat.VOID, basket.getBasketId(), index, 0);
+            basket.journaled().remove(index);
+            seq = appended(active.position());
+        } finally {
+            lock.unlock();
+        }
+        awaitIf(options.fsync() == FsyncPolicy.EVERY_RECORD, seq);
+    }
+
+    /** FINALIZE or CANCEL. */
+    void recordClose(JournaledCheckout basket, byte type) {
+        long seq;
+        lock.lock();
+        try {
+            ensureWritable(JournalFormat.SMALL_FRAME);
+            ensureOpen(basket);
+            writeSmall(type, basket.getBasketId(), 0, 0);
+            openBaskets.remove(basket.getBasketId());
+            seq = appended(active.position());
+        } finally {
+            lock.unlock();
+        }
+        awaitIf(options.fsync() == FsyncPolicy.EVERY_RECORD || options.fsync() == FsyncPolicy.ON_FINALIZE, seq);
+    }
+
+    // fixed-size frames: OPEN/FINALIZE/CANCEL (basket), VOID (basket, index), SCAN_PIECES (basket, code, qty)
+    private void writeSmall(byte type, long basket, int a, int b) {
+        int frame = JournalFormat.beginFrame(active, type);
+        active.putLong(basket);
+        if (type == JournalFormat.VOID) active.putInt(a);
+        else if (type == JournalFormat.SCAN_PIECES) active.putInt(a).putInt(b);
+        JournalFormat.endFrame(active, frame, crc);
+    }
+
+    private void ensureOpen(JournaledCheckout basket) {
+        if (openBaskets.get(basket.getBasketId()) != basket) throw new IllegalStateException("Basket " + basket.getBasketId() + " is closed");
+    }
+
+    /**
+     * Wait until the active buffer has room; fails fast once the writer has failed or the journal is closed.
+     * Returns false when it had to wait (and so released the lock).
+     */
+    private boolean ensureWritable(int bytes) {
+        boolean waited = false;
+        while (true) {
+            if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+            if (closing) throw new IllegalStateException("Journal is closed");
+            if (active.remaining() >= bytes) return !waited;
+            flushRequested = true;
+            writerWake.signal();
+            space.awaitUninterruptibly();
+            waited = true;
+        }
+    }
+
+    private long appended(int bufferedBytes) {
+        long seq = ++appendedSeq;
+        if (pendingSince == 0) pendingSince = System.nanoTime();
+        if (segmentBytesAtSwap + bufferedBytes > options.segmentBytes() && !rotateRequested) {
+            rotateRequested = true;
+            writerWake.signal();
+        } else if (bufferedBytes > active.capacity() / 2 && !flushRequested) {
+            flushRequested = true;
+            writerWake.signal();
+        }
+        return seq;
+    }
+
+    private int productCode(Product p, ByteBuffer out) {
+        ProductCode known = productCodes.get(p.getId());
+        if (known != null && sameProduct(known.product(), p)) return known.code();
+        if (JournalFormat.utf8Length(p.getId()) > 0xFFFF || JournalFormat.utf8Length(p.getName()) > 0xFFFF) {
+            throw new IllegalArgumentException("Product id or name too long to journal: " + p.getId());
+        }
+        int code = nextProductCode++;
+        JournalFormat.writeProduct(out, code, p, crc);
+        productCodes.put(p.getId(), new ProductCode(p, code));
+        return code;
+    }
+
+    private static boolean sameProduct(Product a, Product b) {
+        return a == b || (a.getId().equals(b.getId()) && a.getName().equals(b.getName())
+                && a.getUnitType() == b.getUnitType() && a.getPricePerUnit().equals(b.getPricePerUnit()));
+    }
+
+    private void awaitIf(boolean wait, long seq) {
+        if (wait) awaitDurable(seq);
+    }
+
+    private void awaitDurable(long seq) {
+        lock.lock();
+        try {
+            if (durableSeq >= seq) return;
+            if (seq > syncTarget) syncTarget = seq;
+            writerWake.signal();
+            while (durableSeq < seq) {
+                if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---- writer thread --------------------------------------------------------------------------------------------
+
+    private void runWriter() {
+        long flushNanos = options.flushInterval().toNanos();
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long upTo;
+                boolean force;
+                ByteBuffer checkpoint = null;
+                long newSegment = 0;
+                boolean last;
+                lock.lock();
+                try {
+                    while (!closing && !rotateRequested && !flushRequested && syncTarget <= durableSeq && !periodicDue()) {
+                        long pendingNanos = pendingSince == 0 ? 0 : System.nanoTime() - pendingSince;
+                        if (pendingSince != 0 && pendingNanos >= flushNanos) break;
+                        writerWake.awaitNanos(flushNanos - pendingNanos);
+                    }
+                    last = closing;
+                    pendingSince = 0;
+                    flushRequested = false;
+                    batch = active;
+                    active = spare;
+                    spare = null;
+                    upTo = appendedSeq;
+                    segmentBytesAtSwap += batch.position();
+                    // NONE only forces for sync() and close()
+                    force = last || syncTarget > durableSeq || periodicDue()
+                            || (options.fsync() == FsyncPolicy.EVERY_RECORD && upTo > durableSeq);
+                    if (rotateRequested && !last) {
+                        rotateRequested = false;
+                        newSegment = segment + 1;
+                        checkpoint = checkpoint(newSegment);
+                        segmentBytesAtSwap = checkpoint.remaining();
+                    }
+                    space.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) channel.write(batch);
+                batch.clear();
+                if (checkpoint != null) {
+                    startSegment(newSegment, checkpoint);
+                } else if (force) {
+                    channel.force(false);
+                }
+
+                lock.lock();
+                try {
+                    spare = batch;
+                    if (force || checkpoint != null) {
+                        durableSeq = Math.max(durableSeq, upTo);
+                        lastFsyncNanos = System.nanoTime();
+                        durable.signalAll();
+                    }
+                    space.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (last) break;
+            }
+            channel.force(true);
+            channel.close();
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            lock.lock();
+            try {
+                failure = e instanceof IOException io ? io : new IOException(e);
+                durable.signalAll();
+                space.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean periodicDue() {
+        return options.fsync() == FsyncPolicy.PERIODIC && appendedSeq > durableSeq
+                && System.nanoTime() - lastFsyncNanos >= options.fsyncInterval().toNanos();
+    }
+
+    // header plus every open basket's current scans; resets product codes, which are per segment
+    private ByteBuffer checkpoint(long number) {
+        int capacity = 64 * 1024;
+        while (true) {
+            ByteBuffer out = ByteBuffer.allocate(capacity);
+            productCodes.clear();
+            nextProductCode = 0;
+            try {
+                JournalFormat.writeHeader(out, number);
+                for (JournaledCheckout basket : openBaskets.values()) {
+                    int frame = JournalFormat.beginFrame(out, JournalFormat.OPEN);
+                    out.putLong(basket.getBasketId());
+                    JournalFormat.endFrame(out, frame, crc);
+                    for (ScannedItem item : basket.journaled()) {
+                        int code = productCode(item.getProduct(), out);
+                        frame = JournalFormat.beginFrame(out, item.isPiece() ? JournalFormat.SCAN_PIECES : JournalFormat.SCAN_WEIGHT);
+                        out.putLong(basket.getBasketId()).putInt(code);
+                        if (item.isPiece()) out.putInt(item.getQuantity());
+                        else JournalFormat.putDecimal(out, item.getWeight());
+                        JournalFormat.endFrame(out, frame, crc);
+                    }
+                }
+                int frame = JournalFormat.beginFrame(out, JournalFormat.CHECKPOINT_END);
+                JournalFormat.endFrame(out, frame, crc);
+                return out.flip();
+            } catch (BufferOverflowException ex) {
+                capacity *= 2;
+            }
+        }
+    }
+
+    // write the new segment with its checkpoint, make it durable, then drop the previous one
+    private void startSegment(long number, ByteBuffer checkpoint) throws IOException {
+        Path file = JournalFormat.segmentPath(dir, number);
+        FileChannel next = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        while (checkpoint.hasRemaining()) next.write(checkpoint);
+        next.force(true);
+        FileChannel previous = channel;
+        channel = next;
+        previous.close();
+        Files.deleteIfExists(JournalFormat.segmentPath(dir, segment));
+        segment = number;
+    }
+
+    // ---- startup --------------------------------------------------------------------------------------------------
+
+    private void load() throws IOException {
+        List<Long> numbers;
+        try (Stream<Path> files = Files.list(dir)) {
+            numbers = files.map(JournalFormat::segmentNumber).filter(n -> n >= 0).sorted().toList();
+        }
+        // newest segment with a complete checkpoint; a newer incomplete one is a crash during rotation
+        for (int i = numbers.size() - 1; i >= 0; i--) {
+            Path file = JournalFormat.segmentPath(dir, numbers.get(i));
+            long validEnd = replay(file, numbers.get(i));
+            if (validEnd < 0) {
+                Files.delete(file);
+                continue;
+            }
+            for (int j = 0; j < i; j++) Files.deleteIfExists(JournalFormat.segmentPath(dir, numbers.get(j)));
+            segment = numbers.get(i);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.truncate(validEnd);
+            channel.position(validEnd);
+            segmentBytesAtSwap = validEnd;
+            return;
+        }
+        segment = 1;
+        ByteBuffer checkpoint = checkpoint(segment);
+        segmentBytesAtSwap = checkpoint.remaining();
+        channel = FileChannel.open(JournalFormat.segmentPath(dir, segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        while (checkpoint.hasRemaining()) channel.write(checkpoint);
+        channel.force(true);
+    }
+
+    /**
+     * Rebuild the open baskets from one segment. Returns the offset after the last intact frame, or -1 when
+     * the segment is not usable (foreign header, incomplete checkpoint); the state is reset in that case.
+     */
+    private long replay(Path file, long number) throws IOException {
+        openBaskets.clear();
+        productCodes.clear();
+        nextProductCode = 0;
+        ByteBuffer in;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < JournalFormat.HEADER_SIZE) return -1;
+            in = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (in.getInt() != JournalFormat.MAGIC || in.getInt() != JournalFormat.FORMAT_VERSION || in.getLong() != number) return -1;
+
+        Map<Integer, Product> products = new HashMap<>();
+        byte[] type = new byte[1];
+        boolean checkpointed = false;
+        long maxBasket = 0;
+        ByteBuffer payload;
+        while ((payload = JournalFormat.nextFrame(in, crc, type)) != null) {
+            if (type[0] == JournalFormat.CHECKPOINT_END) {
+                checkpointed = true;
+                continue;
+            }
+            if (type[0] == JournalFormat.PRODUCT) {
+                int code = payload.getInt();
+                Product p = JournalFormat.readProduct(payload);
+                products.put(code, p);
+                productCodes.put(p.getId(), new ProductCode(p, code));
+                nextProductCode = Math.max(nextProductCode, code + 1);
+                continue;
+            }
+            long basketId = payload.getLong();
+            maxBasket = Math.max(maxBasket, basketId);
+            if (type[0] == JournalFormat.OPEN) {
+                openBaskets.put(basketId, new JournaledCheckout(this, basketId, null));
+                continue;
+            }
+            JournaledCheckout basket = openBaskets.get(basketId);
+            if (basket == null) continue;
+            switch (type[0]) {
+                case JournalFormat.SCAN_PIECES -> basket.journaled().add(ScannedItem.ofPieces(products.get(payload.getInt()), payload.getInt()));
+                case JournalFormat.SCAN_WEIGHT -> basket.journaled().add(ScannedItem.ofWeight(products.get(payload.getInt()), JournalFormat.getDecimal(payload)));
+                case JournalFormat.VOID -> basket.journaled().remove(payload.getInt());
+                case JournalFormat.FINALIZE, JournalFormat.CANCEL -> openBaskets.remove(basketId);
+                default -> throw new IOException("Unknown journal record type " + type[0] + " in " + file);
+            }
+        }
+        if (!checkpointed) {
+            openBaskets.clear();
+            return -1;
+        }
+        nextBasketId = maxBasket + 1;
+        return in.position();
+    }
+}
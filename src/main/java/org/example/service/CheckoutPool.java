@@ -0,0 +1,77 @@
+package org.example.service;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Idle {@link Checkout}s for lanes whose customers are started and finished by different threads, self-checkout
+ * kiosks handing a session to an attendant for instance. {@link #acquire()} hands out an idle checkout, or a new
+ * one from the factory when there is none; {@link #release} {@link Checkout#reset() resets} it and keeps it for
+ * the next customer, up to {@code maxIdle}. A lane that stays on one thread can simply reset its own checkout.
+ * <p>
+ * Checkouts come back with the settings they left with (engine, pinned snapshot, added promotions), so lanes
+ * that change them should not share a pool. A factory like {@code () -> Checkout.sharing(promotions, false)}
+ * keeps every pooled checkout on one {@link PromotionIndex}. Thread-safe.
+ */
+public final class CheckoutPool {
+
+    private final Supplier<Checkout> factory;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final Checkout[] idle;
+    private int idleCount;
+
+    private final LongAdder created = new LongAdder();
+
+    public CheckoutPool(Supplier<Checkout> factory, int maxIdle) {
+        if (maxIdle < 1) throw new IllegalArgumentException("maxIdle must be >= 1");
+        this.factory = Objects.requireNonNull(factory, "factory");
+        this.idle = new Checkout[maxIdle];
+    }
+
+    /** An empty checkout: the most recently released one, or a new one. */
+    public Checkout acquire() {
+        lock.lock();
+        try {
+            if (idleCount > 0) {
+                Checkout c = idle[--idleCount];
+                idle[idleCount] = null;
+                return c;
+            }
+        } finally {
+            lock.unlock();
+        }
+        created.increment();
+        return Objects.requireNonNull(factory.get(), "factory returned null");
+    }
+
+    /**
+     * Reset the checkout and keep it for {@link #acquire()}, or drop it when {@code maxIdle} are already idle.
+     * It must not be used after this, and must not be released twice.
+     */
+    public void release(Checkout checkout) {
+        checkout.reset();
+        lock.lock();
+        try {
+            if (idleCount < idle.length) idle[idleCount++] = checkout;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idleCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Checkouts the factory made; stays flat once the pool covers the lanes. */
+    public long getCreatedCount() {
+        return created.sum();
+    }
+}
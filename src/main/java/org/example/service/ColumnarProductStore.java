@@ -0,0 +1,285 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact store for very large catalogs. Instead of one Product object graph per SKU it keeps columns of
+ * primitives: ids and names as UTF-8 bytes in one shared byte pool, unit type as a byte, price as unscaled
+ * long plus scale. Lookups go through an open-addressing int index on the id hash. Product objects are
+ * only materialized when asked for, so callers get an equal but new instance on every lookup.
+ * <p>
+ * Removed rows and replaced strings leave garbage behind that is reclaimed by compaction once it outweighs the
+ * live data. Not thread-safe.
+ */
+final class ColumnarProductStore implements ProductStore {
+
+    private static final UnitType[] UNITS = UnitType.values();
+    private static final byte DELETED = -1;
+    // price does not fit unscaled long/byte scale, look it up in bigPrices
+    private static final byte BIG_PRICE = Byte.MIN_VALUE;
+
+    private static final int EMPTY_SLOT = -1;
+    private static final int TOMBSTONE = -2;
+
+    // row columns, in insertion order
+    private int rows;
+    private int[] hashes = new int[16];
+    private int[] strStart = new int[16]; // id bytes followed by name bytes in the pool
+    private int[] idLength = new int[16];
+    private int[] nameLength = new int[16];
+    private byte[] unit = new byte[16]; // UnitType ordinal or DELETED
+    private long[] priceUnscaled = new long[16];
+    private byte[] priceScale = new byte[16];
+    private final Map<Integer, BigDecimal> bigPrices = new HashMap<>();
+
+    private byte[] pool = new byte[1024];
+    private int poolSize;
+    private int garbageBytes;
+
+    // open addressing index: slot -> row, linear probing
+    private int[] index = newIndex(32);
+    private int live;
+    private int deadRows;
+    private int tombstones;
+
+    @Override
+    public Product get(String id) {
+        int row = find(id, hash(id));
+        return row < 0 ? null : materialize(row);
+    }
+
+    @Override
+    public Product put(Product product) {
+        String id = product.getId();
+        int hash = hash(id);
+        int row = find(id, hash);
+        if (row >= 0) return overwrite(row, product);
+        append(product, hash);
+        return null;
+    }
+
+    @Override
+    public Product replace(Product product) {
+        int row = find(product.getId(), hash(product.getId()));
+        if (row < 0) return null;
+        return overwrite(row, product);
+    }
+
+    @Override
+    public Product remove(String id) {
+        int hash = hash(id);
+        int mask = index.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int row = index[slot];
+            if (row == EMPTY_SLOT) return null;
+            if (row >= 0 && hashes[row] == hash && idEquals(row, id)) {
+                Product previous = materialize(row);
+                index[slot] = TOMBSTONE;
+                tombstones++;
+                unit[row] = DELETED;
+                bigPrices.remove(row);
+                garbageBytes += idLength[row] + nameLength[row];
+                live--;
+                deadRows++;
+                maybeCompact();
+                return previous;
+            }
+        }
+    }
+
+    @Override
+    public List<Product> values() {
+        List<Product> list = new ArrayList<>(live);
+        for (int row = 0; row < rows; row++) {
+            if (unit[row] != DELETED) list.add(materialize(row));
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return live;
+    }
+
+    private Product materialize(int row) {
+        int start = strStart[row];
+        String id = new String(pool, start, idLength[row], StandardCharsets.UTF_8);
+        String name = new String(pool, start + idLength[row], nameLength[row], StandardCharsets.UTF_8);
+        BigDecimal price = priceScale[row] == BIG_PRICE
+                ? bigPrices.get(row)
+                : BigDecimal.valueOf(priceUnscaled[row], priceScale[row]);
+        return new Product(id, name, UNITS[unit[row]], price);
+    }
+
+    private void append(Product product, int hash) {
+        if ((live + 1 + tombstones) * 2 > index.length) {
+            // grow when live rows fill the index, otherwise just clear out tombstones
+            rehash((live + 1) * 4 > index.length ? index.length * 2 : index.length);
+        }
+        if (rows == hashes.length) growRows();
+        int row = rows++;
+        hashes[row] = hash;
+        write(row, product);
+        live++;
+        insertIntoIndex(row, hash);
+    }
+
+    private Product overwrite(int row, Product product) {
+        Product previous = materialize(row);
+        garbageBytes += idLength[row] + nameLength[row];
+        write(row, product);
+        maybeCompact();
+        return previous;
+    }
+
+    // write every column of a row; strings always go to the end of the pool
+    private void write(int row, Product product) {
+        byte[] id = product.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+        ensurePool(id.length + name.length);
+        strStart[row] = poolSize;
+        System.arraycopy(id, 0, pool, poolSize, id.length);
+        System.arraycopy(name, 0, pool, poolSize + id.length, name.length);
+        poolSize += id.length + name.length;
+        idLength[row] = id.length;
+        nameLength[row] = name.length;
+        unit[row] = (byte) product.getUnitType().ordinal();
+
+        BigDecimal price = product.getPricePerUnit();
+        if (price.scale() >= Byte.MIN_VALUE + 1 && price.scale() <= Byte.MAX_VALUE && price.unscaledValue().bitLength() < 64) {
+            priceUnscaled[row] = price.unscaledValue().longValue();
+            priceScale[row] = (byte) price.scale();
+            bigPrices.remove(row);
+        } else {
+            priceScale[row] = BIG_PRICE;
+            bigPrices.put(row, price);
+        }
+    }
+
+    private int find(String id, int hash) {
+        int mask = index.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int row = index[slot];
+            if (row == EMPTY_SLOT) return -1;
+            if (row >= 0 && hashes[row] == hash && idEquals(row, id)) return row;
+        }
+    }
+
+    private void insertIntoIndex(int row, int hash) {
+        int mask = index.length - 1;
+        int slot = hash & mask;
+        while (index[slot] >= 0) slot = (slot + 1) & mask;
+        if (index[slot] == TOMBSTONE) tombstones--;
+        index[slot] = row;
+    }
+
+    private void rehash(int capacity) {
+        index = newIndex(capacity);
+        tombstones = 0;
+        for (int row = 0; row < rows; row++) {
+            if (unit[row] != DELETED) insertIntoIndex(row, hashes[row]);
+        }
+    }
+
+    // compare without decoding: ASCII ids byte by char, anything else via its UTF-8 encoding
+    private boolean idEquals(int row, String id) {
+        int len = idLength[row];
+        int start = strStart[row];
+        if (id.length() == len) {
+            int i = 0;
+            for (; i < len; i++) {
+                char c = id.charAt(i);
+                if (c >= 0x80 || pool[start + i] != (byte) c) break;
+            }
+            if (i == len) return true;
+            if (id.charAt(i) < 0x80) return false;
+        } else if (id.length() > len) {
+            return false; // UTF-8 never has fewer bytes than UTF-16 has chars
+        }
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        return Arrays.equals(bytes, 0, bytes.length, pool, start, start + len);
+    }
+
+    private void maybeCompact() {
+        if ((deadRows > 1024 && deadRows > live) || (garbageBytes > 1 << 20 && garbageBytes > poolSize / 2)) compact();
+    }
+
+    /** Drop deleted rows and stale string bytes, keeping insertion order. */
+    private void compact() {
+        int[] newStart = new int[Math.max(16, live)];
+        byte[] newPool = new byte[Math.max(1024, poolSize - garbageBytes)];
+        int out = 0;
+        int newPoolSize = 0;
+        Map<Integer, BigDecimal> movedBig = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            if (unit[row] == DELETED) continue;
+            int len = idLength[row] + nameLength[row];
+            System.arraycopy(pool, strStart[row], newPool, newPoolSize, len);
+            newStart[out] = newPoolSize;
+            newPoolSize += len;
+            hashes[out] = hashes[row];
+            idLength[out] = idLength[row];
+            nameLength[out] = nameLength[row];
+            unit[out] = unit[row];
+            priceUnscaled[out] = priceUnscaled[row];
+            priceScale[out] = priceScale[row];
+            if (priceScale[row] == BIG_PRICE) movedBig.put(out, bigPrices.get(row));
+            out++;
+        }
+        rows = out;
+        hashes = Arrays.copyOf(hashes, newStart.length);
+        idLength = Arrays.copyOf(idLength, newStart.length);
+        nameLength = Arrays.copyOf(nameLength, newStart.length);
+        unit = Arrays.copyOf(unit, newStart.length);
+        priceUnscaled = Arrays.copyOf(priceUnscaled, newStart.length);
+        priceScale = Arrays.copyOf(priceScale, newStart.length);
+        strStart = newStart;
+        bigPrices.clear();
+        bigPrices.putAll(movedBig);
+        pool = newPool;
+        poolSize = newPoolSize;
+        garbageBytes = 0;
+        deadRows = 0;
+        int capacity = 32;
+        while (capacity < live * 2) capacity <<= 1;
+        rehash(capacity);
+    }
+
+    private void growRows() {
+        int n = hashes.length * 2;
+        hashes = Arrays.copyOf(hashes, n);
+        strStart = Arrays.copyOf(strStart, n);
+        idLength = Arrays.copyOf(idLength, n);
+        nameLength = Arrays.copyOf(nameLength, n);
+        unit = Arrays.copyOf(unit, n);
+        priceUnscaled = Arrays.copyOf(priceUnscaled, n);
+        priceScale = Arrays.copyOf(priceScale, n);
+    }
+
+    private void ensurePool(int extra) {
+        if (poolSize + extra <= pool.length) return;
+        long needed = Math.max((long) pool.length * 2, (long) poolSize + extra);
+        if (needed > Integer.MAX_VALUE - 8) throw new IllegalStateException("Columnar catalog string pool exceeds 2 GB");
+        pool = Arrays.copyOf(pool, (int) needed);
+    }
+
+    private static int[] newIndex(int capacity) {
+        int[] index = new int[capacity];
+        Arrays.fill(index, EMPTY_SLOT);
+        return index;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
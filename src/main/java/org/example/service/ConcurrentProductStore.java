@@ -0,0 +1,73 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe store for a catalog shared by many lanes. Lookups are a single ConcurrentHashMap read and
+ * never block; writers update entries with compare-and-set. Every entry remembers the sequence number of its
+ * first insertion, which gives insertion-ordered {@link #values()} snapshots without a global lock.
+ */
+final class ConcurrentProductStore implements ProductStore {
+
+    private record Entry(Product product, long seq) { }
+
+    private final ConcurrentHashMap<String, Entry> products = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public Product get(String id) {
+        Entry e = products.get(id);
+        return e == null ? null : e.product;
+    }
+
+    @Override
+    public Product put(Product product) {
+        String id = product.getId();
+        while (true) {
+            Entry old = products.get(id);
+            if (old == null) {
+                if (products.putIfAbsent(id, new Entry(product, sequence.incrementAndGet())) == null) return null;
+            } else if (products.replace(id, old, new Entry(product, old.seq))) {
+                return old.product;
+            }
+        }
+    }
+
+    @Override
+    public Product replace(Product product) {
+        String id = product.getId();
+        while (true) {
+            Entry old = products.get(id);
+            if (old == null) return null;
+            if (products.replace(id, old, new Entry(product, old.seq))) return old.product;
+        }
+    }
+
+    @Override
+    public Product remove(String id) {
+        Entry e = products.remove(id);
+        return e == null ? null : e.product;
+    }
+
+    /** Weakly consistent snapshot: reflects each entry at some point during the call, in insertion order. */
+    @Override
+    public List<Product> values() {
+        Entry[] entries = products.values().toArray(new Entry[0]);
+        Arrays.sort(entries, Comparator.comparingLong(Entry::seq));
+        List<Product> list = new ArrayList<>(entries.length);
+        for (Entry e : entries) list.add(e.product);
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+}
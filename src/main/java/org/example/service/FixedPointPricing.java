@@ -0,0 +1,118 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.scan.ScannedItem;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Pricing engine doing all arithmetic on primitive longs: prices in cents, weights in milligrams
+ * (millionths of the pricing unit). Rounds exactly like {@link Checkout#calculateTotals()} (HALF_UP to
+ * grams for weight sums, HALF_UP to cents for line totals) and only creates BigDecimals for the Result.
+ * <p>
+ * Products priced with sub-cent digits or weights with more than six decimals cannot be represented and
+ * make {@link #price(Collection)} throw ArithmeticException, as does long overflow.
+ * <p>
+ * Products with several promotions get the same cheapest combination as in Checkout, searched within
+ * {@link Checkout#DEFAULT_PROMOTION_TIME_BUDGET} per line.
+ */
+public class FixedPointPricing {
+
+    private final Map<String, Promotion[]> promotionsByProduct = new HashMap<>();
+    private final long promotionBudgetNanos = Checkout.DEFAULT_PROMOTION_TIME_BUDGET.toNanos();
+
+    public FixedPointPricing(Collection<Promotion> promotions) {
+        if (promotions != null) {
+            for (Promotion p : promotions) index(p);
+        }
+    }
+
+    public FixedPointPricing() { }
+
+    public void addPromotion(Promotion p) {
+        index(p);
+    }
+
+    // not the overridable addPromotion, so the constructor never calls into a subclass
+    private void index(Promotion p) {
+        promotionsByProduct.compute(p.getProductId(), (id, existing) -> PromotionSolver.with(existing, p));
+    }
+
+    public Checkout.Result price(Collection<ScannedItem> scans) {
+        Map<String, Accumulator> pieces = new LinkedHashMap<>();
+        Map<String, Accumulator> weights = new LinkedHashMap<>();
+        for (ScannedItem s : scans) {
+            Product p = s.getProduct();
+            if (s.isPiece()) {
+                Accumulator acc = pieces.get(p.getId());
+                if (acc == null) pieces.put(p.getId(), acc = new Accumulator(p));
+                acc.amount = Math.addExact(acc.amount, s.getQuantity());
+            } else {
+                Accumulator acc = weights.get(p.getId());
+                if (acc == null) weights.put(p.getId(), acc = new Accumulator(p));
+                acc.amount = Math.addExact(acc.amount, s.getWeightMilligrams());
+            }
+        }
+
+        long totalCents = 0;
+        long savingsCents = 0;
+        Map<String, Checkout.PriceLine> lines = new LinkedHashMap<>();
+
+        for (Accumulator acc : pieces.values()) {
+            Product p = acc.product;
+            long unitCents = p.getPriceCents();
+            Promotion[] promos = promotionsByProduct.get(p.getId());
+            long lineCents;
+            Checkout.PriceLine line;
+            if (promos == null) {
+                lineCents = Math.multiplyExact(unitCents, acc.amount);
+                line = new Checkout.PriceLine(p, BigDecimal.valueOf(acc.amount), null,
+                        p.getPricePerUnit(), BigDecimal.valueOf(lineCents, 2), null);
+            } else {
+                PromotionSolver.Allocation allocation = PromotionSolver.solve(acc.amount, promos, System.nanoTime() + promotionBudgetNanos);
+                lineCents = Math.multiplyExact(unitCents, allocation.chargeableUnits());
+                line = new Checkout.PriceLine(p, BigDecimal.valueOf(acc.amount), null, p.getPricePerUnit(),
+                        BigDecimal.valueOf(lineCents, 2), PromotionSolver.primary(promos, allocation), allocation.applications());
+            }
+            lines.put(p.getId(), line);
+            totalCents = Math.addExact(totalCents, lineCents);
+            savingsCents = Math.addExact(savingsCents, Math.multiplyExact(unitCents, acc.amount) - lineCents);
+        }
+
+        for (Accumulator acc : weights.values()) {
+            Product p = acc.product;
+            long grams = roundHalfUp(acc.amount, 1000);
+            long lineCents = weightLineCents(p.getPriceCents(), grams);
+            lines.put(p.getId(), new Checkout.PriceLine(p, null, BigDecimal.valueOf(grams, 3),
+                    p.getPricePerUnit(), BigDecimal.valueOf(lineCents, 2), null));
+            totalCents = Math.addExact(totalCents, lineCents);
+        }
+
+        return new Checkout.Result(lines, BigDecimal.valueOf(totalCents, 2), BigDecimal.valueOf(savingsCents, 2));
+    }
+
+    /** Line total in cents for a weight already rounded to thousandths (grams) of the pricing unit. */
+    static long weightLineCents(long unitCents, long grams) {
+        // cents * grams has five decimals; round HALF_UP back to two
+        return roundHalfUp(Math.multiplyExact(unitCents, grams), 1000);
+    }
+
+    /** {@code value / divisor} rounded HALF_UP (away from zero on ties), divisor > 0. */
+    static long roundHalfUp(long value, long divisor) {
+        long q = value / divisor;
+        long r = value % divisor;
+        if (Math.abs(r) * 2 >= divisor) q += Long.signum(value);
+        return q;
+    }
+
+    private static final class Accumulator {
+        final Product product;
+        long amount; // pieces, or weight in milligrams
+
+        Accumulator(Product product) {
+            this.product = product;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * Checkout journal segment file. All numbers are big-endian.
+ * <pre>
+ * header  (16 bytes)
+ *   int   magic 'GJRN'
+ *   int   format version
+ *   long  segment number
+ * frames, until end of file or the first torn/corrupt frame
+ *   int   payload length
+ *   int   CRC32C of the payload
+ *   payload: byte record type, then
+ *     PRODUCT         int code, byte unit type ordinal, decimal price, string id, string name
+ *     OPEN            long basket
+ *     SCAN_PIECES     long basket, int product code, int quantity
+ *     SCAN_WEIGHT     long basket, int product code, decimal weight
+ *     VOID            long basket, int scan index
+ *     FINALIZE        long basket
+ *     CANCEL          long basket
+ *     CHECKPOINT_END  (no fields)
+ * decimal = int scale, byte length, unscaled two's-complement bytes; string = short length, UTF-8 bytes
+ * </pre>
+ * Every segment starts with a checkpoint: the state of all baskets open when it was created (OPEN, PRODUCT and
+ * SCAN records) closed by CHECKPOINT_END. Recovery therefore reads only the newest segment whose checkpoint is
+ * complete. Product codes are local to a segment.
+ */
+final class JournalFormat {
+
+    static final int MAGIC = 0x474A524E; // "GJRN"
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+    static final int FRAME_HEADER = 8;
+    // far above any real record; a larger length means a torn or foreign frame
+    static final int MAX_PAYLOAD = 1 << 20;
+
+    static final byte PRODUCT = 1;
+    static final byte OPEN = 2;
+    static final byte SCAN_PIECES = 3;
+    static final byte SCAN_WEIGHT = 4;
+    static final byte VOID = 5;
+    static final byte FINALIZE = 6;
+    static final byte CANCEL = 7;
+    static final byte CHECKPOINT_END = 8;
+
+    // OPEN, VOID, FINALIZE, CANCEL and SCAN_PIECES frames fit in this
+    static final int SMALL_FRAME = FRAME_HEADER + 1 + 8 + 4 + 4;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private JournalFormat() { }
+
+    static Path segmentPath(Path dir, long number) {
+        return dir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /** Segment number of a journal file name, or -1 for other files. */
+    static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    static void writeHeader(ByteBuffer out, long segment) {
+        out.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(segment);
+    }
+
+    /** Open a frame: reserves the frame header and writes the type; returns the frame start for {@link #endFrame}. */
+    static int beginFrame(ByteBuffer out, byte type) {
+        int start = out.position();
+        out.position(start + FRAME_HEADER);
+        out.put(type);
+        return start;
+    }
+
+    static void endFrame(ByteBuffer out, int start, CRC32C crc) {
+        int end = out.position();
+        int limit = out.limit();
+        int length = end - start - FRAME_HEADER;
+        // checksum the payload in place; update() leaves the position at end again
+        out.limit(end).position(start + FRAME_HEADER);
+        crc.reset();
+        crc.update(out);
+        out.limit(limit);
+        out.putInt(start, length);
+        out.putInt(start + 4, (int) crc.getValue());
+    }
+
+    static int productFrameSize(Product p) {
+        return FRAME_HEADER + 1 + 4 + 1 + decimalSize(p.getPricePerUnit())
+                + 2 + utf8Length(p.getId()) + 2 + utf8Length(p.getName());
+    }
+
+    static void writeProduct(ByteBuffer out, int code, Product p, CRC32C crc) {
+        int frame = beginFrame(out, PRODUCT);
+        out.putInt(code);
+        out.put((byte) p.getUnitType().ordinal());
+        putDecimal(out, p.getPricePerUnit());
+        putString(out, p.getId());
+        putString(out, p.getName());
+        endFrame(out, frame, crc);
+    }
+
+    static Product readProduct(ByteBuffer in) {
+        UnitType unit = UnitType.values()[in.get()];
+        BigDecimal price = getDecimal(in);
+        String id = getString(in);
+        String name = getString(in);
+        return new Product(id, name, unit, price);
+    }
+
+    static int decimalSize(BigDecimal d) {
+        // up to 18 digits fit a long, which takes at most 8 bytes; avoids materializing the unscaled BigInteger
+        return 4 + 1 + (d.precision() <= 18 ? 8 : d.unscaledValue().bitLength() / 8 + 1);
+    }
+
+    static void putDecimal(ByteBuffer out, BigDecimal d) {
+        out.putInt(d.scale());
+        byte[] unscaled = d.unscaledValue().toByteArray();
+        out.put((byte) unscaled.length);
+        out.put(unscaled);
+    }
+
+    static BigDecimal getDecimal(ByteBuffer in) {
+        int scale = in.getInt();
+        byte[] unscaled = new byte[in.get() & 0xFF];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    static void putString(ByteBuffer out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int utf8Length(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) n++;
+            else if (c < 0x800) n += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else n += 3;
+        }
+        return n;
+    }
+
+    /**
+     * The payload of the frame at the buffer's position, positioned after the type byte (returned first via
+     * {@code type[0]}), or null when the frame is torn or corrupt. Advances {@code in} past the frame on success.
+     */
+    static ByteBuffer nextFrame(ByteBuffer in, CRC32C crc, byte[] type) {
+        if (in.remaining() < FRAME_HEADER) return null;
+        int start = in.position();
+        int length = in.getInt(start);
+        int checksum = in.getInt(start + 4);
+        if (length < 1 || length > MAX_PAYLOAD || length > in.remaining() - FRAME_HEADER) return null;
+        ByteBuffer payload = in.duplicate();
+        payload.position(start + FRAME_HEADER).limit(start + FRAME_HEADER + length);
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) return null;
+        type[0] = payload.get();
+        in.position(start + FRAME_HEADER + length);
+        return payload;
+    }
+}
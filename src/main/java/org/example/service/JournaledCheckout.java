@@ -0,0 +1,96 @@
+package org.example.service;
+
+import org.example.scan.ScannedItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A basket whose scans and voids go through a {@link CheckoutJournal} before they reach the {@link Checkout}.
+ * Like Checkout, it is meant to be used by one lane at a time. Pricing settings (promotions, pinning, engine)
+ * are not journaled: they belong to the Checkout, which the recovering code creates again.
+ */
+public final class JournaledCheckout {
+    private final CheckoutJournal journal;
+    private final long basketId;
+    // what the journal holds for this basket; guarded by the journal's lock
+    private final List<ScannedItem> journaled = new ArrayList<>();
+    private volatile Checkout checkout;
+
+    JournaledCheckout(CheckoutJournal journal, long basketId, Checkout checkout) {
+        this.journal = journal;
+        this.basketId = basketId;
+        this.checkout = checkout;
+    }
+
+    public long getBasketId() { return basketId; }
+
+    /**
+     * The underlying checkout, for pricing and configuration. Scanning into it directly bypasses the journal.
+     */
+    public Checkout getCheckout() {
+        return attached();
+    }
+
+    public void scan(ScannedItem item) {
+        Checkout c = attached();
+        journal.recordScan(this, item);
+        c.scan(item);
+    }
+
+    /**
+     * Remove (void) the scan at the given position.
+     * @return the removed item
+     */
+    public ScannedItem removeScan(int index) {
+        Checkout c = attached();
+        journal.recordVoid(this, index);
+        return c.removeScan(index);
+    }
+
+    /**
+     * Void the most recent scan of this exact item.
+     * @return false when the item was never scanned (or already voided)
+     */
+    public boolean voidScan(ScannedItem item) {
+        int index = attached().getScans().lastIndexOf(item);
+        if (index < 0) return false;
+        removeScan(index);
+        return true;
+    }
+
+    /**
+     * Price the basket and close it in the journal; it will not be recovered after a crash.
+     */
+    public Checkout.Result complete() {
+        Checkout.Result result = attached().calculateTotals();
+        journal.recordClose(this, JournalFormat.FINALIZE);
+        return result;
+    }
+
+    /** Close the basket in the journal without paying. */
+    public void cancel() {
+        journal.recordClose(this, JournalFormat.CANCEL);
+    }
+
+    Checkout checkout() {
+        return checkout;
+    }
+
+    List<ScannedItem> journaled() {
+        return journaled;
+    }
+
+    // recovered basket: replay what the journal held into a fresh checkout
+    void attach(Checkout fresh) {
+        if (!fresh.getScans().isEmpty()) throw new IllegalArgumentException("Checkout already has scans");
+        for (ScannedItem item : journaled) fresh.scan(item);
+        this.checkout = fresh;
+    }
+
+    private Checkout attached() {
+        Checkout c = checkout;
+        if (c == null) throw new IllegalStateException("Basket " + basketId + " not recovered yet");
+        return c;
+    }
+}
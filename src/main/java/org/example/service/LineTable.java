@@ -0,0 +1,160 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Per-product sums of a basket while its totals are computed: an open-addressing table from product id to a
+ * line, with the lines numbered in first-scanned order. The first Product scanned for an id is kept with its
+ * line. Weights are summed as millionths in a long while they fit.
+ * <p>
+ * {@link #clear()} keeps the arrays, so a {@link Checkout} that prices basket after basket stops allocating
+ * here once the table has grown to its largest basket. Not thread-safe.
+ */
+final class LineTable {
+
+    private static final int INITIAL_LINES = 16;
+    // distinct products a cleared table keeps room for
+    private static final int MAX_KEPT_LINES = 4_096;
+
+    private String[] ids = new String[INITIAL_LINES];
+    private Product[] products = new Product[INITIAL_LINES];
+    private int[] firstScans = new int[INITIAL_LINES];
+    private int[] pieces = new int[INITIAL_LINES];
+    private long[] weightMicros = new long[INITIAL_LINES];
+    private BigDecimal[] weightRest = new BigDecimal[INITIAL_LINES]; // more than six decimals, and overflow
+    private int[] slots = new int[INITIAL_LINES * 2]; // line + 1, 0 = free
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /** The line of the scanned product's id, added when the id is new. */
+    int lineFor(Product scanned, int scanIndex) {
+        String id = scanned.getId();
+        int mask = slots.length - 1;
+        for (int s = spread(id.hashCode()) & mask; ; s = (s + 1) & mask) {
+            int line = slots[s] - 1;
+            if (line < 0) {
+                if (size == ids.length) return grow(scanned, scanIndex);
+                slots[s] = size + 1;
+                ids[size] = id;
+                products[size] = scanned;
+                firstScans[size] = scanIndex;
+                return size++;
+            }
+            if (ids[line].equals(id)) return line;
+        }
+    }
+
+    /** The line of the id, or -1. */
+    int indexOf(String id) {
+        int mask = slots.length - 1;
+        for (int s = spread(id.hashCode()) & mask; ; s = (s + 1) & mask) {
+            int line = slots[s] - 1;
+            if (line < 0) return -1;
+            if (ids[line].equals(id)) return line;
+        }
+    }
+
+    void addPieces(int line, int qty) {
+        pieces[line] += qty;
+    }
+
+    void addWeight(int line, ScanBuffer scans, int scanIndex) {
+        long micros = scans.weightMicros(scanIndex);
+        if (micros >= 0 && weightMicros[line] <= Long.MAX_VALUE - micros) {
+            weightMicros[line] += micros;
+        } else {
+            BigDecimal w = scans.weight(scanIndex);
+            weightRest[line] = weightRest[line] == null ? w : weightRest[line].add(w);
+        }
+    }
+
+    /** Add the sums of a table of later scans; ids new here keep the later table's first product. */
+    void merge(LineTable later) {
+        for (int from = 0; from < later.size; from++) {
+            int line = lineFor(later.products[from], later.firstScans[from]);
+            pieces[line] += later.pieces[from]; // wraps exactly like the sequential sum
+            long micros = later.weightMicros[from];
+            if (weightMicros[line] <= Long.MAX_VALUE - micros) {
+                weightMicros[line] += micros;
+            } else {
+                BigDecimal w = BigDecimal.valueOf(micros, 6);
+                weightRest[line] = weightRest[line] == null ? w : weightRest[line].add(w);
+            }
+            BigDecimal rest = later.weightRest[from];
+            if (rest != null) weightRest[line] = weightRest[line] == null ? rest : weightRest[line].add(rest);
+        }
+    }
+
+    String id(int line) {
+        return ids[line];
+    }
+
+    Product product(int line) {
+        return products[line];
+    }
+
+    int firstScan(int line) {
+        return firstScans[line];
+    }
+
+    int pieces(int line) {
+        return pieces[line];
+    }
+
+    BigDecimal weight(int line) {
+        BigDecimal sum = BigDecimal.valueOf(weightMicros[line], 6);
+        return weightRest[line] == null ? sum : sum.add(weightRest[line]);
+    }
+
+    /** Forget every line, keeping the arrays unless an unusually large basket grew them. */
+    void clear() {
+        if (ids.length > MAX_KEPT_LINES) {
+            ids = new String[INITIAL_LINES];
+            products = new Product[INITIAL_LINES];
+            firstScans = new int[INITIAL_LINES];
+            pieces = new int[INITIAL_LINES];
+            weightMicros = new long[INITIAL_LINES];
+            weightRest = new BigDecimal[INITIAL_LINES];
+            slots = new int[INITIAL_LINES * 2];
+            size = 0;
+            return;
+        }
+        if (size == 0) return;
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(products, 0, size, null);
+        Arrays.fill(pieces, 0, size, 0);
+        Arrays.fill(weightMicros, 0, size, 0);
+        Arrays.fill(weightRest, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    // double the lines and the slots, then add the new line
+    private int grow(Product scanned, int scanIndex) {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        products = Arrays.copyOf(products, capacity);
+        firstScans = Arrays.copyOf(firstScans, capacity);
+        pieces = Arrays.copyOf(pieces, capacity);
+        weightMicros = Arrays.copyOf(weightMicros, capacity);
+        weightRest = Arrays.copyOf(weightRest, capacity);
+        slots = new int[capacity * 2];
+        int mask = slots.length - 1;
+        for (int line = 0; line < size; line++) {
+            int s = spread(ids[line].hashCode()) & mask;
+            while (slots[s] != 0) s = (s + 1) & mask;
+            slots[s] = line + 1;
+        }
+        return lineFor(scanned, scanIndex);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default store: a plain LinkedHashMap. Not thread-safe.
+ */
+final class LinkedProductStore implements ProductStore {
+
+    // preserve insertion order
+    private final Map<String, Product> products = new LinkedHashMap<>();
+
+    @Override
+    public Product get(String id) {
+        return products.get(id);
+    }
+
+    @Override
+    public Product put(Product product) {
+        return products.put(product.getId(), product);
+    }
+
+    @Override
+    public Product replace(Product product) {
+        return products.replace(product.getId(), product);
+    }
+
+    @Override
+    public Product remove(String id) {
+        return products.remove(id);
+    }
+
+    @Override
+    public List<Product> values() {
+        return new ArrayList<>(products.values());
+    }
+
+    @Override
+    public int size() {
+        return products.size();
+    }
+}
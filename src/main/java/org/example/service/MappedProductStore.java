@@ -0,0 +1,157 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.example.service.BinaryCatalogFormat.*;
+
+/**
+ * Read-only store over a memory-mapped {@link BinaryCatalogFormat} snapshot. Opening maps the file and checks
+ * the header (and optionally the checksum); lookups probe the prebuilt index in place, so nothing is parsed
+ * up front. Safe for concurrent readers.
+ */
+final class MappedProductStore implements ProductStore {
+
+    private static final UnitType[] UNITS = UnitType.values();
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final int indexMask;
+    private final int records;
+    private final int strings;
+    private final int index;
+
+    private MappedProductStore(MappedByteBuffer buf) {
+        this.buf = buf;
+        this.count = buf.getInt(H_COUNT);
+        this.indexMask = buf.getInt(H_INDEX_CAPACITY) - 1;
+        this.records = (int) buf.getLong(H_RECORDS);
+        this.strings = (int) buf.getLong(H_STRINGS);
+        this.index = (int) buf.getLong(H_INDEX);
+    }
+
+    static MappedProductStore open(Path file, boolean verifyChecksum) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE) throw new IOException("Not a catalog snapshot (too short): " + file);
+            if (size > Integer.MAX_VALUE) throw new IOException("Catalog snapshot larger than 2 GB: " + file);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buf.getInt(H_MAGIC) != MAGIC) throw new IOException("Not a catalog snapshot (bad magic): " + file);
+        int version = buf.getInt(H_VERSION);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog snapshot format version " + version + ": " + file);
+        }
+        int count = buf.getInt(H_COUNT);
+        int capacity = buf.getInt(H_INDEX_CAPACITY);
+        long indexOffset = buf.getLong(H_INDEX);
+        boolean consistent = count >= 0 && capacity > count && Integer.bitCount(capacity) == 1
+                && buf.getLong(H_RECORDS) == HEADER_SIZE
+                && buf.getLong(H_STRINGS) == HEADER_SIZE + (long) count * RECORD_SIZE
+                && indexOffset == buf.getLong(H_STRINGS) + buf.getLong(H_STRINGS_LENGTH)
+                && indexOffset + 4L * capacity == buf.capacity();
+        if (!consistent) throw new IOException("Corrupt catalog snapshot header: " + file);
+        if (verifyChecksum) {
+            CRC32C crc = new CRC32C();
+            crc.update(buf.slice(HEADER_SIZE, buf.capacity() - HEADER_SIZE));
+            if (crc.getValue() != buf.getLong(H_CHECKSUM)) throw new IOException("Catalog snapshot checksum mismatch: " + file);
+        }
+        return new MappedProductStore(buf);
+    }
+
+    @Override
+    public Product get(String id) {
+        int hash = hash(id);
+        for (int slot = hash & indexMask; ; slot = (slot + 1) & indexMask) {
+            int record = buf.getInt(index + 4 * slot);
+            if (record < 0) return null;
+            int r = records + record * RECORD_SIZE;
+            if (buf.getInt(r + R_HASH) == hash && idEquals(r, id)) return materialize(r, id);
+        }
+    }
+
+    @Override
+    public List<Product> values() {
+        List<Product> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) list.add(materialize(records + i * RECORD_SIZE, null));
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public Product put(Product product) {
+        throw readOnly();
+    }
+
+    @Override
+    public Product replace(Product product) {
+        throw readOnly();
+    }
+
+    @Override
+    public Product remove(String id) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Catalog opened from a binary snapshot is read-only");
+    }
+
+    // id is passed in when the caller already has an equal String
+    private Product materialize(int r, String id) {
+        int str = strings + buf.getInt(r + R_STRING);
+        int idLength = buf.getInt(r + R_ID_LENGTH);
+        int nameLength = buf.getInt(r + R_NAME_LENGTH);
+        if (id == null) id = decode(str, idLength);
+        String name = decode(str + idLength, nameLength);
+        long price = buf.getLong(r + R_PRICE);
+        byte scale = buf.get(r + R_SCALE);
+        BigDecimal pricePerUnit = scale == PRICE_AS_TEXT
+                ? new BigDecimal(decode(strings + (int) (price >>> 32), (int) price))
+                : BigDecimal.valueOf(price, scale);
+        return new Product(id, name, UNITS[buf.get(r + R_UNIT)], pricePerUnit);
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buf.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean idEquals(int r, String id) {
+        int str = strings + buf.getInt(r + R_STRING);
+        int len = buf.getInt(r + R_ID_LENGTH);
+        if (id.length() > len) return false; // UTF-8 never has fewer bytes than UTF-16 has chars
+        if (id.length() == len) {
+            int i = 0;
+            for (; i < len; i++) {
+                char c = id.charAt(i);
+                if (c >= 0x80 || buf.get(str + i) != (byte) c) break;
+            }
+            if (i == len) return true;
+            if (id.charAt(i) < 0x80) return false;
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (buf.get(str + i) != key[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Parallel catalog CSV import: the file is split at line boundaries into segments, each segment is
+ * memory-mapped and parsed on a fork-join pool, and the parsed products are handed to the sink in file
+ * order so "last row for an id wins" and insertion order are the same as for the sequential loader.
+ */
+final class ParallelCsvLoader {
+
+    // segments smaller than this are not worth a task of their own
+    private static final long MIN_SEGMENT = 1L << 20;
+    // well below the 2 GB limit of a single mapping
+    private static final long MAX_SEGMENT = 256L << 20;
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private ParallelCsvLoader() { }
+
+    static CatalogLoadReport.Tally parseFile(Path csvFile, ForkJoinPool pool, Consumer<Product> sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            List<long[]> segments = split(ch, pool.getParallelism());
+            List<Callable<Segment>> tasks = new ArrayList<>(segments.size());
+            for (long[] s : segments) tasks.add(() -> parseSegment(ch, s[0], s[1]));
+
+            CatalogLoadReport.Tally tally = new CatalogLoadReport.Tally();
+            for (Future<Segment> f : pool.invokeAll(tasks)) {
+                Segment segment = get(f);
+                tally.add(segment.tally);
+                segment.products.forEach(sink);
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Cut the file into [start, end) ranges that each end just after a line terminator (or at EOF).
+     */
+    static List<long[]> split(FileChannel ch, int parallelism) throws IOException {
+        long size = ch.size();
+        long target = Math.min(MAX_SEGMENT, Math.max(MIN_SEGMENT, size / ((long) parallelism * SEGMENTS_PER_THREAD) + 1));
+        List<long[]> segments = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8 * 1024);
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : nextLineStart(ch, start + target, probe);
+            segments.add(new long[] { start, end });
+            start = end;
+        }
+        return segments;
+    }
+
+    private static long nextLineStart(FileChannel ch, long from, ByteBuffer probe) throws IOException {
+        long pos = from;
+        while (true) {
+            probe.clear();
+            int n = ch.read(probe, pos);
+            if (n < 0) return ch.size();
+            for (int i = 0; i < n; i++) {
+                byte b = probe.get(i);
+                if (b == '\n' || b == '\r') return pos + i + 1;
+            }
+            pos += n;
+        }
+    }
+
+    private static Segment parseSegment(FileChannel ch, long start, long end) throws IOException {
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Segment segment = new Segment();
+        new CatalogCsvParser().parseLines(buf, 0, buf.limit(), true, segment.tally, segment.products::add);
+        return segment;
+    }
+
+    private static Segment get(Future<Segment> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing catalog", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class Segment {
+        final CatalogLoadReport.Tally tally = new CatalogLoadReport.Tally();
+        final List<Product> products = new ArrayList<>();
+    }
+}
@@ -1,35 +1,231 @@
 package org.example.service;
 
+import org.example.metrics.CatalogLoadEvent;
+import org.example.metrics.CatalogLookupEvent;
+import org.example.metrics.StoreMetrics;
 import org.example.model.Product;
-import org.example.model.UnitType;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Simple in-memory product catalog. Supports add/update/remove/list and CSV import.
  * CSV format (no header required): id,name,unitType,price
  * Example line: CHIPS,Bag of Chips,PIECE,35.00
  * Example line: RICE,Rice (kg),WEIGHT,45.00
+ * <p>
+ * {@code new ProductCatalog()} is not thread-safe. {@link #concurrent()} creates a catalog that many lanes can
+ * read while it is being updated, and {@link #versioned()} one that also publishes immutable snapshots.
+ * {@link #columnar()} trades lookup speed for a much smaller heap footprint on very large catalogs.
+ * {@link #openBinary(Path)} serves a snapshot written by {@link #exportBinary(Path)} straight from a mapped file.
+ * <p>
+ * Besides the product id, lanes can look products up by numeric barcode or PLU code once the code is
+ * {@link #assignCode(long, String) assigned}; {@link ScanLookupCache} puts a per-lane cache in front of that.
+ * Screens search by name through the {@link #searchIndex() search index}.
+ * <p>
+ * Lookups and CSV loads are counted in {@link StoreMetrics#global()}.
  */
 public class ProductCatalog {
 
-    // preserve insertion order
-    private final Map<String, Product> products = new LinkedHashMap<>();
+    private static final StoreMetrics METRICS = StoreMetrics.global();
 
-    public ProductCatalog() { }
+    // insertion-ordered storage, see ProductStore implementations
+    private final ProductStore products;
+
+    // barcode / PLU -> id; thread-safe whatever the store is
+    private final ProductCodeIndex codes = new ProductCodeIndex();
+
+    // bumped after every change to products or codes, so lane caches can tell they are stale
+    private final AtomicLong changes = new AtomicLong();
+
+    // name search, once someone asked for it; kept in step with every write after that
+    private volatile ProductSearchIndex search;
+
+    public ProductCatalog() {
+        this(new LinkedProductStore());
+    }
+
+    ProductCatalog(ProductStore products) {
+        this.products = products;
+    }
+
+    /**
+     * Catalog safe to share between threads: getProduct never blocks, writers may run concurrently with
+     * readers and each other, and listAll() returns an insertion-ordered snapshot.
+     */
+    public static ProductCatalog concurrent() {
+        return new ProductCatalog(new ConcurrentProductStore());
+    }
+
+    /**
+     * Thread-safe catalog where every change publishes a new immutable, versioned {@link CatalogSnapshot}
+     * sharing structure with the previous one. Lookups never block; writes are serialized.
+     */
+    public static ProductCatalog versioned() {
+        return new ProductCatalog(new VersionedProductStore());
+    }
+
+    /**
+     * Memory-compact catalog for millions of SKUs: ids, names, unit types and prices live in primitive column
+     * arrays behind an open-addressing hash index, and {@link #getProduct(String)} materializes a new Product
+     * view on every call. Not thread-safe.
+     */
+    public static ProductCatalog columnar() {
+        return new ProductCatalog(new ColumnarProductStore());
+    }
+
+    /**
+     * Open a snapshot written by {@link #exportBinary(Path)}, verifying its checksum.
+     * @see #openBinary(Path, boolean)
+     */
+    public static ProductCatalog openBinary(Path file) throws IOException {
+        return openBinary(file, true);
+    }
+
+    /**
+     * Read-only catalog served directly from a memory-mapped binary snapshot: no parsing, the prebuilt hash
+     * index is probed in place, so lookups work as soon as the file is mapped. Skipping checksum verification
+     * avoids reading the whole file at startup. Add/update/remove throw UnsupportedOperationException.
+     * @throws IOException if the file is not a snapshot, has an unsupported format version or fails verification
+     */
+    public static ProductCatalog openBinary(Path file, boolean verifyChecksum) throws IOException {
+        return new ProductCatalog(MappedProductStore.open(file, verifyChecksum));
+    }
+
+    /**
+     * Write all products, in insertion order, to a versioned binary snapshot (fixed-width records, string
+     * table, prebuilt hash index and checksum) that {@link #openBinary(Path)} can map without parsing.
+     * The target is replaced atomically.
+     */
+    public void exportBinary(Path file) throws IOException {
+        BinaryCatalogFormat.write(listAll(), file);
+    }
+
+    /**
+     * Current published version of a {@link #versioned()} catalog. Later changes never affect it.
+     * @throws UnsupportedOperationException for catalogs that are not versioned
+     */
+    public CatalogSnapshot snapshot() {
+        if (products instanceof VersionedProductStore versioned) return versioned.snapshot();
+        throw new UnsupportedOperationException("Catalog is not versioned, create it with ProductCatalog.versioned()");
+    }
+
+    // whether snapshot() is supported
+    boolean isVersioned() {
+        return products instanceof VersionedProductStore;
+    }
+
+    /**
+     * Apply a batch of upserts followed by removals. On a {@link #versioned()} catalog the whole batch is
+     * published atomically as one new version, so bulk price changes never show up half-applied.
+     */
+    public void applyChanges(Collection<Product> upserts, Collection<String> removedIds) {
+        Objects.requireNonNull(upserts, "upserts");
+        Objects.requireNonNull(removedIds, "removedIds");
+        products.applyChanges(upserts, removedIds);
+        changes.incrementAndGet();
+        ProductSearchIndex s = search;
+        if (s != null) {
+            List<String> ids = new ArrayList<>(upserts.size() + removedIds.size());
+            for (Product p : upserts) ids.add(p.getId());
+            ids.addAll(removedIds);
+            s.syncAll(ids, products::get);
+        }
+    }
+
+    /**
+     * Search index over product names and ids, built on the first call and from then on updated by every
+     * add, update, remove, applyChanges and CSV load. Building it costs a pass over the catalog, and each later
+     * write of a product costs a re-index of that product.
+     */
+    public ProductSearchIndex searchIndex() {
+        ProductSearchIndex s = search;
+        if (s != null) return s;
+        synchronized (this) {
+            if (search == null) {
+                s = new ProductSearchIndex();
+                // published first, so writes made while it fills are applied to it as well
+                search = s;
+                List<String> ids = new ArrayList<>(products.size());
+                for (Product p : products.values()) ids.add(p.getId());
+                s.syncAll(ids, products::get);
+            }
+            return search;
+        }
+    }
+
+    // keep the search index, if any, in step with the store for one id
+    private void indexed(String id) {
+        ProductSearchIndex s = search;
+        if (s != null) s.sync(id, products::get);
+    }
 
     public Optional<Product> getProduct(String id) {
-        return Optional.ofNullable(products.get(id));
+        CatalogLookupEvent event = new CatalogLookupEvent();
+        event.begin();
+        Product p = products.get(id);
+        METRICS.catalogLookup(p != null);
+        if (event.shouldCommit()) {
+            event.productId = id;
+            event.hit = p != null;
+            event.commit();
+        }
+        return Optional.ofNullable(p);
+    }
+
+    /**
+     * Product for a barcode or PLU code, without allocating an Optional.
+     * @return the product, or null if the code is not assigned or its product is not in the catalog
+     */
+    public Product getProductByCode(long code) {
+        String id = codes.get(code);
+        Product p = id == null ? null : products.get(id);
+        METRICS.catalogLookup(p != null);
+        return p;
+    }
+
+    /**
+     * Assign a barcode or PLU code to a product id. Several codes may point at one product, and the product does
+     * not have to exist yet; removing a product leaves its codes in place, so they work again if it comes back.
+     * @param code a positive number
+     * @return the id the code was assigned to before, or null
+     */
+    public String assignCode(long code, String productId) {
+        Objects.requireNonNull(productId, "productId");
+        String previous = codes.put(code, productId);
+        changes.incrementAndGet();
+        return previous;
+    }
+
+    /** @return the id the code was assigned to, or null */
+    public String removeCode(long code) {
+        String removed = codes.remove(code);
+        changes.incrementAndGet();
+        return removed;
+    }
+
+    /** Number of assigned barcodes / PLU codes. */
+    public int codeCount() {
+        return codes.size();
+    }
+
+    // changes to products or codes so far; a cache filled at one count is valid until it moves
+    long changeCount() {
+        return changes.get();
     }
 
     public Product addProduct(Product product) {
         Objects.requireNonNull(product, "product");
-        return products.put(product.getId(), product);
+        Product previous = products.put(product);
+        changes.incrementAndGet();
+        indexed(product.getId());
+        return previous;
     }
 
     /**
@@ -39,18 +235,24 @@ public class ProductCatalog {
      */
     public Product updateProduct(Product product) {
         Objects.requireNonNull(product, "product");
-        if (!products.containsKey(product.getId())) {
+        Product previous = products.replace(product);
+        if (previous == null) {
             throw new IllegalArgumentException("Product not found: " + product.getId());
         }
-        return products.put(product.getId(), product);
+        changes.incrementAndGet();
+        indexed(product.getId());
+        return previous;
     }
 
     public Product removeProduct(String id) {
-        return products.remove(id);
+        Product removed = products.remove(id);
+        changes.incrementAndGet();
+        indexed(id);
+        return removed;
     }
 
     public List<Product> listAll() {
-        return new ArrayList<>(products.values());
+        return products.values();
     }
 
     public int size() {
@@ -59,32 +261,62 @@ public class ProductCatalog {
 
     /**
      * Load products from CSV into the catalog. Existing products with same id are overwritten.
-     * Lines starting with # or empty lines are ignored.
+     * Lines starting with # or empty lines are ignored; malformed rows, unknown unit types and
+     * unparsable prices are skipped and counted in the returned report.
+     * The file is streamed through a reusable buffer, so memory use does not grow with file size.
      */
-    public void loadFromCsv(Path csvFile) throws IOException {
-        List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
-        for (String raw : lines) {
-            String line = raw.trim();
-            if (line.isEmpty() || line.startsWith("#")) continue;
-            String[] cols = line.split(",", -1);
-            if (cols.length < 4) {
-                // ignore malformed lines (could also throw)
-                continue;
-            }
-            String id = cols[0].trim();
-            String name = cols[1].trim();
-            String unitStr = cols[2].trim().toUpperCase(Locale.ROOT);
-            String priceStr = cols[3].trim();
-            UnitType unit;
-            try {
-                unit = UnitType.valueOf(unitStr);
-            } catch (IllegalArgumentException ex) {
-                // skip unknown unit types
-                continue;
+    public CatalogLoadReport loadFromCsv(Path csvFile) throws IOException {
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        long started = System.nanoTime();
+        CatalogLoadReport.Tally tally = CatalogCsvParser.parseFile(csvFile, loadSink());
+        return loaded(csvFile, false, tally, started, event);
+    }
+
+    /**
+     * Same as {@link #loadFromCsv(Path)} but parses the file in parallel on the common fork-join pool.
+     */
+    public CatalogLoadReport loadFromCsvParallel(Path csvFile) throws IOException {
+        return loadFromCsvParallel(csvFile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parallel CSV import: the file is memory-mapped in line-aligned segments that are parsed on the given pool.
+     * Parsed rows are applied in file order, so the catalog ends up identical to {@link #loadFromCsv(Path)}.
+     */
+    public CatalogLoadReport loadFromCsvParallel(Path csvFile, ForkJoinPool pool) throws IOException {
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        long started = System.nanoTime();
+        CatalogLoadReport.Tally tally = ParallelCsvLoader.parseFile(csvFile, pool, loadSink());
+        return loaded(csvFile, true, tally, started, event);
+    }
+
+    private Consumer<Product> loadSink() {
+        if (search == null) return products::put;
+        return p -> {
+            products.put(p);
+            indexed(p.getId());
+        };
+    }
+
+    private CatalogLoadReport loaded(Path csvFile, boolean parallel, CatalogLoadReport.Tally tally,
+                                            long started, CatalogLoadEvent event) throws IOException {
+        long elapsed = System.nanoTime() - started;
+        changes.incrementAndGet();
+        boolean commit = event.shouldCommit();
+        if (commit || METRICS.isEnabled()) {
+            long bytes = Files.size(csvFile);
+            METRICS.csvLoaded(tally.rowsRead, bytes, elapsed);
+            if (commit) {
+                event.file = csvFile.toString();
+                event.parallel = parallel;
+                event.rowsRead = tally.rowsRead;
+                event.productsLoaded = tally.productsLoaded;
+                event.bytes = bytes;
+                event.commit();
             }
-            BigDecimal price = new BigDecimal(priceStr);
-            Product p = new Product(id, name, unit, price);
-            products.put(id, p);
         }
+        return new CatalogLoadReport(tally, Duration.ofNanos(elapsed));
     }
 }
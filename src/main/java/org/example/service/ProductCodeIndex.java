@@ -0,0 +1,138 @@
+package org.example.service;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Numeric barcode / PLU code -> product id, in an open-addressing table of primitive long keys (linear
+ * probing, at most half full, backward-shift deletion so there are no tombstones). Thread-safe: writers take
+ * the write lock, lookups are optimistic reads that only fall back to the read lock when a write overlapped.
+ * Codes must be positive; 0 marks an empty slot.
+ */
+final class ProductCodeIndex {
+
+    private static final long EMPTY = 0;
+
+    // replaced as a whole on resize, so an optimistic reader never mixes arrays of two generations
+    private record Table(long[] codes, String[] ids) {
+        Table(int capacity) {
+            this(new long[capacity], new String[capacity]);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(16);
+    private int size;
+
+    /** @return the product id registered for the code, or null */
+    String get(long code) {
+        long stamp = lock.tryOptimisticRead();
+        String id = find(table, code);
+        if (lock.validate(stamp)) return id;
+        stamp = lock.readLock();
+        try {
+            return find(table, code);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** @return the id previously registered for the code, or null */
+    String put(long code, String id) {
+        if (code <= 0) throw new IllegalArgumentException("Product codes must be positive: " + code);
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.codes.length) table = resized(table, table.codes.length * 2);
+            long[] codes = table.codes;
+            int mask = codes.length - 1;
+            int i = slot(code, mask);
+            while (codes[i] != EMPTY) {
+                if (codes[i] == code) {
+                    String previous = table.ids[i];
+                    table.ids[i] = id;
+                    return previous;
+                }
+                i = (i + 1) & mask;
+            }
+            table.ids[i] = id;
+            codes[i] = code;
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @return the id that was registered for the code, or null */
+    String remove(long code) {
+        if (code <= 0) return null; // never registered, and 0 would match the first empty slot
+        long stamp = lock.writeLock();
+        try {
+            long[] codes = table.codes;
+            String[] ids = table.ids;
+            int mask = codes.length - 1;
+            int i = slot(code, mask);
+            while (codes[i] != code) {
+                if (codes[i] == EMPTY) return null;
+                i = (i + 1) & mask;
+            }
+            String removed = ids[i];
+            // shift later entries of the probe run back so lookups never stop early at the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; codes[j] != EMPTY; j = (j + 1) & mask) {
+                int home = slot(codes[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    codes[hole] = codes[j];
+                    ids[hole] = ids[j];
+                    hole = j;
+                }
+            }
+            codes[hole] = EMPTY;
+            ids[hole] = null;
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static String find(Table t, long code) {
+        long[] codes = t.codes;
+        int mask = codes.length - 1;
+        // bounded, because a torn optimistic read may see a table without an empty slot
+        for (int i = slot(code, mask), n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            long c = codes[i];
+            if (c == code) return t.ids[i];
+            if (c == EMPTY) return null;
+        }
+        return null;
+    }
+
+    private static Table resized(Table old, int capacity) {
+        Table t = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.codes.length; i++) {
+            long code = old.codes[i];
+            if (code == EMPTY) continue;
+            int j = slot(code, mask);
+            while (t.codes[j] != EMPTY) j = (j + 1) & mask;
+            t.codes[j] = code;
+            t.ids[j] = old.ids[i];
+        }
+        return t;
+    }
+
+    // barcodes are often consecutive; spread them with a multiplicative hash and take the high bits
+    static int slot(long code, int mask) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32 ^ h) & mask;
+    }
+}
@@ -0,0 +1,558 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Name and id search over a {@link ProductCatalog}, see {@link ProductCatalog#searchIndex()}. Names and ids are
+ * split into tokens at anything that is not a letter or digit, lower-cased and stripped of accents, so
+ * "Crème brûlée" is found by "creme" and "BRU". Every query word must be a prefix of some token of the product.
+ * <p>
+ * Tokens live in a radix trie whose nodes know how many products their subtree holds. A query walks to the node
+ * of its most selective word and visits completions in order of length, so the exact token comes first, then
+ * the shortest completions; it stops as soon as {@code limit} products are found at the lengths visited. Within
+ * one length, products whose matching token comes earlier in the name, then shorter names, rank first. Each
+ * node keeps its products in that order, so a query reads about {@code limit} products per node it visits
+ * however many share a common word.
+ * <p>
+ * Thread-safe: queries run under a read lock and updates under the write lock. Large batches of updates append
+ * to the nodes and sort each touched node once at the end, instead of inserting in order one product at a time.
+ */
+public final class ProductSearchIndex {
+
+    private static final Node[] NO_CHILDREN = {};
+    private static final Block[] NO_BLOCKS = {};
+
+    // most postings kept in one block of a node
+    private static final int POSTING_BLOCK = 256;
+
+    // prefixes of each token in Entry.prefixes: 1, 2 and 3 chars
+    private static final int PREFIX_BITS = 3;
+
+    // updates in one call from which on nodes are sorted once, at the end
+    private static final int BULK_UPDATES = 256;
+
+    /** An indexed product and its distinct tokens, name tokens in order first, then the id's. */
+    private static final class Entry {
+        Product product;
+        final String name; // as indexed; the posting order depends on its length
+        final String[] tokens;
+        final Node[] nodes; // where each token ends
+        final long prefixes; // see prefixBit
+
+        Entry(Product product, String[] tokens) {
+            this.product = product;
+            this.name = product.getName();
+            this.tokens = tokens;
+            this.nodes = new Node[tokens.length];
+            long bits = 0;
+            for (String t : tokens) {
+                for (int n = 1; n <= Math.min(t.length(), PREFIX_BITS); n++) bits |= prefixBit(t, n);
+            }
+            this.prefixes = bits;
+        }
+
+        int tokenIndex(Node node) {
+            for (int i = 0; i < nodes.length; i++) if (nodes[i] == node) return i;
+            throw new IllegalStateException("Entry not indexed at node");
+        }
+    }
+
+    /** A run of a node's postings, in posting order. */
+    private static final class Block {
+        Entry[] entries;
+        long[] prefixes; // their Entry.prefixes, so other query words can be checked without visiting them
+        int count;
+
+        Block(int capacity) {
+            entries = new Entry[capacity];
+            prefixes = new long[capacity];
+        }
+
+        void insert(int at, Entry e) {
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, Math.min(count * 2, POSTING_BLOCK));
+                prefixes = Arrays.copyOf(prefixes, entries.length);
+            }
+            System.arraycopy(entries, at, entries, at + 1, count - at);
+            System.arraycopy(prefixes, at, prefixes, at + 1, count - at);
+            entries[at] = e;
+            prefixes[at] = e.prefixes;
+            count++;
+        }
+
+        void remove(int at) {
+            System.arraycopy(entries, at + 1, entries, at, count - at - 1);
+            System.arraycopy(prefixes, at + 1, prefixes, at, count - at - 1);
+            entries[--count] = null;
+            if (entries.length > 4 && count < entries.length / 4) {
+                entries = Arrays.copyOf(entries, entries.length / 2);
+                prefixes = Arrays.copyOf(prefixes, entries.length);
+            }
+        }
+
+        // move the upper half into a new block
+        Block split() {
+            int half = count / 2;
+            Block upper = new Block(POSTING_BLOCK);
+            upper.count = count - half;
+            System.arraycopy(entries, half, upper.entries, 0, upper.count);
+            System.arraycopy(prefixes, half, upper.prefixes, 0, upper.count);
+            Arrays.fill(entries, half, count, null);
+            count = half;
+            return upper;
+        }
+    }
+
+    /** Radix trie node; the path from the root spells a token prefix. */
+    private static final class Node {
+        String label; // edge from the parent
+        Node[] children = NO_CHILDREN; // sorted by the first char of their label
+        // products with a token ending here, in posting order; in blocks of at most POSTING_BLOCK, so that
+        // keeping the order on an update moves a bounded number of them
+        Block[] blocks = NO_BLOCKS;
+        int postingCount;
+        int subtreeCount; // postings in this node and below
+        boolean unsorted; // appended to during a bulk update, sorted when it ends
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char k = children[mid].label.charAt(0);
+                if (k < c) lo = mid + 1;
+                else if (k > c) hi = mid - 1;
+                else return children[mid];
+            }
+            return null;
+        }
+
+        void putChild(Node child) {
+            char c = child.label.charAt(0);
+            int i = 0;
+            while (i < children.length && children[i].label.charAt(0) < c) i++;
+            if (i < children.length && children[i].label.charAt(0) == c) {
+                children[i] = child;
+                return;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, i);
+            grown[i] = child;
+            System.arraycopy(children, i, grown, i + 1, children.length - i);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int i = Arrays.asList(children).indexOf(child);
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, i);
+            System.arraycopy(children, i + 1, shrunk, i, children.length - i - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        // the rank among products matching at this node: earlier token in the name, shorter name, then id
+        int compare(Entry a, Entry b) {
+            int c = Integer.compare(a.tokenIndex(this), b.tokenIndex(this));
+            if (c == 0) c = Integer.compare(a.name.length(), b.name.length());
+            if (c == 0) c = a.product.getId().compareTo(b.product.getId());
+            return c;
+        }
+
+        // the last block starting at or before e, when sorted
+        int blockFor(Entry e) {
+            int lo = 1;
+            int hi = blocks.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(blocks[mid].entries[0], e) <= 0) lo = mid + 1;
+                else hi = mid - 1;
+            }
+            return lo - 1;
+        }
+
+        // where e is in block b, or -(insertion point) - 1
+        int indexOf(int b, Entry e) {
+            Block k = blocks[b];
+            int lo = 0;
+            int hi = k.count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(k.entries[mid], e);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -lo - 1;
+        }
+
+        void addPosting(Entry e, int tokenIndex, boolean append) {
+            e.nodes[tokenIndex] = this;
+            if (blocks.length == 0) blocks = new Block[] { new Block(2) };
+            int b = append ? blocks.length - 1 : blockFor(e);
+            if (blocks[b].count == POSTING_BLOCK) {
+                Block upper = append ? new Block(2) : blocks[b].split();
+                blocks = Arrays.copyOf(blocks, blocks.length + 1);
+                System.arraycopy(blocks, b + 1, blocks, b + 2, blocks.length - b - 2);
+                blocks[b + 1] = upper;
+                if (append || compare(upper.entries[0], e) <= 0) b++;
+            }
+            blocks[b].insert(append ? blocks[b].count : -indexOf(b, e) - 1, e);
+            postingCount++;
+            if (append) unsorted = true;
+        }
+
+        void removePosting(Entry e) {
+            int b = 0;
+            int at = -1;
+            if (unsorted) {
+                for (; b < blocks.length && at < 0; b++) {
+                    for (int i = 0; i < blocks[b].count; i++) {
+                        if (blocks[b].entries[i] == e) {
+                            at = i;
+                            break;
+                        }
+                    }
+                }
+                b--;
+            } else {
+                b = blockFor(e);
+                at = indexOf(b, e);
+            }
+            if (at < 0) throw new IllegalStateException("Entry not indexed at node");
+            blocks[b].remove(at);
+            postingCount--;
+            if (blocks[b].count == 0) {
+                Block[] shrunk = new Block[blocks.length - 1];
+                System.arraycopy(blocks, 0, shrunk, 0, b);
+                System.arraycopy(blocks, b + 1, shrunk, b, blocks.length - b - 1);
+                blocks = shrunk.length == 0 ? NO_BLOCKS : shrunk;
+            }
+        }
+
+        void sortPostings() {
+            unsorted = false;
+            if (blocks.length == 0) return;
+            Entry[] all = new Entry[postingCount];
+            int n = 0;
+            for (Block k : blocks) {
+                System.arraycopy(k.entries, 0, all, n, k.count);
+                n += k.count;
+            }
+            Arrays.sort(all, this::compare);
+            blocks = new Block[(postingCount + POSTING_BLOCK - 1) / POSTING_BLOCK];
+            for (int b = 0; b < blocks.length; b++) {
+                int from = b * POSTING_BLOCK;
+                int to = Math.min(postingCount, from + POSTING_BLOCK);
+                Block k = new Block(Math.max(2, to - from));
+                for (int i = from; i < to; i++) k.insert(i - from, all[i]);
+                blocks[b] = k;
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by lock
+    private final Node root = new Node("");
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    ProductSearchIndex() {
+    }
+
+    /** Products indexed. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The best matches for the query, best first; empty for a query without letters or digits.
+     * @param limit most products returned
+     */
+    public List<Product> search(String query, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be >= 1");
+        String[] words = tokenize(query);
+        if (words.length == 0) return List.of();
+        lock.readLock().lock();
+        try {
+            return find(words, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bring the index in line with the catalog for one id. The product is read under the write lock, so however
+     * concurrent catalog writers interleave, the last sync of an id leaves its current version indexed.
+     * @param current the catalog's product for an id, or null when there is none
+     */
+    void sync(String id, Function<String, Product> current) {
+        syncAll(List.of(id), current);
+    }
+
+    /** {@link #sync} for each id, under one hold of the write lock. */
+    void syncAll(Collection<String> ids, Function<String, Product> current) {
+        boolean bulk = ids.size() >= BULK_UPDATES;
+        List<Node> touched = bulk ? new ArrayList<>() : null;
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Product p = current.apply(id);
+                Entry old = entries.get(id);
+                if (p == null) {
+                    if (old != null) unindex(entries.remove(id));
+                    continue;
+                }
+                if (old != null && old.name.equals(p.getName())) {
+                    old.product = p; // a price or unit change: same tokens, same place in the trie
+                    continue;
+                }
+                if (old != null) unindex(old);
+                Entry e = new Entry(p, tokens(p));
+                entries.put(id, e);
+                for (int i = 0; i < e.tokens.length; i++) insert(e.tokens[i], e, i, touched);
+            }
+            if (bulk) for (Node n : touched) n.sortPostings();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- query ----------------------------------------------------------------------------------------------
+
+    private record Candidate(Entry entry, int length, int position) { }
+
+    private static final Comparator<Candidate> RANK = Comparator.comparingInt(Candidate::length)
+            .thenComparingInt(Candidate::position)
+            .thenComparingInt(c -> c.entry().name.length())
+            .thenComparing(c -> c.entry().product.getId());
+
+    private record Pending(Node node, int length) { }
+
+    private List<Product> find(String[] words, int limit) {
+        // walk from the most selective word; the others are checked per product
+        Pending start = null;
+        int driver = -1;
+        for (int w = 0; w < words.length; w++) {
+            Pending located = locate(words[w]);
+            if (located == null) return List.of();
+            if (start == null || located.node().subtreeCount < start.node().subtreeCount) {
+                start = located;
+                driver = w;
+            }
+        }
+
+        long need = 0;
+        for (int w = 0; w < words.length; w++) {
+            if (w == driver) continue;
+            for (int n = 1; n <= Math.min(words[w].length(), PREFIX_BITS); n++) need |= prefixBit(words[w], n);
+        }
+
+        List<Product> found = new ArrayList<>(Math.min(limit, 64));
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        PriorityQueue<Pending> queue = new PriorityQueue<>(Comparator.comparingInt(Pending::length));
+        queue.add(start);
+        List<Candidate> level = new ArrayList<>();
+        while (!queue.isEmpty() && found.size() < limit) {
+            int length = queue.peek().length();
+            int room = limit - found.size();
+            while (!queue.isEmpty() && queue.peek().length() == length) {
+                Node n = queue.poll().node();
+                // postings are in rank order: the first matches of each node are all this length can use
+                int taken = 0;
+                for (int b = 0; b < n.blocks.length && taken < room; b++) {
+                    Block k = n.blocks[b];
+                    for (int i = 0; i < k.count && taken < room; i++) {
+                        if ((k.prefixes[i] & need) != need) continue;
+                        Entry e = k.entries[i];
+                        if (!matchesAll(e, words, driver) || !seen.add(e)) continue;
+                        level.add(new Candidate(e, length, e.tokenIndex(n)));
+                        taken++;
+                    }
+                }
+                for (Node c : n.children) queue.add(new Pending(c, length + c.label.length()));
+            }
+            level.sort(RANK);
+            for (int i = 0; i < level.size() && i < room; i++) found.add(level.get(i).entry().product);
+            level.clear();
+        }
+        return found;
+    }
+
+    private static boolean matchesAll(Entry e, String[] words, int skip) {
+        for (int w = 0; w < words.length; w++) {
+            if (w == skip) continue;
+            boolean match = false;
+            for (String t : e.tokens) {
+                if (t.startsWith(words[w])) {
+                    match = true;
+                    break;
+                }
+            }
+            if (!match) return false;
+        }
+        return true;
+    }
+
+    // the node whose subtree holds exactly the tokens starting with prefix, and the length of the string it
+    // spells (which may run past the prefix); null when no token starts with prefix
+    private Pending locate(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) return null;
+            String label = child.label;
+            int n = Math.min(label.length(), prefix.length() - i);
+            if (!prefix.regionMatches(i, label, 0, n)) return null;
+            i += label.length();
+            node = child;
+        }
+        return new Pending(node, i);
+    }
+
+    // ---- updates --------------------------------------------------------------------------------------------
+
+    // touched collects the nodes appended to when not null
+    private void insert(String token, Entry e, int tokenIndex, List<Node> touched) {
+        Node node = root;
+        node.subtreeCount++;
+        int i = 0;
+        while (i < token.length()) {
+            Node child = node.child(token.charAt(i));
+            if (child == null) {
+                child = new Node(token.substring(i));
+                node.putChild(child);
+                child.subtreeCount++;
+                post(child, e, tokenIndex, touched);
+                return;
+            }
+            String label = child.label;
+            int common = 1;
+            int max = Math.min(label.length(), token.length() - i);
+            while (common < max && label.charAt(common) == token.charAt(i + common)) common++;
+            if (common < label.length()) {
+                // split the edge: node -> mid -> child
+                Node mid = new Node(label.substring(0, common));
+                mid.subtreeCount = child.subtreeCount;
+                node.putChild(mid); // before relabelling child, while the children are still in order
+                child.label = label.substring(common);
+                mid.children = new Node[] { child };
+                child = mid;
+            }
+            child.subtreeCount++;
+            node = child;
+            i += common;
+        }
+        post(node, e, tokenIndex, touched);
+    }
+
+    private static void post(Node node, Entry e, int tokenIndex, List<Node> touched) {
+        if (touched != null && !node.unsorted) touched.add(node);
+        node.addPosting(e, tokenIndex, touched != null);
+    }
+
+    private void unindex(Entry e) {
+        for (int i = 0; i < e.tokens.length; i++) remove(e.tokens[i], e, i);
+    }
+
+    private void remove(String token, Entry e, int tokenIndex) {
+        Node end = e.nodes[tokenIndex];
+        end.removePosting(e);
+        // walk down again to fix counts and drop or merge nodes that no longer branch
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (node != end) {
+            node = node.child(token.charAt(i));
+            i += node.label.length();
+            path.add(node);
+        }
+        for (Node n : path) n.subtreeCount--;
+        for (int p = path.size() - 1; p > 0; p--) {
+            Node n = path.get(p);
+            Node parent = path.get(p - 1);
+            if (n.postingCount > 0) break;
+            if (n.children.length == 0) {
+                parent.removeChild(n);
+            } else if (n.children.length == 1) {
+                Node only = n.children[0];
+                only.label = n.label + only.label;
+                parent.putChild(only);
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    // ---- tokens ---------------------------------------------------------------------------------------------
+
+    // a one-bit hash of the first n chars of a token; a product that lacks any of the bits of a query word's first
+    // PREFIX_BITS prefixes has no token starting with the word
+    private static long prefixBit(String token, int n) {
+        int h = n;
+        for (int i = 0; i < n; i++) h = h * 31 + token.charAt(i);
+        h ^= h >>> 16;
+        return 1L << (h & 63);
+    }
+
+    private static String[] tokens(Product p) {
+        String[] name = tokenize(p.getName());
+        String[] id = tokenize(p.getId());
+        List<String> all = new ArrayList<>(name.length + id.length);
+        for (String t : name) if (!all.contains(t)) all.add(t);
+        for (String t : id) if (!all.contains(t)) all.add(t);
+        return all.toArray(String[]::new);
+    }
+
+    /** Lower-cased, accent-free runs of letters and digits. */
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        String folded = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else if (!sb.isEmpty()) {
+                tokens.add(sb.toString().toLowerCase(Locale.ROOT));
+                sb.setLength(0);
+            }
+        }
+        if (!sb.isEmpty()) tokens.add(sb.toString().toLowerCase(Locale.ROOT));
+        return tokens.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage behind a {@link ProductCatalog}, keyed by product id. Implementations decide on memory layout
+ * and thread-safety; all of them keep insertion order (an update keeps the original position).
+ */
+interface ProductStore {
+
+    /** @return the product or null */
+    Product get(String id);
+
+    /** Insert or overwrite. @return previous product or null */
+    Product put(Product product);
+
+    /** Overwrite only if the id is present. @return previous product, or null if nothing was stored */
+    Product replace(Product product);
+
+    /** @return removed product or null */
+    Product remove(String id);
+
+    /** Upserts first, then removals. Atomic only where the implementation says so. */
+    default void applyChanges(Collection<Product> upserts, Collection<String> removedIds) {
+        for (Product p : upserts) put(p);
+        for (String id : removedIds) remove(id);
+    }
+
+    /** Insertion-ordered copy of all products. */
+    List<Product> values();
+
+    int size();
+}
@@ -0,0 +1,33 @@
+package org.example.service;
+
+import org.example.model.Promotion;
+
+/**
+ * How one buy-X-get-Y promotion was used on a piece line: {@code groups} groups covering {@code units} pieces,
+ * {@code freeUnits} of which are not charged. A trailing group may be partial (more than buy but fewer than
+ * buy+free pieces), in which case only the pieces beyond buy are free.
+ */
+public class PromotionApplication {
+    private final Promotion promotion;
+    private final long groups;
+    private final long units;
+    private final long freeUnits;
+
+    public PromotionApplication(Promotion promotion, long groups, long units, long freeUnits) {
+        this.promotion = promotion;
+        this.groups = groups;
+        this.units = units;
+        this.freeUnits = freeUnits;
+    }
+
+    public Promotion getPromotion() { return promotion; }
+    public long getGroups() { return groups; }
+    public long getUnits() { return units; }
+    public long getFreeUnits() { return freeUnits; }
+
+    @Override
+    public String toString() {
+        return "buy " + promotion.getBuy() + " get " + promotion.getFree() + " free x" + groups
+                + " (" + units + " units, " + freeUnits + " free)";
+    }
+}
@@ -0,0 +1,369 @@
+package org.example.service;
+
+import org.example.model.BasketThresholdRule;
+import org.example.model.BundlePriceRule;
+import org.example.model.PromotionRule;
+import org.example.model.WeightDiscountRule;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Evaluates a promotion calendar of bundle, weight and basket-threshold rules against a priced basket.
+ * <p>
+ * Rules are compiled once into an index: product id to its own rules, product id to the groups it belongs to,
+ * and group id to the group's rules. Evaluating a basket only touches the rules reachable from its lines, so
+ * the cost grows with the basket, not with the size of the calendar. Basket thresholds are kept sorted by
+ * minimum spend with running maxima, which finds the best qualifying one by binary search.
+ * <p>
+ * Item rules are applied greedily: the rule saving the most on the pieces/weight not yet used by another rule
+ * goes first (ties in basket order), until nothing saves anything. A piece or weight line is discounted by at
+ * most one rule. The best basket rule is then applied to what is left. Immutable and safe to share between lanes.
+ */
+public final class PromotionEngine {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final PromotionRule[] NO_RULES = new PromotionRule[0];
+    private static final String[] NO_GROUPS = new String[0];
+
+    private final Map<String, PromotionRule[]> rulesByProduct;
+    private final Map<String, String[]> groupsByProduct;
+    private final Map<String, PromotionRule[]> rulesByGroup;
+    private final int ruleCount;
+
+    // basket rules sorted by minSpend; best amount/percent rule among the first i+1
+    private final BigDecimal[] thresholdMinSpend;
+    private final BasketThresholdRule[] bestAmountUpTo;
+    private final BasketThresholdRule[] bestPercentUpTo;
+
+    private PromotionEngine(Builder b) {
+        rulesByProduct = freeze(b.rulesByProduct);
+        rulesByGroup = freeze(b.rulesByGroup);
+        Map<String, String[]> groups = new HashMap<>();
+        for (Map.Entry<String, List<String>> e : b.groupsByProduct.entrySet()) {
+            groups.put(e.getKey(), e.getValue().toArray(NO_GROUPS));
+        }
+        groupsByProduct = groups;
+        ruleCount = b.ruleCount;
+
+        List<BasketThresholdRule> thresholds = new ArrayList<>(b.thresholds);
+        thresholds.sort(Comparator.comparing(BasketThresholdRule::getMinSpend));
+        int n = thresholds.size();
+        thresholdMinSpend = new BigDecimal[n];
+        bestAmountUpTo = new BasketThresholdRule[n];
+        bestPercentUpTo = new BasketThresholdRule[n];
+        BasketThresholdRule bestAmount = null;
+        BasketThresholdRule bestPercent = null;
+        for (int i = 0; i < n; i++) {
+            BasketThresholdRule r = thresholds.get(i);
+            thresholdMinSpend[i] = r.getMinSpend();
+            if (r.getAmountOff() != null && (bestAmount == null || r.getAmountOff().compareTo(bestAmount.getAmountOff()) > 0)) bestAmount = r;
+            if (r.getPercentOff() != null && (bestPercent == null || r.getPercentOff().compareTo(bestPercent.getPercentOff()) > 0)) bestPercent = r;
+            bestAmountUpTo[i] = bestAmount;
+            bestPercentUpTo[i] = bestPercent;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Number of rules in the calendar. */
+    public int size() {
+        return ruleCount;
+    }
+
+    /**
+     * Promotions for a priced basket. Unit prices and quantities are taken from the result's lines; lines that
+     * already carry a buy-X-get-Y {@link org.example.model.Promotion} are left to it.
+     */
+    public List<AppliedPromotion> evaluate(Checkout.Result result) {
+        return evaluate(result.engineItems(), result.getTotal());
+    }
+
+    /**
+     * What item rules need of a priced line without a buy-X-get-Y promotion, so that results of a full recompute
+     * are evaluated from their columns without building PriceLines. weight is null for piece lines.
+     */
+    record Item(String productId, BigDecimal unitPrice, int pieces, BigDecimal weight, BigDecimal lineTotal) {
+        static Item of(Checkout.PriceLine l) {
+            BigDecimal qty = l.getQuantityPieces();
+            return new Item(l.getProduct().getId(), l.getUnitPrice(), qty == null ? 0 : qty.intValue(), l.getWeight(), l.getLineTotal());
+        }
+    }
+
+    List<AppliedPromotion> evaluate(List<Item> lines, BigDecimal basketTotal) {
+        // rules reachable from the basket, each with the lines it can use (in basket order)
+        Map<PromotionRule, List<Integer>> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String id = lines.get(i).productId();
+            for (PromotionRule r : rulesByProduct.getOrDefault(id, NO_RULES)) addCandidate(candidates, r, i);
+            for (String group : groupsByProduct.getOrDefault(id, NO_GROUPS)) {
+                for (PromotionRule r : rulesByGroup.getOrDefault(group, NO_RULES)) addCandidate(candidates, r, i);
+            }
+        }
+
+        List<AppliedPromotion> applied = new ArrayList<>();
+        BigDecimal discount = BigDecimal.ZERO;
+        if (!candidates.isEmpty()) {
+            // Lazy greedy: using up pieces or weight never makes another rule save more, so a queued saving is an
+            // upper bound. Only the head is replanned, and only if one of its lines changed since it was planned.
+            Basket basket = new Basket(lines);
+            PriorityQueue<Plan> queue = new PriorityQueue<>(candidates.size(),
+                    (a, b) -> {
+                        int c = b.saving.compareTo(a.saving);
+                        return c != 0 ? c : Integer.compare(a.order, b.order);
+                    });
+            int order = 0;
+            for (Map.Entry<PromotionRule, List<Integer>> c : candidates.entrySet()) {
+                Plan plan = plan(c.getKey(), c.getValue(), basket, order++);
+                if (plan != null) queue.add(plan);
+            }
+            while (!queue.isEmpty()) {
+                Plan head = queue.poll();
+                if (basket.changedSince(head)) {
+                    Plan replanned = plan(head.rule, candidates.get(head.rule), basket, head.order);
+                    if (replanned != null) queue.add(replanned);
+                    continue;
+                }
+                basket.consume(head);
+                applied.add(head.toApplied(lines));
+                discount = discount.add(head.saving);
+            }
+        }
+
+        BigDecimal remaining = basketTotal.subtract(discount);
+        AppliedPromotion basketPromo = bestThreshold(remaining);
+        if (basketPromo != null) applied.add(basketPromo);
+        return applied;
+    }
+
+    private static void addCandidate(Map<PromotionRule, List<Integer>> candidates, PromotionRule rule, int line) {
+        List<Integer> lines = candidates.computeIfAbsent(rule, r -> new ArrayList<>(2));
+        if (lines.isEmpty() || lines.get(lines.size() - 1).intValue() != line) lines.add(line);
+    }
+
+    private static Plan plan(PromotionRule rule, List<Integer> lineIndexes, Basket basket, int order) {
+        if (rule instanceof BundlePriceRule b) return planBundle(b, lineIndexes, basket, order);
+        if (rule instanceof WeightDiscountRule w) return planWeight(w, lineIndexes, basket, order);
+        return null;
+    }
+
+    // most expensive pieces first; bundle savings only shrink from there, so stop at the first that saves nothing
+    private static Plan planBundle(BundlePriceRule rule, List<Integer> lineIndexes, Basket basket, int order) {
+        // positions into lineIndexes that still have pieces, most expensive first
+        List<Integer> byPrice = new ArrayList<>(lineIndexes.size());
+        for (int k = 0; k < lineIndexes.size(); k++) if (basket.pieces[lineIndexes.get(k)] > 0) byPrice.add(k);
+        if (byPrice.isEmpty()) return null;
+        byPrice.sort((a, b) -> unitPrice(basket, lineIndexes, b).compareTo(unitPrice(basket, lineIndexes, a)));
+
+        int n = rule.getQuantity();
+        int[] taken = new int[lineIndexes.size()];
+        BigDecimal saving = BigDecimal.ZERO;
+        int bundles = 0;
+        int pos = 0;
+        while (pos < byPrice.size()) {
+            int k = byPrice.get(pos);
+            int left = basket.pieces[lineIndexes.get(k)] - taken[k];
+            if (left >= n) {
+                // whole bundles from a single line all save the same
+                BigDecimal each = unitPrice(basket, lineIndexes, k).multiply(BigDecimal.valueOf(n)).subtract(rule.getPrice());
+                if (each.signum() <= 0) break;
+                int times = left / n;
+                saving = saving.add(each.multiply(BigDecimal.valueOf(times)));
+                bundles += times;
+                taken[k] += times * n;
+                if (left == times * n) pos++;
+                continue;
+            }
+            // one bundle spanning lines: the rest of this line plus the next cheaper ones
+            BigDecimal sum = BigDecimal.ZERO;
+            int need = n;
+            int end = pos;
+            for (; need > 0 && end < byPrice.size(); end++) {
+                int e = byPrice.get(end);
+                int t = Math.min(need, basket.pieces[lineIndexes.get(e)] - taken[e]);
+                sum = sum.add(unitPrice(basket, lineIndexes, e).multiply(BigDecimal.valueOf(t)));
+                need -= t;
+            }
+            if (need > 0) break;
+            BigDecimal each = sum.subtract(rule.getPrice());
+            if (each.signum() <= 0) break;
+            need = n;
+            for (int q = pos; q < end; q++) {
+                int e = byPrice.get(q);
+                int t = Math.min(need, basket.pieces[lineIndexes.get(e)] - taken[e]);
+                taken[e] += t;
+                need -= t;
+            }
+            saving = saving.add(each);
+            bundles++;
+            while (pos < byPrice.size() && basket.pieces[lineIndexes.get(byPrice.get(pos))] == taken[byPrice.get(pos)]) pos++;
+        }
+        if (bundles == 0) return null;
+        return new Plan(rule, lineIndexes, bundles, taken, saving, order, basket.stamp);
+    }
+
+    private static BigDecimal unitPrice(Basket basket, List<Integer> lineIndexes, int k) {
+        return basket.lines.get(lineIndexes.get(k)).unitPrice();
+    }
+
+    private static Plan planWeight(WeightDiscountRule rule, List<Integer> lineIndexes, Basket basket, int order) {
+        int[] taken = null;
+        BigDecimal saving = BigDecimal.ZERO;
+        for (int k = 0; k < lineIndexes.size(); k++) {
+            int i = lineIndexes.get(k);
+            Item l = basket.lines.get(i);
+            if (l.weight() == null || basket.weightUsed[i] || l.weight().compareTo(rule.getMinWeight()) < 0) continue;
+            BigDecimal off = l.lineTotal().multiply(rule.getPercentOff()).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            if (off.signum() <= 0) continue;
+            if (taken == null) taken = new int[lineIndexes.size()];
+            taken[k] = 1;
+            saving = saving.add(off);
+        }
+        if (taken == null) return null;
+        return new Plan(rule, lineIndexes, 1, taken, saving, order, basket.stamp);
+    }
+
+    private AppliedPromotion bestThreshold(BigDecimal spend) {
+        int k = upperBound(spend);
+        if (k == 0) return null;
+        BasketThresholdRule best = null;
+        BigDecimal bestOff = BigDecimal.ZERO;
+        BasketThresholdRule amount = bestAmountUpTo[k - 1];
+        if (amount != null) {
+            best = amount;
+            bestOff = amount.getAmountOff().min(spend);
+        }
+        BasketThresholdRule percent = bestPercentUpTo[k - 1];
+        if (percent != null) {
+            BigDecimal off = spend.multiply(percent.getPercentOff()).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            if (best == null || off.compareTo(bestOff) > 0) {
+                best = percent;
+                bestOff = off;
+            }
+        }
+        if (bestOff.signum() <= 0) return null;
+        return new AppliedPromotion(best, 1, List.of(), bestOff);
+    }
+
+    // number of thresholds with minSpend <= spend
+    private int upperBound(BigDecimal spend) {
+        int lo = 0;
+        int hi = thresholdMinSpend.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholdMinSpend[mid].compareTo(spend) <= 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static Map<String, PromotionRule[]> freeze(Map<String, List<PromotionRule>> map) {
+        Map<String, PromotionRule[]> frozen = new HashMap<>(map.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<PromotionRule>> e : map.entrySet()) frozen.put(e.getKey(), e.getValue().toArray(NO_RULES));
+        return frozen;
+    }
+
+    /** What is still available for item rules. */
+    private static final class Basket {
+        final List<Item> lines;
+        final int[] pieces;
+        final boolean[] weightUsed;
+        final int[] changedAt; // stamp of the last consume that touched each line
+        int stamp;
+
+        Basket(List<Item> lines) {
+            this.lines = lines;
+            pieces = new int[lines.size()];
+            weightUsed = new boolean[lines.size()];
+            changedAt = new int[lines.size()];
+            for (int i = 0; i < lines.size(); i++) pieces[i] = lines.get(i).pieces();
+        }
+
+        void consume(Plan plan) {
+            stamp++;
+            for (int k = 0; k < plan.taken.length; k++) {
+                if (plan.taken[k] == 0) continue;
+                int i = plan.lineIndexes.get(k);
+                if (lines.get(i).weight() != null) weightUsed[i] = true;
+                else pieces[i] -= plan.taken[k];
+                changedAt[i] = stamp;
+            }
+        }
+
+        boolean changedSince(Plan plan) {
+            for (int i : plan.lineIndexes) if (changedAt[i] > plan.plannedAt) return true;
+            return false;
+        }
+    }
+
+    /**
+     * A rule's best use of what was available at stamp plannedAt. taken[k] is the number of pieces (or 1 for a
+     * whole weight line) used from line lineIndexes[k]; order breaks ties in basket order.
+     */
+    private record Plan(PromotionRule rule, List<Integer> lineIndexes, int times, int[] taken,
+                        BigDecimal saving, int order, int plannedAt) {
+        AppliedPromotion toApplied(List<Item> lines) {
+            List<String> ids = new ArrayList<>();
+            for (int k = 0; k < taken.length; k++) {
+                if (taken[k] > 0) ids.add(lines.get(lineIndexes.get(k)).productId());
+            }
+            return new AppliedPromotion(rule, times, ids, saving);
+        }
+    }
+
+    /**
+     * Collects groups and rules; {@link #build()} compiles the index. Not thread-safe.
+     */
+    public static final class Builder {
+        private final Map<String, List<PromotionRule>> rulesByProduct = new HashMap<>();
+        private final Map<String, List<PromotionRule>> rulesByGroup = new HashMap<>();
+        private final Map<String, List<String>> groupsByProduct = new HashMap<>();
+        private final Set<String> groups = new HashSet<>();
+        private final Set<String> ruleIds = new HashSet<>();
+        private final List<BasketThresholdRule> thresholds = new ArrayList<>();
+        private int ruleCount;
+
+        private Builder() { }
+
+        /** Define (or extend) a product group that mix-and-match and weight rules can target. */
+        public Builder group(String groupId, Collection<String> productIds) {
+            Objects.requireNonNull(groupId);
+            groups.add(groupId);
+            for (String id : productIds) {
+                List<String> memberOf = groupsByProduct.computeIfAbsent(id, k -> new ArrayList<>(1));
+                if (!memberOf.contains(groupId)) memberOf.add(groupId);
+            }
+            return this;
+        }
+
+        /** @throws IllegalArgumentException for a duplicate rule id */
+        public Builder add(PromotionRule rule) {
+            if (!ruleIds.add(rule.getId())) throw new IllegalArgumentException("Duplicate promotion rule id: " + rule.getId());
+            ruleCount++;
+            if (rule instanceof BasketThresholdRule t) {
+                thresholds.add(t);
+            } else if (rule.getProductId() != null) {
+                rulesByProduct.computeIfAbsent(rule.getProductId(), k -> new ArrayList<>(1)).add(rule);
+            } else {
+                rulesByGroup.computeIfAbsent(rule.getGroupId(), k -> new ArrayList<>(1)).add(rule);
+            }
+            return this;
+        }
+
+        public Builder addAll(Collection<? extends PromotionRule> rules) {
+            for (PromotionRule r : rules) add(r);
+            return this;
+        }
+
+        /** @throws IllegalStateException if a rule targets a group that was never defined */
+        public PromotionEngine build() {
+            for (String group : rulesByGroup.keySet()) {
+                if (!groups.contains(group)) throw new IllegalStateException("Promotion rule targets unknown group: " + group);
+            }
+            return new PromotionEngine(this);
+        }
+    }
+}
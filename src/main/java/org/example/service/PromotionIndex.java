@@ -0,0 +1,51 @@
+package org.example.service;
+
+import org.example.model.Promotion;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buy-X-get-Y promotions compiled once into a lookup by product id, for any number of {@link Checkout}s to share
+ * (see {@link Checkout#sharing(PromotionIndex, boolean)}) instead of each building its own from the promotion
+ * list. Promotions for one product keep their registration order; a repeated buy/free deal is kept once.
+ * <p>
+ * Immutable and safe to share between lanes; promotions added to one Checkout stay with that Checkout.
+ */
+public final class PromotionIndex {
+
+    private static final PromotionIndex EMPTY = new PromotionIndex(Map.of(), 0);
+
+    private final Map<String, Promotion[]> byProduct;
+    private final int size;
+
+    private PromotionIndex(Map<String, Promotion[]> byProduct, int size) {
+        this.byProduct = byProduct;
+        this.size = size;
+    }
+
+    /** @param promotions the promotions to index (may be null) */
+    public static PromotionIndex of(Collection<Promotion> promotions) {
+        if (promotions == null || promotions.isEmpty()) return EMPTY;
+        Map<String, Promotion[]> byProduct = new HashMap<>();
+        for (Promotion p : promotions) byProduct.compute(p.getProductId(), (id, existing) -> PromotionSolver.with(existing, p));
+        int size = 0;
+        for (Promotion[] promos : byProduct.values()) size += promos.length;
+        return new PromotionIndex(byProduct, size);
+    }
+
+    public static PromotionIndex empty() {
+        return EMPTY;
+    }
+
+    /** Distinct promotions indexed. */
+    public int size() {
+        return size;
+    }
+
+    /** Promotions of a product in registration order, or null; callers must not modify the array. */
+    Promotion[] get(String productId) {
+        return byProduct.get(productId);
+    }
+}
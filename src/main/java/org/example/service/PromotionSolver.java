@@ -0,0 +1,166 @@
+package org.example.service;
+
+import org.example.model.Promotion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cheapest use of several buy-X-get-Y promotions that all apply to one product. Every piece is either charged
+ * at full price or belongs to one group of one promotion; a group of r pieces under "buy b get f" (b < r <= b+f)
+ * is charged b pieces. Since all pieces of a line cost the same, this minimizes the number of charged pieces.
+ * <p>
+ * Solved exactly by dynamic programming over the quantity. Large quantities are first reduced: there is an
+ * optimal answer that uses fewer than s groups of anything other than the promotion with the lowest charged
+ * share (s being its group size), because any s such groups contain a subset whose sizes add up to a multiple
+ * of s and could be regrouped under it at no extra cost. So all but about s * maxGroupSize pieces go straight into its
+ * groups and the table stays small. If the deadline passes anyway, the best single promotion is used instead.
+ * Stateless.
+ */
+final class PromotionSolver {
+
+    // larger tables only come from absurd group sizes; treat them like a blown deadline
+    private static final int MAX_TABLE = 1 << 22;
+    private static final int CHECK_EVERY = 1024;
+
+    private PromotionSolver() { }
+
+    /** Chargeable pieces and the groups formed; {@code optimal} is false when the greedy fallback was used. */
+    record Allocation(long chargeableUnits, List<PromotionApplication> applications, boolean optimal) { }
+
+    /**
+     * @param promotions   at least one, all for the same product
+     * @param deadlineNanos System.nanoTime() value after which the exact search gives up
+     */
+    static Allocation solve(long qty, Promotion[] promotions, long deadlineNanos) {
+        if (qty <= 0) return new Allocation(Math.max(0, qty), List.of(), true);
+        if (promotions.length == 1) return single(qty, promotions[0]);
+
+        // the promotion charging the smallest share of its group
+        Promotion best = null;
+        int maxSize = 1;
+        for (Promotion p : promotions) {
+            int size = p.getBuy() + p.getFree();
+            maxSize = Math.max(maxSize, size);
+            if (p.getFree() > 0 && (best == null
+                    || (long) p.getBuy() * (best.getBuy() + best.getFree()) < (long) best.getBuy() * size)) best = p;
+        }
+        if (best == null) return new Allocation(qty, List.of(), true); // nothing is ever free
+
+        int bestSize = best.getBuy() + best.getFree();
+        long bound = (long) bestSize * maxSize;
+        long pre = qty > bound ? (qty - bound) / bestSize : 0;
+        long remaining = qty - pre * bestSize;
+        if (remaining > MAX_TABLE) return greedy(qty, promotions);
+        int rest = (int) remaining;
+
+        int[] cost = new int[rest + 1]; // charged pieces for exactly q pieces
+        int[] choiceSize = new int[rest + 1]; // size of the last group (1 = a piece at full price)
+        int[] choicePromo = new int[rest + 1]; // promotion of the last group, -1 for full price
+        long cells = 0;
+        for (int q = 1; q <= rest; q++) {
+            if (cells >= CHECK_EVERY) {
+                if (System.nanoTime() - deadlineNanos > 0) return greedy(qty, promotions);
+                cells = 0;
+            }
+            int c = cost[q - 1] + 1;
+            int size = 1;
+            int promo = -1;
+            for (int j = 0; j < promotions.length; j++) {
+                Promotion p = promotions[j];
+                int b = p.getBuy();
+                int top = Math.min(q, b + p.getFree());
+                cells += Math.max(1, top - b);
+                for (int r = top; r > b; r--) {
+                    int candidate = cost[q - r] + b;
+                    if (candidate < c) {
+                        c = candidate;
+                        size = r;
+                        promo = j;
+                    }
+                }
+            }
+            cost[q] = c;
+            choiceSize[q] = size;
+            choicePromo[q] = promo;
+        }
+
+        long[] groups = new long[promotions.length];
+        long[] units = new long[promotions.length];
+        long[] free = new long[promotions.length];
+        int bestIndex = indexOf(promotions, best);
+        groups[bestIndex] = pre;
+        units[bestIndex] = pre * bestSize;
+        free[bestIndex] = pre * best.getFree();
+        for (int q = rest; q > 0; q -= choiceSize[q]) {
+            int j = choicePromo[q];
+            if (j < 0) continue;
+            groups[j]++;
+            units[j] += choiceSize[q];
+            free[j] += choiceSize[q] - promotions[j].getBuy();
+        }
+        return new Allocation(pre * best.getBuy() + cost[rest], applications(promotions, groups, units, free), true);
+    }
+
+    /** One promotion alone: buy for every full group of buy+free, then at most buy for a trailing partial group. */
+    static Allocation single(long qty, Promotion p) {
+        int size = p.getBuy() + p.getFree();
+        long full = qty / size;
+        long remainder = qty % size;
+        boolean partial = remainder > p.getBuy();
+        long groups = full + (partial ? 1 : 0);
+        long units = full * size + (partial ? remainder : 0);
+        long free = full * p.getFree() + (partial ? remainder - p.getBuy() : 0);
+        List<PromotionApplication> apps = groups == 0 || free == 0
+                ? List.of()
+                : List.of(new PromotionApplication(p, groups, units, free));
+        return new Allocation(qty - free, apps, true);
+    }
+
+    /** {@code existing} plus {@code p}, unless an identical buy/free deal is already there. */
+    static Promotion[] with(Promotion[] existing, Promotion p) {
+        if (existing == null) return new Promotion[] { p };
+        for (Promotion e : existing) {
+            if (e.getBuy() == p.getBuy() && e.getFree() == p.getFree()) return existing;
+        }
+        Promotion[] grown = Arrays.copyOf(existing, existing.length + 1);
+        grown[existing.length] = p;
+        return grown;
+    }
+
+    /**
+     * The one promotion to report for a line: the applied one covering the most pieces, or the first
+     * registered when none applied. With a single promotion this is always that promotion.
+     */
+    static Promotion primary(Promotion[] promotions, Allocation allocation) {
+        PromotionApplication top = null;
+        for (PromotionApplication a : allocation.applications()) {
+            if (top == null || a.getUnits() > top.getUnits()) top = a;
+        }
+        return top != null ? top.getPromotion() : promotions[0];
+    }
+
+    // best single promotion on its own
+    private static Allocation greedy(long qty, Promotion[] promotions) {
+        Allocation best = null;
+        for (Promotion p : promotions) {
+            Allocation a = single(qty, p);
+            if (best == null || a.chargeableUnits() < best.chargeableUnits()) best = a;
+        }
+        return new Allocation(best.chargeableUnits(), best.applications(), false);
+    }
+
+    private static List<PromotionApplication> applications(Promotion[] promotions, long[] groups, long[] units, long[] free) {
+        List<PromotionApplication> apps = new ArrayList<>(2);
+        for (int j = 0; j < promotions.length; j++) {
+            if (free[j] > 0) apps.add(new PromotionApplication(promotions[j], groups[j], units[j], free[j]));
+        }
+        return apps;
+    }
+
+    private static int indexOf(Promotion[] promotions, Promotion p) {
+        for (int j = 0; j < promotions.length; j++) if (promotions[j] == p) return j;
+        throw new AssertionError();
+    }
+}
@@ -1,47 +1,302 @@
 package org.example.service;
 
+import org.example.metrics.ReceiptRenderEvent;
+import org.example.metrics.StoreMetrics;
 import org.example.model.Promotion;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
-import java.util.Map;
-import java.util.StringJoiner;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Small pretty printer for the receipt (plain-text).
+ * <p>
+ * Receipts can be rendered straight into an {@link Appendable} (StringBuilder, Writer, ...) or a ByteBuffer
+ * (UTF-8). Money ({@code #,##0.00}) and weights ({@code #,##0.000}) are formatted by hand with the same
+ * HALF_EVEN rounding and default-locale symbols DecimalFormat would use, without building intermediate
+ * strings. All methods are stateless and safe to call from any number of threads. Render times are recorded in
+ * {@link StoreMetrics#global()} and as {@link ReceiptRenderEvent}s.
  */
 public class ReceiptPrinter {
 
-    private static final DecimalFormat moneyFmt = new DecimalFormat("#,##0.00");
-    private static final DecimalFormat weightFmt = new DecimalFormat("#,##0.000");
+    private static final StoreMetrics METRICS = StoreMetrics.global();
+
+    private static final String HEADER = "===== Grocery Store Receipt =====\n";
+    private static final String RULE = "-----------------------------------------------\n";
+    private static final String FOOTER = "===============================================\n";
+
+    // symbols of the default locale at class initialization, like the DecimalFormat instances used to capture
+    private static final DecimalFormatSymbols SYMBOLS = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+    private static final char ZERO = SYMBOLS.getZeroDigit();
+    private static final char GROUPING = SYMBOLS.getGroupingSeparator();
+    private static final char DECIMAL = SYMBOLS.getDecimalSeparator();
+    // some locales add bidi marks around the minus sign, so take the affixes DecimalFormat derives
+    private static final String NEGATIVE_PREFIX = new DecimalFormat("#,##0.00", SYMBOLS).getNegativePrefix();
+    private static final String NEGATIVE_SUFFIX = new DecimalFormat("#,##0.00", SYMBOLS).getNegativeSuffix();
+
+    private static final long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+    private static final long NO_FIT = Long.MIN_VALUE;
 
     public static String print(Checkout.Result result) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== Grocery Store Receipt =====\n");
-        sb.append(String.format("%-20s %10s %10s %10s\n", "Item", "Qty/Weight", "Unit", "Line"));
-        sb.append("-----------------------------------------------\n");
-
-        for (Map.Entry<String, Checkout.PriceLine> e : result.getLines().entrySet()) {
-            Checkout.PriceLine l = e.getValue();
-            String name = l.getProduct().getName();
-            String qtyDisplay;
+        StringBuilder sb = new StringBuilder(256 + 64 * result.getLines().size());
+        print(result, sb);
+        return sb.toString();
+    }
+
+    /** Append the receipt to a StringBuilder. */
+    public static void print(Checkout.Result result, StringBuilder out) {
+        try {
+            render(result, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
+        }
+    }
+
+    /** Append the receipt to any Appendable, e.g. a Writer. The Appendable is neither flushed nor closed. */
+    public static void print(Checkout.Result result, Appendable out) throws IOException {
+        render(result, out);
+    }
+
+    /**
+     * Write the receipt as UTF-8 at the buffer's position (heap or direct).
+     * @throws java.nio.BufferOverflowException if the buffer runs out of space; the receipt is then partially written
+     */
+    public static void print(Checkout.Result result, ByteBuffer out) {
+        try {
+            render(result, new Utf8Sink(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Utf8Sink does not throw
+        }
+    }
+
+    private static void render(Checkout.Result result, Appendable out) throws IOException {
+        ReceiptRenderEvent event = new ReceiptRenderEvent();
+        event.begin();
+        long started = METRICS.startTimer();
+        renderLines(result, out);
+        METRICS.receiptDone(started);
+        if (event.shouldCommit()) {
+            event.lines = result.getLines().size();
+            event.commit();
+        }
+    }
+
+    private static void renderLines(Checkout.Result result, Appendable out) throws IOException {
+        out.append(HEADER);
+        padRight(out, "Item", 20);
+        out.append(' ');
+        padLeft(out, "Qty/Weight", 10);
+        out.append(' ');
+        padLeft(out, "Unit", 10);
+        out.append(' ');
+        padLeft(out, "Line", 10);
+        out.append('\n');
+        out.append(RULE);
+
+        for (Checkout.PriceLine l : result.getLines().values()) {
+            padRight(out, l.getProduct().getName(), 20);
+            out.append(' ');
             if (l.getQuantityPieces() != null) {
-                qtyDisplay = l.getQuantityPieces().toBigInteger().toString();
+                integer(out, l.getQuantityPieces(), 10);
             } else {
-                qtyDisplay = weightFmt.format(l.getWeight());
+                decimal(out, l.getWeight(), 3, 10);
             }
-            String unit = moneyFmt.format(l.getUnitPrice());
-            String line = moneyFmt.format(l.getLineTotal());
-            sb.append(String.format("%-20s %10s %10s %10s\n", name, qtyDisplay, unit, line));
-            Promotion p = l.getPromotion();
-            if (p != null) {
-                sb.append(String.format("   -> Promotion: buy %d get %d free\n", p.getBuy(), p.getFree()));
+            out.append(' ');
+            decimal(out, l.getUnitPrice(), 2, 10);
+            out.append(' ');
+            decimal(out, l.getLineTotal(), 2, 10);
+            out.append('\n');
+            List<PromotionApplication> applications = l.getPromotionApplications();
+            if (applications.size() > 1) {
+                // a combination of deals: one line each, with the number of groups formed
+                for (PromotionApplication a : applications) {
+                    promotion(out, a.getPromotion());
+                    out.append(" x");
+                    digits(out, a.getGroups(), ZERO);
+                    out.append('\n');
+                }
+            } else if (l.getPromotion() != null) {
+                promotion(out, l.getPromotion());
+                out.append('\n');
             }
         }
-        sb.append("-----------------------------------------------\n");
-        sb.append(String.format("%-42s %10s\n", "Savings:", moneyFmt.format(result.getSavings())));
-        sb.append(String.format("%-42s %10s\n", "TOTAL:", moneyFmt.format(result.getTotal())));
-        sb.append("===============================================\n");
-        return sb.toString();
+        for (AppliedPromotion a : result.getAppliedPromotions()) {
+            out.append("   -> ");
+            padRight(out, a.getRule().getDescription(), 36);
+            out.append(' ');
+            decimal(out, a.getDiscount().negate(), 2, 10);
+            out.append('\n');
+        }
+        out.append(RULE);
+        padRight(out, "Savings:", 42);
+        out.append(' ');
+        decimal(out, result.getSavings(), 2, 10);
+        out.append('\n');
+        padRight(out, "TOTAL:", 42);
+        out.append(' ');
+        decimal(out, result.getTotal(), 2, 10);
+        out.append('\n');
+        out.append(FOOTER);
+    }
+
+    private static void promotion(Appendable out, Promotion p) throws IOException {
+        out.append("   -> Promotion: buy ");
+        digits(out, p.getBuy(), ZERO);
+        out.append(" get ");
+        digits(out, p.getFree(), ZERO);
+        out.append(" free");
+    }
+
+    // %-Ns
+    private static void padRight(Appendable out, String s, int width) throws IOException {
+        if (s == null) s = "null";
+        out.append(s);
+        for (int i = s.length(); i < width; i++) out.append(' ');
+    }
+
+    // %Ns
+    private static void padLeft(Appendable out, String s, int width) throws IOException {
+        for (int i = s.length(); i < width; i++) out.append(' ');
+        out.append(s);
+    }
+
+    private static void spaces(Appendable out, int n) throws IOException {
+        for (int i = 0; i < n; i++) out.append(' ');
+    }
+
+    // BigDecimal.toBigInteger().toString(), right-aligned
+    private static void integer(Appendable out, BigDecimal value, int width) throws IOException {
+        if (value.precision() - value.scale() > 18) {
+            padLeft(out, value.toBigInteger().toString(), width);
+            return;
+        }
+        long v = value.longValue(); // truncates like toBigInteger
+        int length = digitCount(Math.abs(v)) + (v < 0 ? 1 : 0);
+        spaces(out, width - length);
+        if (v < 0) out.append('-');
+        digits(out, Math.abs(v), '0');
+    }
+
+    // DecimalFormat "#,##0.0..0" with the given number of fraction digits, right-aligned
+    private static void decimal(Appendable out, BigDecimal value, int fractionDigits, int width) throws IOException {
+        long scaled = scaled(value, fractionDigits);
+        if (scaled == NO_FIT) {
+            padLeft(out, fallbackFormat(fractionDigits).format(value), width);
+            return;
+        }
+        boolean negative = value.signum() < 0; // DecimalFormat keeps the sign of values that round to zero
+        long abs = Math.abs(scaled);
+        long whole = abs / POW10[fractionDigits];
+        long fraction = abs % POW10[fractionDigits];
+        int wholeDigits = digitCount(whole);
+        int length = wholeDigits + (wholeDigits - 1) / 3 + 1 + fractionDigits
+                + (negative ? NEGATIVE_PREFIX.length() + NEGATIVE_SUFFIX.length() : 0);
+        spaces(out, width - length);
+        if (negative) out.append(NEGATIVE_PREFIX);
+        for (int i = wholeDigits - 1; i >= 0; i--) {
+            out.append((char) (ZERO + (whole / POW10[i]) % 10));
+            if (i > 0 && i % 3 == 0) out.append(GROUPING);
+        }
+        out.append(DECIMAL);
+        for (int i = fractionDigits - 1; i >= 0; i--) out.append((char) (ZERO + (fraction / POW10[i]) % 10));
+        if (negative) out.append(NEGATIVE_SUFFIX);
+    }
+
+    /**
+     * The value in units of 10^-fractionDigits, rounded HALF_EVEN, or NO_FIT if that is not comfortably within
+     * a long (then the caller falls back to DecimalFormat).
+     */
+    private static long scaled(BigDecimal value, int fractionDigits) {
+        int scale = value.scale();
+        int precision = value.precision();
+        if (precision > 18) return NO_FIT;
+        if (scale <= fractionDigits) {
+            int shift = fractionDigits - scale;
+            if (precision + shift > 18) return NO_FIT;
+            // scale 0 keeps the compact long representation, so longValue() does not allocate
+            return value.scaleByPowerOfTen(scale).longValue() * POW10[shift];
+        }
+        int drop = scale - fractionDigits;
+        if (drop > 18) return 0; // |value| < 10^-fractionDigits / 2 for sure
+        long unscaled = value.scaleByPowerOfTen(scale).longValue();
+        long divisor = POW10[drop];
+        long q = unscaled / divisor;
+        long r = Math.abs(unscaled % divisor);
+        if (r * 2 > divisor || (r * 2 == divisor && (q & 1) != 0)) q += unscaled < 0 ? -1 : 1;
+        return q;
+    }
+
+    private static DecimalFormat fallbackFormat(int fractionDigits) {
+        return new DecimalFormat(fractionDigits == 3 ? "#,##0.000" : "#,##0.00", SYMBOLS);
+    }
+
+    // non-negative value, no grouping
+    private static void digits(Appendable out, long v, char zero) throws IOException {
+        for (int i = digitCount(v) - 1; i >= 0; i--) out.append((char) (zero + (v / POW10[i]) % 10));
+    }
+
+    private static int digitCount(long v) {
+        int n = 1;
+        while (n < POW10.length && v >= POW10[n]) n++;
+        return n;
+    }
+
+    /** Encodes chars as UTF-8 into a ByteBuffer as they are appended. */
+    private static final class Utf8Sink implements Appendable {
+        private final ByteBuffer out;
+        private char highSurrogate;
+
+        Utf8Sink(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) append(csq.charAt(i));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(high, c);
+                    out.put((byte) (0xF0 | cp >> 18))
+                            .put((byte) (0x80 | (cp >> 12 & 0x3F)))
+                            .put((byte) (0x80 | (cp >> 6 & 0x3F)))
+                            .put((byte) (0x80 | (cp & 0x3F)));
+                    return this;
+                }
+                out.put((byte) '?'); // unpaired, as String.getBytes(UTF_8) does
+            }
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | (c >> 6 & 0x3F))).put((byte) (0x80 | (c & 0x3F)));
+            }
+            return this;
+        }
     }
 }
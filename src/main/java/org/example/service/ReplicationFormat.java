@@ -0,0 +1,159 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Catalog replication protocol over TCP. All numbers are big-endian.
+ * <pre>
+ * replica -&gt; primary, once per connection
+ *   int   magic 'GREP'
+ *   int   protocol version
+ *   long  epoch of the primary the replica's state came from (0 = none)
+ *   long  offset the replica has applied up to
+ * primary -&gt; replica, frames
+ *   int   length of what follows
+ *   byte  frame type, then
+ *     SNAPSHOT_PART  int count, product x count          (a snapshot is one or more parts ...)
+ *     SNAPSHOT_END   long epoch, long offset             (... then this; the catalog is exactly the parts' products)
+ *     BATCH          long offset, int upserts, product x upserts, int removals, string x removals
+ *     HEARTBEAT      long offset of the newest batch
+ * product = byte unit type ordinal, decimal price, string id, string name (as in {@link JournalFormat})
+ * </pre>
+ * Strings are written with an unsigned short length, so ids and names longer than {@link #MAX_STRING_BYTES} UTF-8
+ * bytes cannot be replicated: batches with one are rejected before they are applied, snapshots leave them out.
+ * Offsets number the primary's batches from 1 and are only meaningful within one epoch, a random number the
+ * primary picks when it starts. A replica from another epoch, or whose offset is no longer retained, gets a
+ * snapshot. A batch is encoded once and the same bytes go to every replica.
+ */
+final class ReplicationFormat {
+
+    static final int MAGIC = 0x47524550; // "GREP"
+    static final int PROTOCOL_VERSION = 1;
+    static final int HELLO_SIZE = 24;
+    // where the offset sits in a BATCH frame
+    static final int BATCH_OFFSET_POSITION = 5;
+
+    static final byte SNAPSHOT_PART = 1;
+    static final byte SNAPSHOT_END = 2;
+    static final byte BATCH = 3;
+    static final byte HEARTBEAT = 4;
+
+    // far above any real frame; a larger length means a broken stream
+    static final int MAX_FRAME = 64 << 20;
+    // products per snapshot part
+    static final int SNAPSHOT_PART_PRODUCTS = 4096;
+    static final int MAX_STRING_BYTES = 0xFFFF;
+
+    private ReplicationFormat() { }
+
+    static byte[] hello(long epoch, long offset) {
+        return ByteBuffer.allocate(HELLO_SIZE).putInt(MAGIC).putInt(PROTOCOL_VERSION).putLong(epoch).putLong(offset).array();
+    }
+
+    /** @throws IllegalArgumentException if an id or name is too long for the protocol */
+    static byte[] batch(long offset, Collection<Product> upserts, Collection<String> removedIds) {
+        int size = 4 + 1 + 8 + 4 + 4;
+        for (Product p : upserts) size += productSize(p);
+        for (String id : removedIds) size += stringSize(id);
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.position(4);
+        out.put(BATCH).putLong(offset);
+        out.putInt(upserts.size());
+        for (Product p : upserts) putProduct(out, p);
+        out.putInt(removedIds.size());
+        for (String id : removedIds) JournalFormat.putString(out, id);
+        return finish(out);
+    }
+
+    /** @throws IllegalArgumentException if an id or name is too long for the protocol, see {@link #encodable} */
+    static byte[] snapshotPart(List<Product> products, int from, int to) {
+        int size = 4 + 1 + 4;
+        for (int i = from; i < to; i++) size += productSize(products.get(i));
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.position(4);
+        out.put(SNAPSHOT_PART).putInt(to - from);
+        for (int i = from; i < to; i++) putProduct(out, products.get(i));
+        return finish(out);
+    }
+
+    static byte[] snapshotEnd(long epoch, long offset) {
+        return ByteBuffer.allocate(4 + 1 + 16).putInt(1 + 16).put(SNAPSHOT_END).putLong(epoch).putLong(offset).array();
+    }
+
+    static byte[] heartbeat(long offset) {
+        return ByteBuffer.allocate(4 + 1 + 8).putInt(1 + 8).put(HEARTBEAT).putLong(offset).array();
+    }
+
+    /**
+     * Next frame, type byte first; null at a clean end of stream.
+     * @throws IOException if the stream breaks off inside a frame or the length is impossible
+     */
+    static ByteBuffer readFrame(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException end) {
+            return null;
+        }
+        if (length < 1 || length > MAX_FRAME) throw new IOException("Bad replication frame length " + length);
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return ByteBuffer.wrap(frame);
+    }
+
+    static List<Product> readProducts(ByteBuffer in) {
+        int count = in.getInt();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) products.add(JournalFormat.readProduct(in));
+        return products;
+    }
+
+    static List<String> readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) strings.add(JournalFormat.getString(in));
+        return strings;
+    }
+
+    // sizes are upper bounds (see JournalFormat.decimalSize): fill in the length and trim
+    private static byte[] finish(ByteBuffer out) {
+        int end = out.position();
+        out.putInt(0, end - 4);
+        return end == out.capacity() ? out.array() : Arrays.copyOf(out.array(), end);
+    }
+
+    /** Whether the product's id and name fit in a frame. */
+    static boolean encodable(Product p) {
+        return JournalFormat.utf8Length(p.getId()) <= MAX_STRING_BYTES && JournalFormat.utf8Length(p.getName()) <= MAX_STRING_BYTES;
+    }
+
+    private static int productSize(Product p) {
+        return 1 + JournalFormat.decimalSize(p.getPricePerUnit()) + stringSize(p.getId()) + stringSize(p.getName());
+    }
+
+    // checked here because JournalFormat.putString would silently truncate the length
+    private static int stringSize(String s) {
+        int bytes = JournalFormat.utf8Length(s);
+        if (bytes > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Id or name of " + bytes + " UTF-8 bytes cannot be replicated (at most "
+                    + MAX_STRING_BYTES + "): " + s.substring(0, Math.min(s.length(), 40)) + "...");
+        }
+        return 2 + bytes;
+    }
+
+    private static void putProduct(ByteBuffer out, Product p) {
+        out.put((byte) p.getUnitType().ordinal());
+        JournalFormat.putDecimal(out, p.getPricePerUnit());
+        JournalFormat.putString(out, p.getId());
+        JournalFormat.putString(out, p.getName());
+    }
+}
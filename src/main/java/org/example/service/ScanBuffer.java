@@ -0,0 +1,216 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Packed storage for the scans of one basket. Instead of a ScannedItem object (and a BigDecimal per weighed
+ * item) per scan it keeps three columns in chunks: the scanned Product reference, the amount (pieces, or weight in
+ * millionths of the pricing unit) and the weight's decimal scale, about 13 bytes per scan with compressed
+ * references. (A per-basket product dictionary with int codes would be no smaller and costs a map entry per
+ * distinct product.) Past the first chunk, which starts small and doubles, growing
+ * allocates one more chunk and never copies earlier ones.
+ * Weights that do not fit the columns (more than six decimals, or a huge scale) are kept as BigDecimal in a
+ * side map, so every scan comes back exactly as it was given.
+ * <p>
+ * {@link #view()} materializes equal ScannedItems on demand. Not thread-safe.
+ */
+final class ScanBuffer {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+    // most baskets are small: the first chunk starts at this size and doubles until it is full-sized
+    private static final int FIRST_CHUNK = 16;
+    // scale column value for weights kept in the side map; piece scans store 0
+    private static final byte SIDE = Byte.MIN_VALUE;
+
+    private Product[][] productChunks = new Product[1][];
+    private long[][] amountChunks = new long[1][];
+    private byte[][] scaleChunks = new byte[1][];
+    private int size;
+
+    // scan index -> weight, for weights the columns cannot hold exactly
+    private final Map<Integer, BigDecimal> sideWeights = new HashMap<>();
+
+    private final List<ScannedItem> view = new View();
+
+    int size() {
+        return size;
+    }
+
+    void add(ScannedItem item) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == productChunks.length) {
+            productChunks = Arrays.copyOf(productChunks, chunk * 2);
+            amountChunks = Arrays.copyOf(amountChunks, chunk * 2);
+            scaleChunks = Arrays.copyOf(scaleChunks, chunk * 2);
+        }
+        int slot = size & MASK;
+        if (productChunks[chunk] == null) {
+            int length = chunk == 0 ? FIRST_CHUNK : CHUNK;
+            productChunks[chunk] = new Product[length];
+            amountChunks[chunk] = new long[length];
+            scaleChunks[chunk] = new byte[length];
+        } else if (slot == productChunks[chunk].length) {
+            productChunks[chunk] = Arrays.copyOf(productChunks[chunk], slot * 2);
+            amountChunks[chunk] = Arrays.copyOf(amountChunks[chunk], slot * 2);
+            scaleChunks[chunk] = Arrays.copyOf(scaleChunks[chunk], slot * 2);
+        }
+        productChunks[chunk][slot] = item.getProduct();
+        if (item.isPiece()) {
+            amountChunks[chunk][slot] = item.getQuantity();
+            scaleChunks[chunk][slot] = 0;
+        } else {
+            BigDecimal weight = item.getWeight();
+            int scale = weight.scale();
+            long micro = packedWeight(weight);
+            if (micro >= 0 && scale > SIDE && scale <= Byte.MAX_VALUE) {
+                amountChunks[chunk][slot] = micro;
+                scaleChunks[chunk][slot] = (byte) scale;
+            } else {
+                sideWeights.put(size, weight);
+                scaleChunks[chunk][slot] = SIDE;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Forget every scan. The first chunk is kept for the next basket, later ones are dropped so that one very
+     * large basket does not pin its buffers for good.
+     */
+    void clear() {
+        if (productChunks[0] != null) Arrays.fill(productChunks[0], 0, Math.min(size, productChunks[0].length), null);
+        for (int c = 1; c < productChunks.length; c++) {
+            productChunks[c] = null;
+            amountChunks[c] = null;
+            scaleChunks[c] = null;
+        }
+        sideWeights.clear();
+        size = 0;
+    }
+
+    ScannedItem remove(int index) {
+        ScannedItem removed = get(index);
+        // shift everything after the index down by one, chunk by chunk
+        for (int i = index; i < size - 1; ) {
+            int chunk = i >>> CHUNK_BITS;
+            int slot = i & MASK;
+            int inChunk = Math.min(CHUNK - 1 - slot, size - 1 - i);
+            System.arraycopy(productChunks[chunk], slot + 1, productChunks[chunk], slot, inChunk);
+            System.arraycopy(amountChunks[chunk], slot + 1, amountChunks[chunk], slot, inChunk);
+            System.arraycopy(scaleChunks[chunk], slot + 1, scaleChunks[chunk], slot, inChunk);
+            i += inChunk;
+            if (i < size - 1) {
+                // first element of the next chunk moves to the last slot of this one
+                productChunks[chunk][CHUNK - 1] = productChunks[chunk + 1][0];
+                amountChunks[chunk][CHUNK - 1] = amountChunks[chunk + 1][0];
+                scaleChunks[chunk][CHUNK - 1] = scaleChunks[chunk + 1][0];
+                i++;
+            }
+        }
+        if (!sideWeights.isEmpty()) shiftSideWeights(index);
+        size--;
+        productChunks[size >>> CHUNK_BITS][size & MASK] = null;
+        return removed;
+    }
+
+    ScannedItem get(int index) {
+        checkIndex(index);
+        Product p = product(index);
+        if (p.getUnitType() == UnitType.PIECE) return ScannedItem.ofPieces(p, quantity(index));
+        return ScannedItem.ofWeight(p, weight(index));
+    }
+
+    Product product(int index) {
+        return productChunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    /** Pieces of a piece scan. */
+    int quantity(int index) {
+        return (int) amountChunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    /** Weight of a weighed scan, exactly as scanned. */
+    BigDecimal weight(int index) {
+        byte scale = scaleChunks[index >>> CHUNK_BITS][index & MASK];
+        if (scale == SIDE) return sideWeights.get(index);
+        return BigDecimal.valueOf(amountChunks[index >>> CHUNK_BITS][index & MASK], 6).setScale(scale);
+    }
+
+    /**
+     * Weight of a weighed scan in millionths of the pricing unit, or -1 if it has more than six decimals.
+     * Lets aggregation sum weights as longs.
+     */
+    long weightMicros(int index) {
+        return scaleChunks[index >>> CHUNK_BITS][index & MASK] == SIDE ? -1 : amountChunks[index >>> CHUNK_BITS][index & MASK];
+    }
+
+    /** Index of the last scan equal to the item, or -1; compares the columns without materializing items. */
+    int lastIndexOf(ScannedItem item) {
+        Product product = item.getProduct();
+        long amount = item.isPiece() ? item.getQuantity() : packedWeight(item.getWeight());
+        int scale = item.isPiece() ? 0 : item.getWeight().scale();
+        for (int i = size - 1; i >= 0; i--) {
+            if (productChunks[i >>> CHUNK_BITS][i & MASK] != product) continue;
+            byte s = scaleChunks[i >>> CHUNK_BITS][i & MASK];
+            if (s == SIDE ? sideWeights.get(i).equals(item.getWeight())
+                    : s == scale && amountChunks[i >>> CHUNK_BITS][i & MASK] == amount) return i;
+        }
+        return -1;
+    }
+
+    /** Unmodifiable live view of the scans, in scan order. */
+    List<ScannedItem> view() {
+        return view;
+    }
+
+    private static long packedWeight(BigDecimal weight) {
+        try {
+            return weight.movePointRight(6).longValueExact();
+        } catch (ArithmeticException ex) {
+            return -1;
+        }
+    }
+
+    private void shiftSideWeights(int removed) {
+        Map<Integer, BigDecimal> shifted = new HashMap<>();
+        for (Map.Entry<Integer, BigDecimal> e : sideWeights.entrySet()) {
+            int i = e.getKey();
+            if (i != removed) shifted.put(i > removed ? i - 1 : i, e.getValue());
+        }
+        sideWeights.clear();
+        sideWeights.putAll(shifted);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+    }
+
+    private final class View extends AbstractList<ScannedItem> implements RandomAccess {
+        @Override
+        public ScannedItem get(int index) {
+            return ScanBuffer.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return o instanceof ScannedItem item ? ScanBuffer.this.lastIndexOf(item) : -1;
+        }
+    }
+}
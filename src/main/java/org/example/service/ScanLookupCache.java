@@ -0,0 +1,152 @@
+package org.example.service;
+
+import org.example.metrics.StoreMetrics;
+import org.example.model.Product;
+
+import java.util.Arrays;
+
+/**
+ * Per-lane cache in front of {@link ProductCatalog#getProductByCode(long)}: the hot SKUs of a lane are answered
+ * from primitive arrays without touching the shared catalog, and codes the catalog does not know are remembered
+ * too (negative caching), so a stream of bad scans does not hit the catalog either. Lookups never allocate.
+ * <p>
+ * Both caches are 4-way set-associative and evict the least recently used entry of a set. Unknown codes live in
+ * a separate, smaller table so they cannot push out hot products. Every change to the catalog's products or
+ * codes empties the cache on the next lookup; during a CSV import that is only once the import has finished.
+ * <p>
+ * Not thread-safe: give each lane its own.
+ */
+public final class ScanLookupCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_NEGATIVE_CAPACITY = 256;
+
+    private static final int WAYS = 4;
+    private static final StoreMetrics METRICS = StoreMetrics.global();
+
+    private final ProductCatalog catalog;
+    private final Table products;
+    private final Table unknown;
+    private long seenChanges;
+    private long tick;
+
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    public ScanLookupCache(ProductCatalog catalog) {
+        this(catalog, DEFAULT_CAPACITY, DEFAULT_NEGATIVE_CAPACITY);
+    }
+
+    /**
+     * @param capacity         products to keep, rounded up to a power of two (at least 4)
+     * @param negativeCapacity unknown codes to keep, rounded the same way
+     */
+    public ScanLookupCache(ProductCatalog catalog, int capacity, int negativeCapacity) {
+        if (capacity <= 0 || negativeCapacity <= 0) throw new IllegalArgumentException("Capacities must be > 0");
+        this.catalog = catalog;
+        this.products = new Table(capacity);
+        this.unknown = new Table(negativeCapacity);
+        this.seenChanges = catalog.changeCount();
+    }
+
+    /** @return the product for a barcode / PLU code, or null if the catalog has none */
+    public Product lookup(long code) {
+        if (code <= 0) return null; // never assigned, and 0 marks empty slots
+        // read before asking the catalog: a change after this point is caught by the next lookup
+        long changes = catalog.changeCount();
+        if (changes != seenChanges) {
+            products.clear();
+            unknown.clear();
+            seenChanges = changes;
+        }
+        tick++;
+        int slot = products.find(code);
+        if (slot >= 0) {
+            products.used[slot] = tick;
+            hits++;
+            METRICS.scanCacheLookup(true);
+            return products.values[slot];
+        }
+        slot = unknown.find(code);
+        if (slot >= 0) {
+            unknown.used[slot] = tick;
+            negativeHits++;
+            METRICS.scanCacheLookup(true);
+            return null;
+        }
+        misses++;
+        METRICS.scanCacheLookup(false);
+        Product p = catalog.getProductByCode(code);
+        if (p != null ? products.add(code, p, tick) : unknown.add(code, null, tick)) evictions++;
+        return p;
+    }
+
+    public void clear() {
+        products.clear();
+        unknown.clear();
+    }
+
+    /** Lookups answered with a cached product. */
+    public long getHits() { return hits; }
+    /** Lookups answered from the unknown-code cache. */
+    public long getNegativeHits() { return negativeHits; }
+    /** Lookups that went to the catalog. */
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+
+    /** Share of lookups that did not reach the catalog; 0 before the first lookup. */
+    public double getHitRate() {
+        long answered = hits + negativeHits;
+        long total = answered + misses;
+        return total == 0 ? 0 : (double) answered / total;
+    }
+
+    private static final class Table {
+        final long[] codes; // 0 = empty
+        final Product[] values;
+        final long[] used; // tick of the last hit, for LRU within a set
+        final int setMask;
+
+        Table(int capacity) {
+            int wanted = (capacity + WAYS - 1) / WAYS;
+            int sets = wanted <= 1 ? 1 : Integer.highestOneBit(wanted - 1) << 1;
+            codes = new long[sets * WAYS];
+            values = new Product[sets * WAYS];
+            used = new long[sets * WAYS];
+            setMask = sets - 1;
+        }
+
+        int find(long code) {
+            int base = ProductCodeIndex.slot(code, setMask) * WAYS;
+            for (int i = base; i < base + WAYS; i++) {
+                if (codes[i] == code) return i;
+            }
+            return -1;
+        }
+
+        // @return true if a live entry had to be evicted
+        boolean add(long code, Product value, long tick) {
+            int base = ProductCodeIndex.slot(code, setMask) * WAYS;
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (codes[i] == 0) {
+                    victim = i;
+                    break;
+                }
+                if (used[i] < used[victim]) victim = i;
+            }
+            boolean evicted = codes[victim] != 0;
+            codes[victim] = code;
+            values[victim] = value;
+            used[victim] = tick;
+            return evicted;
+        }
+
+        void clear() {
+            Arrays.fill(codes, 0);
+            Arrays.fill(values, null);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Store that publishes every change as a new immutable {@link CatalogSnapshot}. Readers only dereference the
+ * current snapshot (a volatile read) and never block; writers are serialized and each one swaps in a new
+ * version that shares all untouched structure with the previous one.
+ */
+final class VersionedProductStore implements ProductStore {
+
+    private volatile CatalogSnapshot current = CatalogSnapshot.EMPTY;
+
+    CatalogSnapshot snapshot() {
+        return current;
+    }
+
+    @Override
+    public Product get(String id) {
+        return current.get(id);
+    }
+
+    @Override
+    public synchronized Product put(Product product) {
+        CatalogSnapshot.Builder b = current.edit();
+        Product previous = b.put(product);
+        current = b.build();
+        return previous;
+    }
+
+    @Override
+    public synchronized Product replace(Product product) {
+        if (current.get(product.getId()) == null) return null;
+        return put(product);
+    }
+
+    @Override
+    public synchronized Product remove(String id) {
+        CatalogSnapshot.Builder b = current.edit();
+        Product removed = b.remove(id);
+        current = b.build();
+        return removed;
+    }
+
+    /** All upserts and removals become visible together, as a single new version. */
+    @Override
+    public synchronized void applyChanges(Collection<Product> upserts, Collection<String> removedIds) {
+        CatalogSnapshot.Builder b = current.edit();
+        for (Product p : upserts) b.put(p);
+        for (String id : removedIds) b.remove(id);
+        current = b.build();
+    }
+
+    @Override
+    public List<Product> values() {
+        return current.listAll();
+    }
+
+    @Override
+    public int size() {
+        return current.size();
+    }
+}
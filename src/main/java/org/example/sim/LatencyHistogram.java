@@ -0,0 +1,64 @@
+package org.example.sim;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds: exact below 128ns, then 64 buckets per power of two, so
+ * any recorded value is reported within about 1.6%. Fixed size (a few thousand counters) regardless of how
+ * many values are recorded. Not thread-safe; give each lane its own and {@link #add(LatencyHistogram) merge}.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long max;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[index(nanos)]++;
+        count++;
+        if (nanos > max) max = nanos;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() { return count; }
+
+    public long getMax() { return max; }
+
+    /**
+     * Smallest recorded value v (to bucket precision) such that at least {@code percentile}% of the values are
+     * less than or equal to v; 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("percentile must be within 0..100");
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, highestEquivalent(i));
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < 2 * SUB_COUNT) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (v >>> shift);
+    }
+
+    // largest value that lands in bucket i
+    private static long highestEquivalent(int i) {
+        if (i < 2 * SUB_COUNT) return i;
+        int shift = i / SUB_COUNT - 1;
+        long mantissa = i % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
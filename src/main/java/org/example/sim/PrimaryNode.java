@@ -0,0 +1,72 @@
+package org.example.sim;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.CatalogPrimary;
+import org.example.service.ProductCatalog;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A catalog primary as its own process, for {@link ReplicaNode}s to follow:
+ * <pre>
+ * java -cp target/classes org.example.sim.PrimaryNode port [catalog.csv]
+ * </pre>
+ * Port 0 picks a free port. Prints {@code listening on <port>}, publishes the catalog CSV (if given) as the first
+ * batch, then publishes one batch per line read from standard input, in the change feed's format
+ * ({@code U,id,name,unitType,price} or {@code D,id}). Prints {@code offset <n> products <m>} after every batch and
+ * exits when standard input is closed or reads "quit".
+ */
+public final class PrimaryNode {
+
+    private PrimaryNode() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: PrimaryNode port [catalog.csv]");
+            System.exit(2);
+        }
+        // versioned, so replicas joining take their snapshot without holding up publish
+        ProductCatalog catalog = ProductCatalog.versioned();
+        try (CatalogPrimary primary = CatalogPrimary.start(catalog, new InetSocketAddress(Integer.parseInt(args[0])))) {
+            System.out.println("listening on " + primary.getPort());
+            if (args.length > 1) {
+                ProductCatalog initial = new ProductCatalog();
+                initial.loadFromCsv(Path.of(args[1]));
+                report(primary.publish(initial.listAll(), List.of()), catalog);
+            }
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("quit")) {
+                String[] f = line.split(",", -1);
+                String op = f[0].trim();
+                try {
+                    if (op.equalsIgnoreCase("U") && f.length == 5) {
+                        Product p = new Product(f[1].trim(), f[2].trim(), UnitType.valueOf(f[3].trim().toUpperCase(Locale.ROOT)),
+                                new BigDecimal(f[4].trim()));
+                        report(primary.publish(List.of(p), List.of()), catalog);
+                    } else if (op.equalsIgnoreCase("D") && f.length == 2) {
+                        report(primary.publish(List.of(), List.of(f[1].trim())), catalog);
+                    } else if (!line.isBlank()) {
+                        System.err.println("skipped: " + line);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // unknown unit type or a bad price
+                    System.err.println("skipped: " + line);
+                }
+            }
+        }
+    }
+
+    private static void report(long offset, ProductCatalog catalog) {
+        System.out.println("offset " + offset + " products " + catalog.size());
+        System.out.flush();
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.sim;
+
+import org.example.service.CatalogReplica;
+import org.example.service.ProductCatalog;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * A catalog replica as its own process, for running a primary and many replicas on one machine:
+ * <pre>
+ * java -cp target/classes org.example.sim.ReplicaNode host port [checkpointDir]
+ * </pre>
+ * Prints {@code offset <n> products <m>} once connected and whenever the applied offset changes. Exits, after a
+ * final checkpoint, when standard input is closed or reads "quit".
+ */
+public final class ReplicaNode {
+
+    private ReplicaNode() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: ReplicaNode host port [checkpointDir]");
+            System.exit(2);
+        }
+        InetSocketAddress primary = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        CatalogReplica.Options options = CatalogReplica.Options.defaults().withReconnectDelay(Duration.ofMillis(50));
+        if (args.length > 2) options = options.withCheckpointDir(Path.of(args[2])).withCheckpointInterval(Duration.ofMillis(100));
+        ProductCatalog catalog = ProductCatalog.versioned();
+
+        Thread stdin = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null && !line.equals("quit")) {
+                    // keep waiting
+                }
+            } catch (Exception ignored) {
+                // treated like end of input
+            }
+        }, "replica-node-stdin");
+        stdin.setDaemon(true);
+        stdin.start();
+
+        try (CatalogReplica replica = CatalogReplica.start(catalog, primary, options)) {
+            long reported = -1;
+            while (stdin.isAlive()) {
+                long offset = replica.getOffset();
+                if (offset != reported && replica.isConnected()) {
+                    System.out.println("offset " + offset + " products " + catalog.size());
+                    System.out.flush();
+                    reported = offset;
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+}
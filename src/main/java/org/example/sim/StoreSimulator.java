@@ -0,0 +1,303 @@
+package org.example.sim;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.example.service.PromotionIndex;
+import org.example.service.ReceiptPrinter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store-level load generator: runs many simulated checkout lanes, one virtual thread each, against one shared
+ * {@link ProductCatalog}. A lane repeatedly rings up a basket: it looks up Zipf-distributed SKUs in the catalog,
+ * scans them (pieces or a random weight, depending on the product), prices the basket and prints the receipt.
+ * Like a real lane it keeps one {@link Checkout}, reset between baskets, on promotions shared by all lanes.
+ * Every operation is timed into per-lane histograms that are merged at the end.
+ * <p>
+ * Run with {@code java -cp target/classes org.example.sim.StoreSimulator --lanes=2000 --seconds=30}; see
+ * {@link Options#parse(String[])} for all flags. Without {@code --catalog} a synthetic catalog is generated.
+ */
+public final class StoreSimulator {
+
+    /** Timed operations. A TRANSACTION is one whole basket, from the first lookup to the printed receipt. */
+    public enum Operation { LOOKUP, SCAN, TOTAL, RECEIPT, TRANSACTION }
+
+    /**
+     * @param catalogCsv     catalog to load, or null for a synthetic catalog of {@code syntheticSkus} products
+     * @param storeType      catalog flavour: default, concurrent, versioned or columnar
+     * @param lanes          number of concurrent lanes (virtual threads)
+     * @param seconds        measured run time; ignored when {@code basketsPerLane} is positive
+     * @param basketsPerLane fixed number of measured baskets per lane, 0 to run for {@code seconds}
+     * @param warmupSeconds  run time before measuring starts
+     * @param basketSize     mean scans per basket (uniform between 1 and twice the mean)
+     * @param zipfExponent   SKU popularity skew, 0 for uniform
+     * @param weightRatio    share of WEIGHT products in the synthetic catalog
+     * @param promoCoverage  share of PIECE products with a buy-X-get-Y promotion (Checkout ignores them on weighed ones)
+     * @param thinkMillis    pause between scans, like a cashier handling items (0 for back-to-back load)
+     */
+    public record Options(Path catalogCsv, String storeType, int lanes, double seconds, int basketsPerLane,
+                          double warmupSeconds, int basketSize, double zipfExponent, int syntheticSkus,
+                          double weightRatio, double promoCoverage, int thinkMillis, long seed) {
+
+        public static Options defaults() {
+            return new Options(null, "concurrent", 1000, 10, 0, 2, 20, 1.0, 10_000, 0.3, 0.3, 0, 42);
+        }
+
+        /**
+         * Flags in {@code --name=value} form: catalog, store, lanes, seconds, baskets, warmup, basket, zipf, skus,
+         * weight-ratio, promo, think-ms, seed. Unspecified flags keep {@link #defaults()}.
+         */
+        public static Options parse(String[] args) {
+            Map<String, String> flags = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value: " + arg);
+                flags.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            Options d = defaults();
+            Options o = new Options(
+                    flags.containsKey("catalog") ? Path.of(flags.remove("catalog")) : d.catalogCsv,
+                    Objects.requireNonNullElse(flags.remove("store"), d.storeType),
+                    intFlag(flags, "lanes", d.lanes),
+                    doubleFlag(flags, "seconds", d.seconds),
+                    intFlag(flags, "baskets", d.basketsPerLane),
+                    doubleFlag(flags, "warmup", d.warmupSeconds),
+                    intFlag(flags, "basket", d.basketSize),
+                    doubleFlag(flags, "zipf", d.zipfExponent),
+                    intFlag(flags, "skus", d.syntheticSkus),
+                    doubleFlag(flags, "weight-ratio", d.weightRatio),
+                    doubleFlag(flags, "promo", d.promoCoverage),
+                    intFlag(flags, "think-ms", d.thinkMillis),
+                    flags.containsKey("seed") ? Long.parseLong(flags.remove("seed")) : d.seed);
+            if (!flags.isEmpty()) throw new IllegalArgumentException("Unknown options: " + flags.keySet());
+            return o;
+        }
+
+        private static int intFlag(Map<String, String> flags, String name, int fallback) {
+            String value = flags.remove(name);
+            return value == null ? fallback : Integer.parseInt(value);
+        }
+
+        private static double doubleFlag(Map<String, String> flags, String name, double fallback) {
+            String value = flags.remove(name);
+            return value == null ? fallback : Double.parseDouble(value);
+        }
+    }
+
+    /** Merged results of a run. */
+    public static final class Report {
+        private final Map<Operation, LatencyHistogram> latencies;
+        private final long transactions;
+        private final long elapsedNanos;
+        private final int lanes;
+
+        Report(Map<Operation, LatencyHistogram> latencies, long transactions, long elapsedNanos, int lanes) {
+            this.latencies = latencies;
+            this.transactions = transactions;
+            this.elapsedNanos = elapsedNanos;
+            this.lanes = lanes;
+        }
+
+        public LatencyHistogram getLatency(Operation op) { return latencies.get(op); }
+        public long getTransactions() { return transactions; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getTransactionsPerSecond() {
+            return elapsedNanos == 0 ? 0 : transactions * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("lanes=%d transactions=%d elapsed=%.1fs tps=%.1f%n",
+                    lanes, transactions, elapsedNanos / 1e9, getTransactionsPerSecond()));
+            sb.append(String.format("%-12s %12s %10s %10s %10s %10s%n", "operation", "count", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+            for (Operation op : Operation.values()) {
+                LatencyHistogram h = latencies.get(op);
+                sb.append(String.format("%-12s %12d %10.1f %10.1f %10.1f %10.1f%n", op.name().toLowerCase(Locale.ROOT),
+                        h.getCount(), h.percentile(50) / 1e3, h.percentile(99) / 1e3, h.percentile(99.9) / 1e3, h.getMax() / 1e3));
+            }
+            return sb.toString();
+        }
+    }
+
+    private static final BigDecimal[] WEIGHT_STEPS = { new BigDecimal("0.005"), new BigDecimal("0.010"), new BigDecimal("0.050") };
+
+    private final Options options;
+    private final ProductCatalog catalog;
+    private final String[] skuByRank;
+    private final List<Promotion> promotions;
+    private final PromotionIndex promotionIndex;
+    private final ZipfSampler zipf;
+
+    public StoreSimulator(Options options) throws IOException {
+        this.options = options;
+        this.catalog = switch (options.storeType()) {
+            case "default" -> new ProductCatalog();
+            case "concurrent" -> ProductCatalog.concurrent();
+            case "versioned" -> ProductCatalog.versioned();
+            case "columnar" -> ProductCatalog.columnar();
+            default -> throw new IllegalArgumentException("Unknown store type: " + options.storeType());
+        };
+        SplittableRandom rnd = new SplittableRandom(options.seed());
+        if (options.catalogCsv() != null) {
+            catalog.loadFromCsv(options.catalogCsv());
+        } else {
+            for (int i = 0; i < options.syntheticSkus(); i++) {
+                boolean weighted = rnd.nextDouble() < options.weightRatio();
+                catalog.addProduct(new Product("SKU" + i, (weighted ? "Loose item " : "Packed item ") + i,
+                        weighted ? UnitType.WEIGHT : UnitType.PIECE, BigDecimal.valueOf(50 + rnd.nextInt(10_000), 2)));
+            }
+        }
+        List<Product> products = new ArrayList<>(catalog.listAll());
+        if (products.isEmpty()) throw new IllegalArgumentException("Catalog is empty");
+        // popularity must not follow file order
+        Collections.shuffle(products, new Random(options.seed()));
+        skuByRank = new String[products.size()];
+        promotions = new ArrayList<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            skuByRank[i] = p.getId();
+            if (p.getUnitType() == UnitType.PIECE && rnd.nextDouble() < options.promoCoverage()) {
+                promotions.add(new Promotion(p.getId(), 1 + rnd.nextInt(3), 1));
+            }
+        }
+        promotionIndex = PromotionIndex.of(promotions);
+        zipf = new ZipfSampler(skuByRank.length, options.zipfExponent());
+    }
+
+    public ProductCatalog getCatalog() { return catalog; }
+
+    public Report run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + (long) (options.warmupSeconds() * 1e9);
+        long deadline = options.basketsPerLane() > 0 ? Long.MAX_VALUE : measureFrom + (long) (options.seconds() * 1e9);
+        AtomicLong measureEnd = new AtomicLong(measureFrom);
+
+        List<Lane> lanes = new ArrayList<>(options.lanes());
+        SplittableRandom seeds = new SplittableRandom(options.seed());
+        for (int i = 0; i < options.lanes(); i++) lanes.add(new Lane(seeds.split()));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Lane lane : lanes) {
+                futures.add(executor.submit(() -> {
+                    lane.run(measureFrom, deadline);
+                    measureEnd.accumulateAndGet(System.nanoTime(), Math::max);
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Lane failed", e.getCause());
+                }
+            }
+        }
+
+        Map<Operation, LatencyHistogram> merged = new EnumMap<>(Operation.class);
+        for (Operation op : Operation.values()) merged.put(op, new LatencyHistogram());
+        long transactions = 0;
+        for (Lane lane : lanes) {
+            for (Operation op : Operation.values()) merged.get(op).add(lane.histograms[op.ordinal()]);
+            transactions += lane.transactions;
+        }
+        long measured = deadline == Long.MAX_VALUE ? measureEnd.get() - measureFrom : Math.min(deadline, measureEnd.get()) - measureFrom;
+        return new Report(merged, transactions, Math.max(0, measured), options.lanes());
+    }
+
+    /** One checkout lane; only ever touched by its own virtual thread until the run is over. */
+    private final class Lane {
+        final SplittableRandom rnd;
+        final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+        final StringBuilder receipt = new StringBuilder(4096);
+        final Checkout checkout = Checkout.sharing(promotionIndex, false);
+        long transactions;
+
+        Lane(SplittableRandom rnd) {
+            this.rnd = rnd;
+            for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        }
+
+        void run(long measureFrom, long deadline) throws InterruptedException {
+            int measuredBaskets = 0;
+            while (true) {
+                long begin = System.nanoTime();
+                if (begin >= deadline) return;
+                boolean measuring = begin >= measureFrom;
+                if (measuring && options.basketsPerLane() > 0 && measuredBaskets++ == options.basketsPerLane()) return;
+                ringUpBasket(measuring);
+            }
+        }
+
+        private void ringUpBasket(boolean measuring) throws InterruptedException {
+            long basketStart = System.nanoTime();
+            long busy = 0; // excludes think time from the transaction latency
+            checkout.reset();
+            int scans = 1 + rnd.nextInt(Math.max(1, 2 * options.basketSize() - 1));
+            for (int i = 0; i < scans; i++) {
+                String sku = skuByRank[zipf.sample(rnd)];
+                long t0 = System.nanoTime();
+                Product product = catalog.getProduct(sku).orElseThrow();
+                long t1 = System.nanoTime();
+                checkout.scan(product.getUnitType() == UnitType.PIECE
+                        ? ScannedItem.ofPieces(product, pieces())
+                        : ScannedItem.ofWeight(product, weight()));
+                long t2 = System.nanoTime();
+                busy += t2 - t0;
+                if (measuring) {
+                    histograms[Operation.LOOKUP.ordinal()].record(t1 - t0);
+                    histograms[Operation.SCAN.ordinal()].record(t2 - t1);
+                }
+                if (options.thinkMillis() > 0) Thread.sleep(options.thinkMillis());
+            }
+            long t0 = System.nanoTime();
+            Checkout.Result result = checkout.calculateTotals();
+            long t1 = System.nanoTime();
+            receipt.setLength(0);
+            ReceiptPrinter.print(result, receipt);
+            long t2 = System.nanoTime();
+            if (measuring) {
+                histograms[Operation.TOTAL.ordinal()].record(t1 - t0);
+                histograms[Operation.RECEIPT.ordinal()].record(t2 - t1);
+                long total = options.thinkMillis() > 0 ? busy + (t2 - t0) : t2 - basketStart;
+                histograms[Operation.TRANSACTION.ordinal()].record(total);
+                transactions++;
+            }
+        }
+
+        private int pieces() {
+            int r = rnd.nextInt(10);
+            return r < 7 ? 1 : r < 9 ? 2 : 3 + rnd.nextInt(4);
+        }
+
+        // 5 g to 3 kg, in typical scale increments
+        private BigDecimal weight() {
+            BigDecimal step = WEIGHT_STEPS[rnd.nextInt(WEIGHT_STEPS.length)];
+            return step.multiply(BigDecimal.valueOf(1 + rnd.nextInt(60)));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        StoreSimulator simulator = new StoreSimulator(options);
+        System.out.printf("catalog: %d products (%s), %d promotions%n",
+                simulator.getCatalog().size(), options.catalogCsv() == null ? "synthetic" : options.catalogCsv(),
+                simulator.promotions.size());
+        Report report = simulator.run();
+        System.out.print(report);
+    }
+}
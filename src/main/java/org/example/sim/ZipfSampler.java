@@ -0,0 +1,38 @@
+package org.example.sim;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1/(rank+1)^exponent, by binary search over a
+ * precomputed cumulative distribution. Immutable, so one sampler can be shared by all lanes (each with its own
+ * random source).
+ */
+final class ZipfSampler {
+
+    private final double[] cdf;
+
+    ZipfSampler(int n, double exponent) {
+        if (n <= 0) throw new IllegalArgumentException("n must be > 0");
+        if (exponent < 0) throw new IllegalArgumentException("exponent must be >= 0");
+        cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+        cdf[n - 1] = 1.0;
+    }
+
+    int sample(SplittableRandom rnd) {
+        double u = rnd.nextDouble();
+        int lo = 0;
+        int hi = cdf.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cdf[mid] > u) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+}
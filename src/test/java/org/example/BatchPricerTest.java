@@ -0,0 +1,115 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.BasketBatch;
+import org.example.service.BatchPricer;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchPricerTest {
+
+    @Test
+    void matchesCheckout_onRandomizedBaskets() {
+        Random rnd = new Random(14);
+        ProductCatalog catalog = new ProductCatalog();
+        List<Product> products = new ArrayList<>();
+        List<Promotion> promos = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            UnitType unit = rnd.nextInt(3) == 0 ? UnitType.WEIGHT : UnitType.PIECE;
+            Product p = new Product("P" + i, "Product " + i, unit, BigDecimal.valueOf(rnd.nextInt(100_000), rnd.nextInt(3)));
+            catalog.addProduct(p);
+            products.add(p);
+            // some products get two overlapping deals
+            for (int k = rnd.nextInt(3); unit == UnitType.PIECE && k > 0; k--) {
+                promos.add(new Promotion(p.getId(), 1 + rnd.nextInt(4), rnd.nextInt(4)));
+            }
+        }
+
+        int baskets = 3_000;
+        List<List<ScannedItem>> expectedScans = new ArrayList<>();
+        for (int b = 0; b < baskets; b++) expectedScans.add(new ArrayList<>());
+        BasketBatch.Builder builder = BasketBatch.builder();
+        // rows of different baskets interleaved, as in a scan log
+        for (int row = 0; row < baskets * 12; row++) {
+            int b = rnd.nextInt(baskets);
+            Product p = products.get(rnd.nextInt(products.size()));
+            if (p.getUnitType() == UnitType.PIECE) {
+                int qty = 1 + rnd.nextInt(9);
+                builder.addPieces("B" + b, p.getId(), qty);
+                expectedScans.get(b).add(ScannedItem.ofPieces(p, qty));
+            } else {
+                BigDecimal weight = BigDecimal.valueOf(1 + rnd.nextInt(5_000_000), rnd.nextInt(7));
+                builder.addWeight("B" + b, p.getId(), weight);
+                expectedScans.get(b).add(ScannedItem.ofWeight(p, weight));
+            }
+        }
+        BasketBatch batch = builder.build();
+
+        BatchPricer pricer = new BatchPricer(catalog, promos);
+        BatchPricer.Result parallel = pricer.price(batch, new ForkJoinPool(4));
+        BatchPricer.Result sequential = pricer.price(batch, new ForkJoinPool(1));
+        assertEquals(0, parallel.failureCount());
+
+        for (int i = 0; i < parallel.size(); i++) {
+            int b = Integer.parseInt(parallel.getBasketId(i).substring(1));
+            Checkout checkout = new Checkout(promos);
+            for (ScannedItem item : expectedScans.get(b)) checkout.scan(item);
+            Checkout.Result expected = checkout.calculateTotals();
+
+            assertEquals(expected.getTotal(), parallel.getTotal(i), "total, basket " + b);
+            assertEquals(expected.getSavings(), parallel.getSavings(i), "savings, basket " + b);
+            assertEquals(parallel.getTotalCents(i), sequential.getTotalCents(i));
+            assertEquals(parallel.getSavingsCents(i), sequential.getSavingsCents(i));
+        }
+    }
+
+    @Test
+    void badBasket_failsAlone() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addProduct(new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("0.50")));
+        catalog.addProduct(new Product("BANANA", "Banana (kg)", UnitType.WEIGHT, new BigDecimal("1.99")));
+        catalog.addProduct(new Product("SAFFRON", "Saffron", UnitType.PIECE, new BigDecimal("0.125")));
+
+        BasketBatch batch = BasketBatch.builder()
+                .addPieces("ok", "APPLE", 3)
+                .addPieces("unknown", "APPLE", 1)
+                .addPieces("unknown", "DURIAN", 1)
+                .addPieces("mismatch", "BANANA", 2)
+                .addPieces("subcent", "SAFFRON", 2)
+                .addWeight("ok", "BANANA", new BigDecimal("1.2345"))
+                .build();
+        BatchPricer.Result result = new BatchPricer(catalog, List.of(new Promotion("APPLE", 2, 1))).price(batch);
+
+        assertEquals(4, result.size());
+        assertEquals("ok", result.getBasketId(0));
+        assertTrue(result.isPriced(0));
+        // 3 apples for 2 x 0.50, 1.235 kg x 1.99 = 2.45765 -> 2.46
+        assertEquals(new BigDecimal("3.46"), result.getTotal(0));
+        assertEquals(new BigDecimal("0.50"), result.getSavings(0));
+        assertTrue(result.getFailure(1).contains("DURIAN"));
+        assertFalse(result.isPriced(2));
+        assertFalse(result.isPriced(3));
+        assertEquals(3, result.failureCount());
+    }
+
+    @Test
+    void builder_rejectsInvalidRows() {
+        BasketBatch.Builder builder = BasketBatch.builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.addPieces("B", "P", 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addWeight("B", "P", BigDecimal.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> builder.addWeight("B", "P", new BigDecimal("0.0000001")));
+        assertEquals(0, builder.build().basketCount());
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCatalogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTrip_matchesCsvLoader() throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        Random rnd = new Random(5);
+        StringBuilder sb = new StringBuilder("# generated\n");
+        for (int i = 0; i < 20_000; i++) {
+            sb.append(i % 1000 == 0 ? "ÉCLAIR" + i : "SKU" + rnd.nextInt(15_000)).append(',')
+                    .append(i % 7 == 0 ? "Käse ☕ " + i : "Product " + i).append(',')
+                    .append(rnd.nextBoolean() ? "PIECE" : "WEIGHT").append(',')
+                    .append(i % 999 == 0 ? "123456789012345678901234567.89" : BigDecimal.valueOf(rnd.nextInt(100_000), rnd.nextInt(3)))
+                    .append('\n');
+        }
+        Files.writeString(csv, sb);
+        ProductCatalog loaded = new ProductCatalog();
+        loaded.loadFromCsv(csv);
+
+        Path snapshot = dir.resolve("catalog.gcat");
+        loaded.exportBinary(snapshot);
+        ProductCatalog mapped = ProductCatalog.openBinary(snapshot);
+
+        assertEquals(loaded.size(), mapped.size());
+        List<Product> expected = loaded.listAll();
+        List<Product> actual = mapped.listAll();
+        for (int i = 0; i < expected.size(); i++) {
+            Product e = expected.get(i);
+            assertSameProduct(e, actual.get(i));
+            assertSameProduct(e, mapped.getProduct(e.getId()).orElseThrow());
+        }
+        assertFalse(mapped.getProduct("NOPE").isPresent());
+        assertFalse(mapped.getProduct("ÉCLAIR1").isPresent());
+    }
+
+    @Test
+    void emptyCatalog_roundTrips() throws Exception {
+        Path snapshot = dir.resolve("empty.gcat");
+        new ProductCatalog().exportBinary(snapshot);
+        ProductCatalog mapped = ProductCatalog.openBinary(snapshot);
+        assertEquals(0, mapped.size());
+        assertFalse(mapped.getProduct("X").isPresent());
+    }
+
+    @Test
+    void mappedCatalog_isReadOnly() throws Exception {
+        Path snapshot = dir.resolve("ro.gcat");
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addProduct(new Product("A", "Apple", UnitType.WEIGHT, new BigDecimal("3.50")));
+        catalog.exportBinary(snapshot);
+        ProductCatalog mapped = ProductCatalog.openBinary(snapshot);
+        assertThrows(UnsupportedOperationException.class,
+                () -> mapped.addProduct(new Product("B", "Banana", UnitType.WEIGHT, new BigDecimal("1.99"))));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.removeProduct("A"));
+    }
+
+    @Test
+    void corruptedOrForeignFiles_areRejected() throws Exception {
+        Path snapshot = dir.resolve("c.gcat");
+        ProductCatalog catalog = new ProductCatalog();
+        for (int i = 0; i < 100; i++) catalog.addProduct(new Product("P" + i, "Item " + i, UnitType.PIECE, BigDecimal.ONE));
+        catalog.exportBinary(snapshot);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x40;
+        Path corrupted = dir.resolve("corrupted.gcat");
+        Files.write(corrupted, bytes);
+        assertThrows(IOException.class, () -> ProductCatalog.openBinary(corrupted));
+        assertDoesNotThrow(() -> ProductCatalog.openBinary(corrupted, false));
+
+        bytes = Files.readAllBytes(snapshot);
+        bytes[7] = 99; // format version
+        Path future = dir.resolve("future.gcat");
+        Files.write(future, bytes);
+        IOException ex = assertThrows(IOException.class, () -> ProductCatalog.openBinary(future));
+        assertTrue(ex.getMessage().contains("version"));
+
+        Path csv = dir.resolve("not-a-snapshot.csv");
+        Files.writeString(csv, "A1,Apple (kg),WEIGHT,3.50\n".repeat(10));
+        assertThrows(IOException.class, () -> ProductCatalog.openBinary(csv));
+    }
+
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getUnitType(), actual.getUnitType());
+        assertEquals(expected.getPricePerUnit(), actual.getPricePerUnit());
+    }
+}
@@ -0,0 +1,184 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.CatalogChangeFeed;
+import org.example.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogChangeFeedTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appliesUpsertsAndDeletes_asTheyAreAppended() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        catalog.addProduct(new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("0.50")));
+        catalog.addProduct(new Product("BANANA", "Banana (kg)", UnitType.WEIGHT, new BigDecimal("1.99")));
+        Path file = dir.resolve("catalog.delta");
+        append(file, "# nightly ERP feed\nU,APPLE,Apple,PIECE,0.55\nU,KIWI,Kiwi,PIECE,0.25\n");
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, file)) {
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(new BigDecimal("0.55"), catalog.getProduct("APPLE").orElseThrow().getPricePerUnit());
+            assertEquals("Kiwi", catalog.getProduct("KIWI").orElseThrow().getName());
+
+            append(file, "D,KIWI\n\nU, BANANA , Banana (kg) , weight , 2.10\n");
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertTrue(catalog.getProduct("KIWI").isEmpty());
+            assertEquals(new BigDecimal("2.10"), catalog.getProduct("BANANA").orElseThrow().getPricePerUnit());
+            assertEquals(4, feed.getChangesApplied());
+            assertEquals(0, feed.getLinesSkipped());
+        }
+    }
+
+    @Test
+    void lastChangePerIdWins_withinAndAcrossBatches() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        Path file = dir.resolve("catalog.delta");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            sb.append("U,P").append(i % 100).append(",Product,PIECE,").append(i).append('\n');
+            if (i % 7 == 0 && i < 4_900) sb.append("D,P").append(i % 100).append('\n');
+        }
+        append(file, sb.toString());
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, file,
+                CatalogChangeFeed.Options.defaults().withQueueCapacity(64))) {
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(feed.getChangesRead(), feed.getChangesApplied());
+            assertTrue(feed.getBatchesApplied() < feed.getChangesApplied());
+        }
+        // the last 100 upserts come after the last delete of each id
+        assertEquals(100, catalog.size());
+        for (int i = 4_900; i < 5_000; i++) {
+            Product p = catalog.getProduct("P" + (i % 100)).orElseThrow();
+            assertEquals(new BigDecimal(i), p.getPricePerUnit());
+        }
+    }
+
+    @Test
+    void waitsForCompleteLines_andSkipsMalformedOnes() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        Path file = dir.resolve("catalog.delta");
+        append(file, "U,APPLE,Apple,PIECE,0.50\nX,APPLE\nU,BAD,Bad,LITRE,1.00\nU,NOPRICE,No price,PIECE,abc\nD,\nU,PE");
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, file)) {
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(1, catalog.size());
+            assertEquals(4, feed.getLinesSkipped());
+
+            append(file, "AR,Pear,PIECE,0.80\n");
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals("Pear", catalog.getProduct("PEAR").orElseThrow().getName());
+        }
+    }
+
+    @Test
+    void directory_readsFilesInOrder_andFollowsTheNewest() throws Exception {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        append(dir.resolve("0001.delta"), "U,APPLE,Apple,PIECE,0.50\nU,PEAR,Pear,PIECE,0.80");
+        append(dir.resolve("0002.delta"), "D,PEAR\nU,APPLE,Apple,PIECE,0.60\n");
+        append(dir.resolve("notes.txt"), "D,APPLE\n");
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, dir)) {
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(new BigDecimal("0.60"), catalog.getProduct("APPLE").orElseThrow().getPricePerUnit());
+            assertTrue(catalog.getProduct("PEAR").isEmpty());
+
+            append(dir.resolve("0002.delta"), "U,PEAR,Pear,PIECE,0.90\n");
+            append(dir.resolve("0003.delta"), "U,KIWI,Kiwi,PIECE,0.25\n");
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(new BigDecimal("0.90"), catalog.getProduct("PEAR").orElseThrow().getPricePerUnit());
+            assertTrue(catalog.getProduct("KIWI").isPresent());
+            assertEquals(6, feed.getChangesApplied());
+        }
+    }
+
+    @Test
+    void fileCreatedAfterStart_isPickedUp() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        Path file = dir.resolve("later.delta");
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, file)) {
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(0, catalog.size());
+            append(file, "U,APPLE,Apple,PIECE,0.50\n");
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(1, catalog.size());
+        }
+        assertThrows(IOException.class, () -> CatalogChangeFeed.start(catalog, dir.resolve("missing/x.delta")));
+    }
+
+    @Test
+    void fullQueue_stallsTheReader_untilTheApplierCatchesUp() throws Exception {
+        CountDownLatch applierStalled = new CountDownLatch(1);
+        ProductCatalog catalog = new ProductCatalog() {
+            @Override
+            public void applyChanges(Collection<Product> upserts, Collection<String> removedIds) {
+                try {
+                    applierStalled.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.applyChanges(upserts, removedIds);
+            }
+        };
+        Path file = dir.resolve("catalog.delta");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) sb.append("U,P").append(i).append(",Product,PIECE,1.00\n");
+        append(file, sb.toString());
+        int capacity = 16;
+        try (CatalogChangeFeed feed = CatalogChangeFeed.start(catalog, file,
+                CatalogChangeFeed.Options.defaults().withQueueCapacity(capacity))) {
+            long read;
+            try {
+                long deadline = System.nanoTime() + WAIT.toNanos();
+                while (feed.getChangesRead() < capacity && System.nanoTime() < deadline) Thread.sleep(1);
+                Thread.sleep(100);
+                read = feed.getChangesRead();
+                Thread.sleep(100);
+                assertEquals(read, feed.getChangesRead());
+                assertEquals(0, feed.getChangesApplied());
+            } finally {
+                applierStalled.countDown();
+            }
+            // the applier's stalled batch (a queue's worth, plus the change taken before draining) and a full queue
+            assertTrue(read >= capacity && read <= 2 * capacity + 1, "read " + read);
+
+            assertTrue(feed.awaitCaughtUp(WAIT));
+            assertEquals(10_000, feed.getChangesApplied());
+            assertEquals(10_000, catalog.size());
+        }
+    }
+
+    @Test
+    void close_whileReadingOrWaitingOnAFullQueue_isNotAFailure() throws Exception {
+        Path file = dir.resolve("catalog.delta");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) sb.append("U,P").append(i).append(",Product ").append(i).append(",PIECE,1.00\n");
+        append(file, sb.toString());
+        for (int cycle = 0; cycle < 60; cycle++) {
+            CatalogChangeFeed.Options options = CatalogChangeFeed.Options.defaults();
+            if (cycle % 3 == 2) options = options.withQueueCapacity(8);
+            CatalogChangeFeed feed = CatalogChangeFeed.start(ProductCatalog.concurrent(), file, options);
+            Thread.sleep(cycle % 20);
+            assertDoesNotThrow(feed::close);
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
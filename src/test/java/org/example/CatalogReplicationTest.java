@@ -0,0 +1,291 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.CatalogPrimary;
+import org.example.service.CatalogReplica;
+import org.example.service.ProductCatalog;
+import org.example.sim.PrimaryNode;
+import org.example.sim.ReplicaNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogReplicationTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+    private static final InetSocketAddress ANY_PORT = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    private static final CatalogReplica.Options FAST = CatalogReplica.Options.defaults().withReconnectDelay(Duration.ofMillis(20));
+
+    @TempDir
+    Path dir;
+
+    private final List<AutoCloseable> open = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws Exception {
+        for (int i = open.size() - 1; i >= 0; i--) open.get(i).close();
+    }
+
+    @Test
+    void replicasApplyEveryBatch_andLateReplicasStartFromASnapshot() throws Exception {
+        ProductCatalog source = ProductCatalog.concurrent();
+        CatalogPrimary primary = track(CatalogPrimary.start(source, ANY_PORT));
+        primary.publish(products(0, 500, "1.00"), List.of());
+
+        List<ProductCatalog> catalogs = new ArrayList<>();
+        List<CatalogReplica> replicas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ProductCatalog catalog = ProductCatalog.versioned();
+            catalogs.add(catalog);
+            replicas.add(track(CatalogReplica.start(catalog, address(primary), FAST)));
+        }
+        long last = 0;
+        for (int b = 0; b < 50; b++) {
+            last = primary.publish(products(b * 10, b * 10 + 20, "2." + b), List.of("SKU" + (400 + b)));
+        }
+        for (CatalogReplica r : replicas) assertTrue(r.awaitOffset(last, WAIT));
+        for (ProductCatalog c : catalogs) assertEquals(contents(source), contents(c));
+
+        ProductCatalog late = ProductCatalog.concurrent();
+        CatalogReplica lateReplica = track(CatalogReplica.start(late, address(primary), FAST));
+        assertTrue(lateReplica.awaitOffset(last, WAIT));
+        assertEquals(contents(source), contents(late));
+        assertEquals(1, lateReplica.getSnapshotsLoaded());
+        assertEquals(0, lateReplica.getBatchesApplied());
+        assertEquals(0, lateReplica.getLag());
+        assertEquals(4, primary.getReplicaCount());
+    }
+
+    @Test
+    void restartedReplica_resumesFromItsCheckpoint_orTakesASnapshotWhenTooFarBehind() throws Exception {
+        ProductCatalog source = ProductCatalog.concurrent();
+        CatalogPrimary primary = track(CatalogPrimary.start(source, ANY_PORT,
+                CatalogPrimary.Options.defaults().withRetainedBatches(8)));
+        long offset = primary.publish(products(0, 100, "1.00"), List.of());
+        Path checkpoint = dir.resolve("replica");
+        CatalogReplica.Options options = FAST.withCheckpointDir(checkpoint);
+
+        try (CatalogReplica first = CatalogReplica.start(ProductCatalog.concurrent(), address(primary), options)) {
+            assertTrue(first.awaitOffset(offset, WAIT));
+        }
+        for (int i = 0; i < 5; i++) offset = primary.publish(products(i, i + 1, "3.00"), List.of("SKU" + (50 + i)));
+
+        // the checkpoint alone, with no primary to hear from
+        ProductCatalog restored = ProductCatalog.concurrent();
+        try (CatalogReplica offline = CatalogReplica.start(restored, unusedAddress(), options)) {
+            assertEquals(100, restored.size());
+            assertEquals(1, offline.getOffset());
+        }
+
+        ProductCatalog resumed = ProductCatalog.concurrent();
+        try (CatalogReplica second = CatalogReplica.start(resumed, address(primary), options)) {
+            assertTrue(second.awaitOffset(offset, WAIT));
+            assertEquals(contents(source), contents(resumed));
+            assertEquals(0, second.getSnapshotsLoaded());
+            assertEquals(5, second.getBatchesApplied());
+        }
+
+        // more than the primary retains: the checkpoint is too old and the replica gets a snapshot
+        for (int i = 0; i < 20; i++) offset = primary.publish(List.of(), List.of("SKU" + i));
+        ProductCatalog behind = ProductCatalog.concurrent();
+        try (CatalogReplica third = CatalogReplica.start(behind, address(primary), options)) {
+            assertTrue(third.awaitOffset(offset, WAIT));
+            assertEquals(contents(source), contents(behind));
+            assertEquals(1, third.getSnapshotsLoaded());
+        }
+    }
+
+    @Test
+    void tooLongIdsAndNames_areRejectedByPublish_andLeftOutOfSnapshots() throws Exception {
+        String tooLong = "x".repeat(70_000);
+        ProductCatalog source = ProductCatalog.concurrent();
+        // written to the catalog before it was replicated
+        source.addProduct(new Product("LEGACY", tooLong, UnitType.PIECE, BigDecimal.ONE));
+        CatalogPrimary primary = track(CatalogPrimary.start(source, ANY_PORT));
+        long offset = primary.publish(products(0, 10, "1.00"), List.of());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> primary.publish(List.of(new Product("LONG", tooLong, UnitType.PIECE, BigDecimal.ONE)), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> primary.publish(List.of(), List.of(tooLong)));
+        assertTrue(source.getProduct("LONG").isEmpty());
+        assertEquals(offset, primary.getOffset());
+
+        ProductCatalog replicaCatalog = ProductCatalog.concurrent();
+        CatalogReplica replica = track(CatalogReplica.start(replicaCatalog, address(primary), FAST));
+        offset = primary.publish(products(10, 20, "2.00"), List.of());
+        assertTrue(replica.awaitOffset(offset, WAIT));
+        Map<String, String> expected = contents(source);
+        expected.remove("LEGACY");
+        assertEquals(expected, contents(replicaCatalog));
+        assertEquals(1, replica.getSnapshotsLoaded());
+        assertEquals(1, primary.getProductsNotReplicated());
+    }
+
+    @Test
+    void versionedPrimary_sendsSnapshotsThatMatchTheirOffset_whilePublishing() throws Exception {
+        ProductCatalog source = ProductCatalog.versioned();
+        CatalogPrimary primary = track(CatalogPrimary.start(source, ANY_PORT, CatalogPrimary.Options.defaults().withRetainedBatches(4)));
+        primary.publish(products(0, 20_000, "1.00"), List.of());
+        Thread publisher = new Thread(() -> {
+            for (int b = 0; b < 300; b++) primary.publish(products(b * 50, b * 50 + 60, "3." + b), List.of("SKU" + (19_999 - b)));
+        });
+        publisher.start();
+        List<ProductCatalog> catalogs = new ArrayList<>();
+        List<CatalogReplica> replicas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ProductCatalog catalog = ProductCatalog.concurrent();
+            catalogs.add(catalog);
+            replicas.add(track(CatalogReplica.start(catalog, address(primary), FAST)));
+            Thread.sleep(5);
+        }
+        publisher.join();
+        long last = primary.getOffset();
+        for (CatalogReplica r : replicas) assertTrue(r.awaitOffset(last, WAIT));
+        for (ProductCatalog c : catalogs) assertEquals(contents(source), contents(c));
+        assertTrue(primary.getSnapshotsSent() >= 5);
+    }
+
+    @Test
+    void newPrimary_replacesTheReplicaCatalog() throws Exception {
+        ProductCatalog replicaCatalog = ProductCatalog.concurrent();
+        CatalogPrimary old = CatalogPrimary.start(ProductCatalog.concurrent(), ANY_PORT);
+        int port = old.getPort();
+        long offset = old.publish(products(0, 30, "1.00"), List.of());
+        CatalogReplica replica = track(CatalogReplica.start(replicaCatalog, address(old), FAST));
+        assertTrue(replica.awaitOffset(offset, WAIT));
+        old.close();
+
+        // same port, new epoch, different and shorter history
+        ProductCatalog source = ProductCatalog.concurrent();
+        CatalogPrimary fresh = track(CatalogPrimary.start(source, new InetSocketAddress(InetAddress.getLoopbackAddress(), port)));
+        fresh.publish(products(100, 110, "5.00"), List.of());
+        long freshOffset = fresh.publish(products(100, 101, "6.00"), List.of());
+        assertTrue(replica.awaitOffset(freshOffset, WAIT));
+        assertEquals(contents(source), contents(replicaCatalog));
+        assertEquals(2, replica.getSnapshotsLoaded());
+    }
+
+    @Test
+    void replicaProcesses_followThePrimary() throws Exception {
+        ProductCatalog source = ProductCatalog.concurrent();
+        CatalogPrimary primary = track(CatalogPrimary.start(source, ANY_PORT));
+        primary.publish(products(0, 1_000, "1.00"), List.of());
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classes = Path.of(ReplicaNode.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        List<Process> nodes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                nodes.add(new ProcessBuilder(java, "-cp", classes, ReplicaNode.class.getName(),
+                        "127.0.0.1", Integer.toString(primary.getPort()), dir.resolve("node" + i).toString())
+                        .redirectErrorStream(true).start());
+            }
+            long offset = 0;
+            for (int b = 0; b < 20; b++) offset = primary.publish(products(b, b + 50, "2." + b), List.of("SKU" + (900 + b)));
+            String expected = "offset " + offset + " products " + source.size();
+            for (Process node : nodes) {
+                BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.UTF_8));
+                String line = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                    String l;
+                    do {
+                        l = out.readLine();
+                    } while (l != null && !l.equals(expected));
+                    return l;
+                });
+                assertEquals(expected, line);
+            }
+        } finally {
+            for (Process node : nodes) {
+                node.getOutputStream().close();
+                if (!node.waitFor(10, TimeUnit.SECONDS)) node.destroyForcibly();
+            }
+        }
+        for (Process node : nodes) assertEquals(0, node.exitValue());
+    }
+
+    @Test
+    void primaryProcess_publishesItsCatalogAndEveryChangeLine() throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        Files.writeString(csv, "id,name,unitType,price\nAPPLE,Apple,PIECE,0.50\nRICE,Rice (kg),WEIGHT,1.99\n");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        String classes = Path.of(PrimaryNode.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        Process node = new ProcessBuilder(java, "-cp", classes, PrimaryNode.class.getName(), "0", csv.toString())
+                .redirectErrorStream(true).start();
+        try {
+            BufferedReader out = new BufferedReader(new InputStreamReader(node.getInputStream(), StandardCharsets.UTF_8));
+            Writer in = new OutputStreamWriter(node.getOutputStream(), StandardCharsets.UTF_8);
+            String listening = assertTimeoutPreemptively(Duration.ofSeconds(30), out::readLine);
+            assertTrue(listening.startsWith("listening on "), listening);
+            assertEquals("offset 1 products 2", out.readLine());
+            int port = Integer.parseInt(listening.substring("listening on ".length()));
+
+            ProductCatalog replicaCatalog = ProductCatalog.concurrent();
+            CatalogReplica replica = track(CatalogReplica.start(replicaCatalog,
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), FAST));
+            in.write("U,PEAR,Pear,PIECE,0.80\nnonsense\nD,APPLE\n");
+            in.flush();
+            assertEquals("offset 2 products 3", out.readLine());
+            assertEquals("skipped: nonsense", out.readLine());
+            assertEquals("offset 3 products 2", out.readLine());
+            assertTrue(replica.awaitOffset(3, WAIT));
+            assertEquals(Map.of("PEAR", "Pear|PIECE|0.80", "RICE", "Rice (kg)|WEIGHT|1.99"), contents(replicaCatalog));
+        } finally {
+            node.getOutputStream().close();
+            if (!node.waitFor(10, TimeUnit.SECONDS)) node.destroyForcibly();
+        }
+        assertEquals(0, node.exitValue());
+    }
+
+    private <T extends AutoCloseable> T track(T closeable) {
+        open.add(closeable);
+        return closeable;
+    }
+
+    private static InetSocketAddress address(CatalogPrimary primary) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), primary.getPort());
+    }
+
+    private static InetSocketAddress unusedAddress() throws IOException {
+        try (ServerSocket s = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), s.getLocalPort());
+        }
+    }
+
+    private static List<Product> products(int from, int to, String price) {
+        List<Product> products = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            products.add(new Product("SKU" + i, "Product " + i, i % 3 == 0 ? UnitType.WEIGHT : UnitType.PIECE, new BigDecimal(price)));
+        }
+        return products;
+    }
+
+    private static Map<String, String> contents(ProductCatalog catalog) {
+        Map<String, String> contents = new HashMap<>();
+        for (Product p : catalog.listAll()) {
+            contents.put(p.getId(), p.getName() + "|" + p.getUnitType() + "|" + p.getPricePerUnit());
+        }
+        return contents;
+    }
+}
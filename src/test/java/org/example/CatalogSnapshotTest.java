@@ -0,0 +1,130 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.CatalogSnapshot;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogSnapshotTest {
+
+    @Test
+    void versionedCatalog_matchesLinkedHashMap_underRandomChanges() {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        Map<String, Product> model = new LinkedHashMap<>();
+        Random rnd = new Random(3);
+        // "Aa" and "BB" (and their concatenations) share a hashCode, which exercises collision nodes
+        String[] collisions = { "AaAa", "AaBB", "BBAa", "BBBB" };
+
+        for (int i = 0; i < 20_000; i++) {
+            String id = rnd.nextInt(10) == 0 ? collisions[rnd.nextInt(collisions.length)] : "P" + rnd.nextInt(3_000);
+            if (rnd.nextInt(4) == 0) {
+                assertSame(model.remove(id), catalog.removeProduct(id));
+            } else {
+                Product p = product(id, rnd.nextInt(10_000));
+                assertSame(model.put(id, p), catalog.addProduct(p));
+            }
+        }
+
+        assertEquals(model.size(), catalog.size());
+        assertEquals(new ArrayList<>(model.values()), catalog.listAll());
+        for (String id : model.keySet()) assertSame(model.get(id), catalog.getProduct(id).orElseThrow());
+        for (String id : collisions) assertEquals(model.get(id), catalog.snapshot().getProduct(id).orElse(null));
+    }
+
+    @Test
+    void snapshots_areImmutable_andVersioned() {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        catalog.addProduct(product("A", 100));
+        catalog.addProduct(product("B", 200));
+        CatalogSnapshot v2 = catalog.snapshot();
+        assertEquals(2, v2.getVersion());
+
+        catalog.updateProduct(product("A", 150));
+        catalog.removeProduct("B");
+        catalog.addProduct(product("C", 300));
+
+        assertEquals(new BigDecimal("1.00"), v2.getProduct("A").orElseThrow().getPricePerUnit());
+        assertTrue(v2.getProduct("B").isPresent());
+        assertFalse(v2.getProduct("C").isPresent());
+        assertEquals(List.of("A", "B"), ids(v2.listAll()));
+
+        CatalogSnapshot v5 = catalog.snapshot();
+        assertEquals(5, v5.getVersion());
+        assertEquals(new BigDecimal("1.50"), v5.getProduct("A").orElseThrow().getPricePerUnit());
+        assertEquals(List.of("A", "C"), ids(v5.listAll()));
+
+        // removing something absent publishes nothing
+        catalog.removeProduct("missing");
+        assertSame(v5, catalog.snapshot());
+    }
+
+    @Test
+    void applyChanges_publishesOneVersion() {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        for (int i = 0; i < 100; i++) catalog.addProduct(product("P" + i, 100));
+        CatalogSnapshot before = catalog.snapshot();
+
+        List<Product> repriced = new ArrayList<>();
+        for (int i = 0; i < 100; i++) repriced.add(product("P" + i, 90));
+        catalog.applyChanges(repriced, List.of("P0"));
+
+        CatalogSnapshot after = catalog.snapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(99, after.size());
+        assertEquals(new BigDecimal("0.90"), after.getProduct("P50").orElseThrow().getPricePerUnit());
+        assertEquals(new BigDecimal("1.00"), before.getProduct("P50").orElseThrow().getPricePerUnit());
+    }
+
+    @Test
+    void snapshotIsOnlyForVersionedCatalogs() {
+        assertThrows(UnsupportedOperationException.class, () -> new ProductCatalog().snapshot());
+    }
+
+    @Test
+    void pinnedCheckout_pricesAgainstOneCatalogVersion() {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        catalog.addProduct(product("CHIPS", 3500));
+        catalog.addProduct(new Product("RICE", "Rice (kg)", UnitType.WEIGHT, new BigDecimal("45.00")));
+
+        for (boolean incremental : new boolean[] { false, true }) {
+            Checkout co = new Checkout(null, incremental);
+            co.pin(catalog.snapshot());
+            CatalogSnapshot pinned = catalog.snapshot();
+            co.scan(ScannedItem.ofPieces(catalog.getProduct("CHIPS").orElseThrow(), 2));
+
+            // price change lands mid-basket; the basket keeps the pinned prices
+            catalog.applyChanges(List.of(product("CHIPS", 4000),
+                    new Product("RICE", "Rice (kg)", UnitType.WEIGHT, new BigDecimal("50.00"))), List.of());
+            co.scan(ScannedItem.ofWeight(catalog.getProduct("RICE").orElseThrow(), new BigDecimal("1.0")));
+            assertSame(pinned, co.getPinnedSnapshot());
+            assertEquals(new BigDecimal("115.00"), co.calculateTotals().getTotal());
+
+            // repinning reprices the whole basket against the new version
+            co.pin(catalog.snapshot());
+            assertEquals(new BigDecimal("130.00"), co.calculateTotals().getTotal());
+
+            // unpinned, each item uses the product it was scanned with
+            co.pin(null);
+            assertEquals(new BigDecimal("120.00"), co.calculateTotals().getTotal());
+
+            catalog.applyChanges(List.of(product("CHIPS", 3500),
+                    new Product("RICE", "Rice (kg)", UnitType.WEIGHT, new BigDecimal("45.00"))), List.of());
+        }
+    }
+
+    private static Product product(String id, int cents) {
+        return new Product(id, "Item " + id, UnitType.PIECE, BigDecimal.valueOf(cents, 2));
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
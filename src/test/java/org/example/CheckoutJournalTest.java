@@ -0,0 +1,299 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.CheckoutJournal;
+import org.example.service.JournaledCheckout;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckoutJournalTest {
+
+    private static final Product APPLE = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("0.50"));
+    private static final Product BANANA = new Product("BANANA", "Banana (kg)", UnitType.WEIGHT, new BigDecimal("1.99"));
+    private static final Product CANDY = new Product("CANDY", "Candy", UnitType.PIECE, new BigDecimal("2.00"));
+    private static final List<Promotion> PROMOS = List.of(new Promotion("APPLE", 2, 1));
+    private static final CheckoutJournal.Options NO_SYNC = CheckoutJournal.Options.defaults().withFsync(CheckoutJournal.FsyncPolicy.NONE);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversOpenBaskets_andSkipsClosedOnes() throws IOException {
+        Checkout.Result expected;
+        List<ScannedItem> expectedScans;
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            JournaledCheckout paid = journal.begin(new Checkout(PROMOS));
+            JournaledCheckout open = journal.begin(new Checkout(PROMOS));
+            JournaledCheckout cancelled = journal.begin(new Checkout(PROMOS));
+            paid.scan(ScannedItem.ofPieces(APPLE, 3));
+            open.scan(ScannedItem.ofPieces(APPLE, 5));
+            ScannedItem wrong = ScannedItem.ofPieces(CANDY, 1);
+            open.scan(wrong);
+            open.scan(ScannedItem.ofWeight(BANANA, new BigDecimal("1.2345")));
+            assertTrue(open.voidScan(wrong));
+            cancelled.scan(ScannedItem.ofPieces(CANDY, 2));
+            open.scan(ScannedItem.ofPieces(CANDY, 4));
+            paid.complete();
+            cancelled.cancel();
+            assertThrows(IllegalStateException.class, () -> paid.scan(ScannedItem.ofPieces(APPLE, 1)));
+            assertEquals(1, journal.openBasketCount());
+            expected = open.getCheckout().calculateTotals();
+            expectedScans = open.getCheckout().getScans();
+        }
+
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            List<JournaledCheckout> recovered = journal.recover(() -> new Checkout(PROMOS));
+            assertEquals(1, recovered.size());
+            JournaledCheckout basket = recovered.get(0);
+            assertEquals(describe(expectedScans), describe(basket.getCheckout().getScans()));
+            Checkout.Result actual = basket.getCheckout().calculateTotals();
+            assertEquals(expected.getTotal(), actual.getTotal());
+            assertEquals(expected.getSavings(), actual.getSavings());
+            assertTrue(journal.recover(Checkout::new).isEmpty());
+
+            // recovered baskets keep journaling
+            basket.scan(ScannedItem.ofPieces(APPLE, 1));
+        }
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            JournaledCheckout basket = journal.recover(Checkout::new).get(0);
+            assertEquals(4, basket.getCheckout().getScans().size());
+            basket.complete();
+        }
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            assertEquals(0, journal.openBasketCount());
+        }
+    }
+
+    @Test
+    void tornOrCorruptTail_recoversAPrefix() throws IOException {
+        List<ScannedItem> scans = new ArrayList<>();
+        try (CheckoutJournal journal = CheckoutJournal.open(dir, NO_SYNC)) {
+            JournaledCheckout basket = journal.begin(new Checkout());
+            for (int i = 1; i <= 40; i++) {
+                ScannedItem item = i % 3 == 0
+                        ? ScannedItem.ofWeight(BANANA, BigDecimal.valueOf(i, 3))
+                        : ScannedItem.ofPieces(i % 2 == 0 ? APPLE : CANDY, i);
+                basket.scan(item);
+                scans.add(item);
+            }
+        }
+        Path segment = onlySegment(dir);
+        byte[] full = Files.readAllBytes(segment);
+        Random rnd = new Random(15);
+        int previous = -1;
+        for (int cut = full.length - 600; cut <= full.length; cut += cut + 7 > full.length ? 1 : 1 + rnd.nextInt(7)) {
+            boolean corrupt = cut < full.length && rnd.nextBoolean();
+            Path copy = Files.createDirectories(dir.resolve("cut" + cut));
+            byte[] bytes = Arrays.copyOf(full, cut);
+            if (corrupt) bytes[cut - 1 - rnd.nextInt(20)] ^= 0x5A;
+            Files.write(copy.resolve(segment.getFileName()), bytes);
+
+            try (CheckoutJournal journal = CheckoutJournal.open(copy, NO_SYNC)) {
+                List<JournaledCheckout> recovered = journal.recover(Checkout::new);
+                assertEquals(1, recovered.size());
+                List<ScannedItem> got = recovered.get(0).getCheckout().getScans();
+                assertEquals(describe(scans.subList(0, got.size())), describe(got), "cut at " + cut);
+                if (!corrupt) {
+                    assertTrue(got.size() >= previous, "longer file recovered less");
+                    previous = got.size();
+                }
+                // the torn tail is gone and appends land after the last good record
+                recovered.get(0).scan(ScannedItem.ofPieces(APPLE, 99));
+            }
+            try (CheckoutJournal journal = CheckoutJournal.open(copy, NO_SYNC)) {
+                List<ScannedItem> got = journal.recover(Checkout::new).get(0).getCheckout().getScans();
+                assertEquals(99, got.get(got.size() - 1).getQuantity());
+            }
+        }
+        assertEquals(scans.size(), previous);
+    }
+
+    @Test
+    void rotation_keepsOpenBasketsAndDropsOldSegments() throws IOException {
+        CheckoutJournal.Options small = CheckoutJournal.Options.defaults()
+                .withFsync(CheckoutJournal.FsyncPolicy.PERIODIC).withSegmentBytes(8 * 1024);
+        List<ScannedItem> longRunning = new ArrayList<>();
+        try (CheckoutJournal journal = CheckoutJournal.open(dir, small)) {
+            JournaledCheckout open = journal.begin(new Checkout());
+            for (int b = 0; b < 500; b++) {
+                JournaledCheckout basket = journal.begin(new Checkout());
+                for (int i = 0; i < 5; i++) basket.scan(ScannedItem.ofPieces(APPLE, 1 + i));
+                basket.complete();
+                ScannedItem item = ScannedItem.ofPieces(b % 2 == 0 ? CANDY : APPLE, 1 + b % 7);
+                open.scan(item);
+                longRunning.add(item);
+                if (b % 50 == 0) {
+                    open.removeScan(0);
+                    longRunning.remove(0);
+                }
+            }
+            journal.sync();
+            try (Stream<Path> files = Files.list(dir)) {
+                assertTrue(files.count() <= 2, "old segments are deleted");
+            }
+        }
+        try (CheckoutJournal journal = CheckoutJournal.open(dir, small)) {
+            List<JournaledCheckout> recovered = journal.recover(Checkout::new);
+            assertEquals(1, recovered.size());
+            assertEquals(describe(longRunning), describe(recovered.get(0).getCheckout().getScans()));
+        }
+    }
+
+    @Test
+    void concurrentLanes_groupCommitOnFinalize() throws Exception {
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            List<Thread> lanes = new ArrayList<>();
+            for (int lane = 0; lane < 8; lane++) {
+                Thread t = new Thread(() -> {
+                    for (int b = 0; b < 50; b++) {
+                        JournaledCheckout basket = journal.begin(new Checkout(PROMOS));
+                        for (int i = 0; i < 10; i++) basket.scan(ScannedItem.ofPieces(APPLE, 1));
+                        assertEquals(new BigDecimal("3.50"), basket.complete().getTotal());
+                    }
+                    journal.begin(new Checkout()).scan(ScannedItem.ofPieces(CANDY, 1));
+                });
+                lanes.add(t);
+                t.start();
+            }
+            for (Thread t : lanes) t.join();
+        }
+        try (CheckoutJournal journal = CheckoutJournal.open(dir)) {
+            assertEquals(8, journal.recover(Checkout::new).size());
+        }
+    }
+
+    /**
+     * A child JVM journals baskets on several lanes and is killed with SIGKILL at a random moment. Every
+     * recovered basket must be exactly what its lane had done after some prefix of its operations.
+     */
+    @Test
+    void killedProcess_recoversConsistentBaskets() throws Exception {
+        Random rnd = new Random();
+        for (int round = 0; round < 3; round++) {
+            Path journalDir = dir.resolve("kill" + round);
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    CrashChild.class.getName(), journalDir.toString())
+                    .redirectErrorStream(true).start();
+            try {
+                BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8));
+                String line = out.readLine();
+                assertEquals("STARTED", line);
+                Thread.sleep(100 + rnd.nextInt(400));
+            } finally {
+                child.destroyForcibly();
+                assertTrue(child.waitFor(30, TimeUnit.SECONDS));
+            }
+
+            try (CheckoutJournal journal = CheckoutJournal.open(journalDir)) {
+                List<JournaledCheckout> recovered = journal.recover(Checkout::new);
+                assertFalse(recovered.isEmpty());
+                for (JournaledCheckout basket : recovered) {
+                    List<ScannedItem> scans = basket.getCheckout().getScans();
+                    if (scans.isEmpty()) continue; // opened, marker not journaled yet
+                    long key = Long.parseLong(scans.get(0).getProduct().getId().substring(1));
+                    assertTrue(matchesSomePrefix(key, describe(scans)), "basket " + key + ": " + describe(scans));
+                }
+            }
+        }
+    }
+
+    /** Lanes that journal baskets forever: see {@link #operations(long)}. */
+    public static final class CrashChild {
+        public static void main(String[] args) throws Exception {
+            CheckoutJournal.Options options = CheckoutJournal.Options.defaults()
+                    .withFsync(CheckoutJournal.FsyncPolicy.NONE).withSegmentBytes(256 * 1024);
+            CheckoutJournal journal = CheckoutJournal.open(Path.of(args[0]), options);
+            for (int lane = 0; lane < 4; lane++) {
+                long laneBase = lane * 1_000_000_000L;
+                Thread t = new Thread(() -> {
+                    for (long b = 0; ; b++) {
+                        JournaledCheckout basket = journal.begin(new Checkout());
+                        for (Op op : operations(laneBase + b)) {
+                            if (op.voidIndex >= 0) basket.removeScan(op.voidIndex);
+                            else basket.scan(op.item);
+                        }
+                        basket.complete();
+                    }
+                });
+                t.setDaemon(true);
+                t.start();
+            }
+            System.out.println("STARTED");
+            System.out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+
+    private record Op(ScannedItem item, int voidIndex) { }
+
+    // first a marker product naming the basket, then scans and voids drawn from a seed
+    static List<Op> operations(long key) {
+        Random r = new Random(key);
+        List<Op> ops = new ArrayList<>();
+        ops.add(new Op(ScannedItem.ofPieces(new Product("K" + key, "Basket " + key, UnitType.PIECE, BigDecimal.ONE), 1), -1));
+        int size = 1;
+        int count = 5 + r.nextInt(30);
+        for (int i = 0; i < count; i++) {
+            if (size > 1 && r.nextInt(6) == 0) {
+                ops.add(new Op(null, 1 + r.nextInt(size - 1)));
+                size--;
+            } else if (r.nextInt(4) == 0) {
+                ops.add(new Op(ScannedItem.ofWeight(BANANA, BigDecimal.valueOf(1 + r.nextInt(5_000), 3)), -1));
+                size++;
+            } else {
+                ops.add(new Op(ScannedItem.ofPieces(r.nextBoolean() ? APPLE : CANDY, 1 + r.nextInt(5)), -1));
+                size++;
+            }
+        }
+        return ops;
+    }
+
+    private static boolean matchesSomePrefix(long key, List<String> recovered) {
+        List<ScannedItem> state = new ArrayList<>();
+        for (Op op : operations(key)) {
+            if (op.voidIndex >= 0) state.remove(op.voidIndex);
+            else state.add(op.item);
+            if (describe(state).equals(recovered)) return true;
+        }
+        return false;
+    }
+
+    private static List<String> describe(List<ScannedItem> scans) {
+        List<String> out = new ArrayList<>();
+        for (ScannedItem s : scans) {
+            out.add(s.getProduct().getId() + ":" + s.getProduct().getPricePerUnit() + ":"
+                    + (s.isPiece() ? String.valueOf(s.getQuantity()) : s.getWeight().toPlainString()));
+        }
+        return out;
+    }
+
+    private static Path onlySegment(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> segments = files.filter(f -> f.getFileName().toString().endsWith(".log")).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+}
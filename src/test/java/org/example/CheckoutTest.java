@@ -5,11 +5,17 @@ import org.example.model.Promotion;
 import org.example.model.UnitType;
 import org.example.scan.ScannedItem;
 import org.example.service.Checkout;
+import org.example.service.CheckoutPool;
+import org.example.service.PromotionIndex;
 import org.example.service.ReceiptPrinter;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,4 +79,242 @@ public class CheckoutTest {
         assertTrue(receipt.contains("Promotion"));
         assertTrue(receipt.contains("TOTAL:"));
     }
+
+    @Test
+    void incrementalMode_matchesRecompute_acrossScansVoidsAndPromotions() {
+        Product chips = new Product("CHIPS", "Bag of Chips", UnitType.PIECE, new BigDecimal("35.00"));
+        Product candy = new Product("CANDY", "Candy Pack", UnitType.PIECE, new BigDecimal("10.00"));
+        Product rice = new Product("RICE", "Rice (kg)", UnitType.WEIGHT, new BigDecimal("45.00"));
+
+        Promotion chipsPromo = new Promotion("CHIPS", 1, 1);
+        Promotion candyPromo = new Promotion("CANDY", 2, 1);
+
+        Checkout full = new Checkout(List.of(chipsPromo));
+        Checkout inc = new Checkout(List.of(chipsPromo), true);
+        assertTrue(inc.isIncremental());
+
+        ScannedItem[] items = {
+                ScannedItem.ofPieces(chips, 3),
+                ScannedItem.ofWeight(rice, new BigDecimal("1.2345")),
+                ScannedItem.ofPieces(candy, 7),
+                ScannedItem.ofWeight(rice, new BigDecimal("0.5")),
+                ScannedItem.ofPieces(chips, 2),
+        };
+        for (ScannedItem item : items) {
+            full.scan(item);
+            inc.scan(item);
+            assertSameResult(full.calculateTotals(), inc.calculateTotals());
+        }
+
+        full.addPromotion(candyPromo);
+        inc.addPromotion(candyPromo);
+        assertSameResult(full.calculateTotals(), inc.calculateTotals());
+
+        assertTrue(full.voidScan(items[4]));
+        assertTrue(inc.voidScan(items[4]));
+        assertSameResult(full.calculateTotals(), inc.calculateTotals());
+
+        full.removeScan(1);
+        inc.removeScan(1);
+        assertSameResult(full.calculateTotals(), inc.calculateTotals());
+
+        full.removeScan(1);
+        inc.removeScan(1);
+        assertSameResult(full.calculateTotals(), inc.calculateTotals());
+        assertFalse(inc.calculateTotals().getLines().containsKey("CANDY"));
+        assertFalse(inc.voidScan(items[2]));
+    }
+
+    @Test
+    void incrementalMode_voidingTheFirstScanOfALine_matchesRecompute() {
+        Product apple1 = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("1.00"));
+        Product apple2 = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("2.00"));
+        Product bread = new Product("BREAD", "Bread", UnitType.PIECE, new BigDecimal("3.00"));
+        Checkout full = new Checkout();
+        Checkout inc = new Checkout(null, true);
+        for (ScannedItem item : List.of(ScannedItem.ofPieces(apple1, 1), ScannedItem.ofPieces(bread, 1), ScannedItem.ofPieces(apple2, 1))) {
+            full.scan(item);
+            inc.scan(item);
+        }
+        full.removeScan(0);
+        inc.removeScan(0);
+        assertEquals(new BigDecimal("5.00"), inc.calculateTotals().getTotal());
+        assertEquals(List.of("BREAD", "APPLE"), List.copyOf(inc.calculateTotals().getLines().keySet()));
+        assertSameResult(full.calculateTotals(), inc.calculateTotals());
+
+        // several Product instances per id, some of them weighed, voided at random
+        Random rnd = new Random(7);
+        List<Product> variants = new ArrayList<>();
+        for (int id = 0; id < 6; id++) {
+            for (int v = 0; v < 3; v++) {
+                UnitType type = id == 5 && v == 2 ? UnitType.WEIGHT : id % 3 == 2 ? UnitType.WEIGHT : UnitType.PIECE;
+                variants.add(new Product("P" + id, "Product " + id, type, new BigDecimal(v + 1 + "." + id + "5")));
+            }
+        }
+        Promotion promo = new Promotion("P0", 2, 1);
+        full = new Checkout(List.of(promo));
+        inc = new Checkout(List.of(promo), true);
+        for (int step = 0; step < 2_000; step++) {
+            if (full.getScans().size() > 0 && rnd.nextInt(3) == 0) {
+                int index = rnd.nextInt(full.getScans().size());
+                assertEquals(full.removeScan(index), inc.removeScan(index));
+            } else {
+                Product p = variants.get(rnd.nextInt(variants.size()));
+                ScannedItem item = p.getUnitType() == UnitType.PIECE
+                        ? ScannedItem.ofPieces(p, 1 + rnd.nextInt(3))
+                        : ScannedItem.ofWeight(p, new BigDecimal(rnd.nextInt(2_000) + 1).movePointLeft(3));
+                full.scan(item);
+                inc.scan(item);
+            }
+            assertSameResult(full.calculateTotals(), inc.calculateTotals());
+        }
+    }
+
+    @Test
+    void result_isReused_untilTheBasketOrItsPricingChanges() {
+        Product chips = new Product("CHIPS", "Bag of Chips", UnitType.PIECE, new BigDecimal("35.00"));
+        Product gum = new Product("GUM", "Gum", UnitType.PIECE, new BigDecimal("0.333"));
+        Product rice = new Product("RICE", "Rice (kg)", UnitType.WEIGHT, new BigDecimal("45.00"));
+        Checkout co = new Checkout();
+        Checkout inc = new Checkout(null, true);
+        ScannedItem[] items = {
+                ScannedItem.ofPieces(chips, 3),
+                ScannedItem.ofPieces(gum, 7),
+                ScannedItem.ofWeight(rice, new BigDecimal("0.75")),
+        };
+        for (ScannedItem item : items) {
+            co.scan(item);
+            inc.scan(item);
+        }
+
+        Checkout.Result first = co.calculateTotals();
+        assertSame(first, co.calculateTotals());
+        assertEquals(new BigDecimal("141.08"), first.getTotal()); // 105.00 + 2.33 + 33.75
+        assertEquals(new BigDecimal("0.00"), first.getSavings()); // 2.331 rounded down to 2.33
+        assertSameResult(inc.calculateTotals(), first);
+        assertSame(first.getLines(), first.getLines());
+        assertThrows(UnsupportedOperationException.class, () -> first.getLines().remove("CHIPS"));
+
+        Promotion buy2get1 = new Promotion("CHIPS", 2, 1);
+        co.addPromotion(buy2get1);
+        inc.addPromotion(buy2get1);
+        Checkout.Result promoted = co.calculateTotals();
+        assertNotSame(first, promoted);
+        assertEquals(new BigDecimal("106.08"), promoted.getTotal());
+        assertSameResult(inc.calculateTotals(), promoted);
+
+        co.removeScan(2);
+        assertEquals(new BigDecimal("72.33"), co.calculateTotals().getTotal());
+        co.scan(items[2]);
+        assertEquals(promoted.getTotal(), co.calculateTotals().getTotal());
+        assertNotSame(promoted, co.calculateTotals());
+    }
+
+    @Test
+    void reset_startsAnEmptyBasket_keepingPromotionsAndEarlierResults() {
+        List<Product> products = new ArrayList<>();
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            boolean weighed = i % 4 == 0;
+            products.add(new Product("P" + i, "Product " + i, weighed ? UnitType.WEIGHT : UnitType.PIECE, new BigDecimal(i + ".25")));
+            if (i % 3 == 1) promotions.add(new Promotion("P" + i, 1 + i % 2, 1));
+        }
+        PromotionIndex index = PromotionIndex.of(promotions);
+        Checkout lane = Checkout.sharing(index, false);
+        Checkout incremental = Checkout.sharing(index, true);
+        Random rnd = new Random(3);
+
+        Checkout.Result firstCustomer = null;
+        Map<String, BigDecimal> firstLines = null;
+        for (int customer = 0; customer < 20; customer++) {
+            lane.reset();
+            incremental.reset();
+            assertTrue(lane.getScans().isEmpty());
+            Checkout fresh = new Checkout(promotions);
+            // up to every product, so the line tables grow past their first size
+            int scans = 1 + rnd.nextInt(customer % 2 == 0 ? 5 : 120);
+            for (int s = 0; s < scans; s++) {
+                Product p = products.get(rnd.nextInt(products.size()));
+                ScannedItem item = p.getUnitType() == UnitType.PIECE
+                        ? ScannedItem.ofPieces(p, 1 + rnd.nextInt(4))
+                        : ScannedItem.ofWeight(p, new BigDecimal("0.00" + (1 + rnd.nextInt(9))).add(BigDecimal.valueOf(rnd.nextInt(3))));
+                lane.scan(item);
+                incremental.scan(item);
+                fresh.scan(item);
+            }
+            Checkout.Result expected = fresh.calculateTotals();
+            assertSameResult(expected, lane.calculateTotals());
+            assertSameResult(expected, incremental.calculateTotals());
+            if (firstCustomer == null) {
+                firstCustomer = lane.calculateTotals();
+                firstLines = new LinkedHashMap<>();
+                for (Checkout.PriceLine line : firstCustomer.getLines().values()) firstLines.put(line.getProduct().getId(), line.getLineTotal());
+            }
+        }
+        // lines of an earlier customer are built from that customer's columns, not the reused scratch
+        Map<String, BigDecimal> after = new LinkedHashMap<>();
+        for (Checkout.PriceLine line : firstCustomer.getLines().values()) after.put(line.getProduct().getId(), line.getLineTotal());
+        assertEquals(firstLines, after);
+    }
+
+    @Test
+    void addedPromotions_stayWithTheirCheckout() {
+        Product chips = new Product("CHIPS", "Bag of Chips", UnitType.PIECE, new BigDecimal("35.00"));
+        PromotionIndex index = PromotionIndex.of(List.of(new Promotion("CHIPS", 2, 1), new Promotion("CHIPS", 2, 1)));
+        assertEquals(1, index.size());
+        Checkout a = Checkout.sharing(index, false);
+        Checkout b = Checkout.sharing(index, false);
+        a.addPromotion(new Promotion("CHIPS", 1, 1));
+        a.scan(ScannedItem.ofPieces(chips, 4));
+        b.scan(ScannedItem.ofPieces(chips, 4));
+        assertEquals(new BigDecimal("70.00"), a.calculateTotals().getTotal()); // buy 1 get 1
+        assertEquals(new BigDecimal("105.00"), b.calculateTotals().getTotal()); // buy 2 get 1, 1 left over
+
+        a.reset();
+        a.scan(ScannedItem.ofPieces(chips, 4));
+        assertEquals(new BigDecimal("70.00"), a.calculateTotals().getTotal());
+        Checkout later = Checkout.sharing(index, false);
+        later.scan(ScannedItem.ofPieces(chips, 4));
+        assertEquals(new BigDecimal("105.00"), later.calculateTotals().getTotal());
+    }
+
+    @Test
+    void pool_handsOutReleasedCheckouts_upToMaxIdle() {
+        Product chips = new Product("CHIPS", "Bag of Chips", UnitType.PIECE, new BigDecimal("35.00"));
+        PromotionIndex index = PromotionIndex.of(List.of(new Promotion("CHIPS", 1, 1)));
+        CheckoutPool pool = new CheckoutPool(() -> Checkout.sharing(index, false), 2);
+
+        Checkout first = pool.acquire();
+        Checkout second = pool.acquire();
+        Checkout third = pool.acquire();
+        assertEquals(3, pool.getCreatedCount());
+        first.scan(ScannedItem.ofPieces(chips, 2));
+        assertEquals(new BigDecimal("35.00"), first.calculateTotals().getTotal());
+        pool.release(first);
+        pool.release(second);
+        pool.release(third); // over maxIdle: dropped
+        assertEquals(2, pool.getIdleCount());
+
+        Checkout again = pool.acquire();
+        assertSame(second, again);
+        assertSame(first, pool.acquire());
+        assertTrue(first.getScans().isEmpty());
+        assertEquals(new BigDecimal("0.00"), first.calculateTotals().getTotal());
+        assertEquals(3, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    private static void assertSameResult(Checkout.Result expected, Checkout.Result actual) {
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.getSavings(), actual.getSavings());
+        assertEquals(List.copyOf(expected.getLines().keySet()), List.copyOf(actual.getLines().keySet()));
+        for (String id : expected.getLines().keySet()) {
+            Checkout.PriceLine e = expected.getLines().get(id);
+            Checkout.PriceLine a = actual.getLines().get(id);
+            assertEquals(e.getQuantityPieces(), a.getQuantityPieces(), id);
+            assertEquals(e.getWeight(), a.getWeight(), id);
+            assertEquals(e.getLineTotal(), a.getLineTotal(), id);
+            assertEquals(e.getPromotion(), a.getPromotion(), id);
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentProductCatalogTest {
+
+    private static final int STABLE = 1_000;
+    private static final int WRITERS = 2;
+    private static final int READERS = 4;
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    void basicOperations_keepInsertionOrder() {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        catalog.addProduct(product("B", 1));
+        catalog.addProduct(product("A", 1));
+        catalog.addProduct(product("C", 1));
+        catalog.updateProduct(product("B", 2));
+        catalog.removeProduct("A");
+        catalog.addProduct(product("A", 3));
+
+        assertEquals(List.of("B", "C", "A"), catalog.listAll().stream().map(Product::getId).toList());
+        assertEquals(new BigDecimal("2.00"), catalog.getProduct("B").orElseThrow().getPricePerUnit());
+        assertThrows(IllegalArgumentException.class, () -> catalog.updateProduct(product("Z", 1)));
+        assertEquals(3, catalog.size());
+    }
+
+    @Test
+    void readersNeverSeeMissingOrTornProducts_whileWritersRun() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        for (int i = 0; i < STABLE; i++) catalog.addProduct(product("S" + i, 1));
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int r = 1; r <= ROUNDS; r++) {
+                    // only this writer touches ids with its residue, so the last price is known
+                    int i = writer + WRITERS * (r % (STABLE / WRITERS));
+                    catalog.updateProduct(product("S" + i, r));
+                    catalog.addProduct(product("V" + writer + "_" + r, r));
+                    if (r % 2 == 0) catalog.removeProduct("V" + writer + "_" + (r - 1));
+                }
+                return null;
+            }));
+        }
+        for (int t = 0; t < READERS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                int reads = 0;
+                while (writing.get() || reads < 10_000) {
+                    String id = "S" + rnd.nextInt(STABLE);
+                    Product p = catalog.getProduct(id).orElseThrow(() -> new AssertionError("missing " + id));
+                    assertEquals(id, p.getId());
+                    if (++reads % 2_000 == 0) assertStableOrder(catalog.listAll());
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (int i = 0; i < WRITERS; i++) futures.get(i).get(60, TimeUnit.SECONDS);
+        writing.set(false);
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        // every even round removed the previous odd one, so the even rounds remain
+        assertEquals(STABLE + WRITERS * ROUNDS / 2, catalog.size());
+        assertStableOrder(catalog.listAll());
+        int[] lastRound = new int[STABLE];
+        Arrays.fill(lastRound, 1);
+        for (int w = 0; w < WRITERS; w++) {
+            for (int r = 1; r <= ROUNDS; r++) lastRound[w + WRITERS * (r % (STABLE / WRITERS))] = r;
+        }
+        for (int i = 0; i < STABLE; i++) {
+            assertEquals(price(lastRound[i]), catalog.getProduct("S" + i).orElseThrow().getPricePerUnit());
+        }
+    }
+
+    // stable products were inserted first and in order; updates must not move them
+    private static void assertStableOrder(List<Product> all) {
+        Set<String> seen = new HashSet<>();
+        int next = 0;
+        for (Product p : all) {
+            assertTrue(seen.add(p.getId()), "duplicate " + p.getId());
+            if (p.getId().startsWith("S")) assertEquals("S" + next++, p.getId());
+        }
+        assertEquals(STABLE, next);
+    }
+
+    private static Product product(String id, int round) {
+        return new Product(id, "Item " + id, UnitType.PIECE, price(round));
+    }
+
+    private static BigDecimal price(int round) {
+        return BigDecimal.valueOf(round * 100L, 2);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.FixedPointPricing;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointPricingTest {
+
+    @Test
+    void matchesCheckout_onRandomizedBaskets() {
+        Random rnd = new Random(42);
+        for (int basket = 0; basket < 2_000; basket++) {
+            List<Product> products = new ArrayList<>();
+            List<Promotion> promos = new ArrayList<>();
+            int productCount = 1 + rnd.nextInt(12);
+            for (int i = 0; i < productCount; i++) {
+                UnitType unit = rnd.nextBoolean() ? UnitType.PIECE : UnitType.WEIGHT;
+                // prices with 0..2 decimals, e.g. 3, 3.5, 3.49
+                BigDecimal price = BigDecimal.valueOf(rnd.nextInt(100_000), rnd.nextInt(3));
+                Product p = new Product("P" + i, "Product " + i, unit, price);
+                products.add(p);
+                if (unit == UnitType.PIECE && rnd.nextInt(3) == 0) {
+                    promos.add(new Promotion(p.getId(), 1 + rnd.nextInt(4), rnd.nextInt(3)));
+                }
+            }
+
+            Checkout checkout = new Checkout(promos);
+            List<ScannedItem> scans = new ArrayList<>();
+            int scanCount = rnd.nextInt(40);
+            for (int i = 0; i < scanCount; i++) {
+                Product p = products.get(rnd.nextInt(products.size()));
+                ScannedItem item = p.getUnitType() == UnitType.PIECE
+                        ? ScannedItem.ofPieces(p, 1 + rnd.nextInt(9))
+                        : ScannedItem.ofWeight(p, BigDecimal.valueOf(1 + rnd.nextInt(5_000_000), rnd.nextInt(7)));
+                checkout.scan(item);
+                scans.add(item);
+            }
+
+            Checkout.Result expected = checkout.calculateTotals();
+            Checkout.Result actual = new FixedPointPricing(promos).price(scans);
+
+            assertEquals(expected.getTotal(), actual.getTotal(), "total, basket " + basket);
+            assertEquals(expected.getSavings(), actual.getSavings(), "savings, basket " + basket);
+            assertEquals(List.copyOf(expected.getLines().keySet()), List.copyOf(actual.getLines().keySet()));
+            for (String id : expected.getLines().keySet()) {
+                Checkout.PriceLine e = expected.getLines().get(id);
+                Checkout.PriceLine a = actual.getLines().get(id);
+                assertEquals(e.getQuantityPieces(), a.getQuantityPieces(), id);
+                assertEquals(e.getWeight(), a.getWeight(), id);
+                assertEquals(e.getLineTotal(), a.getLineTotal(), id);
+                assertSame(e.getPromotion(), a.getPromotion(), id);
+            }
+        }
+    }
+
+    @Test
+    void halfUpRounding_onTies() {
+        // 0.0005 kg rounds up to 0.001 kg; 0.001 * 5.00 = 0.005 rounds up to 0.01
+        Product p = new Product("W", "Weighed", UnitType.WEIGHT, new BigDecimal("5.00"));
+        Checkout.Result r = new FixedPointPricing().price(List.of(ScannedItem.ofWeight(p, new BigDecimal("0.0005"))));
+        assertEquals(new BigDecimal("0.001"), r.getLines().get("W").getWeight());
+        assertEquals(new BigDecimal("0.01"), r.getTotal());
+    }
+
+    @Test
+    void subCentPrice_isRejected() {
+        Product p = new Product("X", "Sub-cent", UnitType.PIECE, new BigDecimal("2.999"));
+        FixedPointPricing pricing = new FixedPointPricing();
+        assertThrows(ArithmeticException.class, () -> pricing.price(List.of(ScannedItem.ofPieces(p, 1))));
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.ReceiptPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LargeBasketTest {
+
+    @Test
+    void scansComeBackExactly_acrossChunksAndVoids() {
+        Random rnd = new Random(18);
+        List<Product> products = products(rnd, 300);
+        Checkout checkout = new Checkout();
+        List<ScannedItem> expected = new ArrayList<>();
+
+        for (int round = 0; round < 30_000; round++) {
+            if (!expected.isEmpty() && rnd.nextInt(5) == 0) {
+                int index = rnd.nextInt(expected.size());
+                assertEquals(expected.remove(index), checkout.removeScan(index));
+            } else {
+                ScannedItem item = item(rnd, products.get(rnd.nextInt(products.size())));
+                checkout.scan(item);
+                expected.add(item);
+            }
+        }
+        List<ScannedItem> scans = checkout.getScans();
+        assertEquals(expected.size(), scans.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ScannedItem got = scans.get(i);
+            assertEquals(expected.get(i), got, "scan " + i);
+            assertSame(expected.get(i).getProduct(), got.getProduct());
+            if (got.isWeight()) assertEquals(expected.get(i).getWeight().scale(), got.getWeight().scale());
+        }
+        assertThrows(UnsupportedOperationException.class, () -> scans.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> scans.get(expected.size()));
+    }
+
+    @Test
+    void voidScan_findsEqualItemsWithoutIdentity() {
+        Product apple = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("1.00"));
+        Product rice = new Product("RICE", "Rice", UnitType.WEIGHT, new BigDecimal("4.00"));
+        Checkout checkout = new Checkout();
+        checkout.scan(ScannedItem.ofWeight(rice, new BigDecimal("0.5")));
+        checkout.scan(ScannedItem.ofPieces(apple, 2));
+        checkout.scan(ScannedItem.ofWeight(rice, new BigDecimal("0.50")));
+        checkout.scan(ScannedItem.ofWeight(rice, new BigDecimal("0.1234567"))); // more than six decimals
+
+        assertTrue(checkout.voidScan(ScannedItem.ofWeight(rice, new BigDecimal("0.5"))));
+        assertEquals(new BigDecimal("0.50"), checkout.getScans().get(1).getWeight());
+        assertFalse(checkout.voidScan(ScannedItem.ofWeight(rice, new BigDecimal("0.5"))));
+        assertTrue(checkout.voidScan(ScannedItem.ofWeight(rice, new BigDecimal("0.1234567"))));
+        assertFalse(checkout.voidScan(ScannedItem.ofPieces(apple, 3)));
+        assertEquals(1, checkout.getScans().lastIndexOf(ScannedItem.ofWeight(rice, new BigDecimal("0.50"))));
+    }
+
+    @Test
+    void totalsMatchIncrementalMode_onHugeBasket() {
+        Random rnd = new Random(18);
+        List<Product> products = products(rnd, 2_000);
+        List<Promotion> promos = new ArrayList<>();
+        for (Product p : products) {
+            if (p.getUnitType() == UnitType.PIECE && rnd.nextInt(4) == 0) promos.add(new Promotion(p.getId(), 2, 1));
+        }
+        Checkout packed = new Checkout(promos);
+        Checkout incremental = new Checkout(promos, true);
+        for (int i = 0; i < 50_000; i++) {
+            ScannedItem item = item(rnd, products.get(rnd.nextInt(products.size())));
+            packed.scan(item);
+            incremental.scan(item);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            int index = rnd.nextInt(packed.getScans().size());
+            packed.removeScan(index);
+            incremental.removeScan(index);
+        }
+        Checkout.Result a = packed.calculateTotals();
+        Checkout.Result b = incremental.calculateTotals();
+        assertEquals(b.getTotal(), a.getTotal());
+        assertEquals(b.getSavings(), a.getSavings());
+        assertEquals(b.getLines().keySet(), a.getLines().keySet());
+    }
+
+    @Test
+    void parallelTotals_identicalToSequential() {
+        Random rnd = new Random(19);
+        List<Product> products = products(rnd, 5_000);
+        List<Promotion> promos = new ArrayList<>();
+        for (Product p : products) {
+            if (p.getUnitType() == UnitType.PIECE && rnd.nextInt(3) == 0) promos.add(new Promotion(p.getId(), 1 + rnd.nextInt(3), 1));
+        }
+        Checkout sequential = new Checkout(promos);
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        Checkout parallel = new Checkout(promos);
+        parallel.setParallelThreshold(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setAggregationPool(pool);
+            for (int i = 0; i < 60_000; i++) {
+                ScannedItem item = item(rnd, products.get(rnd.nextInt(products.size())));
+                sequential.scan(item);
+                parallel.scan(item);
+            }
+            Checkout.Result expected = sequential.calculateTotals();
+            Checkout.Result got = parallel.calculateTotals();
+
+            assertEquals(expected.getTotal(), got.getTotal());
+            assertEquals(expected.getSavings(), got.getSavings());
+            assertEquals(List.copyOf(expected.getLines().keySet()), List.copyOf(got.getLines().keySet()));
+            for (Map.Entry<String, Checkout.PriceLine> e : expected.getLines().entrySet()) {
+                Checkout.PriceLine a = e.getValue();
+                Checkout.PriceLine b = got.getLines().get(e.getKey());
+                assertSame(a.getProduct(), b.getProduct());
+                assertEquals(a.getQuantityPieces(), b.getQuantityPieces());
+                assertEquals(a.getWeight(), b.getWeight());
+                assertEquals(a.getLineTotal(), b.getLineTotal());
+                assertEquals(a.getPromotion(), b.getPromotion());
+            }
+            assertEquals(ReceiptPrinter.print(expected), ReceiptPrinter.print(got));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<Product> products(Random rnd, int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UnitType unit = rnd.nextInt(3) == 0 ? UnitType.WEIGHT : UnitType.PIECE;
+            products.add(new Product("P" + i, "Product " + i, unit, BigDecimal.valueOf(1 + rnd.nextInt(10_000), 2)));
+        }
+        return products;
+    }
+
+    private static ScannedItem item(Random rnd, Product p) {
+        if (p.getUnitType() == UnitType.PIECE) return ScannedItem.ofPieces(p, 1 + rnd.nextInt(5));
+        // mostly scale-three weights, some with eight decimals that do not fit the packed columns
+        int scale = rnd.nextInt(10) == 0 ? 8 : rnd.nextInt(4);
+        return ScannedItem.ofWeight(p, BigDecimal.valueOf(1 + rnd.nextInt(5_000_000), scale));
+    }
+}
@@ -0,0 +1,187 @@
+package org.example;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.metrics.ConcurrentHistogram;
+import org.example.metrics.StoreMetrics;
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.ProductCatalog;
+import org.example.service.ReceiptPrinter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private final StoreMetrics metrics = StoreMetrics.global();
+
+    @BeforeEach
+    void reset() {
+        metrics.setEnabled(true);
+        metrics.reset();
+    }
+
+    @AfterEach
+    void enable() {
+        metrics.setEnabled(true);
+    }
+
+    @Test
+    void concurrentHistogram_percentilesWithinBucketPrecision() throws InterruptedException {
+        ConcurrentHistogram h = new ConcurrentHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int v = 1 + offset; v <= 100_000; v += 4) h.record(v);
+            }));
+        }
+        for (Thread t : threads) t.join();
+
+        assertEquals(100_000, h.getCount());
+        assertEquals(100_000, h.getMax());
+        assertEquals(50_000.5, h.getMean(), 1e-9);
+        assertEquals(50_000, h.percentile(50), 50_000 * 0.016);
+        assertEquals(99_000, h.percentile(99), 99_000 * 0.016);
+        assertEquals(100_000, h.percentile(100));
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.percentile(99));
+    }
+
+    @Test
+    void checkoutCatalogAndReceipt_areCounted(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        Files.writeString(csv, "APPLE,Apple,PIECE,10.00\nRICE,Rice,WEIGHT,45.00\nBAD,Bad,BOX,1\n");
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.loadFromCsv(csv);
+        Product apple = catalog.getProduct("APPLE").orElseThrow();
+        Product rice = catalog.getProduct("RICE").orElseThrow();
+        assertTrue(catalog.getProduct("MISSING").isEmpty());
+
+        Checkout checkout = new Checkout(List.of(new Promotion("APPLE", 2, 1)));
+        checkout.scan(ScannedItem.ofPieces(apple, 3));
+        checkout.scan(ScannedItem.ofWeight(rice, new BigDecimal("0.5")));
+        checkout.scan(ScannedItem.ofPieces(apple, 1));
+        Checkout.Result result = checkout.calculateTotals();
+        ReceiptPrinter.print(result);
+
+        assertEquals(3, metrics.getScans());
+        assertEquals(1, metrics.getBasketsPriced());
+        assertEquals(3, metrics.getBasketSizeMax());
+        assertEquals(1, metrics.getPromotionLines());
+        assertEquals(1, metrics.getPromotionLinesApplied());
+        assertEquals(1.0, metrics.getPromotionHitRate());
+        assertEquals(2, metrics.getCatalogHits());
+        assertEquals(1, metrics.getCatalogMisses());
+        assertEquals(1, metrics.getCsvLoads());
+        assertEquals(3, metrics.getCsvRowsRead());
+        assertEquals(Files.size(csv), metrics.getCsvBytesRead());
+        assertEquals(1, metrics.getReceiptsRendered());
+        assertTrue(metrics.getTotalsMaxMicros() > 0);
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("scans"), dump);
+        assertTrue(dump.contains("1 of 1 lines (100.0%)"), dump);
+        assertTrue(dump.contains("2 hits, 1 misses"), dump);
+    }
+
+    @Test
+    void disabled_recordsNothing() {
+        metrics.setEnabled(false);
+        Product apple = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("10.00"));
+        Checkout checkout = new Checkout();
+        checkout.scan(ScannedItem.ofPieces(apple, 1));
+        ReceiptPrinter.print(checkout.calculateTotals());
+        new ProductCatalog().getProduct("APPLE");
+
+        assertEquals(0, metrics.getScans());
+        assertEquals(0, metrics.getBasketsPriced());
+        assertEquals(0, metrics.getReceiptsRendered());
+        assertEquals(0, metrics.getCatalogMisses());
+    }
+
+    @Test
+    void mbean_exposesAttributesAndOperations() throws Exception {
+        StoreMetrics.registerMBean();
+        StoreMetrics.registerMBean(); // idempotent
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(StoreMetrics.OBJECT_NAME);
+
+        Product apple = new Product("APPLE", "Apple", UnitType.PIECE, new BigDecimal("10.00"));
+        Checkout checkout = new Checkout();
+        for (int i = 0; i < 5; i++) checkout.scan(ScannedItem.ofPieces(apple, 1));
+
+        assertEquals(5L, server.getAttribute(name, "Scans"));
+        assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+        String dump = (String) server.invoke(name, "dump", null, null);
+        assertTrue(dump.startsWith("store metrics (enabled"), dump);
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "Scans"));
+    }
+
+    @Test
+    void jfrEvents_recordedForHotPaths(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        Files.writeString(csv, "APPLE,Apple,PIECE,10.00\n");
+        Path jfr = dir.resolve("metrics.jfr");
+        Random rnd = new Random(16);
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.CheckoutTotals");
+            recording.enable("org.example.CatalogLoad");
+            recording.enable("org.example.ReceiptRender");
+            recording.enable("org.example.Scan");
+            recording.start();
+
+            ProductCatalog catalog = new ProductCatalog();
+            catalog.loadFromCsvParallel(csv);
+            Checkout checkout = new Checkout();
+            for (int i = 0; i < 3; i++) checkout.scan(ScannedItem.ofPieces(catalog.getProduct("APPLE").orElseThrow(), 1 + rnd.nextInt(3)));
+            ReceiptPrinter.print(checkout.calculateTotals());
+
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfr);
+        assertEquals(3, count(events, "org.example.Scan"));
+        assertEquals(1, count(events, "org.example.ReceiptRender"));
+        // lookups stay off unless enabled
+        assertEquals(0, count(events, "org.example.CatalogLookup"));
+        RecordedEvent totals = only(events, "org.example.CheckoutTotals");
+        assertEquals(3, totals.getInt("scans"));
+        assertEquals(1, totals.getInt("lines"));
+        RecordedEvent load = only(events, "org.example.CatalogLoad");
+        assertTrue(load.getBoolean("parallel"));
+        assertEquals(1, load.getLong("rowsRead"));
+        assertEquals(Files.size(csv), load.getLong("bytes"));
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).count();
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,182 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.scan.ScannedItem;
+import org.example.service.Checkout;
+import org.example.service.FixedPointPricing;
+import org.example.service.PromotionApplication;
+import org.example.service.ReceiptPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OverlappingPromotionsTest {
+
+    private static final Product SODA = new Product("SODA", "Soda", UnitType.PIECE, new BigDecimal("1.00"));
+
+    @Test
+    void combinationBeatsEitherPromotionAlone() {
+        Promotion small = new Promotion("SODA", 2, 1);
+        Promotion big = new Promotion("SODA", 4, 3);
+        Checkout c = new Checkout(List.of(small, big));
+        c.scan(ScannedItem.ofPieces(SODA, 10));
+        Checkout.PriceLine line = c.calculateTotals().getLines().get("SODA");
+
+        // either deal alone charges 7; one group of 7 plus one group of 3 charges 4 + 2
+        assertEquals(7, chargedAlone(small, 10));
+        assertEquals(7, chargedAlone(big, 10));
+        assertEquals(new BigDecimal("6.00"), line.getLineTotal());
+        assertSame(big, line.getPromotion());
+
+        List<PromotionApplication> apps = line.getPromotionApplications();
+        assertEquals(2, apps.size());
+        assertEquals(10, apps.stream().mapToLong(PromotionApplication::getUnits).sum());
+        assertEquals(4, apps.stream().mapToLong(PromotionApplication::getFreeUnits).sum());
+
+        String receipt = ReceiptPrinter.print(c.calculateTotals());
+        assertTrue(receipt.contains("buy 2 get 1 free x1"), receipt);
+        assertTrue(receipt.contains("buy 4 get 3 free x1"), receipt);
+    }
+
+    @Test
+    void addPromotion_keepsEarlierOnesAndIgnoresDuplicates() {
+        Checkout c = new Checkout();
+        c.addPromotion(new Promotion("SODA", 4, 3));
+        c.addPromotion(new Promotion("SODA", 2, 1));
+        c.addPromotion(new Promotion("SODA", 2, 1));
+        c.scan(ScannedItem.ofPieces(SODA, 10));
+        assertEquals(new BigDecimal("6.00"), c.calculateTotals().getTotal());
+    }
+
+    @Test
+    void singlePromotion_matchesLegacyPricing() {
+        for (int buy = 1; buy <= 4; buy++) {
+            for (int free = 0; free <= 3; free++) {
+                Promotion p = new Promotion("SODA", buy, free);
+                for (int qty = 1; qty <= 20; qty++) {
+                    Checkout c = new Checkout(List.of(p));
+                    c.scan(ScannedItem.ofPieces(SODA, qty));
+                    Checkout.PriceLine line = c.calculateTotals().getLines().get("SODA");
+                    assertEquals(BigDecimal.valueOf(chargedAlone(p, qty)).setScale(2), line.getLineTotal(), p.getBuy() + "+" + p.getFree() + " x" + qty);
+                    assertSame(p, line.getPromotion());
+                    assertTrue(line.getPromotionApplications().size() <= 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    void randomPromotionSets_matchExhaustiveSearch() {
+        Random rnd = new Random(13);
+        for (int round = 0; round < 300; round++) {
+            List<Promotion> promos = randomPromotions(rnd);
+            // small quantities are searched without the large-quantity reduction
+            int qty = round % 3 == 0 ? 500 + rnd.nextInt(5000) : 1 + rnd.nextInt(60);
+            Checkout c = new Checkout(promos);
+            c.scan(ScannedItem.ofPieces(SODA, qty));
+            Checkout.PriceLine line = c.calculateTotals().getLines().get("SODA");
+
+            long expected = exhaustive(qty, promos);
+            assertEquals(BigDecimal.valueOf(expected).setScale(2), line.getLineTotal(), describe(promos) + " x" + qty);
+
+            long units = 0;
+            long free = 0;
+            for (PromotionApplication a : line.getPromotionApplications()) {
+                Promotion p = a.getPromotion();
+                assertTrue(promos.contains(p));
+                assertTrue(a.getUnits() > a.getGroups() * p.getBuy());
+                assertTrue(a.getUnits() <= a.getGroups() * (p.getBuy() + p.getFree()));
+                assertEquals(a.getUnits() - a.getGroups() * p.getBuy(), a.getFreeUnits());
+                units += a.getUnits();
+                free += a.getFreeUnits();
+            }
+            assertTrue(units <= qty);
+            assertEquals(qty - expected, free);
+        }
+    }
+
+    @Test
+    void exhaustedBudget_fallsBackToBestSinglePromotion() {
+        List<Promotion> promos = List.of(new Promotion("SODA", 40, 39), new Promotion("SODA", 50, 49), new Promotion("SODA", 3, 1));
+        int qty = 9_973;
+        long bestSingle = promos.stream().mapToLong(p -> chargedAlone(p, qty)).min().orElseThrow();
+
+        Checkout rushed = new Checkout(promos);
+        rushed.setPromotionTimeBudget(Duration.ZERO);
+        rushed.scan(ScannedItem.ofPieces(SODA, qty));
+        assertEquals(BigDecimal.valueOf(bestSingle).setScale(2), rushed.calculateTotals().getTotal());
+
+        Checkout patient = new Checkout(promos);
+        patient.setPromotionTimeBudget(Duration.ofSeconds(10));
+        patient.scan(ScannedItem.ofPieces(SODA, qty));
+        assertEquals(BigDecimal.valueOf(exhaustive(qty, promos)).setScale(2), patient.calculateTotals().getTotal());
+        assertTrue(exhaustive(qty, promos) <= bestSingle);
+    }
+
+    @Test
+    void incrementalAndFixedPoint_agreeWithFullRecompute() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            List<Promotion> promos = randomPromotions(rnd);
+            Checkout full = new Checkout(promos);
+            Checkout incremental = new Checkout(promos, true);
+            FixedPointPricing fixed = new FixedPointPricing(promos);
+            List<ScannedItem> scans = new ArrayList<>();
+            for (int i = 0; i < 1 + rnd.nextInt(8); i++) {
+                ScannedItem item = ScannedItem.ofPieces(SODA, 1 + rnd.nextInt(6));
+                scans.add(item);
+                full.scan(item);
+                incremental.scan(item);
+            }
+            Checkout.Result expected = full.calculateTotals();
+            Checkout.Result actual = incremental.calculateTotals();
+            Checkout.Result cents = fixed.price(scans);
+            assertEquals(expected.getTotal(), actual.getTotal());
+            assertEquals(expected.getSavings(), actual.getSavings());
+            assertEquals(0, expected.getTotal().compareTo(cents.getTotal()));
+            assertEquals(0, expected.getSavings().compareTo(cents.getSavings()));
+            assertSame(expected.getLines().get("SODA").getPromotion(), cents.getLines().get("SODA").getPromotion());
+        }
+    }
+
+    // pieces charged under one promotion: buy for every full group of buy+free, at most buy for a trailing partial one
+    private static long chargedAlone(Promotion p, long qty) {
+        int groupSize = p.getBuy() + p.getFree();
+        return qty / groupSize * p.getBuy() + Math.min(qty % groupSize, p.getBuy());
+    }
+
+    private static List<Promotion> randomPromotions(Random rnd) {
+        List<Promotion> promos = new ArrayList<>();
+        for (int i = 0; i < 2 + rnd.nextInt(3); i++) {
+            promos.add(new Promotion("SODA", 1 + rnd.nextInt(6), rnd.nextInt(5)));
+        }
+        return promos;
+    }
+
+    // plain table over every quantity up to qty, no shortcuts
+    private static long exhaustive(int qty, List<Promotion> promos) {
+        long[] best = new long[qty + 1];
+        for (int q = 1; q <= qty; q++) {
+            best[q] = best[q - 1] + 1;
+            for (Promotion p : promos) {
+                for (int r = p.getBuy() + 1; r <= Math.min(q, p.getBuy() + p.getFree()); r++) {
+                    best[q] = Math.min(best[q], best[q - r] + p.getBuy());
+                }
+            }
+        }
+        return best[qty];
+    }
+
+    private static String describe(List<Promotion> promos) {
+        return Arrays.toString(promos.stream().map(p -> p.getBuy() + "+" + p.getFree()).toArray());
+    }
+}
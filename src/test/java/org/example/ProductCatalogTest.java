@@ -2,12 +2,16 @@ package org.example;
 
 import org.example.model.Product;
 import org.example.model.UnitType;
+import org.example.service.CatalogLoadReport;
 import org.example.service.ProductCatalog;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,4 +52,144 @@ public class ProductCatalogTest {
         // cleanup
         Files.deleteIfExists(tmp);
     }
+
+    @Test
+    void loadFromCsv_reportsSkippedRowsByReason() throws Exception {
+        Path tmp = Files.createTempFile("catalog", ".csv");
+        String csv = """
+                # id,name,unit,price
+
+                A1, Apple (kg) ,weight, 3.50
+                BROKEN,only,three
+                X1,Mystery,BOX,1.00
+                Y1,Bad price,PIECE,abc
+                Z1,Empty price,PIECE,
+                C1,Cookie Pack,PIECE,2.50,extra
+                A1,Apple (kg),WEIGHT,3.75
+                """;
+        Files.writeString(tmp, csv);
+        ProductCatalog catalog = new ProductCatalog();
+        CatalogLoadReport report = catalog.loadFromCsv(tmp);
+
+        assertEquals(7, report.getRowsRead());
+        assertEquals(3, report.getProductsLoaded());
+        assertEquals(1, report.getSkippedMalformed());
+        assertEquals(1, report.getSkippedUnknownUnitType());
+        assertEquals(2, report.getSkippedBadPrice());
+        assertNotNull(report.getElapsed());
+
+        assertEquals(2, catalog.size());
+        Product apple = catalog.getProduct("A1").orElseThrow();
+        assertEquals("Apple (kg)", apple.getName());
+        assertEquals(UnitType.WEIGHT, apple.getUnitType());
+        assertEquals(new BigDecimal("3.75"), apple.getPricePerUnit());
+        assertEquals(new BigDecimal("2.50"), catalog.getProduct("C1").orElseThrow().getPricePerUnit());
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    void loadFromCsv_handlesCrLfUnicodeAndLinesLongerThanTheBuffer() throws Exception {
+        Path tmp = Files.createTempFile("catalog", ".csv");
+        String longName = "L".repeat(200_000);
+        String csv = "K1,Käse (kg),WEIGHT,12.90\r\n"
+                + "LONG," + longName + ",PIECE,1.00\r\n"
+                + "\u00c9CLAIR,\u00c9clair \u2615,PIECE,1.10"; // no trailing newline
+        Files.writeString(tmp, csv);
+        ProductCatalog catalog = new ProductCatalog();
+        CatalogLoadReport report = catalog.loadFromCsv(tmp);
+
+        assertEquals(3, report.getProductsLoaded());
+        assertEquals("Käse (kg)", catalog.getProduct("K1").orElseThrow().getName());
+        assertEquals(longName, catalog.getProduct("LONG").orElseThrow().getName());
+        assertEquals("\u00c9clair \u2615", catalog.getProduct("\u00c9CLAIR").orElseThrow().getName());
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    void parallelLoad_matchesSequentialLoad() throws Exception {
+        Path tmp = Files.createTempFile("catalog", ".csv");
+        Random rnd = new Random(7);
+        StringBuilder csv = new StringBuilder("# generated\n");
+        for (int i = 0; i < 150_000; i++) {
+            int id = rnd.nextInt(100_000); // plenty of duplicate ids: last row must win
+            switch (rnd.nextInt(50)) {
+                case 0 -> csv.append("BAD").append(i).append(",no columns");
+                case 1 -> csv.append("U").append(id).append(",Unit?,CRATE,1.00");
+                case 2 -> csv.append("P").append(id).append(",Price?,PIECE,1.0x");
+                default -> csv.append("P").append(id).append(",Product ").append(i).append(',')
+                        .append(rnd.nextBoolean() ? "PIECE" : "weight").append(',')
+                        .append(rnd.nextInt(100_000) / 100.0);
+            }
+            csv.append(rnd.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+        Files.writeString(tmp, csv);
+
+        ProductCatalog sequential = new ProductCatalog();
+        CatalogLoadReport expected = sequential.loadFromCsv(tmp);
+        ProductCatalog parallel = new ProductCatalog();
+        CatalogLoadReport actual;
+        try (ForkJoinPool pool = new ForkJoinPool(4)) {
+            actual = parallel.loadFromCsvParallel(tmp, pool);
+        }
+
+        assertEquals(expected.getRowsRead(), actual.getRowsRead());
+        assertEquals(expected.getProductsLoaded(), actual.getProductsLoaded());
+        assertEquals(expected.getSkippedMalformed(), actual.getSkippedMalformed());
+        assertEquals(expected.getSkippedUnknownUnitType(), actual.getSkippedUnknownUnitType());
+        assertEquals(expected.getSkippedBadPrice(), actual.getSkippedBadPrice());
+
+        List<Product> a = sequential.listAll();
+        List<Product> b = parallel.listAll();
+        assertEquals(a.size(), b.size());
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(a.get(i).getId(), b.get(i).getId());
+            assertEquals(a.get(i).getName(), b.get(i).getName());
+            assertEquals(a.get(i).getUnitType(), b.get(i).getUnitType());
+            assertEquals(a.get(i).getPricePerUnit(), b.get(i).getPricePerUnit());
+        }
+        Files.deleteIfExists(tmp);
+    }
+
+    @Test
+    void columnarCatalog_matchesDefaultCatalog_underRandomChanges() {
+        ProductCatalog columnar = ProductCatalog.columnar();
+        ProductCatalog reference = new ProductCatalog();
+        Random rnd = new Random(11);
+        String[] odd = { "ÉCLAIR", "CAFÉ☕", "\uD83C\uDF4E", "" };
+        for (int i = 0; i < 60_000; i++) {
+            String id = rnd.nextInt(20) == 0 ? odd[rnd.nextInt(odd.length)] : "P" + rnd.nextInt(5_000);
+            int op = rnd.nextInt(10);
+            if (op < 3) {
+                assertSameProduct(reference.removeProduct(id), columnar.removeProduct(id));
+            } else {
+                BigDecimal price = rnd.nextInt(50) == 0
+                        ? new BigDecimal("123456789012345678901234567890.5")
+                        : BigDecimal.valueOf(rnd.nextInt(100_000), rnd.nextInt(4));
+                Product p = new Product(id, "Name " + rnd.nextInt(1000) + (rnd.nextBoolean() ? " (kg)" : " ünïcode"),
+                        rnd.nextBoolean() ? UnitType.PIECE : UnitType.WEIGHT, price);
+                assertSameProduct(reference.addProduct(p), columnar.addProduct(p));
+            }
+        }
+        assertEquals(reference.size(), columnar.size());
+        List<Product> expected = reference.listAll();
+        List<Product> actual = columnar.listAll();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameProduct(expected.get(i), actual.get(i));
+            assertSameProduct(expected.get(i), columnar.getProduct(expected.get(i).getId()).orElseThrow());
+        }
+        assertFalse(columnar.getProduct("missing").isPresent());
+    }
+
+    private static void assertSameProduct(Product expected, Product actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getUnitType(), actual.getUnitType());
+        assertEquals(expected.getPricePerUnit(), actual.getPricePerUnit()); // same value and scale
+    }
 }
@@ -0,0 +1,149 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+import org.example.service.ProductSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchIndexTest {
+
+    private static Product piece(String id, String name) {
+        return new Product(id, name, UnitType.PIECE, new BigDecimal("1.00"));
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    @Test
+    void exactTokensRankFirst_thenShorterCompletions_thenEarlierInTheName() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addProduct(piece("SAUCE", "Applesauce"));
+        catalog.addProduct(piece("GRANNY", "Granny Smith Apple"));
+        catalog.addProduct(piece("APPLE", "Apple (kg)"));
+        catalog.addProduct(piece("APPLES", "Apples 6-pack"));
+        catalog.addProduct(piece("JUICE", "Orange Juice"));
+        ProductSearchIndex index = catalog.searchIndex();
+
+        assertEquals(List.of("APPLE", "GRANNY", "APPLES", "SAUCE"), ids(index.search("apple", 10)));
+        assertEquals(List.of("APPLE", "GRANNY", "APPLES", "SAUCE"), ids(index.search("App", 10)));
+        assertEquals(List.of("APPLE", "GRANNY"), ids(index.search("app", 2)));
+        assertEquals(List.of("GRANNY"), ids(index.search("smith app", 10)));
+        assertEquals(List.of("GRANNY"), ids(index.search("  APPLE, granny!", 10)));
+        assertEquals(List.of(), ids(index.search("apple juice", 10)));
+        assertEquals(List.of("JUICE"), ids(index.search("juic", 10)));
+        assertEquals(List.of(), index.search("--", 10));
+        assertEquals(List.of(), index.search("kiwi", 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("apple", 0));
+    }
+
+    @Test
+    void matchesIds_andIgnoresCaseAndAccents() {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        catalog.addProduct(piece("CREME-BRULEE", "Crème Brûlée"));
+        catalog.addProduct(piece("SKU12345", "Jalapeño Peppers"));
+        ProductSearchIndex index = catalog.searchIndex();
+
+        assertEquals(List.of("CREME-BRULEE"), ids(index.search("creme", 5)));
+        assertEquals(List.of("CREME-BRULEE"), ids(index.search("BRÛ", 5)));
+        assertEquals(List.of("SKU12345"), ids(index.search("jalapeno", 5)));
+        assertEquals(List.of("SKU12345"), ids(index.search("sku123", 5)));
+    }
+
+    @Test
+    void followsEveryKindOfCatalogWrite(@TempDir Path dir) throws IOException {
+        ProductCatalog catalog = ProductCatalog.versioned();
+        ProductSearchIndex index = catalog.searchIndex();
+        catalog.addProduct(piece("RICE", "Basmati Rice"));
+        assertEquals(List.of("RICE"), ids(index.search("basmati", 5)));
+
+        catalog.updateProduct(piece("RICE", "Jasmine Rice"));
+        assertEquals(List.of(), index.search("basmati", 5));
+        assertEquals(List.of("RICE"), ids(index.search("jasm", 5)));
+
+        Product repriced = new Product("RICE", "Jasmine Rice", UnitType.WEIGHT, new BigDecimal("4.20"));
+        catalog.addProduct(repriced);
+        assertSame(repriced, index.search("rice", 5).get(0));
+
+        catalog.applyChanges(List.of(piece("OATS", "Rolled Oats")), List.of("RICE"));
+        assertEquals(List.of(), index.search("rice", 5));
+        assertEquals(List.of("OATS"), ids(index.search("oat", 5)));
+
+        Path csv = dir.resolve("catalog.csv");
+        Files.writeString(csv, "KIWI,Kiwi Gold,PIECE,0.40\nOATS,Steel-cut Oats,PIECE,3.00\n");
+        catalog.loadFromCsv(csv);
+        assertEquals(List.of("KIWI"), ids(index.search("kiwi", 5)));
+        assertEquals(List.of("OATS"), ids(index.search("steel cut", 5)));
+        assertEquals(List.of(), index.search("rolled", 5));
+
+        catalog.removeProduct("KIWI");
+        assertEquals(List.of(), index.search("kiwi gold", 5));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void randomAddsAndRemoves_findWhatALinearScanFinds() {
+        // short, overlapping words make the trie split and merge edges all the time, and common ones fill several
+        // posting blocks
+        String[] words = { "a", "ap", "app", "apple", "apricot", "b", "ban", "banana", "band", "r", "rice", "ricotta", "red" };
+        Random rnd = new Random(7);
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        ProductSearchIndex index = catalog.searchIndex();
+        for (int round = 0; round < 20_000; round++) {
+            String id = "P" + rnd.nextInt(3_000);
+            if (rnd.nextInt(3) == 0) {
+                catalog.removeProduct(id);
+            } else {
+                StringBuilder name = new StringBuilder();
+                for (int w = 1 + rnd.nextInt(3); w > 0; w--) name.append(words[rnd.nextInt(words.length)]).append(' ');
+                catalog.addProduct(piece(id, name.toString().trim()));
+            }
+            if (round % 2_000 == 0) {
+                // a batch large enough to be applied in bulk
+                List<Product> upserts = new ArrayList<>();
+                List<String> removed = new ArrayList<>();
+                for (int i = 0; i < 1_000; i++) {
+                    if (rnd.nextBoolean()) removed.add("P" + rnd.nextInt(3_000));
+                    else upserts.add(piece("P" + rnd.nextInt(3_000), words[rnd.nextInt(words.length)] + " " + words[rnd.nextInt(words.length)]));
+                }
+                catalog.applyChanges(upserts, removed);
+            }
+            if (round % 1_000 == 0) {
+                for (String q : List.of("a", "ap", "apple", "b", "ban", "ri", "rice red", "ap b", "p1", "p19", "p2999")) {
+                    List<String> all = ids(index.search(q, 10_000));
+                    assertEquals(scan(catalog, q), all.stream().sorted().toList(), q);
+                    assertEquals(all.subList(0, Math.min(5, all.size())), ids(index.search(q, 5)), q);
+                }
+            }
+        }
+        assertEquals(catalog.size(), index.size());
+    }
+
+    private static List<String> scan(ProductCatalog catalog, String query) {
+        String[] words = query.toLowerCase(Locale.ROOT).split(" ");
+        List<String> found = new ArrayList<>();
+        for (Product p : catalog.listAll()) {
+            List<String> tokens = new ArrayList<>(List.of(p.getName().toLowerCase(Locale.ROOT).split(" ")));
+            tokens.add(p.getId().toLowerCase(Locale.ROOT));
+            boolean all = true;
+            for (String w : words) all &= tokens.stream().anyMatch(t -> t.startsWith(w));
+            if (all) found.add(p.getId());
+        }
+        found.sort(Comparator.naturalOrder());
+        return found;
+    }
+}
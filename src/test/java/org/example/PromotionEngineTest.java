@@ -0,0 +1,200 @@
+package org.example;
+
+import org.example.model.*;
+import org.example.scan.ScannedItem;
+import org.example.service.AppliedPromotion;
+import org.example.service.Checkout;
+import org.example.service.PromotionEngine;
+import org.example.service.ReceiptPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PromotionEngineTest {
+
+    private static final Product COLA = piece("COLA", "1.50");
+    private static final Product LEMONADE = piece("LEMONADE", "2.00");
+    private static final Product WATER = piece("WATER", "0.80");
+    private static final Product CHIPS = piece("CHIPS", "35.00");
+    private static final Product APPLES = new Product("APPLES", "Apples (kg)", UnitType.WEIGHT, new BigDecimal("3.00"));
+
+    @Test
+    void multiBuy_appliesPerCompleteBundle() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .add(BundlePriceRule.forProduct("R1", "COLA", 3, new BigDecimal("3.00")))
+                .build();
+        Checkout.Result r = checkout(engine, ScannedItem.ofPieces(COLA, 7));
+
+        // 7 x 1.50 = 10.50; two bundles of 3 for 3.00 save 1.50 each
+        assertEquals(new BigDecimal("7.50"), r.getTotal());
+        assertEquals(new BigDecimal("3.00"), r.getSavings());
+        AppliedPromotion a = r.getAppliedPromotions().get(0);
+        assertEquals(2, a.getTimes());
+        assertEquals(List.of("COLA"), a.getProductIds());
+    }
+
+    @Test
+    void mixAndMatch_bundlesMostExpensivePiecesFirst() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .group("DRINKS", List.of("COLA", "LEMONADE", "WATER"))
+                .add(BundlePriceRule.forGroup("R1", "DRINKS", 3, new BigDecimal("4.00")))
+                .build();
+        Checkout.Result r = checkout(engine,
+                ScannedItem.ofPieces(WATER, 2), ScannedItem.ofPieces(COLA, 2), ScannedItem.ofPieces(LEMONADE, 2));
+
+        // bundles: (2.00 + 2.00 + 1.50) and (1.50 + 0.80 + 0.80), the second costs more than 4.00 so only one applies
+        assertEquals(new BigDecimal("1.50"), r.getAppliedPromotions().get(0).getDiscount());
+        assertEquals(1, r.getAppliedPromotions().get(0).getTimes());
+        assertEquals(new BigDecimal("7.10"), r.getTotal());
+    }
+
+    @Test
+    void weightDiscount_onlyFromMinimumWeight() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .add(WeightDiscountRule.forProduct("W1", "APPLES", new BigDecimal("2.000"), new BigDecimal("10")))
+                .build();
+        assertEquals(new BigDecimal("5.97"),
+                checkout(engine, ScannedItem.ofWeight(APPLES, new BigDecimal("1.990"))).getTotal());
+        Checkout.Result r = checkout(engine, ScannedItem.ofWeight(APPLES, new BigDecimal("1.5")),
+                ScannedItem.ofWeight(APPLES, new BigDecimal("0.5")));
+        assertEquals(new BigDecimal("5.40"), r.getTotal());
+        assertEquals(new BigDecimal("0.60"), r.getSavings());
+    }
+
+    @Test
+    void basketThreshold_picksBestQualifyingRule_afterItemDiscounts() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .add(BundlePriceRule.forProduct("R1", "CHIPS", 2, new BigDecimal("60.00")))
+                .add(BasketThresholdRule.amountOff("B1", new BigDecimal("50"), new BigDecimal("5")))
+                .add(BasketThresholdRule.amountOff("B2", new BigDecimal("100"), new BigDecimal("12")))
+                .add(BasketThresholdRule.percentOff("B3", new BigDecimal("60"), new BigDecimal("10")))
+                .add(BasketThresholdRule.percentOff("B4", new BigDecimal("500"), new BigDecimal("50")))
+                .build();
+        // 3 chips: 105.00, bundle saves 10.00 -> 95.00; B2 no longer qualifies, B3 (9.50) beats B1 (5.00)
+        Checkout.Result r = checkout(engine, ScannedItem.ofPieces(CHIPS, 3));
+        assertEquals(2, r.getAppliedPromotions().size());
+        assertEquals("B3", r.getAppliedPromotions().get(1).getRule().getId());
+        assertEquals(new BigDecimal("85.50"), r.getTotal());
+        assertEquals(new BigDecimal("19.50"), r.getSavings());
+
+        String receipt = ReceiptPrinter.print(r);
+        assertTrue(receipt.contains("   -> 10% off from 60"));
+        assertTrue(receipt.contains("-9.50"));
+    }
+
+    @Test
+    void linesWithBuyXGetY_areLeftToThatPromotion() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .add(BundlePriceRule.forProduct("R1", "CHIPS", 2, new BigDecimal("50.00")))
+                .build();
+        Checkout co = new Checkout(List.of(new Promotion("CHIPS", 1, 1)));
+        co.setPromotionEngine(engine);
+        co.scan(ScannedItem.ofPieces(CHIPS, 2));
+        Checkout.Result r = co.calculateTotals();
+        assertTrue(r.getAppliedPromotions().isEmpty());
+        assertEquals(new BigDecimal("35.00"), r.getTotal());
+    }
+
+    @Test
+    void unrelatedRules_doNotChangeTheOutcome() {
+        List<PromotionRule> relevant = List.of(
+                BundlePriceRule.forProduct("R1", "COLA", 2, new BigDecimal("2.50")),
+                BundlePriceRule.forGroup("R2", "DRINKS", 4, new BigDecimal("5.00")),
+                WeightDiscountRule.forGroup("R3", "FRESH", new BigDecimal("1"), new BigDecimal("15")));
+        PromotionEngine.Builder small = PromotionEngine.builder()
+                .group("DRINKS", List.of("COLA", "LEMONADE", "WATER")).group("FRESH", List.of("APPLES"));
+        PromotionEngine.Builder large = PromotionEngine.builder()
+                .group("DRINKS", List.of("COLA", "LEMONADE", "WATER")).group("FRESH", List.of("APPLES"));
+        small.addAll(relevant);
+        large.addAll(relevant);
+        Random rnd = new Random(1);
+        List<String> noise = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) noise.add("OTHER" + i);
+        large.group("NOISE", noise);
+        for (int i = 0; i < 50_000; i++) {
+            large.add(i % 2 == 0
+                    ? BundlePriceRule.forProduct("N" + i, "OTHER" + rnd.nextInt(1000), 2, BigDecimal.ONE)
+                    : BundlePriceRule.forGroup("N" + i, "NOISE", 2 + rnd.nextInt(3), BigDecimal.ONE));
+        }
+        PromotionEngine a = small.build();
+        PromotionEngine b = large.build();
+        assertEquals(50_003, b.size());
+
+        for (int round = 0; round < 50; round++) {
+            List<ScannedItem> items = new ArrayList<>();
+            for (Product p : List.of(COLA, LEMONADE, WATER)) {
+                if (rnd.nextBoolean()) items.add(ScannedItem.ofPieces(p, 1 + rnd.nextInt(6)));
+            }
+            if (rnd.nextBoolean()) items.add(ScannedItem.ofWeight(APPLES, BigDecimal.valueOf(rnd.nextInt(3000) + 1, 3)));
+            Checkout.Result ra = checkout(a, items.toArray(new ScannedItem[0]));
+            Checkout.Result rb = checkout(b, items.toArray(new ScannedItem[0]));
+            assertEquals(ra.getTotal(), rb.getTotal());
+            assertEquals(ra.getAppliedPromotions().size(), rb.getAppliedPromotions().size());
+        }
+    }
+
+    @Test
+    void fullRecompute_andIncrementalMode_applyTheSamePromotions() {
+        PromotionEngine engine = PromotionEngine.builder()
+                .group("DRINKS", List.of("COLA", "LEMONADE", "WATER"))
+                .add(BundlePriceRule.forGroup("R1", "DRINKS", 3, new BigDecimal("3.50")))
+                .add(WeightDiscountRule.forProduct("W1", "APPLES", new BigDecimal("1.000"), new BigDecimal("20")))
+                .add(BasketThresholdRule.percentOff("B1", new BigDecimal("10"), new BigDecimal("5")))
+                .build();
+        // APPLES also sold by the piece at one point: an id with a piece and a weight line
+        Product applesByPiece = piece("APPLES", "0.40");
+        Random rnd = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            Checkout full = new Checkout(List.of(new Promotion("WATER", 2, 1)));
+            Checkout incremental = new Checkout(List.of(new Promotion("WATER", 2, 1)), true);
+            full.setPromotionEngine(engine);
+            incremental.setPromotionEngine(engine);
+            for (int i = rnd.nextInt(8); i >= 0; i--) {
+                int pick = rnd.nextInt(5);
+                ScannedItem item = pick == 3 ? ScannedItem.ofWeight(APPLES, BigDecimal.valueOf(rnd.nextInt(3000) + 1, 3))
+                        : pick == 4 ? ScannedItem.ofPieces(applesByPiece, 1 + rnd.nextInt(4))
+                        : ScannedItem.ofPieces(List.of(COLA, LEMONADE, WATER).get(pick), 1 + rnd.nextInt(4));
+                full.scan(item);
+                incremental.scan(item);
+            }
+            Checkout.Result a = full.calculateTotals();
+            Checkout.Result b = incremental.calculateTotals();
+            assertEquals(b.getTotal(), a.getTotal());
+            assertEquals(b.getSavings(), a.getSavings());
+            assertEquals(b.getAppliedPromotions().size(), a.getAppliedPromotions().size());
+            for (int k = 0; k < a.getAppliedPromotions().size(); k++) {
+                AppliedPromotion x = a.getAppliedPromotions().get(k);
+                AppliedPromotion y = b.getAppliedPromotions().get(k);
+                assertEquals(y.getRule().getId(), x.getRule().getId());
+                assertEquals(y.getDiscount(), x.getDiscount());
+            }
+            assertEquals(List.copyOf(b.getLines().keySet()), List.copyOf(a.getLines().keySet()));
+        }
+    }
+
+    @Test
+    void invalidCalendars_areRejected() {
+        assertThrows(IllegalStateException.class, () -> PromotionEngine.builder()
+                .add(BundlePriceRule.forGroup("R1", "MISSING", 2, BigDecimal.ONE)).build());
+        assertThrows(IllegalArgumentException.class, () -> PromotionEngine.builder()
+                .add(BundlePriceRule.forProduct("R1", "A", 2, BigDecimal.ONE))
+                .add(BundlePriceRule.forProduct("R1", "B", 2, BigDecimal.ONE)));
+        assertThrows(IllegalArgumentException.class, () -> BundlePriceRule.forProduct("R", "A", 1, BigDecimal.ONE));
+    }
+
+    private static Checkout.Result checkout(PromotionEngine engine, ScannedItem... items) {
+        Checkout co = new Checkout();
+        co.setPromotionEngine(engine);
+        for (ScannedItem item : items) co.scan(item);
+        return co.calculateTotals();
+    }
+
+    private static Product piece(String id, String price) {
+        return new Product(id, id, UnitType.PIECE, new BigDecimal(price));
+    }
+}
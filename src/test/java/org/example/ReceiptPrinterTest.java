@@ -0,0 +1,136 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.Promotion;
+import org.example.model.UnitType;
+import org.example.service.Checkout;
+import org.example.service.ReceiptPrinter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptPrinterTest {
+
+    private static final String[] NAMES = {
+            "Bag of Chips", "Rice (kg)", "", "A product name that is far wider than twenty columns",
+            "Käse", "Crème brûlée ☕", "Emoji 🍎 apple", "broken \uD83C surrogate", "exactly twenty chars"
+    };
+    private static final String[] DECIMALS = {
+            "0", "0.00", "1", "35.00", "0.005", "0.015", "-0.004", "-0.005", "-0.0050001", "1234.5", "-1234567.125",
+            "999.995", "1E+3", "1E-25", "-1E-25", "123456789012345.678", "12345678901234567890.555", "0.0005",
+            "45.123456789", "1000000", "-0.00"
+    };
+
+    @Test
+    void output_isIdenticalToStringFormatLayout() {
+        Random rnd = new Random(10);
+        for (int round = 0; round < 300; round++) {
+            Checkout.Result result = randomResult(rnd, rnd.nextInt(30));
+            assertEquals(reference(result), ReceiptPrinter.print(result));
+        }
+    }
+
+    @Test
+    void appendableAndByteBuffer_matchString() throws Exception {
+        Checkout.Result result = randomResult(new Random(11), 50);
+        String expected = reference(result);
+
+        StringWriter writer = new StringWriter();
+        ReceiptPrinter.print(result, writer);
+        assertEquals(expected, writer.toString());
+
+        StringBuilder sb = new StringBuilder("prefix|");
+        ReceiptPrinter.print(result, sb);
+        assertEquals("prefix|" + expected, sb.toString());
+
+        byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+        for (ByteBuffer buf : List.of(ByteBuffer.allocate(bytes.length + 8), ByteBuffer.allocateDirect(bytes.length))) {
+            ReceiptPrinter.print(result, buf);
+            buf.flip();
+            byte[] actual = new byte[buf.remaining()];
+            buf.get(actual);
+            assertArrayEquals(bytes, actual);
+        }
+        assertThrows(java.nio.BufferOverflowException.class,
+                () -> ReceiptPrinter.print(result, ByteBuffer.allocate(bytes.length - 1)));
+    }
+
+    @Test
+    void concurrentPrinting_doesNotInterfere() throws Exception {
+        List<Checkout.Result> results = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        Random rnd = new Random(12);
+        for (int i = 0; i < 16; i++) {
+            results.add(randomResult(rnd, 40));
+            expected.add(reference(results.get(i)));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        int k = (i + offset) % results.size();
+                        if (!expected.get(k).equals(ReceiptPrinter.print(results.get(k)))) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> f : futures) assertTrue(f.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Checkout.Result randomResult(Random rnd, int lines) {
+        Map<String, Checkout.PriceLine> map = new LinkedHashMap<>();
+        for (int i = 0; i < lines; i++) {
+            boolean weighted = rnd.nextBoolean();
+            Product p = new Product("P" + i, NAMES[rnd.nextInt(NAMES.length)],
+                    weighted ? UnitType.WEIGHT : UnitType.PIECE, new BigDecimal("1.00"));
+            BigDecimal pieces = weighted ? null : rnd.nextInt(5) == 0 ? new BigDecimal("2.7") : BigDecimal.valueOf(rnd.nextInt(100_000));
+            BigDecimal weight = weighted ? randomDecimal(rnd) : null;
+            Promotion promo = rnd.nextInt(3) == 0 ? new Promotion(p.getId(), 1 + rnd.nextInt(12), rnd.nextInt(3)) : null;
+            map.put(p.getId(), new Checkout.PriceLine(p, pieces, weight, randomDecimal(rnd), randomDecimal(rnd), promo));
+        }
+        return new Checkout.Result(map, randomDecimal(rnd), randomDecimal(rnd));
+    }
+
+    private static BigDecimal randomDecimal(Random rnd) {
+        if (rnd.nextBoolean()) return new BigDecimal(DECIMALS[rnd.nextInt(DECIMALS.length)]);
+        return BigDecimal.valueOf(rnd.nextLong() % 100_000_000_000L, rnd.nextInt(8) - 1);
+    }
+
+    // the original String.format/DecimalFormat implementation
+    private static String reference(Checkout.Result result) {
+        DecimalFormat moneyFmt = new DecimalFormat("#,##0.00");
+        DecimalFormat weightFmt = new DecimalFormat("#,##0.000");
+        StringBuilder sb = new StringBuilder();
+        sb.append("===== Grocery Store Receipt =====\n");
+        sb.append(String.format("%-20s %10s %10s %10s\n", "Item", "Qty/Weight", "Unit", "Line"));
+        sb.append("-----------------------------------------------\n");
+        for (Checkout.PriceLine l : result.getLines().values()) {
+            String qtyDisplay = l.getQuantityPieces() != null
+                    ? l.getQuantityPieces().toBigInteger().toString()
+                    : weightFmt.format(l.getWeight());
+            sb.append(String.format("%-20s %10s %10s %10s\n", l.getProduct().getName(), qtyDisplay,
+                    moneyFmt.format(l.getUnitPrice()), moneyFmt.format(l.getLineTotal())));
+            Promotion p = l.getPromotion();
+            if (p != null) sb.append(String.format("   -> Promotion: buy %d get %d free\n", p.getBuy(), p.getFree()));
+        }
+        sb.append("-----------------------------------------------\n");
+        sb.append(String.format("%-42s %10s\n", "Savings:", moneyFmt.format(result.getSavings())));
+        sb.append(String.format("%-42s %10s\n", "TOTAL:", moneyFmt.format(result.getTotal())));
+        sb.append("===============================================\n");
+        return sb.toString();
+    }
+}
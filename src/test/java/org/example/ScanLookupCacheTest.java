@@ -0,0 +1,188 @@
+package org.example;
+
+import org.example.model.Product;
+import org.example.model.UnitType;
+import org.example.service.ProductCatalog;
+import org.example.service.ScanLookupCache;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanLookupCacheTest {
+
+    private static final long EAN = 4_006_381_333_931L;
+
+    @Test
+    void codeIndex_matchesHashMap_underRandomAssignAndRemove() {
+        ProductCatalog catalog = new ProductCatalog();
+        for (int i = 0; i < 50; i++) catalog.addProduct(product("P" + i, 1));
+        Map<Long, String> expected = new HashMap<>();
+        Random rnd = new Random(17);
+        for (int round = 0; round < 200_000; round++) {
+            // consecutive codes in a small range, so probe runs collide and wrap
+            long code = EAN + rnd.nextInt(5_000);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(expected.remove(code), catalog.removeCode(code));
+            } else {
+                String id = "P" + rnd.nextInt(50);
+                assertEquals(expected.put(code, id), catalog.assignCode(code, id));
+            }
+        }
+        assertEquals(expected.size(), catalog.codeCount());
+        for (long code = EAN; code < EAN + 5_000; code++) {
+            String id = expected.get(code);
+            Product p = catalog.getProductByCode(code);
+            assertEquals(id, p == null ? null : p.getId(), "code " + code);
+        }
+        assertThrows(IllegalArgumentException.class, () -> catalog.assignCode(0, "P1"));
+        assertThrows(IllegalArgumentException.class, () -> catalog.assignCode(-5, "P1"));
+    }
+
+    @Test
+    void removingCodesThatCannotBeAssigned_changesNothing() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.assignCode(EAN, "P1");
+        assertNull(catalog.removeCode(0));
+        assertNull(catalog.removeCode(0));
+        assertNull(catalog.removeCode(-EAN));
+        assertEquals(1, catalog.codeCount());
+        assertEquals("P1", catalog.removeCode(EAN));
+        assertEquals(0, catalog.codeCount());
+    }
+
+    @Test
+    void codesOutliveTheirProduct() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.addProduct(product("APPLE", 1));
+        catalog.assignCode(4011, "APPLE"); // PLU
+        catalog.assignCode(EAN, "APPLE");
+
+        assertSame(catalog.getProductByCode(4011), catalog.getProductByCode(EAN));
+        catalog.removeProduct("APPLE");
+        assertNull(catalog.getProductByCode(4011));
+        catalog.addProduct(product("APPLE", 2));
+        assertEquals(new BigDecimal("2.00"), catalog.getProductByCode(4011).getPricePerUnit());
+    }
+
+    @Test
+    void cache_hitsEvictsAndRemembersUnknownCodes() {
+        ProductCatalog catalog = new ProductCatalog();
+        for (int i = 0; i < 100; i++) {
+            catalog.addProduct(product("P" + i, 1));
+            catalog.assignCode(EAN + i, "P" + i);
+        }
+        ScanLookupCache cache = new ScanLookupCache(catalog, 16, 4);
+
+        Product first = cache.lookup(EAN);
+        assertEquals("P0", first.getId());
+        assertSame(first, cache.lookup(EAN));
+        assertNull(cache.lookup(42));
+        assertNull(cache.lookup(42));
+        assertNull(cache.lookup(0));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getNegativeHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+
+        // far more products than fit: everything is still answered correctly
+        Random rnd = new Random(17);
+        for (int i = 0; i < 10_000; i++) {
+            int k = rnd.nextInt(100);
+            assertEquals("P" + k, cache.lookup(EAN + k).getId());
+        }
+        assertTrue(cache.getEvictions() > 0);
+
+        // a hot product survives a scan of cold ones in its set
+        ScanLookupCache lru = new ScanLookupCache(catalog, 4, 4);
+        lru.lookup(EAN);
+        for (int i = 1; i < 100; i++) {
+            lru.lookup(EAN);
+            lru.lookup(EAN + i);
+        }
+        long misses = lru.getMisses();
+        lru.lookup(EAN);
+        assertEquals(misses, lru.getMisses());
+    }
+
+    @Test
+    void cache_seesCatalogChanges() {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        catalog.addProduct(product("MILK", 1));
+        ScanLookupCache cache = new ScanLookupCache(catalog);
+        assertNull(cache.lookup(EAN));
+
+        catalog.assignCode(EAN, "MILK");
+        assertEquals(new BigDecimal("1.00"), cache.lookup(EAN).getPricePerUnit());
+        catalog.updateProduct(product("MILK", 3));
+        assertEquals(new BigDecimal("3.00"), cache.lookup(EAN).getPricePerUnit());
+        catalog.removeCode(EAN);
+        assertNull(cache.lookup(EAN));
+        catalog.assignCode(EAN, "MILK");
+        catalog.applyChanges(List.of(), List.of("MILK"));
+        assertNull(cache.lookup(EAN));
+    }
+
+    @Test
+    void rejectedUpdate_keepsCachedLookups() {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        catalog.addProduct(product("MILK", 1));
+        catalog.assignCode(EAN, "MILK");
+        ScanLookupCache cache = new ScanLookupCache(catalog);
+        cache.lookup(EAN);
+        assertThrows(IllegalArgumentException.class, () -> catalog.updateProduct(product("UNKNOWN", 2)));
+        long misses = cache.getMisses();
+        assertEquals("MILK", cache.lookup(EAN).getId());
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    void lanesReadCodes_whileAWriterReassigns() throws Exception {
+        ProductCatalog catalog = ProductCatalog.concurrent();
+        for (int i = 0; i < 1_000; i++) {
+            catalog.addProduct(product("S" + i, 1));
+            catalog.assignCode(EAN + i, "S" + i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(pool.submit(() -> {
+            // churn codes outside the stable range so the index keeps resizing and shifting
+            for (int round = 0; round < 200_000; round++) {
+                long code = EAN + 1_000 + round % 20_000;
+                if (round % 3 == 2) catalog.removeCode(code);
+                else catalog.assignCode(code, "S" + round % 1_000);
+            }
+            writing.set(false);
+            return null;
+        }));
+        for (int r = 0; r < 3; r++) {
+            int seed = r;
+            futures.add(pool.submit(() -> {
+                ScanLookupCache cache = new ScanLookupCache(catalog, 64, 16);
+                Random rnd = new Random(seed);
+                while (writing.get()) {
+                    int k = rnd.nextInt(1_000);
+                    Product p = rnd.nextBoolean() ? cache.lookup(EAN + k) : catalog.getProductByCode(EAN + k);
+                    assertNotNull(p, "stable code " + k);
+                    assertEquals("S" + k, p.getId());
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+    }
+
+    private static Product product(String id, int price) {
+        return new Product(id, id, UnitType.PIECE, BigDecimal.valueOf(price).setScale(2));
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.example.sim.LatencyHistogram;
+import org.example.sim.StoreSimulator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreSimulatorTest {
+
+    @Test
+    void histogramPercentiles_areWithinBucketPrecision() {
+        Random rnd = new Random(4);
+        long[] values = new long[100_000];
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // log-uniform from 1ns to ~10s
+            values[i] = (long) Math.pow(10, rnd.nextDouble() * 10);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, h.getCount());
+        assertEquals(values[values.length - 1], h.getMax());
+        for (double p : new double[] { 0, 1, 50, 90, 99, 99.9, 99.99, 100 }) {
+            long exact = values[Math.max(0, (int) Math.ceil(p / 100 * values.length) - 1)];
+            long approx = h.percentile(p);
+            assertTrue(approx >= exact && approx <= exact + exact / 60 + 1, p + ": " + exact + " vs " + approx);
+        }
+
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(Long.MAX_VALUE);
+        h.add(other);
+        assertEquals(Long.MAX_VALUE, h.percentile(100));
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+
+    @Test
+    void simulator_runsBasketsOnManyLanes_fromCsvCatalog(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            sb.append("P").append(i).append(",Product ").append(i).append(',')
+                    .append(i % 3 == 0 ? "WEIGHT" : "PIECE").append(',').append(1 + i % 50).append(".99\n");
+        }
+        Files.writeString(csv, sb);
+
+        StoreSimulator simulator = new StoreSimulator(StoreSimulator.Options.parse(new String[] {
+                "--catalog=" + csv, "--lanes=300", "--baskets=4", "--warmup=0", "--basket=10", "--zipf=1.2" }));
+        StoreSimulator.Report report = simulator.run();
+
+        assertEquals(1200, report.getTransactions());
+        assertEquals(1200, report.getLatency(StoreSimulator.Operation.TRANSACTION).getCount());
+        assertEquals(1200, report.getLatency(StoreSimulator.Operation.RECEIPT).getCount());
+        LatencyHistogram lookups = report.getLatency(StoreSimulator.Operation.LOOKUP);
+        assertEquals(lookups.getCount(), report.getLatency(StoreSimulator.Operation.SCAN).getCount());
+        assertTrue(lookups.getCount() >= 1200);
+        assertTrue(lookups.percentile(50) <= lookups.percentile(99));
+        assertTrue(lookups.percentile(99.9) <= lookups.getMax());
+        assertTrue(report.getTransactionsPerSecond() > 0);
+        assertTrue(report.toString().contains("p999"));
+    }
+
+    @Test
+    void unknownOptions_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> StoreSimulator.Options.parse(new String[] { "--lane=3" }));
+        assertThrows(IllegalArgumentException.class, () -> StoreSimulator.Options.parse(new String[] { "lanes" }));
+    }
+}